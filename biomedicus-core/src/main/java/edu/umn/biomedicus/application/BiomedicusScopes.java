@@ -20,6 +20,8 @@ import com.google.inject.*;
 
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
@@ -129,15 +131,17 @@ public final class BiomedicusScopes {
      * scope.<br/>
      * <br/>
      * {@link #call(Callable)} causes the current thread to enter the scope so that objects from the map are provided
-     * when scoped objects are needed.
+     * when scoped objects are needed. Any number of threads may be inside the same context at once, scoped objects are
+     * created at most once per context no matter how many threads ask for them.
      */
     public static final class Context {
         private final ThreadLocal<Context> contextRef;
-        private final Map<Key<?>, Object> objectsMap;
+        private final ConcurrentMap<Key<?>, Object> objectsMap;
+        private final ConcurrentMap<Key<?>, Object> locks = new ConcurrentHashMap<>();
 
         private Context(ThreadLocal<Context> contextRef, Map<Key<?>, Object> objectsMap) {
             this.contextRef = contextRef;
-            this.objectsMap = objectsMap;
+            this.objectsMap = new ConcurrentHashMap<>(objectsMap);
         }
 
         /**
@@ -149,7 +153,7 @@ public final class BiomedicusScopes {
          * @return the value of T returned by the callable.
          * @throws Exception any exception thrown by the callable.
          */
-        public synchronized <T> T call(Callable<T> callable) throws Exception {
+        public <T> T call(Callable<T> callable) throws Exception {
             if (contextRef.get() != null) {
                 throw new IllegalStateException("Processor scope already in progress");
             }
@@ -160,6 +164,26 @@ public final class BiomedicusScopes {
                 contextRef.remove();
             }
         }
+
+        @SuppressWarnings("unchecked")
+        private <T> T get(Key<T> key, Provider<T> unscoped) {
+            T t = (T) objectsMap.get(key);
+            if (t != null) {
+                return t;
+            }
+            // a lock per key rather than computeIfAbsent, since creating the object may provision other scoped keys
+            Object lock = locks.computeIfAbsent(key, k -> new Object());
+            synchronized (lock) {
+                t = (T) objectsMap.get(key);
+                if (t == null) {
+                    t = unscoped.get();
+                    if (t != null && !Scopes.isCircularProxy(t)) {
+                        objectsMap.put(key, t);
+                    }
+                }
+            }
+            return t;
+        }
     }
 
     /**
@@ -177,16 +201,7 @@ public final class BiomedicusScopes {
             return () -> {
                 Context context = contextRef.get();
                 if (null != context) {
-                    @SuppressWarnings("unchecked")
-                    T t = (T) context.objectsMap.get(key);
-
-                    if (t == null) {
-                        t = unscoped.get();
-                        if (!Scopes.isCircularProxy(t)) {
-                            context.objectsMap.put(key, t);
-                        }
-                    }
-                    return t;
+                    return context.get(key, unscoped);
                 } else {
                     throw new OutOfScopeException("Not currently in a document scope");
                 }
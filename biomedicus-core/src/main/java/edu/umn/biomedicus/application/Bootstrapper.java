@@ -17,6 +17,7 @@
 package edu.umn.biomedicus.application;
 
 import com.google.inject.*;
+import com.google.inject.name.Names;
 import edu.umn.biomedicus.exc.BiomedicusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -214,7 +215,7 @@ public final class Bootstrapper {
         return Paths.get(home);
     }
 
-    private Biomedicus biomedicus() {
+    private Biomedicus biomedicus() throws BiomedicusException {
         Injector biomedicusInjector;
         if (injector != null) {
             biomedicusInjector = injector.createChildInjector(modules);
@@ -222,6 +223,39 @@ public final class Bootstrapper {
             biomedicusInjector = Guice.createInjector(Stage.PRODUCTION, modules);
         }
 
+        eagerLoad(biomedicusInjector);
+
         return biomedicusInjector.getInstance(Biomedicus.class);
     }
+
+    /**
+     * Concurrently loads the classes listed in the "eagerLoad.classes" setting, so that the models are ready before
+     * the first document.
+     */
+    private void eagerLoad(Injector biomedicusInjector) throws BiomedicusException {
+        Map<String, Object> globalSettings = biomedicusInjector.getInstance(Key.get(
+                new TypeLiteral<Map<String, Object>>() {}, Names.named("globalSettings")));
+        Object eagerLoadSettings = globalSettings.get("eagerLoad");
+        if (!(eagerLoadSettings instanceof Map)) {
+            return;
+        }
+        Map<?, ?> eagerLoadMap = (Map<?, ?>) eagerLoadSettings;
+        Object classes = eagerLoadMap.get("classes");
+        if (!(classes instanceof List) || ((List<?>) classes).isEmpty()) {
+            return;
+        }
+        Object threads = eagerLoadMap.get("threads");
+
+        Map<String, EagerLoadable> loadables = new LinkedHashMap<>();
+        for (Object className : (List<?>) classes) {
+            Class<?> aClass;
+            try {
+                aClass = Class.forName((String) className);
+            } catch (ClassNotFoundException e) {
+                throw new BiomedicusException("Eager load class not found: " + className, e);
+            }
+            loadables.put(aClass.getSimpleName(), () -> EagerLoader.eagerLoad(biomedicusInjector, aClass));
+        }
+        new EagerLoader(threads instanceof Integer ? (Integer) threads : 0).loadAll(loadables);
+    }
 }
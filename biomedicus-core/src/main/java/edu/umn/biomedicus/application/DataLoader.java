@@ -43,7 +43,13 @@ public abstract class DataLoader<T> implements Provider<T>, EagerLoadable {
     /**
      * true when the object has been loaded, single check to prevent double semaphore + latch check.
      */
-    private boolean loaded = false;
+    private volatile boolean loaded = false;
+
+    /**
+     * The exception thrown by the loading thread, rethrown to the threads that waited on it.
+     */
+    @Nullable
+    private volatile BiomedicusException failure;
 
     /**
      * The singleton instance of the object to provide.
@@ -80,15 +86,26 @@ public abstract class DataLoader<T> implements Provider<T>, EagerLoadable {
 
     private void load() throws BiomedicusException {
         if (loadOnce.tryAcquire()) {
-            instance = loadModel();
-            loaded = true;
-            waitTilLoaded.countDown();
+            try {
+                instance = loadModel();
+                loaded = true;
+            } catch (Throwable t) {
+                // any failure, errors included, so that the waiting threads never see a missing instance
+                failure = t instanceof BiomedicusException ? (BiomedicusException) t : new BiomedicusException(t);
+                throw t;
+            } finally {
+                waitTilLoaded.countDown();
+            }
         } else {
             try {
                 waitTilLoaded.await();
             } catch (InterruptedException e) {
                 throw new BiomedicusException(e);
             }
+            BiomedicusException failure = this.failure;
+            if (failure != null) {
+                throw new BiomedicusException("Failed to load on another thread", failure);
+            }
         }
     }
 
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.application;
+
+import com.google.inject.Injector;
+import edu.umn.biomedicus.common.standard.StandardDocument;
+import edu.umn.biomedicus.common.types.text.Document;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs an ordered list of document processors over a source of documents without UIMA. Documents are read from the
+ * source into a bounded queue by the calling thread, so reading blocks when the workers fall behind, and each worker
+ * thread takes a document from the queue and runs every processor over it in order.
+ * <p>
+ * There is one {@link DocumentProcessorRunner} per processor, shared by all of the workers, so singleton and processor
+ * scoped models are only loaded once no matter how many workers there are.
+ *
+ * @since 1.6.0
+ */
+public final class DocumentPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocumentPipeline.class);
+
+    /**
+     * Marks the end of the documents in the queue, each worker puts it back for the next worker when it sees it.
+     */
+    private static final Document END = new StandardDocument("");
+
+    /**
+     * How long the reader and workers wait on the queue before checking whether another worker has failed.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private final List<Stage> stages;
+
+    private final int threads;
+
+    private final int queueSize;
+
+    private DocumentPipeline(List<Stage> stages, int threads, int queueSize) {
+        this.stages = stages;
+        this.threads = threads;
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Runs all of the documents through every processor, and then runs the post processors of every processor.
+     *
+     * @param documents the source of documents
+     * @param completed called on a worker thread with each document after every processor has run on it
+     * @return the statistics of the run
+     * @throws BiomedicusException if any processor fails, in which case the remaining documents are not processed
+     */
+    public List<StageStatistics> run(Iterator<? extends Document> documents,
+                                     Consumer<? super Document> completed) throws BiomedicusException {
+        BlockingQueue<Document> queue = new ArrayBlockingQueue<>(queueSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        long documentsRead = 0;
+        try {
+            for (int i = 0; i < threads; i++) {
+                workers.add(executorService.submit(() -> work(queue, completed, failure)));
+            }
+
+            while (documents.hasNext() && offer(queue, documents.next(), failure)) {
+                documentsRead++;
+            }
+            offer(queue, END, failure);
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BiomedicusException(e);
+        } catch (ExecutionException e) {
+            throw new BiomedicusException(e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw new BiomedicusException(throwable);
+        }
+
+        for (Stage stage : stages) {
+            stage.runner.processingFinished();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        List<StageStatistics> statistics = new ArrayList<>();
+        for (Stage stage : stages) {
+            StageStatistics stageStatistics = new StageStatistics(stage.name, stage.documents.sum(),
+                    stage.nanos.sum());
+            LOGGER.info("{}", stageStatistics);
+            statistics.add(stageStatistics);
+        }
+        LOGGER.info("Pipeline finished {} documents in {} ms", documentsRead, elapsed / 1_000_000);
+        return statistics;
+    }
+
+    /**
+     * Runs all of the documents through every processor, and then runs the post processors of every processor.
+     *
+     * @param documents the source of documents
+     * @return the statistics of the run
+     * @throws BiomedicusException if any processor fails
+     */
+    public List<StageStatistics> run(Iterator<? extends Document> documents) throws BiomedicusException {
+        return run(documents, document -> { });
+    }
+
+    /**
+     * Puts the document on the queue, waiting for space unless one of the workers has failed.
+     */
+    private static boolean offer(BlockingQueue<Document> queue, Document document,
+                                 AtomicReference<Throwable> failure) throws InterruptedException {
+        while (failure.get() == null) {
+            if (queue.offer(document, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void work(BlockingQueue<Document> queue,
+                      Consumer<? super Document> completed,
+                      AtomicReference<Throwable> failure) {
+        try {
+            while (failure.get() == null) {
+                Document document = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (document == null) {
+                    continue;
+                }
+                if (document == END) {
+                    // nothing is added after the end, so there is always room to pass it on to the next worker
+                    queue.put(END);
+                    return;
+                }
+                for (Stage stage : stages) {
+                    long start = System.nanoTime();
+                    stage.runner.processDocument(document, null);
+                    stage.nanos.add(System.nanoTime() - start);
+                    stage.documents.increment();
+                }
+                completed.accept(document);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // errors too, otherwise the reader and the other workers would wait on a worker that is gone
+            LOGGER.error("Error while running pipeline", e);
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    public static Builder builder(Injector injector) {
+        return new Builder(injector);
+    }
+
+    /**
+     * Builder for a document pipeline. Processors run in the order they are added.
+     */
+    public static final class Builder {
+        private final Injector injector;
+
+        private final List<Stage> stages = new ArrayList<>();
+
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        private int queueSize = 64;
+
+        private Builder(Injector injector) {
+            this.injector = injector;
+        }
+
+        public Builder addProcessor(Class<? extends DocumentProcessor> processorClass) throws BiomedicusException {
+            return addProcessor(processorClass, Collections.emptyMap(), Collections.emptyList());
+        }
+
+        public Builder addProcessor(Class<? extends DocumentProcessor> processorClass,
+                                    @Nullable Map<String, Object> processorSettings,
+                                    List<Class<? extends PostProcessor>> postProcessors) throws BiomedicusException {
+            DocumentProcessorRunner runner = DocumentProcessorRunner.create(injector);
+            runner.setDocumentProcessorClass(processorClass);
+            postProcessors.forEach(runner::addPostProcessorClass);
+            runner.initialize(processorSettings, null);
+            stages.add(new Stage(processorClass.getSimpleName(), runner));
+            return this;
+        }
+
+        public Builder withThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Pipeline needs at least one thread");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder withQueueSize(int queueSize) {
+            if (queueSize < 1) {
+                throw new IllegalArgumentException("Queue size must be positive");
+            }
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public DocumentPipeline build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("Pipeline needs at least one processor");
+            }
+            return new DocumentPipeline(new ArrayList<>(stages), threads, queueSize);
+        }
+    }
+
+    /**
+     * The time spent and number of documents processed by a single processor over the course of a run.
+     */
+    public static final class StageStatistics {
+        private final String name;
+
+        private final long documents;
+
+        private final long nanos;
+
+        StageStatistics(String name, long documents, long nanos) {
+            this.name = name;
+            this.documents = documents;
+            this.nanos = nanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDocuments() {
+            return documents;
+        }
+
+        /**
+         * The total time spent in the processor by all of the workers.
+         *
+         * @return time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * The number of documents a single worker processes per second in this processor.
+         *
+         * @return documents per second
+         */
+        public double getDocumentsPerSecond() {
+            return nanos == 0 ? 0 : documents * 1_000_000_000.0 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d documents, %d ms, %.2f documents/second per worker", name, documents,
+                    nanos / 1_000_000, getDocumentsPerSecond());
+        }
+    }
+
+    private static final class Stage {
+        private final String name;
+
+        private final DocumentProcessorRunner runner;
+
+        private final LongAdder documents = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        private Stage(String name, DocumentProcessorRunner runner) {
+            this.name = name;
+            this.runner = runner;
+        }
+    }
+}
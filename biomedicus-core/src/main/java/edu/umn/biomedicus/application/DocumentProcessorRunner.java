@@ -19,7 +19,6 @@ package edu.umn.biomedicus.application;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
-import com.google.inject.Provider;
 import com.google.inject.name.Named;
 import edu.umn.biomedicus.common.types.text.Document;
 import edu.umn.biomedicus.exc.BiomedicusException;
@@ -29,11 +28,14 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
- *
+ * Runs a document processor class inside of a processor scope. Once {@link #initialize(Map, Map)} has been called,
+ * {@link #processDocument(Document, Map)} may be called from any number of threads at once, and they will share the
+ * processor scoped objects like models and settings.
  */
 public final class DocumentProcessorRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(DocumentProcessorRunner.class);
@@ -41,9 +43,9 @@ public final class DocumentProcessorRunner {
     private final Injector injector;
     private final SettingsTransformer settingsTransformer;
     private final Map<String, Object> globalSettings;
-    @Nullable private Injector settingsInjector;
+    @Nullable private volatile Injector settingsInjector;
     @Nullable private Class<? extends DocumentProcessor> documentProcessorClass;
-    @Nullable private BiomedicusScopes.Context processorContext;
+    @Nullable private volatile BiomedicusScopes.Context processorContext;
 
     @Inject
     DocumentProcessorRunner(Injector injector,
@@ -116,15 +118,7 @@ public final class DocumentProcessorRunner {
         }
         try {
             processorContext.call(() -> {
-                Provider<?> provider = settingsInjector.getProvider(aClass);
-                if (provider instanceof EagerLoadable) {
-                    ((EagerLoadable) provider).eagerLoad();
-                    return null;
-                }
-                Object o = provider.get();
-                if (o instanceof EagerLoadable) {
-                    ((EagerLoadable) o).eagerLoad();
-                }
+                EagerLoader.eagerLoad(settingsInjector, aClass);
                 return null;
             });
         } catch (Exception e) {
@@ -132,6 +126,27 @@ public final class DocumentProcessorRunner {
         }
     }
 
+    /**
+     * Requires all of the classes at once, loading them concurrently.
+     *
+     * @param classNames the names of the classes to load
+     * @param threads the maximum number of classes to load at once, zero or less for one per processor
+     * @throws BiomedicusException if a class is not found or any class fails to load
+     */
+    public void requireAll(List<String> classNames, int threads) throws BiomedicusException {
+        Map<String, EagerLoadable> loadables = new LinkedHashMap<>();
+        for (String className : classNames) {
+            Class<?> aClass;
+            try {
+                aClass = Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                throw new BiomedicusException(e);
+            }
+            loadables.put(aClass.getSimpleName(), () -> require(aClass));
+        }
+        new EagerLoader(threads).loadAll(loadables);
+    }
+
     public void processDocument(Document document,
                                 @Nullable Map<Key<?>, Object> documentScopedObjects) throws BiomedicusException {
         if (processorContext == null) {
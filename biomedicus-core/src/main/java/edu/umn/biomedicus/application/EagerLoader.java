@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.application;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a set of models concurrently on a bounded pool of threads, so that startup takes about as long as the slowest
+ * model instead of the sum of all of them.
+ * <p>
+ * Dependencies between models do not need to be declared. A {@link DataLoader} whose model needs another model gets
+ * it through its provider, which either loads it on the same thread or waits for the thread that is already loading
+ * it.
+ *
+ * @since 1.6.0
+ */
+public final class EagerLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EagerLoader.class);
+
+    private final int threads;
+
+    /**
+     * Creates an eager loader.
+     *
+     * @param threads the maximum number of models to load at once, or zero or less to use one thread per processor
+     */
+    public EagerLoader(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Eagerly loads a class from an injector. If the provider of the class or the instance it provides is
+     * {@link EagerLoadable} it is told to load, otherwise getting the instance is what loads it.
+     *
+     * @param injector the injector to get the class from
+     * @param aClass   the class to load
+     * @throws BiomedicusException if the class fails to load
+     */
+    public static void eagerLoad(Injector injector, Class<?> aClass) throws BiomedicusException {
+        Provider<?> provider = injector.getProvider(aClass);
+        if (provider instanceof EagerLoadable) {
+            ((EagerLoadable) provider).eagerLoad();
+            return;
+        }
+        Object o = provider.get();
+        if (o instanceof EagerLoadable) {
+            ((EagerLoadable) o).eagerLoad();
+        }
+    }
+
+    /**
+     * Loads all of the loadables, waiting until every one has finished, and logs how long each took and how much it
+     * allocated.
+     *
+     * @param loadables the loadables by the name to report them with, in the order to start them
+     * @return the statistics of each load, in the same order
+     * @throws BiomedicusException if any of the loadables fails, after all of the others have finished
+     */
+    public List<LoadStatistics> loadAll(Map<String, ? extends EagerLoadable> loadables) throws BiomedicusException {
+        if (loadables.isEmpty()) {
+            return new ArrayList<>();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threads, loadables.size()), r -> {
+            Thread thread = new Thread(r, "eager-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOGGER.info("Loading {} models on {} threads", loadables.size(), Math.min(threads, loadables.size()));
+        long start = System.nanoTime();
+        List<Future<LoadStatistics>> futures = new ArrayList<>();
+        try {
+            for (Map.Entry<String, ? extends EagerLoadable> entry : loadables.entrySet()) {
+                futures.add(executorService.submit(() -> load(entry.getKey(), entry.getValue())));
+            }
+
+            List<LoadStatistics> statistics = new ArrayList<>();
+            Exception failure = null;
+            for (Future<LoadStatistics> future : futures) {
+                try {
+                    statistics.add(future.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                Throwable cause = failure.getCause();
+                if (cause instanceof BiomedicusException) {
+                    throw (BiomedicusException) cause;
+                }
+                throw new BiomedicusException(cause);
+            }
+
+            Runtime runtime = Runtime.getRuntime();
+            LOGGER.info("Loaded {} models in {} ms, {} MB of heap in use", loadables.size(),
+                    (System.nanoTime() - start) / 1_000_000, (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+            return statistics;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BiomedicusException(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static LoadStatistics load(String name, EagerLoadable loadable) throws BiomedicusException {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        loadable.eagerLoad();
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        LoadStatistics statistics = new LoadStatistics(name, nanos, allocated);
+        LOGGER.info("Loaded {}", statistics);
+        return statistics;
+    }
+
+    /**
+     * The bytes allocated by the current thread so far, which includes anything the thread loads for a model's
+     * dependencies, or -1 if the JVM cannot measure it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * How long a model took to load and how much memory loading it allocated.
+     */
+    public static final class LoadStatistics {
+        private final String name;
+
+        private final long nanos;
+
+        private final long allocatedBytes;
+
+        LoadStatistics(String name, long nanos, long allocatedBytes) {
+            this.name = name;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The time from starting the load until it finished, including any time spent waiting on dependencies.
+         *
+         * @return time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * The bytes allocated while loading, an upper bound on the memory the model retains.
+         *
+         * @return bytes allocated or -1 if the JVM cannot measure allocation
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            String allocated = allocatedBytes < 0 ? "unknown" : (allocatedBytes >> 20) + " MB";
+            return name + " in " + nanos / 1_000_000 + " ms, allocated " + allocated;
+        }
+    }
+}
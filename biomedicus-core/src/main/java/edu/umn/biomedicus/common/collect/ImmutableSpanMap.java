@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.common.collect;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import edu.umn.biomedicus.common.types.text.TextLocation;
+import edu.umn.biomedicus.common.tuples.Pair;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Spliterator.*;
+
+/**
+ * An immutable {@link SpansMap} backed by primitive arrays of begins and ends sorted by begin, then by end. Alongside
+ * the ends is a running maximum of the ends, which lets {@link #containing(TextLocation)} skip every span that ends
+ * before the query without looking at it.
+ * <p>
+ * Views returned by the query methods share the backing arrays and are only an index range and a set of end
+ * bounds, so creating one costs a few binary searches and nothing is boxed.
+ *
+ * @param <T> the type of the values
+ * @since 1.6.0
+ */
+public final class ImmutableSpanMap<T> implements SpansMap<T> {
+    private final int[] begins;
+
+    private final int[] ends;
+
+    /**
+     * For every index, the maximum end of any span at or before that index.
+     */
+    private final int[] maxEnds;
+
+    private final Object[] values;
+
+    private final int from;
+
+    private final int to;
+
+    private final int endMin;
+
+    private final int endMax;
+
+    private ImmutableSpanMap(int[] begins, int[] ends, int[] maxEnds, Object[] values, int from, int to, int endMin,
+                             int endMax) {
+        this.begins = begins;
+        this.ends = ends;
+        this.maxEnds = maxEnds;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.endMin = endMin;
+        this.endMax = endMax;
+    }
+
+    private ImmutableSpanMap<T> view(int from, int to, int endMin, int endMax) {
+        if (to < from) {
+            to = from;
+        }
+        return new ImmutableSpanMap<>(begins, ends, maxEnds, values, from, to, endMin, endMax);
+    }
+
+    private boolean unbounded() {
+        return endMin <= 0 && endMax == Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        if (unbounded()) {
+            return to - from;
+        }
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            if (ends[i] >= endMin && ends[i] <= endMax) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (unbounded()) {
+            return to == from;
+        }
+        for (int i = from; i < to; i++) {
+            if (ends[i] >= endMin && ends[i] <= endMax) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public T get(Object key) {
+        if (!(key instanceof TextLocation)) {
+            return null;
+        }
+        TextLocation textLocation = (TextLocation) key;
+        int end = textLocation.getEnd();
+        if (end < endMin || end > endMax) {
+            return null;
+        }
+        int begin = textLocation.getBegin();
+        int groupFrom = lowerBound(begins, from, to, begin);
+        int groupTo = upperBound(begins, groupFrom, to, begin);
+        int index = lowerBound(ends, groupFrom, groupTo, end);
+        if (index < groupTo && ends[index] == end) {
+            return value(index);
+        }
+        return null;
+    }
+
+    @Override
+    public ImmutableSpanMap<T> toTheLeftOf(TextLocation textLocation) {
+        int newTo = lowerBound(begins, from, to, textLocation.getBegin());
+        return view(from, newTo, endMin, Math.min(endMax, textLocation.getBegin()));
+    }
+
+    @Override
+    public ImmutableSpanMap<T> toTheRightOf(TextLocation textLocation) {
+        int newFrom = lowerBound(begins, from, to, textLocation.getEnd());
+        return view(newFrom, to, Math.max(endMin, textLocation.getEnd()), endMax);
+    }
+
+    @Override
+    public ImmutableSpanMap<T> insideSpan(TextLocation textLocation) {
+        int newFrom = lowerBound(begins, from, to, textLocation.getBegin());
+        int newTo = upperBound(begins, newFrom, to, textLocation.getEnd());
+        return view(newFrom, newTo, endMin, Math.min(endMax, textLocation.getEnd()));
+    }
+
+    @Override
+    public ImmutableSpanMap<T> containing(TextLocation textLocation) {
+        int newTo = upperBound(begins, from, to, textLocation.getBegin());
+        int newEndMin = Math.max(endMin, textLocation.getEnd());
+        // maxEnds is non-decreasing, nothing before the first index where it reaches newEndMin can contain the query
+        int newFrom = lowerBound(maxEnds, from, newTo, newEndMin);
+        return view(newFrom, newTo, newEndMin, endMax);
+    }
+
+    @Override
+    public Stream<TextLocation> spansStream() {
+        return indexStream(true, false).mapToObj(i -> new Span(begins[i], ends[i]));
+    }
+
+    @Override
+    public Stream<T> ascendingStartDecreasingSizeValuesStream() {
+        return indexStream(true, true).mapToObj(this::value);
+    }
+
+    @Override
+    public Stream<T> descendingStartDecreasingSizeValuesStream() {
+        return indexStream(false, true).mapToObj(this::value);
+    }
+
+    @Override
+    public Stream<T> ascendingStartIncreasingSizeValueStream() {
+        return indexStream(true, false).mapToObj(this::value);
+    }
+
+    @Override
+    public Stream<T> descendingStartIncreasingSizeValuesStream() {
+        return indexStream(false, false).mapToObj(this::value);
+    }
+
+    @Override
+    public Stream<Pair<TextLocation, T>> pairStream() {
+        return indexStream(true, false).mapToObj(i -> new Pair<>(new Span(begins[i], ends[i]), value(i)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T value(int index) {
+        return (T) values[index];
+    }
+
+    private IntStream indexStream(boolean ascendingBegin, boolean decreasingSize) {
+        PrimitiveIterator.OfInt iterator = new IndexIterator(ascendingBegin, decreasingSize);
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(iterator, ORDERED | DISTINCT | NONNULL),
+                false);
+    }
+
+    /**
+     * Walks the indices of this view one group of equal begins at a time, within each group only visiting the ends
+     * that are inside the end bounds.
+     */
+    private class IndexIterator implements PrimitiveIterator.OfInt {
+        private final boolean ascendingBegin;
+
+        private final boolean decreasingSize;
+
+        private int groupFrom;
+
+        private int groupTo;
+
+        private int next;
+
+        private int remaining;
+
+        IndexIterator(boolean ascendingBegin, boolean decreasingSize) {
+            this.ascendingBegin = ascendingBegin;
+            this.decreasingSize = decreasingSize;
+            if (ascendingBegin) {
+                groupTo = from;
+            } else {
+                groupFrom = to;
+            }
+            advanceGroup();
+        }
+
+        private void advanceGroup() {
+            while (true) {
+                if (ascendingBegin) {
+                    if (groupTo >= to) {
+                        remaining = 0;
+                        return;
+                    }
+                    groupFrom = groupTo;
+                    groupTo = upperBound(begins, groupFrom, to, begins[groupFrom]);
+                } else {
+                    if (groupFrom <= from) {
+                        remaining = 0;
+                        return;
+                    }
+                    groupTo = groupFrom;
+                    groupFrom = lowerBound(begins, from, groupTo, begins[groupTo - 1]);
+                }
+                int first = lowerBound(ends, groupFrom, groupTo, endMin);
+                int last = upperBound(ends, first, groupTo, endMax);
+                remaining = last - first;
+                if (remaining > 0) {
+                    next = decreasingSize ? last - 1 : first;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            int index = next;
+            next = decreasingSize ? next - 1 : next + 1;
+            if (--remaining == 0) {
+                advanceGroup();
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the first index in the range with a value greater than or equal to the key.
+     */
+    private static int lowerBound(int[] array, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first index in the range with a value greater than the key.
+     */
+    private static int upperBound(int[] array, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates a span map over the first {@code size} entries of columns which are already sorted by begin and then by
+     * end. The columns are shared and not copied, so the caller must never change those entries afterwards, but it
+     * may append past them to build a larger map later.
+     *
+     * @param begins  the begins of the spans, ascending
+     * @param ends    the ends of the spans, ascending within equal begins
+     * @param maxEnds for every index, the maximum end of any span at or before that index
+     * @param values  the values of the spans
+     * @param size    the number of entries in the map
+     * @param <T>     the type of the values
+     * @return span map sharing the columns
+     */
+    public static <T> ImmutableSpanMap<T> ofSorted(int[] begins, int[] ends, int[] maxEnds, Object[] values,
+                                                   int size) {
+        return new ImmutableSpanMap<>(begins, ends, maxEnds, values, 0, size, 0, Integer.MAX_VALUE);
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>(false);
+    }
+
+    /**
+     * Creates a builder which keeps every value put, so a span put more than once maps to all of its values.
+     * {@link #get(Object)} returns the first of them that was put.
+     *
+     * @param <T> the type of the values
+     * @return the new builder
+     */
+    public static <T> Builder<T> multiBuilder() {
+        return new Builder<>(true);
+    }
+
+    /**
+     * Builder for an immutable span map. Like a map, if a span is put more than once the last value put wins, unless
+     * the builder was created by {@link #multiBuilder()} in which case every value is kept.
+     *
+     * @param <T> the type of the values
+     */
+    public static class Builder<T> {
+        private int[] begins = new int[16];
+
+        private int[] ends = new int[16];
+
+        private final List<T> values = new ArrayList<>();
+
+        private final boolean keepDuplicates;
+
+        private boolean sorted = true;
+
+        private Builder(boolean keepDuplicates) {
+            this.keepDuplicates = keepDuplicates;
+        }
+
+        public Builder<T> put(TextLocation textLocation, T value) {
+            return put(textLocation.getBegin(), textLocation.getEnd(), value);
+        }
+
+        public Builder<T> put(int begin, int end, T value) {
+            int size = values.size();
+            if (size == begins.length) {
+                begins = Arrays.copyOf(begins, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            if (size > 0 && sorted) {
+                int previousBegin = begins[size - 1];
+                int previousEnd = ends[size - 1];
+                sorted = previousBegin < begin || (previousBegin == begin
+                        && (previousEnd < end || (keepDuplicates && previousEnd == end)));
+            }
+            begins[size] = begin;
+            ends[size] = end;
+            values.add(value);
+            return this;
+        }
+
+        public ImmutableSpanMap<T> build() {
+            int size = values.size();
+            int[] sortedBegins;
+            int[] sortedEnds;
+            Object[] sortedValues;
+            if (sorted) {
+                sortedBegins = Arrays.copyOf(begins, size);
+                sortedEnds = Arrays.copyOf(ends, size);
+                sortedValues = values.toArray();
+            } else {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                // stable, so duplicate spans stay in the order they were put and the one put last ends up last
+                Arrays.sort(order, (first, second) -> {
+                    int compare = Integer.compare(begins[first], begins[second]);
+                    if (compare != 0) return compare;
+                    return Integer.compare(ends[first], ends[second]);
+                });
+                sortedBegins = new int[size];
+                sortedEnds = new int[size];
+                sortedValues = new Object[size];
+                int count = 0;
+                for (int i = 0; i < size; i++) {
+                    int index = order[i];
+                    if (!keepDuplicates && count > 0 && sortedBegins[count - 1] == begins[index]
+                            && sortedEnds[count - 1] == ends[index]) {
+                        count--;
+                    }
+                    sortedBegins[count] = begins[index];
+                    sortedEnds[count] = ends[index];
+                    sortedValues[count] = values.get(index);
+                    count++;
+                }
+                if (count < size) {
+                    sortedBegins = Arrays.copyOf(sortedBegins, count);
+                    sortedEnds = Arrays.copyOf(sortedEnds, count);
+                    sortedValues = Arrays.copyOf(sortedValues, count);
+                    size = count;
+                }
+            }
+
+            int[] maxEnds = new int[size];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, sortedEnds[i]);
+                maxEnds[i] = max;
+            }
+
+            return new ImmutableSpanMap<>(sortedBegins, sortedEnds, maxEnds, sortedValues, 0, size, 0,
+                    Integer.MAX_VALUE);
+        }
+    }
+}
@@ -43,11 +43,13 @@ public class OrderedSpanMap<T> implements SpansMap<T> {
         this.endMax = endMax;
     }
 
+    @Override
     public int size() {
         return backingTree.values().stream().map(endMap -> endMap.subMap(endMin, true, endMax, true))
                 .mapToInt(NavigableMap::size).sum();
     }
 
+    @Override
     public boolean isEmpty() {
         return backingTree.values().stream().allMatch(NavigableMap::isEmpty);
     }
@@ -64,6 +66,7 @@ public class OrderedSpanMap<T> implements SpansMap<T> {
                 .anyMatch(endMap -> endMap.containsValue(value));
     }
 
+    @Override
     public T get(Object key) {
         if (!(key instanceof TextLocation)) {
             return null;
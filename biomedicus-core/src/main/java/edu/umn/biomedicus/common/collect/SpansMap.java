@@ -19,9 +19,17 @@ package edu.umn.biomedicus.common.collect;
 import edu.umn.biomedicus.common.types.text.TextLocation;
 import edu.umn.biomedicus.common.tuples.Pair;
 
+import javax.annotation.Nullable;
 import java.util.stream.Stream;
 
 public interface SpansMap<T> {
+    int size();
+
+    boolean isEmpty();
+
+    @Nullable
+    T get(Object key);
+
     SpansMap<T> toTheLeftOf(TextLocation textLocation);
 
     SpansMap<T> toTheRightOf(TextLocation textLocation);
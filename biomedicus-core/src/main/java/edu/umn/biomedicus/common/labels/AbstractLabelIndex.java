@@ -19,6 +19,7 @@ package edu.umn.biomedicus.common.labels;
 import edu.umn.biomedicus.common.types.text.Span;
 import edu.umn.biomedicus.common.types.text.TextLocation;
 
+import javax.annotation.Nullable;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -29,54 +30,98 @@ import static java.util.Spliterator.*;
 
 /**
  * Abstract class for a LabelIndex implementation. Provides sensible defaults for methods using an adapter pattern.
- * Falls back to {@link StandardLabelIndex} for methods which may not be implementable under other instances.
+ * Falls back to a {@link StandardLabelIndex} snapshot for methods which may not be implementable under other
+ * instances. The snapshot is built the first time it is needed and reused by every later query until
+ * {@link #version()} reports that labels have been added.
  *
  * @param <T>
  */
 public abstract class AbstractLabelIndex<T> implements LabelIndex<T> {
+    @Nullable
+    private LabelIndex<T> snapshot;
+
+    private int snapshotVersion;
+
+    /**
+     * A number which changes whenever labels are added to this index. Implementations which can change after they are
+     * first queried must override this so that stale snapshots are rebuilt.
+     *
+     * @return the current version of the labels in this index
+     */
+    protected int version() {
+        return 0;
+    }
+
+    /**
+     * Returns a sorted, immutable copy of this label index, building it only if it has not been built yet or if the
+     * labels have changed since it was built.
+     *
+     * @return standard label index containing the labels in this index
+     */
+    protected LabelIndex<T> snapshot() {
+        int version = version();
+        LabelIndex<T> snapshot = this.snapshot;
+        if (snapshot == null || snapshotVersion != version) {
+            snapshot = createSnapshot();
+            this.snapshot = snapshot;
+            snapshotVersion = version;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Builds a new snapshot of the labels in this index, called by {@link #snapshot()} when it has none for the
+     * current version. Implementations which keep their labels sorted can override this to build it more cheaply.
+     *
+     * @return standard label index containing the labels in this index
+     */
+    protected LabelIndex<T> createSnapshot() {
+        return new StandardLabelIndex<>(this);
+    }
+
     @Override
     public LabelIndex<T> containing(TextLocation textLocation) {
-        return new StandardLabelIndex<>(this).containing(textLocation);
+        return snapshot().containing(textLocation);
     }
 
     @Override
     public LabelIndex<T> insideSpan(TextLocation textLocation) {
-        return new StandardLabelIndex<>(new FilteredLabelIndex<>(this, textLocation::contains));
+        return snapshot().insideSpan(textLocation);
     }
 
     @Override
     public LabelIndex<T> leftwardsFrom(TextLocation span) {
-        return new StandardLabelIndex<>(this).leftwardsFrom(span);
+        return snapshot().leftwardsFrom(span);
     }
 
     @Override
     public LabelIndex<T> rightwardsFrom(TextLocation span) {
-        return new StandardLabelIndex<>(this).leftwardsFrom(span);
+        return snapshot().rightwardsFrom(span);
     }
 
     @Override
     public LabelIndex<T> reverse() {
-        return new StandardLabelIndex<>(this).reverse();
+        return snapshot().reverse();
     }
 
     @Override
     public LabelIndex<T> ascendingBegin() {
-        return new StandardLabelIndex<>(this).ascendingBegin();
+        return snapshot().ascendingBegin();
     }
 
     @Override
     public LabelIndex<T> descendingBegin() {
-        return new StandardLabelIndex<>(this).descendingBegin();
+        return snapshot().descendingBegin();
     }
 
     @Override
     public LabelIndex<T> increasingSize() {
-        return new StandardLabelIndex<>(this).increasingSize();
+        return snapshot().increasingSize();
     }
 
     @Override
     public LabelIndex<T> decreasingSize() {
-        return new StandardLabelIndex<>(this).decreasingSize();
+        return snapshot().decreasingSize();
     }
 
     @Override
@@ -101,11 +146,7 @@ public abstract class AbstractLabelIndex<T> implements LabelIndex<T> {
 
     @Override
     public Optional<Label<T>> matching(TextLocation textLocation) {
-        Iterator<Label<T>> it = insideSpan(textLocation).filter(textLocation::spanEquals).iterator();
-        if (it.hasNext()) {
-            return Optional.of(it.next());
-        }
-        return Optional.empty();
+        return snapshot().matching(textLocation);
     }
 
     @Override
@@ -32,6 +32,14 @@ public class FilteredLabelIndex<T> extends AbstractLabelIndex<T> {
         this.predicate = predicate;
     }
 
+    @Override
+    protected int version() {
+        if (labelIndex instanceof AbstractLabelIndex) {
+            return ((AbstractLabelIndex<T>) labelIndex).version();
+        }
+        return 0;
+    }
+
     @Override
     public Iterator<Label<T>> iterator() {
         Iterator<Label<T>> iterator = labelIndex.iterator();
@@ -38,6 +38,14 @@ class LimitedLabelIndex<T> extends AbstractLabelIndex<T> {
         return new LimitedLabelIndex<>(labelIndex, max);
     }
 
+    @Override
+    protected int version() {
+        if (labelIndex instanceof AbstractLabelIndex) {
+            return ((AbstractLabelIndex<T>) labelIndex).version();
+        }
+        return 0;
+    }
+
     @Override
     public Iterator<Label<T>> iterator() {
         Iterator<Label<T>> iterator = labelIndex.iterator();
@@ -16,7 +16,8 @@
 
 package edu.umn.biomedicus.common.labels;
 
-import edu.umn.biomedicus.common.collect.OrderedSpanMap;
+import edu.umn.biomedicus.common.collect.ImmutableSpanMap;
+import edu.umn.biomedicus.common.collect.SpansMap;
 import edu.umn.biomedicus.common.types.text.TextLocation;
 
 import java.util.Iterator;
@@ -25,7 +26,7 @@ import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 public class StandardLabelIndex<T> extends AbstractLabelIndex<T> {
-    private final OrderedSpanMap<Label<T>> tree;
+    private final SpansMap<Label<T>> tree;
 
     private final Predicate<Label<T>> filter;
 
@@ -33,7 +34,7 @@ public class StandardLabelIndex<T> extends AbstractLabelIndex<T> {
 
     private final boolean sizeDecreasing;
 
-    public StandardLabelIndex(OrderedSpanMap<Label<T>> tree, Predicate<Label<T>> filter, boolean ascending, boolean sizeDecreasing) {
+    public StandardLabelIndex(SpansMap<Label<T>> tree, Predicate<Label<T>> filter, boolean ascending, boolean sizeDecreasing) {
         this.tree = tree;
         this.filter = filter;
         this.ascending = ascending;
@@ -41,13 +42,19 @@ public class StandardLabelIndex<T> extends AbstractLabelIndex<T> {
     }
 
     public StandardLabelIndex(Iterable<Label<T>> labels) {
-        tree = new OrderedSpanMap<>();
+        ImmutableSpanMap.Builder<Label<T>> builder = ImmutableSpanMap.builder();
+        for (Label<T> label : labels) {
+            builder.put(label, label);
+        }
+        tree = builder.build();
         filter = (label) -> true;
         ascending = true;
         sizeDecreasing = true;
-        for (Label<T> label : labels) {
-            tree.put(label, label);
-        }
+    }
+
+    @Override
+    protected LabelIndex<T> snapshot() {
+        return this;
     }
 
     @Override
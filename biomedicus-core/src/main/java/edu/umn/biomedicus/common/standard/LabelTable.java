@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.common.standard;
+
+import edu.umn.biomedicus.common.collect.ImmutableSpanMap;
+import edu.umn.biomedicus.common.labels.AbstractLabelIndex;
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.labels.LabelIndex;
+import edu.umn.biomedicus.common.labels.Labeler;
+import edu.umn.biomedicus.common.labels.StandardLabelIndex;
+import edu.umn.biomedicus.common.labels.ValueLabeler;
+import edu.umn.biomedicus.common.types.text.Span;
+import edu.umn.biomedicus.common.types.text.TextLocation;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * The labels of one type on a {@link StandardDocument}, stored as parallel columns of begins, ends and values in the
+ * order they were labeled. It is both the labeler and the label index for the type: labeling only appends to the
+ * columns, and the first read after labeling merges the new labels into a second set of columns sorted by span, which
+ * back an immutable snapshot that answers every query until the next label is added. Labels with the same span are
+ * all kept, in the order they were labeled.
+ * <p>
+ * Snapshots share the sorted columns, and only ever read the labels that had been merged when they were taken. Labels
+ * which sort after every merged label, as they do when a document is labeled from left to right, are appended to the
+ * sorted columns in place. Any other labels are merged into new columns, so earlier snapshots are never changed.
+ *
+ * @param <T> the type of the label values
+ * @since 1.6.0
+ */
+final class LabelTable<T> extends AbstractLabelIndex<T> implements Labeler<T> {
+    private int[] begins = new int[16];
+
+    private int[] ends = new int[16];
+
+    private Object[] values = new Object[16];
+
+    private int size;
+
+    private int[] sortedBegins = new int[0];
+
+    private int[] sortedEnds = new int[0];
+
+    /**
+     * For every sorted label, the maximum end of any sorted label at or before it.
+     */
+    private int[] sortedMaxEnds = new int[0];
+
+    private Object[] sortedLabels = new Object[0];
+
+    /**
+     * The number of labels which have been merged into the sorted columns.
+     */
+    private int merged;
+
+    void add(int begin, int end, T value) {
+        Objects.requireNonNull(value, "Value must not be null");
+        if (begin > end) {
+            throw new IllegalArgumentException("Begin " + begin + " is after end " + end);
+        }
+        if (size == begins.length) {
+            int capacity = size * 2;
+            begins = Arrays.copyOf(begins, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        begins[size] = begin;
+        ends[size] = end;
+        values[size] = value;
+        size++;
+    }
+
+    @Override
+    public ValueLabeler value(T value) {
+        return new ValueLabeler() {
+            @Override
+            public void label(int begin, int end) {
+                add(begin, end, value);
+            }
+
+            @Override
+            public void label(TextLocation textLocation) {
+                add(textLocation.getBegin(), textLocation.getEnd(), value);
+            }
+        };
+    }
+
+    @Override
+    public void label(Label<T> label) {
+        add(label.getBegin(), label.getEnd(), label.value());
+    }
+
+    @Override
+    protected int version() {
+        // labels are never removed
+        return size;
+    }
+
+    @Override
+    protected LabelIndex<T> createSnapshot() {
+        mergeAdded();
+        ImmutableSpanMap<Label<T>> spanMap = ImmutableSpanMap.ofSorted(sortedBegins, sortedEnds, sortedMaxEnds,
+                sortedLabels, merged);
+        return new StandardLabelIndex<>(spanMap, label -> true, true, true);
+    }
+
+    /**
+     * Merges the labels added since the last snapshot into the sorted columns.
+     */
+    private void mergeAdded() {
+        int added = size - merged;
+        if (added == 0) {
+            return;
+        }
+
+        int[] order = addedInOrder();
+        int firstAdded = order[0];
+        int changedFrom;
+        if (merged == 0 || compare(begins[firstAdded], ends[firstAdded], sortedBegins[merged - 1],
+                sortedEnds[merged - 1]) >= 0) {
+            if (sortedBegins.length < size) {
+                sortedBegins = Arrays.copyOf(sortedBegins, begins.length);
+                sortedEnds = Arrays.copyOf(sortedEnds, begins.length);
+                sortedMaxEnds = Arrays.copyOf(sortedMaxEnds, begins.length);
+                sortedLabels = Arrays.copyOf(sortedLabels, begins.length);
+            }
+            for (int i = 0; i < added; i++) {
+                setSorted(sortedBegins, sortedEnds, sortedLabels, merged + i, order[i]);
+            }
+            changedFrom = merged;
+        } else {
+            int capacity = Math.max(sortedBegins.length, size);
+            int[] newBegins = new int[capacity];
+            int[] newEnds = new int[capacity];
+            Object[] newLabels = new Object[capacity];
+            // labels before the first added one keep their place
+            changedFrom = upperBound(begins[firstAdded], ends[firstAdded]);
+            System.arraycopy(sortedBegins, 0, newBegins, 0, changedFrom);
+            System.arraycopy(sortedEnds, 0, newEnds, 0, changedFrom);
+            System.arraycopy(sortedLabels, 0, newLabels, 0, changedFrom);
+            int fromSorted = changedFrom;
+            int fromAdded = 0;
+            for (int i = changedFrom; i < size; i++) {
+                // merged labels go before added labels with the same span, since they were labeled first
+                if (fromAdded == added || (fromSorted < merged && compare(sortedBegins[fromSorted],
+                        sortedEnds[fromSorted], begins[order[fromAdded]], ends[order[fromAdded]]) <= 0)) {
+                    newBegins[i] = sortedBegins[fromSorted];
+                    newEnds[i] = sortedEnds[fromSorted];
+                    newLabels[i] = sortedLabels[fromSorted];
+                    fromSorted++;
+                } else {
+                    setSorted(newBegins, newEnds, newLabels, i, order[fromAdded++]);
+                }
+            }
+            int[] newMaxEnds = new int[capacity];
+            System.arraycopy(sortedMaxEnds, 0, newMaxEnds, 0, changedFrom);
+            sortedBegins = newBegins;
+            sortedEnds = newEnds;
+            sortedMaxEnds = newMaxEnds;
+            sortedLabels = newLabels;
+        }
+
+        int maxEnd = changedFrom == 0 ? Integer.MIN_VALUE : sortedMaxEnds[changedFrom - 1];
+        for (int i = changedFrom; i < size; i++) {
+            maxEnd = Math.max(maxEnd, sortedEnds[i]);
+            sortedMaxEnds[i] = maxEnd;
+        }
+        merged = size;
+    }
+
+    /**
+     * Returns the rows of the labels added since the last snapshot, sorted by span and otherwise in the order they
+     * were added.
+     */
+    private int[] addedInOrder() {
+        int added = size - merged;
+        boolean sorted = true;
+        for (int i = merged + 1; i < size && sorted; i++) {
+            sorted = compare(begins[i - 1], ends[i - 1], begins[i], ends[i]) <= 0;
+        }
+        if (sorted) {
+            int[] order = new int[added];
+            for (int i = 0; i < added; i++) {
+                order[i] = merged + i;
+            }
+            return order;
+        }
+        Integer[] boxed = new Integer[added];
+        for (int i = 0; i < added; i++) {
+            boxed[i] = merged + i;
+        }
+        // stable, so labels with the same span stay in the order they were added
+        Arrays.sort(boxed, (first, second) -> compare(begins[first], ends[first], begins[second], ends[second]));
+        return Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setSorted(int[] toBegins, int[] toEnds, Object[] toLabels, int index, int row) {
+        toBegins[index] = begins[row];
+        toEnds[index] = ends[row];
+        toLabels[index] = new Label<>(Span.create(begins[row], ends[row]), (T) values[row]);
+    }
+
+    /**
+     * Returns the first index of the merged labels which sorts after the span.
+     */
+    private int upperBound(int begin, int end) {
+        int low = 0;
+        int high = merged;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sortedBegins[mid], sortedEnds[mid], begin, end) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(int firstBegin, int firstEnd, int secondBegin, int secondEnd) {
+        int compare = Integer.compare(firstBegin, secondBegin);
+        if (compare != 0) {
+            return compare;
+        }
+        return Integer.compare(firstEnd, secondEnd);
+    }
+
+    @Override
+    public Iterator<Label<T>> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Stream<Label<T>> stream() {
+        return snapshot().stream();
+    }
+}
@@ -28,10 +28,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * A document held entirely in memory. Labels are kept in a {@link LabelTable} per label class, so processors can run
+ * against it without a CAS.
  */
 public class StandardDocument implements Document {
     private final Map<String, String> metadata = new HashMap<>();
+    private final Map<Class<?>, LabelTable<?>> labelTables = new HashMap<>();
     private final String text;
     private String documentId;
 
@@ -76,13 +78,18 @@ public class StandardDocument implements Document {
         return null;
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> LabelTable<T> getLabelTable(Class<T> labelClass) {
+        return (LabelTable<T>) labelTables.computeIfAbsent(labelClass, key -> new LabelTable<>());
+    }
+
     @Override
     public <T> LabelIndex<T> getLabelIndex(Class<T> labelClass) {
-        return null;
+        return getLabelTable(labelClass);
     }
 
     @Override
     public <T> Labeler<T> getLabeler(Class<T> labelClass) {
-        return null;
+        return getLabelTable(labelClass);
     }
 }
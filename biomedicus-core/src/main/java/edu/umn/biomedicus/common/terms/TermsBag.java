@@ -72,6 +72,26 @@ public final class TermsBag implements Comparable<TermsBag> {
         return identifiers.length;
     }
 
+    /**
+     * Returns the identifier of the term at an index, terms are ordered by increasing identifier.
+     *
+     * @param index the index of the term in this bag
+     * @return the term identifier
+     */
+    public int identifierAt(int index) {
+        return identifiers[index];
+    }
+
+    /**
+     * Returns the count of the term at an index, terms are ordered by increasing identifier.
+     *
+     * @param index the index of the term in this bag
+     * @return the number of times the term occurs
+     */
+    public int countAt(int index) {
+        return counts[index];
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
         if (this == o) return true;
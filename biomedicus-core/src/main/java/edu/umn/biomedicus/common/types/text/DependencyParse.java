@@ -16,14 +16,227 @@
 
 package edu.umn.biomedicus.common.types.text;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The dependency parse of a sentence, stored as the head and the relation of each token, along with the form and the
+ * coarse and fine part of speech tags of each token when they are known. Heads are the zero-based index of the head
+ * token within the sentence, or -1 for the root. Relations and tags are ids shared by every parse, see
+ * {@link #relationId(String)} and {@link #tagId(String)}.
+ */
 public final class DependencyParse {
-    private final String parseTree;
+    private static final String EMPTY = "_";
+
+    private static final Symbols RELATIONS = new Symbols();
+
+    private static final Symbols TAGS = new Symbols();
+
+    @Nullable
+    private final String[] forms;
+
+    @Nullable
+    private final int[] coarseTags;
+
+    @Nullable
+    private final int[] tags;
+
+    private final int[] heads;
+
+    private final int[] relations;
+
+    /**
+     * Creates a parse with the forms and tags of the tokens.
+     *
+     * @param forms the text of each token, or null if not known.
+     * @param coarseTags the coarse part of speech tag id of each token, or null if not known.
+     * @param tags the fine part of speech tag id of each token, or null if not known.
+     * @param heads the head of each token.
+     * @param relations the relation id of each token.
+     */
+    public DependencyParse(@Nullable String[] forms,
+                           @Nullable int[] coarseTags,
+                           @Nullable int[] tags,
+                           int[] heads,
+                           int[] relations) {
+        if (heads.length != relations.length) {
+            throw new IllegalArgumentException("Heads and relations have different lengths");
+        }
+        if ((forms != null && forms.length != heads.length)
+                || (coarseTags != null && coarseTags.length != heads.length)
+                || (tags != null && tags.length != heads.length)) {
+            throw new IllegalArgumentException("Forms or tags have a different length than the heads");
+        }
+        this.forms = forms;
+        this.coarseTags = coarseTags;
+        this.tags = tags;
+        this.heads = heads;
+        this.relations = relations;
+    }
+
+    public DependencyParse(int[] heads, int[] relations) {
+        this(null, null, null, heads, relations);
+    }
+
+    /**
+     * Decodes a parse from CoNLL, using the FORM, CPOSTAG, POSTAG, HEAD and DEPREL columns.
+     *
+     * @param parseTree the parse in CoNLL.
+     * @return the parse.
+     */
+    public static DependencyParse fromConll(String parseTree) {
+        String[] lines = parseTree.split("\n");
+        String[] forms = new String[lines.length];
+        int[] coarseTags = new int[lines.length];
+        int[] tags = new int[lines.length];
+        int[] heads = new int[lines.length];
+        int[] relations = new int[lines.length];
+        int size = 0;
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length < 8) {
+                throw new IllegalArgumentException("CoNLL line does not have a head and relation: " + line);
+            }
+            forms[size] = fields[1];
+            coarseTags[size] = tagId(fields[3]);
+            tags[size] = tagId(fields[4]);
+            heads[size] = Integer.parseInt(fields[6]) - 1;
+            relations[size] = relationId(fields[7]);
+            size++;
+        }
+        return new DependencyParse(Arrays.copyOf(forms, size), Arrays.copyOf(coarseTags, size),
+                Arrays.copyOf(tags, size), Arrays.copyOf(heads, size), Arrays.copyOf(relations, size));
+    }
+
+    /**
+     * Returns the id of a dependency relation, assigning one if the relation has not been seen before.
+     *
+     * @param relation the relation label, for example "nsubj".
+     * @return the id of the relation.
+     */
+    public static int relationId(String relation) {
+        return RELATIONS.id(relation);
+    }
+
+    /**
+     * Returns the label of a dependency relation id.
+     *
+     * @param relationId the id.
+     * @return the relation label.
+     */
+    public static String relationName(int relationId) {
+        return RELATIONS.name(relationId);
+    }
+
+    /**
+     * Returns the id of a part of speech tag, assigning one if the tag has not been seen before.
+     *
+     * @param tag the tag, for example "NN".
+     * @return the id of the tag.
+     */
+    public static int tagId(String tag) {
+        return TAGS.id(tag);
+    }
 
-    public DependencyParse(String parseTree) {
-        this.parseTree = parseTree;
+    /**
+     * Returns the tag of a part of speech tag id.
+     *
+     * @param tagId the id.
+     * @return the tag.
+     */
+    public static String tagName(int tagId) {
+        return TAGS.name(tagId);
     }
 
+    /**
+     * Returns a copy of this parse with the forms of the tokens.
+     *
+     * @param forms the text of each token.
+     * @return the parse with forms.
+     */
+    public DependencyParse withForms(String[] forms) {
+        return new DependencyParse(forms, coarseTags, tags, heads, relations);
+    }
+
+    public int size() {
+        return heads.length;
+    }
+
+    public String form(int token) {
+        return forms == null ? EMPTY : forms[token];
+    }
+
+    public String coarseTag(int token) {
+        return coarseTags == null ? EMPTY : tagName(coarseTags[token]);
+    }
+
+    public String tag(int token) {
+        return tags == null ? EMPTY : tagName(tags[token]);
+    }
+
+    public int head(int token) {
+        return heads[token];
+    }
+
+    public int relationId(int token) {
+        return relations[token];
+    }
+
+    public String relation(int token) {
+        return relationName(relations[token]);
+    }
+
+    /**
+     * Encodes the parse as CoNLL with the ID, FORM, CPOSTAG, POSTAG, HEAD and DEPREL columns filled. Syntaxnet does
+     * not lemmatize, so LEMMA is always empty.
+     *
+     * @return the parse in CoNLL.
+     */
     public String parseTree() {
-        return parseTree;
+        StringBuilder parseTree = new StringBuilder();
+        for (int i = 0; i < heads.length; i++) {
+            parseTree.append(i + 1).append('\t')
+                    .append(form(i)).append("\t_\t")
+                    .append(coarseTag(i)).append('\t')
+                    .append(tag(i)).append("\t_\t")
+                    .append(heads[i] + 1).append('\t')
+                    .append(relation(i)).append("\t_\t_\n");
+        }
+        return parseTree.toString();
+    }
+
+    /**
+     * A table of interned labels, shared by every parse, which assigns each label a small integer id.
+     */
+    private static final class Symbols {
+        private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        int id(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            synchronized (names) {
+                return ids.computeIfAbsent(name, key -> {
+                    names.add(key);
+                    return names.size() - 1;
+                });
+            }
+        }
+
+        String name(int id) {
+            synchronized (names) {
+                return names.get(id);
+            }
+        }
     }
 }
@@ -42,6 +42,10 @@ public class CUI {
         }
     }
 
+    public int identifier() {
+        return identifier;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
         if (this == o) return true;
@@ -17,148 +17,107 @@
 package edu.umn.biomedicus.concepts;
 
 import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.ProvidedBy;
 import com.google.inject.Singleton;
 import edu.umn.biomedicus.annotations.Setting;
+import edu.umn.biomedicus.application.DataLoader;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
 import edu.umn.biomedicus.common.terms.TermsBag;
-import edu.umn.biomedicus.vocabulary.Vocabulary;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import edu.umn.biomedicus.exc.BiomedicusException;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.*;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.List;
 
 /**
- * Stores UMLS Concepts in a multimap (Map from String to List of Concepts).
+ * Stores UMLS Concepts for phrases and for bags of normalized terms. The implementation is chosen by the
+ * "concepts.dictionary.implementation" setting.
  *
- * @author Ben Knoll
  * @since 1.0.0
  */
-@Singleton
-class ConceptDictionary {
-    private static final Logger LOGGER = LoggerFactory.getLogger(ConceptDictionary.class);
-
-    private final Map<TermsBag, List<SuiCuiTui>> normDictionary;
-
-    private final Map<String, List<SuiCuiTui>> phrases;
-
-    private final Map<String, List<SuiCuiTui>> lowercasePhrases;
-
-    @Inject
-    ConceptDictionary(@Setting("concepts.filters.sui.path") Path filteredSuisPath,
-                      @Setting("concepts.filters.cui.path") Path filteredCuisPath,
-                      @Setting("concepts.filters.suicui.path") Path filteredSuiCuisPath,
-                      @Setting("concepts.filters.tui.path") Path filteredTuisPath,
-                      @Setting("concepts.phrases.path") Path phrasesPath,
-                      @Setting("concepts.norms.path") Path normsPath,
-                      Vocabulary vocabulary) throws IOException {
-        Pattern splitter = Pattern.compile(",");
-
-        Set<SUI> filteredSuis = Files.lines(filteredSuisPath).map(SUI::new).collect(Collectors.toSet());
-
-        Set<CUI> filteredCuis = Files.lines(filteredCuisPath).map(CUI::new).collect(Collectors.toSet());
-
-        Set<SuiCui> filteredSuiCuis = Files.lines(filteredSuiCuisPath)
-                .map(splitter::split)
-                .map(line -> new SuiCui(new SUI(line[0]), new CUI(line[1])))
-                .collect(Collectors.toSet());
-
-        Set<TUI> filteredTuis = Files.lines(filteredTuisPath).map(TUI::new).collect(Collectors.toSet());
-
-        LOGGER.info("Loading concepts phrases: {}", phrasesPath);
-        phrases = new HashMap<>();
-        lowercasePhrases = new HashMap<>();
-        try (BufferedReader normsReader = Files.newBufferedReader(phrasesPath)) {
-            String line;
-            while ((line = normsReader.readLine()) != null) {
-                String concepts = normsReader.readLine();
-                List<SuiCuiTui> suiCuiTuis = Stream.of(splitter.split(concepts)).map(SuiCuiTui::fromString)
-                        .collect(Collectors.toList());
-                suiCuiTuis.removeIf(sct -> filteredSuis.contains(sct.sui()) || filteredCuis.contains(sct.cui())
-                        || filteredSuiCuis.contains(new SuiCui(sct.sui(), sct.cui()))
-                        || filteredTuis.contains(sct.tui()));
-                List<SuiCuiTui> unmodifiableList = Collections.unmodifiableList(suiCuiTuis);
-                phrases.put(line, unmodifiableList);
-                lowercasePhrases.put(line.toLowerCase(), unmodifiableList);
-            }
-        }
-
-        LOGGER.info("Loading concept norm vectors: {}", normsPath);
-        normDictionary = new HashMap<>();
-        try (BufferedReader normsReader = Files.newBufferedReader(normsPath)) {
-            String line;
-            while ((line = normsReader.readLine()) != null) {
-                String[] split = splitter.split(line);
-                List<String> terms = Arrays.asList(split);
-                terms.replaceAll(string -> {
-                    if (string.equals("scull")) {
-                        return "skull";
-                    }
-                    return string;
-                });
-                TermsBag termsBag = vocabulary.getNormsIndex().getTermsBag(terms);
-                String concepts = normsReader.readLine();
-                List<SuiCuiTui> suiCuiTuis = Stream.of(splitter.split(concepts)).map(SuiCuiTui::fromString)
-                        .collect(Collectors.toList());
-                suiCuiTuis.removeIf(sct -> filteredSuis.contains(sct.sui()) || filteredCuis.contains(sct.cui())
-                        || filteredSuiCuis.contains(new SuiCui(sct.sui(), sct.cui()))
-                        || filteredTuis.contains(sct.tui()));
-                List<SuiCuiTui> unmodifiableList = Collections.unmodifiableList(suiCuiTuis);
-                normDictionary.put(termsBag, unmodifiableList);
-            }
-        }
-    }
-
+@ProvidedBy(ConceptDictionary.Loader.class)
+interface ConceptDictionary {
+    /**
+     * Returns the concepts for a phrase exactly as it is written.
+     *
+     * @param phrase the phrase
+     * @return list of concepts or null if the phrase is not in the dictionary
+     */
     @Nullable
-    List<SuiCuiTui> forPhrase(String phrase) {
-        return phrases.get(phrase);
-    }
-
+    List<SuiCuiTui> forPhrase(String phrase);
+
+    /**
+     * Returns the concepts for a phrase that has already been converted to lowercase.
+     *
+     * @param phrase the lowercase phrase
+     * @return list of concepts or null if the phrase is not in the dictionary
+     */
     @Nullable
-    List<SuiCuiTui> forLowercasePhrase(String phrase) {
-        return lowercasePhrases.get(phrase);
-    }
-
+    List<SuiCuiTui> forLowercasePhrase(String phrase);
+
+    /**
+     * Returns a cursor which walks the phrases of the dictionary exactly as they are written.
+     *
+     * @return a new cursor
+     */
+    PhraseCursor phraseCursor();
+
+    /**
+     * Returns a cursor which walks the lowercase phrases of the dictionary. Lowercase phrases are lowercased one
+     * character at a time, see {@link #lowercase(String)}, so text can be lowercased as it is walked.
+     *
+     * @return a new cursor
+     */
+    PhraseCursor lowercasePhraseCursor();
+
+    /**
+     * Returns the concepts for a bag of norm terms.
+     *
+     * @param norms the norm terms
+     * @return list of concepts or null if the bag is empty or not in the dictionary
+     */
     @Nullable
-    List<SuiCuiTui> forNorms(TermsBag norms) {
-        if (norms.size() == 0) {
-            return null;
+    List<SuiCuiTui> forNorms(TermsBag norms);
+
+    /**
+     * Returns whether any bag of norm terms in the dictionary contains the term. A bag containing a term which is in
+     * none of them will not be found, and neither will any larger bag.
+     *
+     * @param term the norm term
+     * @return true if some bag of norm terms in the dictionary contains the term
+     */
+    boolean hasNormsWith(IndexedTerm term);
+
+    /**
+     * Lowercases a phrase the way the lowercase phrases of the dictionary are, with {@link Character#toLowerCase(char)}
+     * applied to each character.
+     *
+     * @param phrase the phrase
+     * @return the lowercase phrase
+     */
+    static String lowercase(String phrase) {
+        char[] chars = phrase.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
         }
-        return normDictionary.get(norms);
+        return new String(chars);
     }
 
-    private static final class SuiCui {
-        private final SUI sui;
-        private final CUI cui;
-
-        public SuiCui(SUI sui, CUI cui) {
-            this.sui = sui;
-            this.cui = cui;
-        }
-
-        @Override
-        public boolean equals(@Nullable Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            SuiCui suiCui = (SuiCui) o;
-
-            if (!sui.equals(suiCui.sui)) return false;
-            return cui.equals(suiCui.cui);
+    /**
+     * Loads the configured implementation, so that it can be eagerly loaded by the interface.
+     */
+    @Singleton
+    class Loader extends DataLoader<ConceptDictionary> {
+        private final Provider<ConceptDictionary> implementationProvider;
 
+        @Inject
+        Loader(@Setting("concepts.dictionary.implementation") Provider<ConceptDictionary> implementationProvider) {
+            this.implementationProvider = implementationProvider;
         }
 
         @Override
-        public int hashCode() {
-            int result = sui.hashCode();
-            result = 31 * result + cui.hashCode();
-            return result;
+        protected ConceptDictionary loadModel() throws BiomedicusException {
+            return implementationProvider.get();
         }
     }
 }
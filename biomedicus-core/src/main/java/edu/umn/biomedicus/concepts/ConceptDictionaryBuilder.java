@@ -16,5 +16,219 @@
 
 package edu.umn.biomedicus.concepts;
 
+import edu.umn.biomedicus.application.Biomedicus;
+import edu.umn.biomedicus.application.Bootstrapper;
+import edu.umn.biomedicus.common.terms.TermsBag;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.spi.PathOptionHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Writes the concept dictionary configured by the text phrases, norms and filters settings to the binary format read
+ * by {@link MappedConceptDictionary}. Filters are applied while the text files are loaded, so the binary file only
+ * contains the concepts that pass them.
+ *
+ * @since 1.6.0
+ */
 public class ConceptDictionaryBuilder {
+    @Argument(handler = PathOptionHandler.class, required = true, usage = "path to write the binary dictionary to.")
+    private Path outputPath;
+
+    private void doMain(String[] args) {
+        CmdLineParser parser = new CmdLineParser(this);
+
+        try {
+            parser.parseArgument(args);
+        } catch (CmdLineException e) {
+            System.err.println(e.getLocalizedMessage());
+            System.err.println("java edu.umn.biomedicus.concepts.ConceptDictionaryBuilder /path/to/outputPath");
+            parser.printUsage(System.err);
+            return;
+        }
+
+        try {
+            Biomedicus biomedicus = Bootstrapper.create();
+            TextConceptDictionary dictionary = biomedicus.getInstance(TextConceptDictionary.class);
+            write(dictionary.phrases(), dictionary.lowercasePhrases(), dictionary.normDictionary(), outputPath);
+        } catch (BiomedicusException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes a binary concept dictionary.
+     *
+     * @param phrases concepts for phrases
+     * @param lowercasePhrases concepts for lowercase phrases
+     * @param norms concepts for norm vectors
+     * @param outputPath the file to write
+     * @throws IOException if there is a failure writing the file or it would be too large to map
+     */
+    static void write(Map<String, List<SuiCuiTui>> phrases,
+                      Map<String, List<SuiCuiTui>> lowercasePhrases,
+                      Map<TermsBag, List<SuiCuiTui>> norms,
+                      Path outputPath) throws IOException {
+        List<Entry> phraseEntries = phraseEntries(phrases);
+        List<Entry> lowercaseEntries = phraseEntries(lowercasePhrases);
+        List<Entry> normEntries = new ArrayList<>(norms.size());
+        norms.entrySet().stream()
+                .filter(entry -> entry.getKey().size() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> normEntries.add(new Entry(normKey(entry.getKey()), entry.getValue())));
+        int[] normTerms = norms.keySet().stream()
+                .flatMapToInt(termsBag -> IntStream.range(0, termsBag.size()).map(termsBag::identifierAt))
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long phrasesOffset = MappedConceptDictionary.HEADER_BYTES;
+        long lowercaseOffset = phrasesOffset + tableBytes(phraseEntries);
+        long normsOffset = lowercaseOffset + tableBytes(lowercaseEntries);
+        long normTermsOffset = normsOffset + tableBytes(normEntries);
+        long conceptsOffset = normTermsOffset + Integer.BYTES * (1L + normTerms.length);
+
+        // the phrase and lowercase tables share one copy of each list
+        Map<List<SuiCuiTui>, Integer> conceptListOffsets = new IdentityHashMap<>();
+        List<List<SuiCuiTui>> conceptLists = new ArrayList<>();
+        List<Entry> allEntries = new ArrayList<>(phraseEntries);
+        allEntries.addAll(lowercaseEntries);
+        allEntries.addAll(normEntries);
+        long end = conceptsOffset;
+        for (Entry entry : allEntries) {
+            if (!conceptListOffsets.containsKey(entry.concepts)) {
+                conceptListOffsets.put(entry.concepts, checkedOffset(end));
+                conceptLists.add(entry.concepts);
+                end += Integer.BYTES + 3 * Integer.BYTES * entry.concepts.size();
+            }
+        }
+        checkedOffset(end);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath)))) {
+            out.writeInt(MappedConceptDictionary.MAGIC);
+            out.writeInt(MappedConceptDictionary.VERSION);
+            out.writeInt((int) phrasesOffset);
+            out.writeInt((int) lowercaseOffset);
+            out.writeInt((int) normsOffset);
+            out.writeInt((int) normTermsOffset);
+            out.writeInt((int) conceptsOffset);
+            writeTable(out, (int) phrasesOffset, phraseEntries, conceptListOffsets);
+            writeTable(out, (int) lowercaseOffset, lowercaseEntries, conceptListOffsets);
+            writeTable(out, (int) normsOffset, normEntries, conceptListOffsets);
+            out.writeInt(normTerms.length);
+            for (int normTerm : normTerms) {
+                out.writeInt(normTerm);
+            }
+            for (List<SuiCuiTui> conceptList : conceptLists) {
+                out.writeInt(conceptList.size());
+                for (SuiCuiTui suiCuiTui : conceptList) {
+                    out.writeInt(suiCuiTui.sui().identifier());
+                    out.writeInt(suiCuiTui.cui().identifier());
+                    out.writeInt(suiCuiTui.tui().identifier());
+                }
+            }
+        }
+    }
+
+    private static List<Entry> phraseEntries(Map<String, List<SuiCuiTui>> phrases) {
+        List<Entry> entries = new ArrayList<>(phrases.size());
+        for (Map.Entry<String, List<SuiCuiTui>> phrase : phrases.entrySet()) {
+            entries.add(new Entry(phrase.getKey().getBytes(StandardCharsets.UTF_8), phrase.getValue()));
+        }
+        entries.sort(ConceptDictionaryBuilder::compareUnsigned);
+        return entries;
+    }
+
+    private static int compareUnsigned(Entry first, Entry second) {
+        byte[] a = first.key;
+        byte[] b = second.key;
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int compare = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (compare != 0) {
+                return compare;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    private static byte[] normKey(TermsBag termsBag) {
+        int size = termsBag.size();
+        byte[] key = new byte[size * 2 * Integer.BYTES];
+        for (int i = 0; i < size; i++) {
+            putInt(key, i * 2 * Integer.BYTES, termsBag.identifierAt(i));
+            putInt(key, (i * 2 + 1) * Integer.BYTES, termsBag.countAt(i));
+        }
+        return key;
+    }
+
+    private static void putInt(byte[] bytes, int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    private static long tableBytes(List<Entry> entries) {
+        long bytes = Integer.BYTES + (2L * entries.size() + 1) * Integer.BYTES;
+        for (Entry entry : entries) {
+            bytes += entry.key.length;
+        }
+        return bytes;
+    }
+
+    private static void writeTable(DataOutputStream out,
+                                   int tableOffset,
+                                   List<Entry> entries,
+                                   Map<List<SuiCuiTui>, Integer> conceptListOffsets) throws IOException {
+        int count = entries.size();
+        out.writeInt(count);
+        int keyOffset = tableOffset + Integer.BYTES + (2 * count + 1) * Integer.BYTES;
+        for (Entry entry : entries) {
+            out.writeInt(keyOffset);
+            keyOffset += entry.key.length;
+        }
+        out.writeInt(keyOffset);
+        for (Entry entry : entries) {
+            out.writeInt(conceptListOffsets.get(entry.concepts));
+        }
+        for (Entry entry : entries) {
+            out.write(entry.key);
+        }
+    }
+
+    private static int checkedOffset(long offset) throws IOException {
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Binary concept dictionary would be larger than can be mapped: " + offset);
+        }
+        return (int) offset;
+    }
+
+    private static final class Entry {
+        private final byte[] key;
+
+        private final List<SuiCuiTui> concepts;
+
+        Entry(byte[] key, List<SuiCuiTui> concepts) {
+            this.key = key;
+            this.concepts = concepts;
+        }
+    }
+
+    public static void main(String[] args) {
+        new ConceptDictionaryBuilder().doMain(args);
+    }
 }
@@ -16,10 +16,13 @@
 
 package edu.umn.biomedicus.concepts;
 
+import edu.umn.biomedicus.annotations.ProcessorSetting;
+import edu.umn.biomedicus.annotations.Setting;
 import edu.umn.biomedicus.application.DocumentProcessor;
 import edu.umn.biomedicus.common.labels.Label;
 import edu.umn.biomedicus.common.labels.LabelIndex;
 import edu.umn.biomedicus.common.labels.Labeler;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
 import edu.umn.biomedicus.common.types.semantics.Acronym;
 import edu.umn.biomedicus.common.types.semantics.DictionaryConcept;
 import edu.umn.biomedicus.common.types.semantics.DictionaryTerm;
@@ -34,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static edu.umn.biomedicus.common.types.syntax.PartOfSpeech.*;
 
@@ -41,6 +45,17 @@ import static edu.umn.biomedicus.common.types.syntax.PartOfSpeech.*;
  * Uses a {@link ConceptDictionary} to recognize concepts in text. First, it will
  * try to find direct matches against all in-order sublists of tokens in a sentence. Then it will perform syntactic
  * permutations on any prepositional phrases in those sublists.
+ * <p>
+ * Sublists are grown one token at a time from each starting token, walking the dictionary's phrases with a
+ * {@link PhraseCursor} over the characters of the text, so no text is copied to look it up. Once the dictionary has
+ * no phrase beginning with the text so far, longer sublists from that token are no longer looked up as phrases. Bags
+ * of norms stop being looked up once the sublist has a norm which is in none of the dictionary's bags, and the search
+ * from a token ends when neither can match, so most starting tokens only cost a few steps no matter the window size.
+ * <p>
+ * Everything needed from the document is read into a {@link SentenceTokens} for each sentence up front. The
+ * dictionary search then only touches those and the dictionary, so when the "concepts.parallel" processor setting is
+ * true the sentences are searched on the common fork join pool. Either way the terms found are labeled afterwards in
+ * sentence order, so the output does not depend on the setting.
  *
  * @author Ben Knoll
  * @author Serguei Pakhomov
@@ -49,8 +64,9 @@ import static edu.umn.biomedicus.common.types.syntax.PartOfSpeech.*;
 class DictionaryConceptRecognizer implements DocumentProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(DictionaryConceptRecognizer.class);
     private static final Set<PartOfSpeech> TRIVIAL_POS = buildTrivialPos();
-    private static final int SPAN_SIZE = 5;
     private final ConceptDictionary conceptDictionary;
+    private final int windowSize;
+    private final boolean parallel;
     private final LabelIndex<Sentence> sentences;
     private final LabelIndex<NormIndex> normIndexes;
     private final Document document;
@@ -63,10 +79,17 @@ class DictionaryConceptRecognizer implements DocumentProcessor {
      * Creates a dictionary concept recognizer from a concept dictionary and a document.
      *
      * @param conceptDictionary the dictionary to get concepts from.
+     * @param windowSize the maximum number of tokens in a phrase.
+     * @param parallel whether to search sentences in parallel.
      */
     @Inject
-    DictionaryConceptRecognizer(ConceptDictionary conceptDictionary, Document document) {
+    DictionaryConceptRecognizer(ConceptDictionary conceptDictionary,
+                                @Setting("concepts.windowSize") Integer windowSize,
+                                @ProcessorSetting("concepts.parallel") Boolean parallel,
+                                Document document) {
         this.conceptDictionary = conceptDictionary;
+        this.windowSize = windowSize;
+        this.parallel = parallel;
         this.document = document;
         sentences = document.getLabelIndex(Sentence.class);
         normIndexes = document.getLabelIndex(NormIndex.class);
@@ -76,11 +99,16 @@ class DictionaryConceptRecognizer implements DocumentProcessor {
         acronymLabelIndex = document.getLabelIndex(Acronym.class);
     }
 
-    private boolean checkPhrase(Span span, String phrase, boolean oneToken, double confMod) throws BiomedicusException {
-        List<SuiCuiTui> phraseSUI = conceptDictionary.forPhrase(phrase);
+    private static boolean checkPhrase(List<FoundTerm> found,
+                                       Span span,
+                                       PhraseCursor phrase,
+                                       PhraseCursor lowercasePhrase,
+                                       boolean oneToken,
+                                       double confMod) {
+        List<SuiCuiTui> phraseSUI = phrase.concepts();
 
         if (phraseSUI != null) {
-            makeTerm(span, phraseSUI, 1 - confMod);
+            found.add(new FoundTerm(span, phraseSUI, 1 - confMod));
             return true;
         }
 
@@ -88,113 +116,205 @@ class DictionaryConceptRecognizer implements DocumentProcessor {
             return false;
         }
 
-        phraseSUI = conceptDictionary.forLowercasePhrase(phrase.toLowerCase(Locale.ENGLISH));
+        phraseSUI = lowercasePhrase.concepts();
 
         if (phraseSUI != null) {
-            makeTerm(span, phraseSUI, 0.6 - confMod);
+            found.add(new FoundTerm(span, phraseSUI, 0.6 - confMod));
             return true;
         }
 
         return false;
     }
 
-    private void checkTokenSet(List<Label<TermToken>> tokenSet) throws BiomedicusException {
-        if (tokenSet.size() <= 1) {
-            return;
+    /**
+     * Walks the cursors over the text from begin to end, the second one with every character lowercased.
+     *
+     * @return whether either cursor can still reach a phrase
+     */
+    private static boolean advance(CharSequence text,
+                                   int begin,
+                                   int end,
+                                   PhraseCursor phrase,
+                                   PhraseCursor lowercasePhrase) {
+        boolean phraseCanExtend = true;
+        boolean lowercaseCanExtend = true;
+        for (int i = begin; i < end && (phraseCanExtend || lowercaseCanExtend); i++) {
+            char c = text.charAt(i);
+            phraseCanExtend = phraseCanExtend && phrase.advance(c);
+            lowercaseCanExtend = lowercaseCanExtend && lowercasePhrase.advance(Character.toLowerCase(c));
         }
+        return phraseCanExtend || lowercaseCanExtend;
+    }
 
-        Span phraseAsSpan = new Span(tokenSet.get(0).getBegin(), tokenSet.get(tokenSet.size() - 1).getEnd());
-        TermsBag.Builder builder = TermsBag.builder();
-        for (Label<NormIndex> normIndexLabel : normIndexes.insideSpan(phraseAsSpan)) {
-            Optional<Label<PartOfSpeech>> partOfSpeechLabel = partOfSpeechLabelIndex.withTextLocation(normIndexLabel);
-            if (partOfSpeechLabel.isPresent() && TRIVIAL_POS.contains(partOfSpeechLabel.get().value())) {
-                continue;
+    /**
+     * Returns the index of the first norm which begins at or after the offset.
+     */
+    private static int firstNormFrom(List<NormEntry> norms, int begin) {
+        int low = 0;
+        int high = norms.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (norms.get(mid).span.getBegin() < begin) {
+                low = mid + 1;
+            } else {
+                high = mid;
             }
+        }
+        return low;
+    }
 
-            builder.addTerm(normIndexLabel.value().term());
+    /**
+     * Looks up the bag of norms inside a phrase.
+     *
+     * @param firstNorm the index of the first norm which begins at or after the start of the phrase
+     * @return false if the phrase has a norm which is in none of the dictionary's bags, so no longer phrase from the
+     * same start can match
+     */
+    private boolean checkTokenSet(List<FoundTerm> found, SentenceTokens sentence, int firstNorm, Span phraseAsSpan) {
+        TermsBag.Builder builder = TermsBag.builder();
+        List<NormEntry> norms = sentence.norms;
+        for (int i = firstNorm; i < norms.size(); i++) {
+            NormEntry norm = norms.get(i);
+            if (norm.span.getBegin() >= phraseAsSpan.getEnd()) {
+                break;
+            }
+            if (norm.span.getEnd() <= phraseAsSpan.getEnd()) {
+                if (!norm.term.isUnknown() && !conceptDictionary.hasNormsWith(norm.term)) {
+                    return false;
+                }
+                builder.addTerm(norm.term);
+            }
         }
         TermsBag normVector = builder.build();
 
         List<SuiCuiTui> normsCUI = conceptDictionary.forNorms(normVector);
         if (normsCUI != null) {
-            makeTerm(phraseAsSpan, normsCUI, .3);
+            found.add(new FoundTerm(phraseAsSpan, normsCUI, .3));
         }
+        return true;
     }
 
-    private void makeTerm(TextLocation textLocation,
-                          List<SuiCuiTui> cuis,
-                          double confidence) throws BiomedicusException {
-        List<DictionaryConcept> concepts = cuis.stream()
+    private void makeTerm(FoundTerm foundTerm) throws BiomedicusException {
+        double confidence = foundTerm.confidence;
+        List<DictionaryConcept> concepts = foundTerm.cuis.stream()
                 .map(suiCuiTui -> suiCuiTui.toConcept(confidence)).collect(Collectors.toList());
 
         DictionaryTerm dictionaryTerm = DictionaryTerm.builder().addConcepts(concepts).build();
 
-        termLabeler.value(dictionaryTerm).label(textLocation);
+        termLabeler.value(dictionaryTerm).label(foundTerm.span);
+    }
+
+    private boolean allTrivial(TextLocation textLocation) {
+        return partOfSpeechLabelIndex.insideSpan(textLocation)
+                .all()
+                .stream()
+                .map(Label::value)
+                .allMatch(TRIVIAL_POS::contains);
+    }
+
+    private SentenceTokens readSentence(Label<Sentence> sentence) {
+        StringBuilder editedString = new StringBuilder();
+        List<Span> editedStringSpans = new ArrayList<>();
+        List<Label<TermToken>> sentenceTermTokens = termTokenLabelIndex.insideSpan(sentence).all();
+        List<Span> tokenSpans = new ArrayList<>(sentenceTermTokens.size());
+        boolean[] trivial = new boolean[sentenceTermTokens.size()];
+
+        for (int i = 0; i < sentenceTermTokens.size(); i++) {
+            Label<TermToken> sentenceTermToken = sentenceTermTokens.get(i);
+            tokenSpans.add(sentenceTermToken.toSpan());
+            trivial[i] = allTrivial(sentenceTermToken);
+            Optional<Label<Acronym>> acronymForToken = acronymLabelIndex.withTextLocation(sentenceTermToken);
+            Token token;
+            if (acronymForToken.isPresent()) {
+                token = acronymForToken.get().value();
+            } else {
+                token = sentenceTermToken.value();
+            }
+            String tokenText = token.text();
+            Span span = new Span(editedString.length(), editedString.length() + tokenText.length());
+            editedString.append(tokenText);
+            if (token.hasSpaceAfter()) {
+                editedString.append(' ');
+            }
+            editedStringSpans.add(span);
+        }
+
+        List<NormEntry> norms = new ArrayList<>();
+        for (Label<NormIndex> normIndexLabel : normIndexes.insideSpan(sentence)) {
+            Optional<Label<PartOfSpeech>> partOfSpeechLabel = partOfSpeechLabelIndex.withTextLocation(normIndexLabel);
+            if (partOfSpeechLabel.isPresent() && TRIVIAL_POS.contains(partOfSpeechLabel.get().value())) {
+                continue;
+            }
+            norms.add(new NormEntry(normIndexLabel.toSpan(), normIndexLabel.value().term()));
+        }
+
+        return new SentenceTokens(tokenSpans, trivial, editedString.toString(), editedStringSpans, norms);
+    }
+
+    private List<FoundTerm> findTerms(String documentText, SentenceTokens sentence) {
+        LOGGER.trace("Identifying concepts in a sentence");
+        List<FoundTerm> found = new ArrayList<>();
+        PhraseCursor phrase = conceptDictionary.phraseCursor();
+        PhraseCursor lowercasePhrase = conceptDictionary.lowercasePhraseCursor();
+        PhraseCursor edited = conceptDictionary.phraseCursor();
+        PhraseCursor lowercaseEdited = conceptDictionary.lowercasePhraseCursor();
+        List<Span> tokenSpans = sentence.tokenSpans;
+        for (int from = 0; from < tokenSpans.size(); from++) {
+            int to = Math.min(from + windowSize, tokenSpans.size());
+
+            int begin = tokenSpans.get(from).getBegin();
+            boolean firstTokenAllTrivial = sentence.trivial[from];
+            int firstNorm = firstNormFrom(sentence.norms, begin);
+
+            phrase.reset();
+            lowercasePhrase.reset();
+            edited.reset();
+            lowercaseEdited.reset();
+            // how far into the text each pair of cursors has walked
+            int phraseEnd = begin;
+            int editedEnd = sentence.editedStringSpans.get(from).getBegin();
+            boolean phraseCanExtend = true;
+            boolean editedCanExtend = true;
+            boolean normsCanMatch = !firstTokenAllTrivial;
+            for (int last = from; last < to && (phraseCanExtend || editedCanExtend || normsCanMatch); last++) {
+                boolean oneToken = last == from;
+                Span asSpan = new Span(begin, tokenSpans.get(last).getEnd());
+                boolean phraseFound = false;
+                if (phraseCanExtend) {
+                    phraseCanExtend = advance(documentText, phraseEnd, asSpan.getEnd(), phrase, lowercasePhrase);
+                    phraseEnd = asSpan.getEnd();
+                    phraseFound = checkPhrase(found, asSpan, phrase, lowercasePhrase, oneToken, 0);
+                }
+                if (!phraseFound && editedCanExtend) {
+                    int end = sentence.editedStringSpans.get(last).getEnd();
+                    editedCanExtend = advance(sentence.editedString, editedEnd, end, edited, lowercaseEdited);
+                    editedEnd = end;
+                    phraseFound = checkPhrase(found, asSpan, edited, lowercaseEdited, oneToken, .1);
+                }
+                if (!phraseFound && !oneToken && normsCanMatch && !sentence.trivial[last]) {
+                    normsCanMatch = checkTokenSet(found, sentence, firstNorm, asSpan);
+                }
+            }
+        }
+        return found;
     }
 
     @Override
     public void process() throws BiomedicusException {
         LOGGER.info("Finding concepts in document.");
         String documentText = document.getText();
+        List<SentenceTokens> sentenceTokens = new ArrayList<>();
         for (Label<Sentence> sentence : sentences) {
-            LOGGER.trace("Identifying concepts in a sentence");
-
-            StringBuilder editedString = new StringBuilder();
-            List<Span> editedStringSpans = new ArrayList<>();
-            List<Label<TermToken>> sentenceTermTokens = termTokenLabelIndex.insideSpan(sentence).all();
-
-            for (Label<TermToken> sentenceTermToken : sentenceTermTokens) {
-                Optional<Label<Acronym>> acronymForToken = acronymLabelIndex.withTextLocation(sentenceTermToken);
-                Token token;
-                if (acronymForToken.isPresent()) {
-                    token = acronymForToken.get().value();
-                } else {
-                    token = sentenceTermToken.value();
-                }
-                String tokenText = token.text();
-                Span span = new Span(editedString.length(), editedString.length() + tokenText.length());
-                editedString.append(tokenText);
-                if (token.hasSpaceAfter()) {
-                    editedString.append(' ');
-                }
-                editedStringSpans.add(span);
-            }
+            sentenceTokens.add(readSentence(sentence));
+        }
 
-            for (int from = 0; from < sentenceTermTokens.size(); from++) {
-                int to = Math.min(from + SPAN_SIZE, sentenceTermTokens.size());
-                List<Label<TermToken>> window = sentenceTermTokens.subList(from, to);
-
-                Label<TermToken> firstTokenLabel = window.get(0);
-                boolean firstTokenAllTrivial = partOfSpeechLabelIndex.insideSpan(firstTokenLabel)
-                        .all()
-                        .stream()
-                        .map(Label::value)
-                        .allMatch(TRIVIAL_POS::contains);
-
-                for (int subsetSize = 1; subsetSize <= window.size(); subsetSize++) {
-                    List<Label<TermToken>> windowSubset = window.subList(0, subsetSize);
-                    int last = subsetSize - 1;
-                    Label<TermToken> lastTokenLabel = windowSubset.get(last);
-                    Span asSpan = new Span(firstTokenLabel.getBegin(), lastTokenLabel.getEnd());
-                    boolean phraseFound = checkPhrase(asSpan,
-                            documentText.substring(asSpan.getBegin(), asSpan.getEnd()), subsetSize == 1, 0);
-                    if (!phraseFound) {
-                        int editedBegin = editedStringSpans.get(from).getBegin();
-                        int editedEnd = editedStringSpans.get(from + last).getEnd();
-                        String editedSubstring = editedString.substring(editedBegin, editedEnd);
-                        phraseFound = checkPhrase(asSpan, editedSubstring, subsetSize == 1, .1);
-                    }
-                    if (!phraseFound) {
-                        boolean lastTokenAllTrivial = partOfSpeechLabelIndex.insideSpan(lastTokenLabel)
-                                .all()
-                                .stream()
-                                .map(Label::value)
-                                .allMatch(TRIVIAL_POS::contains);
-                        if (!firstTokenAllTrivial && !lastTokenAllTrivial) {
-                            checkTokenSet(windowSubset);
-                        }
-                    }
-                }
+        Stream<SentenceTokens> stream = parallel ? sentenceTokens.parallelStream() : sentenceTokens.stream();
+        List<List<FoundTerm>> foundTerms = stream.map(sentence -> findTerms(documentText, sentence))
+                .collect(Collectors.toList());
+
+        for (List<FoundTerm> sentenceFoundTerms : foundTerms) {
+            for (FoundTerm foundTerm : sentenceFoundTerms) {
+                makeTerm(foundTerm);
             }
         }
     }
@@ -218,4 +338,65 @@ class DictionaryConceptRecognizer implements DocumentProcessor {
         builder.addAll(punctuationClass);
         return Collections.unmodifiableSet(builder);
     }
+
+    /**
+     * The parts of a sentence that the dictionary search needs, read from the document ahead of time.
+     */
+    private static final class SentenceTokens {
+        private final List<Span> tokenSpans;
+
+        /**
+         * Whether every part of speech inside each token is trivial.
+         */
+        private final boolean[] trivial;
+
+        /**
+         * The sentence with acronyms replaced by their expansions and all whitespace as single spaces.
+         */
+        private final String editedString;
+
+        private final List<Span> editedStringSpans;
+
+        /**
+         * The norms in the sentence which do not have trivial parts of speech, in the order they begin.
+         */
+        private final List<NormEntry> norms;
+
+        SentenceTokens(List<Span> tokenSpans,
+                       boolean[] trivial,
+                       String editedString,
+                       List<Span> editedStringSpans,
+                       List<NormEntry> norms) {
+            this.tokenSpans = tokenSpans;
+            this.trivial = trivial;
+            this.editedString = editedString;
+            this.editedStringSpans = editedStringSpans;
+            this.norms = norms;
+        }
+    }
+
+    private static final class NormEntry {
+        private final Span span;
+
+        private final IndexedTerm term;
+
+        NormEntry(Span span, IndexedTerm term) {
+            this.span = span;
+            this.term = term;
+        }
+    }
+
+    private static final class FoundTerm {
+        private final Span span;
+
+        private final List<SuiCuiTui> cuis;
+
+        private final double confidence;
+
+        FoundTerm(Span span, List<SuiCuiTui> cuis, double confidence) {
+            this.span = span;
+            this.cuis = cuis;
+            this.confidence = confidence;
+        }
+    }
 }
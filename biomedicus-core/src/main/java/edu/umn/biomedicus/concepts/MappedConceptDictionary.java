@@ -0,0 +1,394 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.concepts;
+
+import com.google.inject.Inject;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Singleton;
+import edu.umn.biomedicus.annotations.Setting;
+import edu.umn.biomedicus.application.DataLoader;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
+import edu.umn.biomedicus.common.terms.TermsBag;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A concept dictionary which reads the binary format written by {@link ConceptDictionaryBuilder} from a memory-mapped
+ * file. Nothing is loaded onto the heap at startup, the operating system pages the file in as it is read and shares
+ * those pages between every process which maps the same file.
+ * <p>
+ * The file is a header, three key tables, one each for phrases, lowercase phrases and norm vectors, the sorted terms
+ * used by the norm vectors, and a region of concept lists. All numbers are big-endian ints and all offsets are
+ * absolute positions in the file.
+ * <pre>
+ *     header:       magic, version, phrases table, lowercase table, norms table, norm terms, concepts region
+ *     key table:    count, key offsets[count + 1], concept list offsets[count], key bytes
+ *     norm terms:   count, term identifiers[count]
+ *     concept list: size, then size times sui, cui, tui
+ * </pre>
+ * Keys are sorted so they can be found by binary search. Phrase keys are UTF-8 compared as unsigned bytes, which is
+ * the order of their code points, so a phrase cursor narrows the range of keys one byte at a time. Norm keys are the
+ * term identifier and count pairs of a {@link TermsBag}, ordered the same as {@link TermsBag#compareTo}, and the norm
+ * terms are sorted, so the file is only valid alongside the vocabulary it was built with.
+ *
+ * @since 1.6.0
+ */
+@ProvidedBy(MappedConceptDictionary.Loader.class)
+class MappedConceptDictionary implements ConceptDictionary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedConceptDictionary.class);
+
+    /**
+     * "BMCD", identifies a binary concept dictionary file.
+     */
+    static final int MAGIC = 0x424d4344;
+
+    static final int VERSION = 2;
+
+    static final int HEADER_BYTES = 7 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+
+    private final KeyTable phrases;
+
+    private final KeyTable lowercasePhrases;
+
+    private final KeyTable norms;
+
+    private final int normTermsOffset;
+
+    private final int normTermsCount;
+
+    private MappedConceptDictionary(ByteBuffer buffer) throws BiomedicusException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new BiomedicusException("Not a binary concept dictionary");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new BiomedicusException("Unsupported binary concept dictionary version: " + version);
+        }
+        phrases = new KeyTable(buffer.getInt(8));
+        lowercasePhrases = new KeyTable(buffer.getInt(12));
+        norms = new KeyTable(buffer.getInt(16));
+        normTermsOffset = buffer.getInt(20) + Integer.BYTES;
+        normTermsCount = buffer.getInt(normTermsOffset - Integer.BYTES);
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forPhrase(String phrase) {
+        return phrases.find(new BytesKey(phrase.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forLowercasePhrase(String phrase) {
+        return lowercasePhrases.find(new BytesKey(phrase.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public PhraseCursor phraseCursor() {
+        return phrases.new Cursor();
+    }
+
+    @Override
+    public PhraseCursor lowercasePhraseCursor() {
+        return lowercasePhrases.new Cursor();
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forNorms(TermsBag norms) {
+        if (norms.size() == 0) {
+            return null;
+        }
+        return this.norms.find(new TermsBagKey(norms));
+    }
+
+    @Override
+    public boolean hasNormsWith(IndexedTerm term) {
+        int identifier = term.termIdentifier();
+        int low = 0;
+        int high = normTermsCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int compare = Integer.compare(buffer.getInt(normTermsOffset + mid * Integer.BYTES), identifier);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<SuiCuiTui> conceptsAt(int offset) {
+        int size = buffer.getInt(offset);
+        List<SuiCuiTui> suiCuiTuis = new ArrayList<>(size);
+        int position = offset + Integer.BYTES;
+        for (int i = 0; i < size; i++) {
+            suiCuiTuis.add(new SuiCuiTui(new SUI(buffer.getInt(position)), new CUI(buffer.getInt(position + 4)),
+                    new TUI(buffer.getInt(position + 8))));
+            position += 3 * Integer.BYTES;
+        }
+        return Collections.unmodifiableList(suiCuiTuis);
+    }
+
+    /**
+     * Compares a key stored in the file against the key being searched for.
+     */
+    private interface SearchKey {
+        int compareStored(int begin, int end);
+    }
+
+    private final class BytesKey implements SearchKey {
+        private final byte[] bytes;
+
+        BytesKey(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int compareStored(int begin, int end) {
+            int length = end - begin;
+            int common = Math.min(length, bytes.length);
+            for (int i = 0; i < common; i++) {
+                int compare = Integer.compare(buffer.get(begin + i) & 0xff, bytes[i] & 0xff);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return Integer.compare(length, bytes.length);
+        }
+    }
+
+    private final class TermsBagKey implements SearchKey {
+        private final TermsBag termsBag;
+
+        TermsBagKey(TermsBag termsBag) {
+            this.termsBag = termsBag;
+        }
+
+        @Override
+        public int compareStored(int begin, int end) {
+            int size = (end - begin) / (2 * Integer.BYTES);
+            int compare = Integer.compare(size, termsBag.size());
+            if (compare != 0) {
+                return compare;
+            }
+            int position = begin;
+            for (int i = 0; i < size; i++) {
+                compare = Integer.compare(buffer.getInt(position), termsBag.identifierAt(i));
+                if (compare != 0) {
+                    return compare;
+                }
+                compare = Integer.compare(buffer.getInt(position + 4), termsBag.countAt(i));
+                if (compare != 0) {
+                    return compare;
+                }
+                position += 2 * Integer.BYTES;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * A sorted table of keys and the offsets of their concept lists. Only uses absolute reads on the buffer, so it
+     * can be searched by any number of threads at once.
+     */
+    private final class KeyTable {
+        private final int count;
+
+        private final int keyOffsets;
+
+        private final int conceptOffsets;
+
+        KeyTable(int offset) {
+            count = buffer.getInt(offset);
+            keyOffsets = offset + Integer.BYTES;
+            conceptOffsets = keyOffsets + (count + 1) * Integer.BYTES;
+        }
+
+        private int keyBegin(int index) {
+            return buffer.getInt(keyOffsets + index * Integer.BYTES);
+        }
+
+        private int keyEnd(int index) {
+            return buffer.getInt(keyOffsets + (index + 1) * Integer.BYTES);
+        }
+
+        /**
+         * Returns the index of the first stored key which is greater than or equal to the search key.
+         */
+        private int lowerBound(SearchKey searchKey) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (searchKey.compareStored(keyBegin(mid), keyEnd(mid)) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Nullable
+        List<SuiCuiTui> find(SearchKey searchKey) {
+            int index = lowerBound(searchKey);
+            if (index < count && searchKey.compareStored(keyBegin(index), keyEnd(index)) == 0) {
+                return conceptsAt(buffer.getInt(conceptOffsets + index * Integer.BYTES));
+            }
+            return null;
+        }
+
+        /**
+         * The range of stored keys which start with the UTF-8 encoding of the characters walked so far.
+         */
+        private final class Cursor implements PhraseCursor {
+            private int low;
+
+            private int high;
+
+            private int depth;
+
+            /**
+             * The first half of a surrogate pair, which is encoded once the second half is walked, or 0.
+             */
+            private char highSurrogate;
+
+            Cursor() {
+                reset();
+            }
+
+            @Override
+            public void reset() {
+                low = 0;
+                high = count;
+                depth = 0;
+                highSurrogate = 0;
+            }
+
+            /**
+             * Returns the first index in the range whose key has an unsigned byte at the cursor's depth which is
+             * greater than or equal to b. Keys which end at the depth sort before all the others.
+             */
+            private int lowerBound(int from, int b) {
+                int to = high;
+                while (from < to) {
+                    int mid = (from + to) >>> 1;
+                    int begin = keyBegin(mid);
+                    if (keyEnd(mid) - begin <= depth || (buffer.get(begin + depth) & 0xff) < b) {
+                        from = mid + 1;
+                    } else {
+                        to = mid;
+                    }
+                }
+                return from;
+            }
+
+            private boolean advanceByte(int b) {
+                low = lowerBound(low, b);
+                high = lowerBound(low, b + 1);
+                depth++;
+                return low < high;
+            }
+
+            @Override
+            public boolean advance(char c) {
+                if (low >= high) {
+                    return false;
+                }
+                if (highSurrogate != 0) {
+                    char first = highSurrogate;
+                    highSurrogate = 0;
+                    if (Character.isLowSurrogate(c)) {
+                        int codePoint = Character.toCodePoint(first, c);
+                        return advanceByte(0xf0 | codePoint >>> 18) && advanceByte(0x80 | (codePoint >>> 12 & 0x3f))
+                                && advanceByte(0x80 | (codePoint >>> 6 & 0x3f))
+                                && advanceByte(0x80 | (codePoint & 0x3f));
+                    }
+                    // an unpaired surrogate is encoded as '?', the same as String.getBytes
+                    if (!advanceByte('?')) {
+                        return false;
+                    }
+                }
+                if (Character.isHighSurrogate(c)) {
+                    highSurrogate = c;
+                    return true;
+                }
+                if (Character.isLowSurrogate(c)) {
+                    return advanceByte('?');
+                }
+                if (c < 0x80) {
+                    return advanceByte(c);
+                }
+                if (c < 0x800) {
+                    return advanceByte(0xc0 | c >>> 6) && advanceByte(0x80 | (c & 0x3f));
+                }
+                return advanceByte(0xe0 | c >>> 12) && advanceByte(0x80 | (c >>> 6 & 0x3f))
+                        && advanceByte(0x80 | (c & 0x3f));
+            }
+
+            @Nullable
+            @Override
+            public List<SuiCuiTui> concepts() {
+                if (low < high && highSurrogate == 0 && keyEnd(low) - keyBegin(low) == depth) {
+                    return conceptsAt(buffer.getInt(conceptOffsets + low * Integer.BYTES));
+                }
+                return null;
+            }
+        }
+    }
+
+    @Singleton
+    static class Loader extends DataLoader<MappedConceptDictionary> {
+        private final Path binaryPath;
+
+        @Inject
+        Loader(@Setting("concepts.binary.path") Path binaryPath) {
+            this.binaryPath = binaryPath;
+        }
+
+        @Override
+        protected MappedConceptDictionary loadModel() throws BiomedicusException {
+            LOGGER.info("Mapping binary concept dictionary: {}", binaryPath);
+            try (FileChannel fileChannel = FileChannel.open(binaryPath, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                return new MappedConceptDictionary(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        fileChannel.size()));
+            } catch (IOException e) {
+                throw new BiomedicusException(e);
+            }
+        }
+    }
+}
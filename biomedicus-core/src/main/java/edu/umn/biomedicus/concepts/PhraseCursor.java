@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.concepts;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Walks the phrases of a {@link ConceptDictionary} one character at a time, like walking down a trie. The phrase
+ * walked so far is never built, so following a phrase through text does not allocate.
+ * <p>
+ * A cursor is used by one thread at a time, and can be reused for any number of walks.
+ *
+ * @since 1.6.0
+ */
+interface PhraseCursor {
+    /**
+     * Moves the cursor back to the empty phrase.
+     */
+    void reset();
+
+    /**
+     * Adds a character to the end of the phrase walked so far.
+     *
+     * @param c the character
+     * @return false if no phrase in the dictionary starts with the characters walked so far, after which the cursor
+     * will not match anything until it is reset
+     */
+    boolean advance(char c);
+
+    /**
+     * Returns the concepts for the characters walked so far.
+     *
+     * @return list of concepts or null if the characters walked so far are not a phrase in the dictionary
+     */
+    @Nullable
+    List<SuiCuiTui> concepts();
+}
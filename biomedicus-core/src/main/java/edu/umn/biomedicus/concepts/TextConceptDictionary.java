@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.concepts;
+
+import com.google.inject.Inject;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Singleton;
+import edu.umn.biomedicus.annotations.Setting;
+import edu.umn.biomedicus.application.DataLoader;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
+import edu.umn.biomedicus.common.terms.TermsBag;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import edu.umn.biomedicus.vocabulary.Vocabulary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores UMLS Concepts in a multimap (Map from String to List of Concepts), loaded from the phrases and norms text
+ * files.
+ *
+ * @author Ben Knoll
+ * @since 1.0.0
+ */
+@ProvidedBy(TextConceptDictionary.Loader.class)
+class TextConceptDictionary implements ConceptDictionary {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TextConceptDictionary.class);
+
+    private final Map<TermsBag, List<SuiCuiTui>> normDictionary;
+
+    private final PhraseTable phrases;
+
+    private final PhraseTable lowercasePhrases;
+
+    /**
+     * The identifiers of the terms that are in any bag of the norm dictionary.
+     */
+    private final BitSet normTerms = new BitSet();
+
+    TextConceptDictionary(Map<TermsBag, List<SuiCuiTui>> normDictionary,
+                          Map<String, List<SuiCuiTui>> phrases,
+                          Map<String, List<SuiCuiTui>> lowercasePhrases) {
+        this.normDictionary = normDictionary;
+        this.phrases = new PhraseTable(phrases);
+        this.lowercasePhrases = new PhraseTable(lowercasePhrases);
+        for (TermsBag termsBag : normDictionary.keySet()) {
+            for (int i = 0; i < termsBag.size(); i++) {
+                normTerms.set(termsBag.identifierAt(i));
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forPhrase(String phrase) {
+        return phrases.get(phrase);
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forLowercasePhrase(String phrase) {
+        return lowercasePhrases.get(phrase);
+    }
+
+    @Override
+    public PhraseCursor phraseCursor() {
+        return phrases.new Cursor();
+    }
+
+    @Override
+    public PhraseCursor lowercasePhraseCursor() {
+        return lowercasePhrases.new Cursor();
+    }
+
+    @Nullable
+    @Override
+    public List<SuiCuiTui> forNorms(TermsBag norms) {
+        if (norms.size() == 0) {
+            return null;
+        }
+        return normDictionary.get(norms);
+    }
+
+    @Override
+    public boolean hasNormsWith(IndexedTerm term) {
+        return !term.isUnknown() && normTerms.get(term.termIdentifier());
+    }
+
+    Map<String, List<SuiCuiTui>> phrases() {
+        return phrases.toMap();
+    }
+
+    Map<String, List<SuiCuiTui>> lowercasePhrases() {
+        return lowercasePhrases.toMap();
+    }
+
+    Map<TermsBag, List<SuiCuiTui>> normDictionary() {
+        return normDictionary;
+    }
+
+    /**
+     * Phrases and their concepts in parallel arrays sorted by phrase. Phrases are found by binary search, and all of
+     * the phrases starting with a prefix are adjacent, so a cursor only has to narrow a range of the arrays.
+     */
+    private static final class PhraseTable {
+        private final String[] keys;
+
+        private final List<?>[] values;
+
+        PhraseTable(Map<String, List<SuiCuiTui>> phrases) {
+            keys = phrases.keySet().toArray(new String[phrases.size()]);
+            Arrays.sort(keys);
+            values = new List<?>[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = phrases.get(keys[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<SuiCuiTui> valueAt(int index) {
+            return (List<SuiCuiTui>) values[index];
+        }
+
+        @Nullable
+        List<SuiCuiTui> get(String phrase) {
+            int index = Arrays.binarySearch(keys, phrase);
+            return index >= 0 ? valueAt(index) : null;
+        }
+
+        Map<String, List<SuiCuiTui>> toMap() {
+            Map<String, List<SuiCuiTui>> map = new HashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                map.put(keys[i], valueAt(i));
+            }
+            return map;
+        }
+
+        /**
+         * The range of keys which start with the characters walked so far.
+         */
+        private final class Cursor implements PhraseCursor {
+            private int low;
+
+            private int high;
+
+            private int depth;
+
+            Cursor() {
+                reset();
+            }
+
+            @Override
+            public void reset() {
+                low = 0;
+                high = keys.length;
+                depth = 0;
+            }
+
+            /**
+             * Returns the first index in the range whose key has a character at the cursor's depth which is greater
+             * than or equal to c. Keys which end at the depth sort before all the others.
+             */
+            private int lowerBound(int from, int c) {
+                int to = high;
+                while (from < to) {
+                    int mid = (from + to) >>> 1;
+                    String key = keys[mid];
+                    if (key.length() <= depth || key.charAt(depth) < c) {
+                        from = mid + 1;
+                    } else {
+                        to = mid;
+                    }
+                }
+                return from;
+            }
+
+            @Override
+            public boolean advance(char c) {
+                if (low >= high) {
+                    return false;
+                }
+                low = lowerBound(low, c);
+                high = lowerBound(low, c + 1);
+                depth++;
+                return low < high;
+            }
+
+            @Nullable
+            @Override
+            public List<SuiCuiTui> concepts() {
+                if (low < high && keys[low].length() == depth) {
+                    return valueAt(low);
+                }
+                return null;
+            }
+        }
+    }
+
+    @Singleton
+    static class Loader extends DataLoader<TextConceptDictionary> {
+        private final Path filteredSuisPath;
+
+        private final Path filteredCuisPath;
+
+        private final Path filteredSuiCuisPath;
+
+        private final Path filteredTuisPath;
+
+        private final Path phrasesPath;
+
+        private final Path normsPath;
+
+        private final Vocabulary vocabulary;
+
+        @Inject
+        Loader(@Setting("concepts.filters.sui.path") Path filteredSuisPath,
+               @Setting("concepts.filters.cui.path") Path filteredCuisPath,
+               @Setting("concepts.filters.suicui.path") Path filteredSuiCuisPath,
+               @Setting("concepts.filters.tui.path") Path filteredTuisPath,
+               @Setting("concepts.phrases.path") Path phrasesPath,
+               @Setting("concepts.norms.path") Path normsPath,
+               Vocabulary vocabulary) {
+            this.filteredSuisPath = filteredSuisPath;
+            this.filteredCuisPath = filteredCuisPath;
+            this.filteredSuiCuisPath = filteredSuiCuisPath;
+            this.filteredTuisPath = filteredTuisPath;
+            this.phrasesPath = phrasesPath;
+            this.normsPath = normsPath;
+            this.vocabulary = vocabulary;
+        }
+
+        @Override
+        protected TextConceptDictionary loadModel() throws BiomedicusException {
+            try {
+                return load();
+            } catch (IOException e) {
+                throw new BiomedicusException(e);
+            }
+        }
+
+        private TextConceptDictionary load() throws IOException {
+            Pattern splitter = Pattern.compile(",");
+
+            Set<SUI> filteredSuis = Files.lines(filteredSuisPath).map(SUI::new).collect(Collectors.toSet());
+
+            Set<CUI> filteredCuis = Files.lines(filteredCuisPath).map(CUI::new).collect(Collectors.toSet());
+
+            Set<SuiCui> filteredSuiCuis = Files.lines(filteredSuiCuisPath)
+                    .map(splitter::split)
+                    .map(line -> new SuiCui(new SUI(line[0]), new CUI(line[1])))
+                    .collect(Collectors.toSet());
+
+            Set<TUI> filteredTuis = Files.lines(filteredTuisPath).map(TUI::new).collect(Collectors.toSet());
+
+            LOGGER.info("Loading concepts phrases: {}", phrasesPath);
+            Map<String, List<SuiCuiTui>> phrases = new HashMap<>();
+            Map<String, List<SuiCuiTui>> lowercasePhrases = new HashMap<>();
+            try (BufferedReader normsReader = Files.newBufferedReader(phrasesPath)) {
+                String line;
+                while ((line = normsReader.readLine()) != null) {
+                    String concepts = normsReader.readLine();
+                    List<SuiCuiTui> suiCuiTuis = Stream.of(splitter.split(concepts)).map(SuiCuiTui::fromString)
+                            .collect(Collectors.toList());
+                    suiCuiTuis.removeIf(sct -> filteredSuis.contains(sct.sui()) || filteredCuis.contains(sct.cui())
+                            || filteredSuiCuis.contains(new SuiCui(sct.sui(), sct.cui()))
+                            || filteredTuis.contains(sct.tui()));
+                    List<SuiCuiTui> unmodifiableList = Collections.unmodifiableList(suiCuiTuis);
+                    phrases.put(line, unmodifiableList);
+                    lowercasePhrases.put(ConceptDictionary.lowercase(line), unmodifiableList);
+                }
+            }
+
+            LOGGER.info("Loading concept norm vectors: {}", normsPath);
+            Map<TermsBag, List<SuiCuiTui>> normDictionary = new HashMap<>();
+            try (BufferedReader normsReader = Files.newBufferedReader(normsPath)) {
+                String line;
+                while ((line = normsReader.readLine()) != null) {
+                    String[] split = splitter.split(line);
+                    List<String> terms = Arrays.asList(split);
+                    terms.replaceAll(string -> {
+                        if (string.equals("scull")) {
+                            return "skull";
+                        }
+                        return string;
+                    });
+                    TermsBag termsBag = vocabulary.getNormsIndex().getTermsBag(terms);
+                    String concepts = normsReader.readLine();
+                    List<SuiCuiTui> suiCuiTuis = Stream.of(splitter.split(concepts)).map(SuiCuiTui::fromString)
+                            .collect(Collectors.toList());
+                    suiCuiTuis.removeIf(sct -> filteredSuis.contains(sct.sui()) || filteredCuis.contains(sct.cui())
+                            || filteredSuiCuis.contains(new SuiCui(sct.sui(), sct.cui()))
+                            || filteredTuis.contains(sct.tui()));
+                    List<SuiCuiTui> unmodifiableList = Collections.unmodifiableList(suiCuiTuis);
+                    normDictionary.put(termsBag, unmodifiableList);
+                }
+            }
+
+            return new TextConceptDictionary(normDictionary, phrases, lowercasePhrases);
+        }
+    }
+
+    private static final class SuiCui {
+        private final SUI sui;
+        private final CUI cui;
+
+        public SuiCui(SUI sui, CUI cui) {
+            this.sui = sui;
+            this.cui = cui;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            SuiCui suiCui = (SuiCui) o;
+
+            if (!sui.equals(suiCui.sui)) return false;
+            return cui.equals(suiCui.cui);
+
+        }
+
+        @Override
+        public int hashCode() {
+            int result = sui.hashCode();
+            result = 31 * result + cui.hashCode();
+            return result;
+        }
+    }
+}
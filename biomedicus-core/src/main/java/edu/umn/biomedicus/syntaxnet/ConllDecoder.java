@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.syntaxnet;
+
+import edu.umn.biomedicus.common.types.text.DependencyParse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decodes CoNLL parses, one sentence terminated by a blank line at a time, from a stream of UTF-8 bytes into
+ * {@link DependencyParse} objects. Only the CPOSTAG, POSTAG, HEAD and DEPREL columns are read, the rest of each line
+ * is skipped. Tags and relations are looked up by their bytes, so a label is only decoded into a string the first time
+ * the decoder sees it.
+ *
+ * @since 1.6.0
+ */
+final class ConllDecoder {
+    private static final int COARSE_TAG_COLUMN = 3;
+
+    private static final int TAG_COLUMN = 4;
+
+    private static final int HEAD_COLUMN = 6;
+
+    private static final int DEPREL_COLUMN = 7;
+
+    private final InputStream inputStream;
+
+    private final byte[] buffer;
+
+    private int position = 0;
+
+    private int limit = 0;
+
+    private int[] coarseTags = new int[64];
+
+    private int[] tags = new int[64];
+
+    private int[] heads = new int[64];
+
+    private int[] relations = new int[64];
+
+    private final byte[] field = new byte[256];
+
+    private int fieldLength = 0;
+
+    private final Labels tagLabels = new Labels(DependencyParse::tagId);
+
+    private final Labels relationLabels = new Labels(DependencyParse::relationId);
+
+    private final int emptyTag = DependencyParse.tagId("_");
+
+    /**
+     * Creates a decoder. The decoder does its own buffering, so the stream does not need to be buffered.
+     *
+     * @param inputStream the stream to read parses from.
+     */
+    ConllDecoder(InputStream inputStream) {
+        this.inputStream = inputStream;
+        buffer = new byte[8192];
+    }
+
+    /**
+     * Reads the parse of the next sentence.
+     *
+     * @return the parse.
+     * @throws EOFException if the stream ends before the end of the sentence.
+     * @throws IOException if reading fails or the CoNLL is malformed.
+     */
+    DependencyParse readSentence() throws IOException {
+        int size = 0;
+        while (true) {
+            int b = read();
+            if (b == '\n') {
+                if (size > 0) {
+                    return new DependencyParse(null, Arrays.copyOf(coarseTags, size), Arrays.copyOf(tags, size),
+                            Arrays.copyOf(heads, size), Arrays.copyOf(relations, size));
+                }
+                // tolerate extra blank lines between sentences
+                continue;
+            }
+            if (size == heads.length) {
+                coarseTags = Arrays.copyOf(coarseTags, size * 2);
+                tags = Arrays.copyOf(tags, size * 2);
+                heads = Arrays.copyOf(heads, size * 2);
+                relations = Arrays.copyOf(relations, size * 2);
+            }
+            readLine(b, size);
+            size++;
+        }
+    }
+
+    private void readLine(int first, int index) throws IOException {
+        int column = 0;
+        int b = first;
+        boolean hasHead = false;
+        boolean hasRelation = false;
+        coarseTags[index] = emptyTag;
+        tags[index] = emptyTag;
+        while (b != '\n') {
+            if (b == '\t') {
+                column++;
+                b = read();
+            } else if (column == COARSE_TAG_COLUMN) {
+                b = readField(b);
+                coarseTags[index] = tagLabels.id(field, fieldLength);
+            } else if (column == TAG_COLUMN) {
+                b = readField(b);
+                tags[index] = tagLabels.id(field, fieldLength);
+            } else if (column == HEAD_COLUMN) {
+                int head = 0;
+                while (b != '\t' && b != '\n') {
+                    if (b < '0' || b > '9') {
+                        throw new IOException("Invalid head in CoNLL parse");
+                    }
+                    head = head * 10 + (b - '0');
+                    b = read();
+                }
+                heads[index] = head - 1;
+                hasHead = true;
+            } else if (column == DEPREL_COLUMN) {
+                b = readField(b);
+                relations[index] = relationLabels.id(field, fieldLength);
+                hasRelation = true;
+            } else {
+                b = read();
+            }
+        }
+        if (!hasHead || !hasRelation) {
+            throw new IOException("CoNLL line does not have a head and relation");
+        }
+    }
+
+    /**
+     * Reads the rest of a column into the field buffer.
+     *
+     * @param first the first byte of the column.
+     * @return the byte after the column.
+     */
+    private int readField(int first) throws IOException {
+        int b = first;
+        fieldLength = 0;
+        while (b != '\t' && b != '\n') {
+            if (fieldLength == field.length) {
+                throw new IOException("Column too long in CoNLL parse");
+            }
+            field[fieldLength++] = (byte) b;
+            b = read();
+        }
+        return b;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = inputStream.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Syntaxnet parser exited before parsing every sentence");
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * The ids of the labels the decoder has seen, keyed by their UTF-8 bytes in an open addressing table.
+     */
+    private static final class Labels {
+        private final ToIntFunction<String> idFunction;
+
+        private byte[][] keys = new byte[64][];
+
+        private int[] ids = new int[64];
+
+        private int count = 0;
+
+        Labels(ToIntFunction<String> idFunction) {
+            this.idFunction = idFunction;
+        }
+
+        int id(byte[] bytes, int length) {
+            int mask = keys.length - 1;
+            int slot = hash(bytes, length) & mask;
+            byte[] key;
+            while ((key = keys[slot]) != null) {
+                if (matches(key, bytes, length)) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            int id = idFunction.applyAsInt(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            keys[slot] = Arrays.copyOf(bytes, length);
+            ids[slot] = id;
+            if (++count * 2 > keys.length) {
+                grow();
+            }
+            return id;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new byte[oldKeys.length * 2][];
+            ids = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                byte[] key = oldKeys[i];
+                if (key != null) {
+                    int slot = hash(key, key.length) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    ids[slot] = oldIds[i];
+                }
+            }
+        }
+
+        private static int hash(byte[] bytes, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean matches(byte[] key, byte[] bytes, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.syntaxnet;
+
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.types.text.ParseToken;
+import edu.umn.biomedicus.common.types.text.Token;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes sentences as CoNLL directly into a reusable UTF-8 byte buffer, each sentence followed by a blank line.
+ *
+ * @since 1.6.0
+ */
+final class ConllEncoder {
+    private static final byte[] EMPTY_COLUMNS = "\t_\t_\t_\t_\t_\t_\t_\t_\t".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SPACE_AFTER = "_\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NO_SPACE_AFTER = "SpaceAfter=No\n".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer;
+
+    private int length = 0;
+
+    private int sentenceCount = 0;
+
+    ConllEncoder() {
+        this(8192);
+    }
+
+    ConllEncoder(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Removes every sentence, keeping the buffer.
+     */
+    void reset() {
+        length = 0;
+        sentenceCount = 0;
+    }
+
+    /**
+     * Adds a sentence.
+     *
+     * @param tokenLabels the tokens of the sentence, there must be at least one.
+     */
+    void addSentence(List<Label<ParseToken>> tokenLabels) {
+        if (tokenLabels.isEmpty()) {
+            throw new IllegalArgumentException("Sentence has no tokens");
+        }
+        for (int i = 0; i < tokenLabels.size(); i++) {
+            Token token = tokenLabels.get(i).value();
+            writeInt(i + 1); // sentence position
+            writeByte('\t');
+            writeText(token.text()); // text
+            writeBytes(EMPTY_COLUMNS); // LEMMA, UPOSTAG, XPOSTAG, FEATS, HEAD, DEPREL, DEPS
+            writeBytes(token.hasSpaceAfter() ? SPACE_AFTER : NO_SPACE_AFTER); // MISC
+        }
+        writeByte('\n');
+        sentenceCount++;
+    }
+
+    int getSentenceCount() {
+        return sentenceCount;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Writes the encoded sentences.
+     *
+     * @param outputStream the stream to write to.
+     * @throws IOException if writing fails.
+     */
+    void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(buffer, 0, length);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeInt(int value) {
+        String digits = Integer.toString(value);
+        ensureCapacity(digits.length());
+        for (int i = 0; i < digits.length(); i++) {
+            buffer[length++] = (byte) digits.charAt(i);
+        }
+    }
+
+    private void writeText(String text) {
+        int textLength = text.length();
+        ensureCapacity(textLength);
+        for (int i = 0; i < textLength; i++) {
+            char ch = text.charAt(i);
+            if (ch >= 0x80) {
+                // only pay for the encoder when the text is not ascii
+                length -= i;
+                writeBytes(text.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer[length++] = (byte) ch;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.syntaxnet;
+
+import edu.umn.biomedicus.common.types.text.DependencyParse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A long-lived tagger and parser process pair, with the tagger's output piped into the parser. Sentences are
+ * exchanged as CoNLL, each sentence terminated by a blank line.
+ * <p>
+ * Input is written on a separate thread while the calling thread reads the parses, so a batch larger than the pipe
+ * buffers cannot deadlock the pair. A worker is used by one thread at a time.
+ *
+ * @since 1.6.0
+ */
+final class SyntaxnetWorker implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntaxnetWorker.class);
+
+    /**
+     * A one token sentence sent to fill up a batch, its parse is discarded.
+     */
+    private static final byte[] PADDING_SENTENCE = "1\t.\t_\t_\t_\t_\t_\t_\t_\t_\n\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final Process tagger;
+
+    private final Process parser;
+
+    private final OutputStream taggerInput;
+
+    private final ConllDecoder parserOutput;
+
+    private final Thread transfer;
+
+    private final ExecutorService inputWriter;
+
+    private volatile boolean failed = false;
+
+    private SyntaxnetWorker(Process tagger, Process parser) {
+        this.tagger = tagger;
+        this.parser = parser;
+        taggerInput = new BufferedOutputStream(tagger.getOutputStream(), 65536);
+        parserOutput = new ConllDecoder(parser.getInputStream());
+
+        startDaemon(errorStreamLogger(tagger), "syntaxnet-tagger-stderr");
+        startDaemon(errorStreamLogger(parser), "syntaxnet-parser-stderr");
+        transfer = startDaemon(() -> {
+            byte[] buffer = new byte[8192];
+            try (InputStream inputStream = tagger.getInputStream();
+                 OutputStream outputStream = parser.getOutputStream()) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                    if (inputStream.available() == 0) {
+                        outputStream.flush();
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error transferring from tagger to parser.", e);
+                failed = true;
+            }
+        }, "syntaxnet-transfer");
+        inputWriter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "syntaxnet-input");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the tagger and parser processes.
+     *
+     * @param taggerBuilder the process builder for the tagger.
+     * @param parserBuilder the process builder for the parser.
+     * @return the started worker.
+     * @throws IOException if either process fails to start.
+     */
+    static SyntaxnetWorker start(ProcessBuilder taggerBuilder, ProcessBuilder parserBuilder) throws IOException {
+        Process parser = parserBuilder.start();
+        Process tagger;
+        try {
+            tagger = taggerBuilder.start();
+        } catch (IOException e) {
+            parser.destroy();
+            throw e;
+        }
+        return new SyntaxnetWorker(tagger, parser);
+    }
+
+    private static Thread startDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Returns whether both processes are running and no error has left the pipes in an unknown state.
+     *
+     * @return true if the worker can parse.
+     */
+    boolean isHealthy() {
+        return !failed && tagger.isAlive() && parser.isAlive() && transfer.isAlive();
+    }
+
+    /**
+     * Parses a batch of sentences.
+     *
+     * @param batch the encoded sentences, which are sent in order.
+     * @param padding the number of padding sentences to send after the batch.
+     * @return the parse of each sentence in the batch, not including the padding.
+     * @throws IOException if communicating with the processes fails, after which the worker is not healthy.
+     */
+    List<DependencyParse> parse(List<ConllEncoder> batch, int padding) throws IOException {
+        Future<?> written = inputWriter.submit(() -> {
+            for (ConllEncoder sentences : batch) {
+                sentences.writeTo(taggerInput);
+            }
+            for (int i = 0; i < padding; i++) {
+                taggerInput.write(PADDING_SENTENCE);
+            }
+            taggerInput.flush();
+            return null;
+        });
+
+        int sentenceCount = 0;
+        for (ConllEncoder sentences : batch) {
+            sentenceCount += sentences.getSentenceCount();
+        }
+        List<DependencyParse> parses = new ArrayList<>(sentenceCount);
+        try {
+            for (int i = 0; i < sentenceCount; i++) {
+                parses.add(parserOutput.readSentence());
+            }
+            for (int i = 0; i < padding; i++) {
+                parserOutput.readSentence();
+            }
+            written.get();
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } catch (ExecutionException e) {
+            failed = true;
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        return parses;
+    }
+
+    @Override
+    public void close() {
+        inputWriter.shutdownNow();
+        try {
+            taggerInput.close();
+        } catch (IOException e) {
+            LOGGER.trace("Error closing tagger input.", e);
+        }
+        tagger.destroy();
+        parser.destroy();
+    }
+
+    private static Runnable errorStreamLogger(Process process) {
+        return () -> {
+            InputStream errorStream = process.getErrorStream();
+            InputStreamReader inputStreamReader = new InputStreamReader(errorStream);
+            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+            String line;
+            try {
+                while ((line = bufferedReader.readLine()) != null) {
+                    if (line.startsWith("F") || line.startsWith("E") || line.startsWith("W")) {
+                        LOGGER.error(line);
+                    } else {
+                        LOGGER.trace(line);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.error("Error reading error stream.", e);
+            }
+        };
+    }
+}
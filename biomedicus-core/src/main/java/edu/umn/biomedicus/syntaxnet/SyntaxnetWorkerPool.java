@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.syntaxnet;
+
+import com.google.inject.Inject;
+import com.google.inject.ProvidedBy;
+import com.google.inject.Singleton;
+import edu.umn.biomedicus.annotations.Setting;
+import edu.umn.biomedicus.application.DataLoader;
+import edu.umn.biomedicus.application.LifecycleManaged;
+import edu.umn.biomedicus.application.LifecycleManager;
+import edu.umn.biomedicus.common.types.text.DependencyParse;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A fixed size pool of long-lived Syntaxnet tagger and parser process pairs, so the models are loaded once instead of
+ * for every document.
+ * <p>
+ * Documents from the pipeline threads are queued, and each worker has a thread that takes as many queued documents
+ * as fit in one Syntaxnet batch and sends them together. Batches that are not full are padded to the batch size, so
+ * Syntaxnet never waits for sentences that are not coming. A worker that has crashed or failed is restarted before
+ * its next batch, and a failure only fails the documents in the batch it happened in.
+ *
+ * @since 1.6.0
+ */
+@ProvidedBy(SyntaxnetWorkerPool.Loader.class)
+public final class SyntaxnetWorkerPool implements LifecycleManaged {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntaxnetWorkerPool.class);
+
+    private final ProcessBuilder taggerBuilder;
+
+    private final ProcessBuilder parserBuilder;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Request> pending = new LinkedBlockingQueue<>();
+
+    private final ThreadLocal<ConllEncoder> encoders = ThreadLocal.withInitial(ConllEncoder::new);
+
+    private final List<Dispatcher> dispatchers;
+
+    private volatile boolean shutdown = false;
+
+    SyntaxnetWorkerPool(int workers, int batchSize, ProcessBuilder taggerBuilder, ProcessBuilder parserBuilder) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.taggerBuilder = taggerBuilder;
+        this.parserBuilder = parserBuilder;
+        this.batchSize = batchSize;
+        List<Dispatcher> dispatchers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            dispatchers.add(new Dispatcher("syntaxnet-dispatcher-" + i));
+        }
+        this.dispatchers = Collections.unmodifiableList(dispatchers);
+    }
+
+    /**
+     * Starts every worker, so that model loading happens up front.
+     *
+     * @throws BiomedicusException if a worker fails to start.
+     */
+    @Override
+    public void doStartup() throws BiomedicusException {
+        try {
+            for (Dispatcher dispatcher : dispatchers) {
+                dispatcher.healthyWorker();
+            }
+        } catch (IOException e) {
+            doShutdown();
+            throw new BiomedicusException(e);
+        }
+        dispatchers.forEach(Thread::start);
+    }
+
+    /**
+     * Returns the calling thread's encoder, emptied. Sentences added to it are parsed by {@link #parse(ConllEncoder)}.
+     *
+     * @return the encoder.
+     */
+    ConllEncoder encoder() {
+        ConllEncoder encoder = encoders.get();
+        encoder.reset();
+        return encoder;
+    }
+
+    /**
+     * Parses the sentences of one document, waiting until they have been parsed. The encoder must not be changed
+     * until this returns.
+     *
+     * @param sentences the encoded sentences.
+     * @return the parse of each sentence.
+     * @throws BiomedicusException if the worker fails.
+     */
+    List<DependencyParse> parse(ConllEncoder sentences) throws BiomedicusException {
+        if (sentences.getSentenceCount() == 0) {
+            return Collections.emptyList();
+        }
+        if (shutdown) {
+            throw new IllegalStateException("Syntaxnet worker pool has been shut down");
+        }
+        Request request = new Request(sentences);
+        pending.add(request);
+        try {
+            return request.result.get();
+        } catch (ExecutionException e) {
+            throw new BiomedicusException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BiomedicusException(e);
+        }
+    }
+
+    @Override
+    public void doShutdown() throws BiomedicusException {
+        shutdown = true;
+        for (Dispatcher dispatcher : dispatchers) {
+            dispatcher.interrupt();
+        }
+        for (Dispatcher dispatcher : dispatchers) {
+            try {
+                dispatcher.join(1000);
+                // a dispatcher blocked on reading a parse sees the end of the stream once the worker is closed
+                dispatcher.discard();
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Request request;
+        while ((request = pending.poll()) != null) {
+            request.result.completeExceptionally(new IllegalStateException("Syntaxnet worker pool has been shut down"));
+        }
+    }
+
+    /**
+     * The sentences of one document waiting to be parsed.
+     */
+    private static final class Request {
+        private final ConllEncoder sentences;
+
+        private final CompletableFuture<List<DependencyParse>> result = new CompletableFuture<>();
+
+        Request(ConllEncoder sentences) {
+            this.sentences = sentences;
+        }
+    }
+
+    /**
+     * Owns one worker, and sends it batches of queued documents.
+     */
+    private final class Dispatcher extends Thread {
+        @Nullable
+        private volatile SyntaxnetWorker worker;
+
+        Dispatcher(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Request> batch = new ArrayList<>();
+            List<ConllEncoder> batchSentences = new ArrayList<>();
+            while (!shutdown) {
+                try {
+                    int sentenceCount;
+                    // one dispatcher dequeues at a time, so the request it peeked at is the one it removes
+                    synchronized (pending) {
+                        Request first = pending.take();
+                        batch.add(first);
+                        sentenceCount = first.sentences.getSentenceCount();
+                        Request next;
+                        while ((next = pending.peek()) != null
+                                && sentenceCount + next.sentences.getSentenceCount() <= batchSize) {
+                            batch.add(pending.remove());
+                            sentenceCount += next.sentences.getSentenceCount();
+                        }
+                    }
+                    int remainder = sentenceCount % batchSize;
+                    int padding = remainder == 0 ? 0 : batchSize - remainder;
+
+                    for (Request request : batch) {
+                        batchSentences.add(request.sentences);
+                    }
+                    sendBatch(batch, batchSentences, padding);
+                } catch (InterruptedException e) {
+                    batch.forEach(request -> request.result
+                            .completeExceptionally(new IllegalStateException("Syntaxnet worker pool has been shut down")));
+                    break;
+                } catch (RuntimeException e) {
+                    // fail only this batch, the worker may be part way through it so it is restarted
+                    LOGGER.error("Failed to parse Syntaxnet batch", e);
+                    discard();
+                    batch.forEach(request -> request.result.completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                    batchSentences.clear();
+                }
+            }
+        }
+
+        private void sendBatch(List<Request> batch, List<ConllEncoder> batchSentences, int padding) {
+            List<DependencyParse> parses;
+            try {
+                parses = healthyWorker().parse(batchSentences, padding);
+            } catch (IOException e) {
+                LOGGER.error("Syntaxnet worker failed", e);
+                discard();
+                for (Request request : batch) {
+                    request.result.completeExceptionally(e);
+                }
+                return;
+            }
+            int from = 0;
+            for (Request request : batch) {
+                int to = from + request.sentences.getSentenceCount();
+                request.result.complete(new ArrayList<>(parses.subList(from, to)));
+                from = to;
+            }
+        }
+
+        SyntaxnetWorker healthyWorker() throws IOException {
+            if (worker != null && !worker.isHealthy()) {
+                LOGGER.warn("Restarting unhealthy Syntaxnet worker");
+                discard();
+            }
+            if (worker == null) {
+                worker = SyntaxnetWorker.start(taggerBuilder, parserBuilder);
+            }
+            return worker;
+        }
+
+        void discard() {
+            if (worker != null) {
+                worker.close();
+                worker = null;
+            }
+        }
+    }
+
+    /**
+     * Starts the workers of the pool.
+     */
+    @Singleton
+    public static class Loader extends DataLoader<SyntaxnetWorkerPool> {
+        private final Path installationDir;
+        private final String modelDirString;
+        private final Integer workers;
+        private final Integer batchSize;
+        private final LifecycleManager lifecycleManager;
+
+        @Inject
+        public Loader(@Setting("syntaxnet.installationDir.path") Path installationDir,
+                      @Setting("syntaxnet.modelDir") String modelDirString,
+                      @Setting("syntaxnet.workers") Integer workers,
+                      @Setting("syntaxnet.batchSize") Integer batchSize,
+                      LifecycleManager lifecycleManager) {
+            this.installationDir = installationDir;
+            this.modelDirString = modelDirString;
+            this.workers = workers;
+            this.batchSize = batchSize;
+            this.lifecycleManager = lifecycleManager;
+        }
+
+        @Override
+        protected SyntaxnetWorkerPool loadModel() throws BiomedicusException {
+            Path parserEval = installationDir.resolve("bazel-bin/syntaxnet/parser_eval");
+            Path modelDir = installationDir.resolve(modelDirString);
+
+            ProcessBuilder parserBuilder = new ProcessBuilder().directory(installationDir.toFile())
+                    .command(parserEval.toString(),
+                            "--input=stdin-conll",
+                            "--output=stdout-conll",
+                            "--hidden_layer_sizes=512,512",
+                            "--arg_prefix=brain_parser",
+                            "--graph_builder=structured",
+                            "--task_context=" + modelDir.resolve("context.pbtxt"),
+                            "--model_path=" + modelDir.resolve("parser-params"),
+                            "--slim_model",
+                            "--batch_size=" + batchSize);
+            ProcessBuilder taggerBuilder = new ProcessBuilder().directory(installationDir.toFile())
+                    .command(parserEval.toString(),
+                            "--input=stdin-conll",
+                            "--output=stdout-conll",
+                            "--hidden_layer_sizes=64",
+                            "--arg_prefix=brain_tagger",
+                            "--graph_builder=structured",
+                            "--task_context=" + modelDir.resolve("context.pbtxt"),
+                            "--model_path=" + modelDir.resolve("tagger-params"),
+                            "--slim_model",
+                            "--batch_size=" + batchSize);
+
+            SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(workers, batchSize, taggerBuilder, parserBuilder);
+            pool.doStartup();
+            lifecycleManager.register(pool);
+            return pool;
+        }
+    }
+}
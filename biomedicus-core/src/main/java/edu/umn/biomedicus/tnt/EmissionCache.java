@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.tuples.PosCap;
+import edu.umn.biomedicus.common.tuples.WordCap;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of the candidate states and emission log probabilities of words, so a repeated token
+ * costs one hash lookup instead of a pass through the word model cascade. Each cache is confined to the thread of the
+ * {@link TntViterbi} that owns it, and only the counter is shared.
+ *
+ * @since 1.6.0
+ */
+final class EmissionCache {
+    private final TntModel tntModel;
+
+    private final int capacity;
+
+    private final EmissionCacheCounter counter;
+
+    private final Map<WordCap, Emissions> entries;
+
+    /**
+     * Filled in place on every lookup when the cache is disabled.
+     */
+    private final Emissions scratch;
+
+    /**
+     * Creates an emission cache.
+     *
+     * @param tntModel the model to get the emissions from
+     * @param capacity the maximum number of words to keep, zero to disable caching
+     * @param counter the counter for hits and misses
+     */
+    EmissionCache(TntModel tntModel, int capacity, EmissionCacheCounter counter) {
+        this.tntModel = tntModel;
+        this.capacity = capacity;
+        this.counter = counter;
+        entries = new LinkedHashMap<WordCap, Emissions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<WordCap, Emissions> eldest) {
+                return size() > EmissionCache.this.capacity;
+            }
+        };
+        int cardinality = PosCap.cardinality();
+        scratch = new Emissions(new int[cardinality], new double[cardinality], 0);
+    }
+
+    /**
+     * Returns the emissions of a word. The returned object may be reused by the next call.
+     *
+     * @param wordCap the word
+     * @return the candidates of the word and their emission log probabilities
+     */
+    Emissions get(WordCap wordCap) {
+        if (capacity <= 0) {
+            scratch.size = tntModel.getCandidates(wordCap, scratch.states, scratch.logProbabilities);
+            return scratch;
+        }
+        Emissions emissions = entries.get(wordCap);
+        if (emissions != null) {
+            counter.hit();
+            return emissions;
+        }
+        counter.miss();
+        int size = tntModel.getCandidates(wordCap, scratch.states, scratch.logProbabilities);
+        emissions = new Emissions(Arrays.copyOf(scratch.states, size), Arrays.copyOf(scratch.logProbabilities, size),
+                size);
+        entries.put(wordCap, emissions);
+        return emissions;
+    }
+
+    /**
+     * The candidate pos cap ordinals of a word, in parallel with their emission log probabilities.
+     */
+    static final class Emissions {
+        final int[] states;
+
+        final double[] logProbabilities;
+
+        int size;
+
+        Emissions(int[] states, double[] logProbabilities, int size) {
+            this.states = states;
+            this.logProbabilities = logProbabilities;
+            this.size = size;
+        }
+    }
+}
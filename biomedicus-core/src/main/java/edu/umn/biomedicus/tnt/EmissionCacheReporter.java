@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import com.google.inject.Inject;
+import edu.umn.biomedicus.application.PostProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the hits and misses of the TnT emission caches once every document has been tagged. Run it as a post processor
+ * of the {@link TntPosTagger}.
+ *
+ * @since 1.6.0
+ */
+public class EmissionCacheReporter implements PostProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmissionCacheReporter.class);
+
+    private final TntModel tntModel;
+
+    @Inject
+    public EmissionCacheReporter(TntModel tntModel) {
+        this.tntModel = tntModel;
+    }
+
+    @Override
+    public void afterProcessing() {
+        if (tntModel.getEmissionCacheSize() > 0) {
+            LOGGER.info("TnT emission cache: {}", tntModel.getEmissionCacheCounter());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+import edu.umn.biomedicus.common.types.syntax.PartsOfSpeech;
+import edu.umn.biomedicus.common.tuples.WordCap;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A known word or suffix word probability model read directly from a memory-mapped TnT model file written by
+ * {@link TntModelFormat}.
+ * <p>
+ * Words are found by linear probing in a hash table of entry numbers. Each entry has the identifier of its word in the
+ * file's string table and a row of candidate part of speech ordinals with their log probabilities. A suffix model
+ * looks up the suffixes of a word from longest to shortest by comparing characters in place, so no substrings are
+ * created.
+ *
+ * @since 1.6.0
+ */
+final class MappedWordProbabilityModel implements WordProbabilityModel {
+    private static final PartOfSpeech[] PARTS_OF_SPEECH = PartOfSpeech.values();
+
+    private final ByteBuffer buffer;
+
+    private final int stringOffsetsStart;
+
+    private final int stringsStart;
+
+    /**
+     * The maximum suffix length, or -1 if this is a known word model.
+     */
+    private final int maxSuffixLength;
+
+    private final int tableSize;
+
+    private final int tableStart;
+
+    private final int entryStringsStart;
+
+    private final int rowOffsetsStart;
+
+    private final int ordinalsStart;
+
+    private final int logProbabilitiesStart;
+
+    MappedWordProbabilityModel(ByteBuffer buffer,
+                               int stringOffsetsStart,
+                               int stringsStart,
+                               int maxSuffixLength,
+                               int tableSize,
+                               int tableStart,
+                               int entryStringsStart,
+                               int rowOffsetsStart,
+                               int ordinalsStart,
+                               int logProbabilitiesStart) {
+        this.buffer = buffer;
+        this.stringOffsetsStart = stringOffsetsStart;
+        this.stringsStart = stringsStart;
+        this.maxSuffixLength = maxSuffixLength;
+        this.tableSize = tableSize;
+        this.tableStart = tableStart;
+        this.entryStringsStart = entryStringsStart;
+        this.rowOffsetsStart = rowOffsetsStart;
+        this.ordinalsStart = ordinalsStart;
+        this.logProbabilitiesStart = logProbabilitiesStart;
+    }
+
+    @Override
+    public double logProbabilityOfWord(PartOfSpeech candidate, WordCap wordCap) {
+        String word = wordCap.getWord();
+        int entry;
+        if (maxSuffixLength < 0) {
+            entry = find(word, 0);
+            if (entry < 0) {
+                return Double.NEGATIVE_INFINITY;
+            }
+        } else {
+            entry = -1;
+            int length = word.length();
+            for (int begin = length - Math.min(length, maxSuffixLength); begin <= length && entry < 0; begin++) {
+                entry = find(word, begin);
+            }
+            if (entry < 0) {
+                throw new AssertionError("at least 0-length suffix should return a map");
+            }
+        }
+        int rowEnd = rowOffset(entry + 1);
+        int ordinal = candidate.ordinal();
+        for (int i = rowOffset(entry); i < rowEnd; i++) {
+            if ((buffer.get(ordinalsStart + i) & 0xff) == ordinal) {
+                return buffer.getFloat(logProbabilitiesStart + i * Float.BYTES);
+            }
+        }
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public Set<PartOfSpeech> getCandidates(WordCap wordCap) {
+        if (maxSuffixLength >= 0) {
+            return PartsOfSpeech.getRealTags();
+        }
+        int entry = find(wordCap.getWord(), 0);
+        if (entry < 0) {
+            return Collections.emptySet();
+        }
+        Set<PartOfSpeech> candidates = EnumSet.noneOf(PartOfSpeech.class);
+        int rowEnd = rowOffset(entry + 1);
+        for (int i = rowOffset(entry); i < rowEnd; i++) {
+            if (buffer.getFloat(logProbabilitiesStart + i * Float.BYTES) != Float.NEGATIVE_INFINITY) {
+                candidates.add(PARTS_OF_SPEECH[buffer.get(ordinalsStart + i) & 0xff]);
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean isKnown(WordCap wordCap) {
+        return maxSuffixLength >= 0 || find(wordCap.getWord(), 0) >= 0;
+    }
+
+    /**
+     * Does nothing, the model is read-only and only contains finite probabilities.
+     */
+    @Override
+    public void reduce() {
+    }
+
+    private int rowOffset(int entry) {
+        return buffer.getInt(rowOffsetsStart + entry * Integer.BYTES);
+    }
+
+    /**
+     * Finds the entry for the characters of a word from an index to its end.
+     *
+     * @return the entry number or -1 if there is no entry
+     */
+    private int find(String word, int begin) {
+        int mask = tableSize - 1;
+        int slot = (int) TntModelFormat.hash(word, begin) & mask;
+        while (true) {
+            int value = buffer.getInt(tableStart + slot * Integer.BYTES);
+            if (value == 0) {
+                return -1;
+            }
+            int entry = value - 1;
+            if (equalsStored(buffer.getInt(entryStringsStart + entry * Integer.BYTES), word, begin)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean equalsStored(int string, String word, int begin) {
+        int offset = buffer.getInt(stringOffsetsStart + string * Integer.BYTES);
+        int length = buffer.getInt(stringOffsetsStart + (string + 1) * Integer.BYTES) - offset;
+        if (length != word.length() - begin) {
+            return false;
+        }
+        int position = stringsStart + offset * Character.BYTES;
+        for (int i = 0; i < length; i++) {
+            if (buffer.getChar(position + i * Character.BYTES) != word.charAt(begin + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
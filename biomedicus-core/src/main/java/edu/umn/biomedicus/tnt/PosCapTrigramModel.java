@@ -116,6 +116,29 @@ class PosCapTrigramModel {
         return unigramLambda * unigramProbability + bigramLambda * bigramProbability + trigramLambda * trigramProbability;
     }
 
+    /**
+     * Creates a table of the base 10 log of every trigram probability, indexed by
+     * {@code (first * cardinality + second) * cardinality + third} where the pos caps are given by their ordinals.
+     *
+     * @return newly created table of size {@code cardinality^3}
+     */
+    double[] createLogProbabilityTable() {
+        int cardinality = PosCap.cardinality();
+        double[] table = new double[cardinality * cardinality * cardinality];
+        int index = 0;
+        for (int first = 0; first < cardinality; first++) {
+            for (int second = 0; second < cardinality; second++) {
+                for (int third = 0; third < cardinality; third++) {
+                    double probability = unigramLambda * unigramProbabilities[third]
+                            + bigramLambda * bigramProbabilities[second][third]
+                            + trigramLambda * trigramProbabilities[first][second][third];
+                    table[index++] = Math.log10(probability);
+                }
+            }
+        }
+        return table;
+    }
+
     public Map<String, Object> createStore() {
         Map<String, Object> store = new TreeMap<>();
         store.put("unigramLambda", unigramLambda);
@@ -19,11 +19,14 @@ package edu.umn.biomedicus.tnt;
 import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
 import edu.umn.biomedicus.common.types.syntax.PartsOfSpeech;
 import edu.umn.biomedicus.common.tuples.WordCap;
-import edu.umn.biomedicus.common.utilities.Strings;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * <p>
@@ -45,15 +48,25 @@ public class SuffixWordProbabilityModel implements WordProbabilityModel {
     private Map<String, Map<PartOfSpeech, Double>> probabilities;
     private int maxSuffixLength;
 
+    /**
+     * The probabilities indexed by reversed suffix, built from {@link #probabilities} when first needed and discarded
+     * whenever they change.
+     */
+    @Nullable
+    private volatile SuffixTrie suffixTrie;
+
     @Override
     public double logProbabilityOfWord(PartOfSpeech candidate, WordCap wordCap) {
-        Double probability = Strings.generateSuffixes(wordCap.getWord(), maxSuffixLength)
-                .map(probabilities::get)
-                .filter(Objects::nonNull)
-                .findFirst()
-                .orElseThrow(() -> new AssertionError("at least 0-length suffix should return a map"))
-                .getOrDefault(candidate, Double.NEGATIVE_INFINITY);
-        return probability == null ? Double.NEGATIVE_INFINITY : probability;
+        SuffixTrie suffixTrie = this.suffixTrie;
+        if (suffixTrie == null) {
+            suffixTrie = new SuffixTrie(probabilities);
+            this.suffixTrie = suffixTrie;
+        }
+        double[] logProbabilities = suffixTrie.longestSuffix(wordCap.getWord(), maxSuffixLength);
+        if (logProbabilities == null) {
+            throw new AssertionError("at least 0-length suffix should return a map");
+        }
+        return logProbabilities[candidate.ordinal()];
     }
 
     @Override
@@ -75,6 +88,7 @@ public class SuffixWordProbabilityModel implements WordProbabilityModel {
                 }
             }
         }
+        suffixTrie = null;
     }
 
     public Map<String, Map<PartOfSpeech, Double>> getProbabilities() {
@@ -83,6 +97,7 @@ public class SuffixWordProbabilityModel implements WordProbabilityModel {
 
     public void setProbabilities(Map<String, Map<PartOfSpeech, Double>> probabilities) {
         this.probabilities = probabilities;
+        suffixTrie = null;
     }
 
     public int getMaxSuffixLength() {
@@ -92,4 +107,126 @@ public class SuffixWordProbabilityModel implements WordProbabilityModel {
     public void setMaxSuffixLength(int maxSuffixLength) {
         this.maxSuffixLength = maxSuffixLength;
     }
+
+    /**
+     * A trie of the suffixes read from their last character to their first, so the longest suffix of a word in the
+     * model is found by a single walk backwards over the word. Nodes are numbered breadth first, which puts the
+     * children of every node next to each other, sorted by character.
+     */
+    private static final class SuffixTrie {
+        /**
+         * The character on the edge into each node.
+         */
+        private final char[] characters;
+
+        /**
+         * The first child of each node, the children of node i are the nodes from firstChild[i] until
+         * firstChild[i + 1].
+         */
+        private final int[] firstChild;
+
+        /**
+         * For each node, the log probabilities by part of speech ordinal, or null if the suffix the node spells is
+         * not in the model.
+         */
+        private final double[][] logProbabilities;
+
+        SuffixTrie(Map<String, Map<PartOfSpeech, Double>> probabilities) {
+            Node root = new Node();
+            for (Map.Entry<String, Map<PartOfSpeech, Double>> entry : probabilities.entrySet()) {
+                String suffix = entry.getKey();
+                Node node = root;
+                for (int i = suffix.length() - 1; i >= 0; i--) {
+                    node = node.children.computeIfAbsent(suffix.charAt(i), c -> new Node());
+                }
+                node.probabilities = entry.getValue();
+            }
+
+            List<Node> nodes = new ArrayList<>();
+            List<Character> nodeCharacters = new ArrayList<>();
+            nodes.add(root);
+            nodeCharacters.add('\0');
+            int size = 1;
+            int[] firstChild = new int[16];
+            for (int i = 0; i < nodes.size(); i++) {
+                if (i + 1 >= firstChild.length) {
+                    firstChild = Arrays.copyOf(firstChild, firstChild.length * 2);
+                }
+                firstChild[i] = size;
+                for (Map.Entry<Character, Node> child : nodes.get(i).children.entrySet()) {
+                    nodes.add(child.getValue());
+                    nodeCharacters.add(child.getKey());
+                    size++;
+                }
+            }
+            firstChild[size] = size;
+            this.firstChild = Arrays.copyOf(firstChild, size + 1);
+
+            int partsOfSpeech = PartOfSpeech.values().length;
+            characters = new char[size];
+            logProbabilities = new double[size][];
+            for (int i = 0; i < size; i++) {
+                characters[i] = nodeCharacters.get(i);
+                Map<PartOfSpeech, Double> nodeProbabilities = nodes.get(i).probabilities;
+                if (nodeProbabilities != null) {
+                    double[] row = new double[partsOfSpeech];
+                    Arrays.fill(row, Double.NEGATIVE_INFINITY);
+                    for (Map.Entry<PartOfSpeech, Double> entry : nodeProbabilities.entrySet()) {
+                        if (entry.getValue() != null) {
+                            row[entry.getKey().ordinal()] = entry.getValue();
+                        }
+                    }
+                    logProbabilities[i] = row;
+                }
+            }
+        }
+
+        /**
+         * Finds the log probabilities of the longest suffix of the word in the model.
+         *
+         * @param word the word
+         * @param maxSuffixLength the longest suffix to consider
+         * @return log probabilities by part of speech ordinal, or null if not even the empty suffix is in the model
+         */
+        @Nullable
+        double[] longestSuffix(String word, int maxSuffixLength) {
+            int node = 0;
+            double[] longest = logProbabilities[0];
+            int stop = word.length() - Math.min(word.length(), maxSuffixLength);
+            for (int i = word.length() - 1; i >= stop; i--) {
+                node = child(node, word.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                if (logProbabilities[node] != null) {
+                    longest = logProbabilities[node];
+                }
+            }
+            return longest;
+        }
+
+        private int child(int node, char character) {
+            int low = firstChild[node];
+            int high = firstChild[node + 1] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midCharacter = characters[mid];
+                if (midCharacter < character) {
+                    low = mid + 1;
+                } else if (midCharacter > character) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private static final class Node {
+            private final Map<Character, Node> children = new TreeMap<>();
+
+            @Nullable
+            private Map<PartOfSpeech, Double> probabilities;
+        }
+    }
 }
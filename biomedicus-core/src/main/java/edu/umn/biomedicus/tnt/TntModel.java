@@ -20,6 +20,7 @@ import com.google.inject.ProvidedBy;
 import edu.umn.biomedicus.annotations.Setting;
 import edu.umn.biomedicus.application.DataLoader;
 import edu.umn.biomedicus.common.grams.Bigram;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
 import edu.umn.biomedicus.common.tuples.PosCap;
 import edu.umn.biomedicus.common.tuples.WordCap;
 import edu.umn.biomedicus.common.viterbi.CandidateProbability;
@@ -32,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
@@ -52,8 +54,10 @@ public class TntModel implements EmissionProbabilityModel<PosCap, WordCap>, Tran
 
 
     /**
-     * Trigram model used for transition probability.
+     * Trigram model used for transition probability, null when the model was read from a binary file, which only has
+     * the log probability table.
      */
+    @Nullable
     private final PosCapTrigramModel posCapTrigramModel;
 
     /**
@@ -61,12 +65,107 @@ public class TntModel implements EmissionProbabilityModel<PosCap, WordCap>, Tran
      */
     private final List<FilteredAdaptedWordProbabilityModel> filteredAdaptedWordProbabilities;
 
+    /**
+     * Base 10 log transition probabilities by pos cap ordinals, see
+     * {@link PosCapTrigramModel#createLogProbabilityTable()}.
+     */
+    private final double[] trigramLogProbabilities;
+
+    private final int cardinality = PosCap.cardinality();
+
+    /**
+     * The number of words each thread's emission cache keeps, zero for no caching.
+     */
+    private int emissionCacheSize = 0;
+
+    private final EmissionCacheCounter emissionCacheCounter = new EmissionCacheCounter();
+
+    /**
+     * Viterbi decoders, reused by every sentence tagged on a thread.
+     */
+    private final ThreadLocal<TntViterbi> viterbis = ThreadLocal.withInitial(() -> new TntViterbi(this));
+
     TntModel(PosCapTrigramModel posCapTrigramModel, List<FilteredAdaptedWordProbabilityModel> filteredAdaptedWordProbabilities) {
         this.posCapTrigramModel = posCapTrigramModel;
         this.filteredAdaptedWordProbabilities = filteredAdaptedWordProbabilities;
+        trigramLogProbabilities = posCapTrigramModel.createLogProbabilityTable();
+    }
+
+    TntModel(double[] trigramLogProbabilities, List<FilteredAdaptedWordProbabilityModel> filteredAdaptedWordProbabilities) {
+        posCapTrigramModel = null;
+        this.filteredAdaptedWordProbabilities = filteredAdaptedWordProbabilities;
+        this.trigramLogProbabilities = trigramLogProbabilities;
+    }
+
+    /**
+     * Loads a model from the YAML trigram model and the YAML word models in a folder.
+     *
+     * @param trigram the trigram model file
+     * @param wordModels the folder containing the word models
+     * @return the loaded model
+     * @throws IOException if any of the files could not be read
+     */
+    static TntModel loadYaml(Path trigram, Path wordModels) throws IOException {
+        Yaml yaml = YamlSerialization.createYaml();
+
+        LOGGER.info("Loading TnT trigram model: {}", trigram);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> store = (Map<String, Object>) yaml.load(Files.newInputStream(trigram));
+        PosCapTrigramModel posCapTrigramModel = PosCapTrigramModel.createFromStore(store);
+
+        List<FilteredAdaptedWordProbabilityModel> filteredAdaptedWordProbabilities = new ArrayList<>();
+        Files.walkFileTree(wordModels, Collections.emptySet(), 1, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().endsWith(".yml")) {
+                    LOGGER.info("Loading TnT word model #{}: {}", filteredAdaptedWordProbabilities.size() + 1, file);
+                    FilteredAdaptedWordProbabilityModel filteredAdaptedWordProbabilityModel = (FilteredAdaptedWordProbabilityModel) yaml.load(Files.newInputStream(file));
+                    filteredAdaptedWordProbabilities.add(filteredAdaptedWordProbabilityModel);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(filteredAdaptedWordProbabilities, (m1, m2) -> Integer.compare(m1.getPriority(), m2.getPriority()));
+
+        return new TntModel(posCapTrigramModel, filteredAdaptedWordProbabilities);
+    }
+
+    /**
+     * Returns the calling thread's Viterbi decoder for this model.
+     *
+     * @return the decoder.
+     */
+    TntViterbi getViterbi() {
+        return viterbis.get();
+    }
+
+    int getEmissionCacheSize() {
+        return emissionCacheSize;
+    }
+
+    /**
+     * Sets the number of words whose emissions are cached by each thread, must be called before tagging starts.
+     *
+     * @param emissionCacheSize the number of words, zero for no caching.
+     */
+    void setEmissionCacheSize(int emissionCacheSize) {
+        this.emissionCacheSize = emissionCacheSize;
+    }
+
+    /**
+     * Returns the hits and misses of the emission caches of every thread.
+     *
+     * @return the counter.
+     */
+    public EmissionCacheCounter getEmissionCacheCounter() {
+        return emissionCacheCounter;
     }
 
     public void write(Path folder) throws IOException {
+        if (posCapTrigramModel == null) {
+            throw new IllegalStateException("Models read from a binary file can not be written as YAML");
+        }
         Yaml yaml = YamlSerialization.createYaml();
 
         Files.createDirectories(folder);
@@ -84,6 +183,29 @@ public class TntModel implements EmissionProbabilityModel<PosCap, WordCap>, Tran
         }
     }
 
+    /**
+     * Writes the model as a single binary file, which loads much faster and is memory-mapped instead of being read
+     * onto the heap. See {@link TntModelFormat}.
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void writeBinary(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        TntModelFormat.write(this, file);
+    }
+
+    List<FilteredAdaptedWordProbabilityModel> getWordProbabilityModels() {
+        return filteredAdaptedWordProbabilities;
+    }
+
+    double[] getTrigramLogProbabilities() {
+        return trigramLogProbabilities;
+    }
+
     private FilteredAdaptedWordProbabilityModel getWordProbabilityModel(WordCap emittedValue) {
         FilteredAdaptedWordProbabilityModel filteredAdaptedWordProbability = null;
         for (FilteredAdaptedWordProbabilityModel probabilityModel : filteredAdaptedWordProbabilities) {
@@ -113,10 +235,46 @@ public class TntModel implements EmissionProbabilityModel<PosCap, WordCap>, Tran
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Finds the candidate states of an emitted word and their emission probabilities, without creating any
+     * intermediate objects for the candidates.
+     *
+     * @param emittedValue the word.
+     * @param states array to store the pos cap ordinals of the candidates in, at least {@link PosCap#cardinality()}
+     *               long.
+     * @param emissionLogProbabilities array to store the base 10 log emission probability of each candidate in.
+     * @return the number of candidates.
+     */
+    int getCandidates(WordCap emittedValue, int[] states, double[] emissionLogProbabilities) {
+        FilteredAdaptedWordProbabilityModel filteredAdaptedWordProbability = getWordProbabilityModel(emittedValue);
+
+        int capitalizedOffset = emittedValue.isCapitalized() ? cardinality / 2 : 0;
+        int count = 0;
+        for (PartOfSpeech candidate : filteredAdaptedWordProbability.getCandidates(emittedValue)) {
+            states[count] = capitalizedOffset + candidate.ordinal();
+            emissionLogProbabilities[count] = filteredAdaptedWordProbability.logProbabilityOfWord(candidate,
+                    emittedValue);
+            count++;
+        }
+        return count;
+    }
+
     @Override
     public double getTransitionLogProbability(Bigram<PosCap> statesReduction, PosCap candidate) {
-        return Math.log10(posCapTrigramModel.getTrigramProbability(statesReduction.getFirst(),
-                statesReduction.getSecond(), candidate));
+        return getTransitionLogProbability(statesReduction.getFirst().ordinal(), statesReduction.getSecond().ordinal(),
+                candidate.ordinal());
+    }
+
+    /**
+     * Returns the base 10 log probability of a transition, with states given by their pos cap ordinals.
+     *
+     * @param first the state two before the candidate.
+     * @param second the state before the candidate.
+     * @param candidate the candidate state.
+     * @return the log probability.
+     */
+    double getTransitionLogProbability(int first, int second, int candidate) {
+        return trigramLogProbabilities[(first * cardinality + second) * cardinality + candidate];
     }
 
     /**
@@ -128,41 +286,40 @@ public class TntModel implements EmissionProbabilityModel<PosCap, WordCap>, Tran
 
         private final Path wordModels;
 
+        private final boolean binary;
+
+        private final Path binaryPath;
+
+        private final int emissionCacheSize;
+
         @Inject
-        public Loader(@Setting("tnt.trigram.path") Path trigram, @Setting("tnt.word.path") Path wordModels) {
+        public Loader(@Setting("tnt.trigram.path") Path trigram,
+                      @Setting("tnt.word.path") Path wordModels,
+                      @Setting("tnt.binary.enabled") Boolean binary,
+                      @Setting("tnt.binary.path") Path binaryPath,
+                      @Setting("tnt.emissionCache.size") Integer emissionCacheSize) {
             this.trigram = trigram;
             this.wordModels = wordModels;
+            this.binary = binary;
+            this.binaryPath = binaryPath;
+            this.emissionCacheSize = emissionCacheSize;
         }
 
         @Override
         protected TntModel loadModel() throws BiomedicusException {
-            Yaml yaml = YamlSerialization.createYaml();
-
+            TntModel tntModel;
             try {
-                LOGGER.info("Loading TnT trigram model: {}", trigram);
-                @SuppressWarnings("unchecked")
-                Map<String, Object> store = (Map<String, Object>) yaml.load(Files.newInputStream(trigram));
-                PosCapTrigramModel posCapTrigramModel = PosCapTrigramModel.createFromStore(store);
-
-                List<FilteredAdaptedWordProbabilityModel> filteredAdaptedWordProbabilities = new ArrayList<>();
-                Files.walkFileTree(wordModels, Collections.emptySet(), 1, new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                        if (file.getFileName().toString().endsWith(".yml")) {
-                            LOGGER.info("Loading TnT word model #{}: {}", filteredAdaptedWordProbabilities.size() + 1, file);
-                            FilteredAdaptedWordProbabilityModel filteredAdaptedWordProbabilityModel = (FilteredAdaptedWordProbabilityModel) yaml.load(Files.newInputStream(file));
-                            filteredAdaptedWordProbabilities.add(filteredAdaptedWordProbabilityModel);
-                        }
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
-
-                Collections.sort(filteredAdaptedWordProbabilities, (m1, m2) -> Integer.compare(m1.getPriority(), m2.getPriority()));
-
-                return new TntModel(posCapTrigramModel, filteredAdaptedWordProbabilities);
+                if (binary) {
+                    LOGGER.info("Mapping binary TnT model: {}", binaryPath);
+                    tntModel = TntModelFormat.read(binaryPath);
+                } else {
+                    tntModel = loadYaml(trigram, wordModels);
+                }
             } catch (IOException e) {
                 throw new BiomedicusException(e);
             }
+            tntModel.setEmissionCacheSize(emissionCacheSize);
+            return tntModel;
         }
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import org.kohsuke.args4j.Argument;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.PathOptionHandler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Converts the YAML trigram and word models of a TnT model to the binary file which is memory-mapped when the
+ * "tnt.binary.enabled" setting is true.
+ *
+ * @since 1.6.0
+ */
+public class TntModelConverter {
+    @Option(name = "-t", required = true, handler = PathOptionHandler.class, usage = "path to the trigram model yml.")
+    private Path trigramPath;
+
+    @Option(name = "-w", required = true, handler = PathOptionHandler.class,
+            usage = "path to the folder of word model ymls.")
+    private Path wordModelsPath;
+
+    @Argument(required = true, handler = PathOptionHandler.class)
+    private Path outputPath;
+
+    private void doMain(String[] args) {
+        CmdLineParser parser = new CmdLineParser(this);
+
+        try {
+            parser.parseArgument(args);
+        } catch (CmdLineException e) {
+            System.err.println(e.getLocalizedMessage());
+            System.err.println("java edu.umn.biomedicus.tnt.TntModelConverter [options...] /path/to/tntModel.bin");
+            parser.printUsage(System.err);
+            return;
+        }
+
+        try {
+            TntModel.loadYaml(trigramPath, wordModelsPath).writeBinary(outputPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void main(String[] args) {
+        new TntModelConverter().doMain(args);
+    }
+}
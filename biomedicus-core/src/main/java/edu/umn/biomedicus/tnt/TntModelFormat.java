@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.tuples.PosCap;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a complete TnT model as a single binary file which is memory-mapped when loading.
+ * <pre>
+ *     magic, version, pos cap cardinality, part of speech count, string count, word model count
+ *     string offsets[string count + 1]
+ *     UTF-16 strings, padded to a multiple of 4 bytes
+ *     trigram log probabilities[cardinality^3]
+ *     for each word model:
+ *         priority, flags, max suffix length or -1 for known words, entry count, table size
+ *         table[table size]
+ *         entry strings[entry count]
+ *         row offsets[entry count + 1]
+ *         part of speech ordinal bytes[candidate count], padded to a multiple of 4 bytes
+ *         log probabilities[candidate count]
+ * </pre>
+ * Every word and suffix is stored once in the string table and the entries refer to it by number. Log probabilities
+ * are big-endian floats, the trigram table is indexed like {@link PosCapTrigramModel#createLogProbabilityTable()},
+ * and all other numbers are big-endian ints. String offsets are in characters relative to the start of the strings,
+ * and row offsets are in candidates. The table is for linear probing by {@link #hash(String, int)}, its slots hold
+ * entry numbers plus one, and zero for empty.
+ *
+ * @since 1.6.0
+ */
+final class TntModelFormat {
+    /**
+     * "BTNT", identifies a binary TnT model file.
+     */
+    private static final int MAGIC = 0x42544e54;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_INTS = 6;
+
+    private static final int MODEL_HEADER_INTS = 5;
+
+    private static final int FILTER_CAPITALIZED = 1;
+
+    private static final int FILTER_NOT_CAPITALIZED = 1 << 1;
+
+    private static final int TO_LOWERCASE = 1 << 2;
+
+    private static final int IGNORE_CAPITALIZATION = 1 << 3;
+
+    private TntModelFormat() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Maps a binary TnT model file.
+     *
+     * @param path the file written by {@link #write(TntModel, Path)}
+     * @return the model reading its word probabilities from the file
+     * @throws IOException if the file could not be mapped or is not a TnT model for the current tag set
+     */
+    static TntModel read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+        if (buffer.limit() < HEADER_INTS * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary TnT model: " + path);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary TnT model version: " + version);
+        }
+        int cardinality = buffer.getInt(8);
+        int partsOfSpeech = buffer.getInt(12);
+        if (cardinality != PosCap.cardinality() || partsOfSpeech != PartOfSpeech.values().length) {
+            throw new IOException("Binary TnT model was written for a different tag set");
+        }
+        int stringCount = buffer.getInt(16);
+        int modelCount = buffer.getInt(20);
+
+        int stringOffsetsStart = HEADER_INTS * Integer.BYTES;
+        int stringsStart = stringOffsetsStart + (stringCount + 1) * Integer.BYTES;
+        int stringChars = buffer.getInt(stringOffsetsStart + stringCount * Integer.BYTES);
+        int position = stringsStart + pad(stringChars * Character.BYTES);
+
+        double[] trigramLogProbabilities = new double[cardinality * cardinality * cardinality];
+        for (int i = 0; i < trigramLogProbabilities.length; i++) {
+            trigramLogProbabilities[i] = buffer.getFloat(position);
+            position += Float.BYTES;
+        }
+
+        List<FilteredAdaptedWordProbabilityModel> models = new ArrayList<>(modelCount);
+        for (int i = 0; i < modelCount; i++) {
+            int priority = buffer.getInt(position);
+            int flags = buffer.getInt(position + 4);
+            int maxSuffixLength = buffer.getInt(position + 8);
+            int entryCount = buffer.getInt(position + 12);
+            int tableSize = buffer.getInt(position + 16);
+            int tableStart = position + MODEL_HEADER_INTS * Integer.BYTES;
+            int entryStringsStart = tableStart + tableSize * Integer.BYTES;
+            int rowOffsetsStart = entryStringsStart + entryCount * Integer.BYTES;
+            int candidateCount = buffer.getInt(rowOffsetsStart + entryCount * Integer.BYTES);
+            int ordinalsStart = rowOffsetsStart + (entryCount + 1) * Integer.BYTES;
+            int logProbabilitiesStart = ordinalsStart + pad(candidateCount);
+            position = logProbabilitiesStart + candidateCount * Float.BYTES;
+
+            FilteredAdaptedWordProbabilityModel model = new FilteredAdaptedWordProbabilityModel();
+            model.setPriority(priority);
+            model.setFilter(new WordCapFilter((flags & FILTER_CAPITALIZED) != 0,
+                    (flags & FILTER_NOT_CAPITALIZED) != 0));
+            model.setWordCapAdapter(new WordCapAdapter((flags & TO_LOWERCASE) != 0,
+                    (flags & IGNORE_CAPITALIZATION) != 0));
+            model.setWordProbabilityModel(new MappedWordProbabilityModel(buffer, stringOffsetsStart, stringsStart,
+                    maxSuffixLength, tableSize, tableStart, entryStringsStart, rowOffsetsStart, ordinalsStart,
+                    logProbabilitiesStart));
+            models.add(model);
+        }
+        if (position != buffer.limit()) {
+            throw new IOException("Binary TnT model has " + (buffer.limit() - position) + " unexpected bytes");
+        }
+
+        return new TntModel(trigramLogProbabilities, models);
+    }
+
+    /**
+     * Writes a binary TnT model file. The word models must be known word or suffix word models, and the model
+     * probabilities are rounded to floats.
+     *
+     * @param tntModel the model to write
+     * @param path the file to write
+     * @throws IOException if the file could not be written or would be too large to map
+     */
+    static void write(TntModel tntModel, Path path) throws IOException {
+        if (PartOfSpeech.values().length > 256) {
+            throw new IllegalStateException("Part of speech ordinals do not fit in a byte");
+        }
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<ModelWriter> modelWriters = new ArrayList<>();
+        for (FilteredAdaptedWordProbabilityModel model : tntModel.getWordProbabilityModels()) {
+            modelWriters.add(new ModelWriter(model, strings));
+        }
+
+        int cardinality = PosCap.cardinality();
+        long stringChars = 0;
+        for (String string : strings.keySet()) {
+            stringChars += string.length();
+        }
+        long fileBytes = (HEADER_INTS + strings.size() + 1L) * Integer.BYTES + pad(stringChars * Character.BYTES)
+                + (long) cardinality * cardinality * cardinality * Float.BYTES;
+        for (ModelWriter modelWriter : modelWriters) {
+            fileBytes += modelWriter.bytes();
+        }
+        if (fileBytes > Integer.MAX_VALUE) {
+            throw new IOException("Binary TnT model would be larger than can be mapped: " + fileBytes);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(cardinality);
+            out.writeInt(PartOfSpeech.values().length);
+            out.writeInt(strings.size());
+            out.writeInt(modelWriters.size());
+
+            int offset = 0;
+            for (String string : strings.keySet()) {
+                out.writeInt(offset);
+                offset += string.length();
+            }
+            out.writeInt(offset);
+            for (String string : strings.keySet()) {
+                out.writeChars(string);
+            }
+            writePadding(out, offset * Character.BYTES);
+
+            for (double logProbability : tntModel.getTrigramLogProbabilities()) {
+                out.writeFloat((float) logProbability);
+            }
+
+            for (ModelWriter modelWriter : modelWriters) {
+                modelWriter.write(out);
+            }
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 characters from an index to the end of the string, finished with the MurmurHash3
+     * mixer.
+     */
+    static long hash(String string, int begin) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = begin; i < string.length(); i++) {
+            hash ^= string.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static int pad(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private static long pad(long bytes) {
+        return (bytes + 3) & ~3L;
+    }
+
+    private static void writePadding(DataOutputStream out, long bytes) throws IOException {
+        for (long i = bytes; i < pad(bytes); i++) {
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Flattens one word model into its hash table and candidate rows, adding its words to the string table.
+     */
+    private static final class ModelWriter {
+        private final int priority;
+
+        private final int flags;
+
+        private final int maxSuffixLength;
+
+        private final int[] table;
+
+        private final int[] entryStrings;
+
+        private final int[] rowOffsets;
+
+        private final byte[] ordinals;
+
+        private final float[] logProbabilities;
+
+        ModelWriter(FilteredAdaptedWordProbabilityModel model, Map<String, Integer> strings) {
+            priority = model.getPriority();
+
+            int flags = 0;
+            WordCapFilter filter = model.getFilter();
+            if (filter != null && filter.isFilterCapitalized()) {
+                flags |= FILTER_CAPITALIZED;
+            }
+            if (filter != null && filter.isFilterNotCapitalized()) {
+                flags |= FILTER_NOT_CAPITALIZED;
+            }
+            WordCapAdapter wordCapAdapter = model.getWordCapAdapter();
+            if (wordCapAdapter != null && wordCapAdapter.isToLowercase()) {
+                flags |= TO_LOWERCASE;
+            }
+            if (wordCapAdapter != null && wordCapAdapter.isIgnoreCapitalization()) {
+                flags |= IGNORE_CAPITALIZATION;
+            }
+            this.flags = flags;
+
+            WordProbabilityModel wordProbabilityModel = model.getWordProbabilityModel();
+            Map<String, Map<PartOfSpeech, Double>> probabilities;
+            if (wordProbabilityModel instanceof KnownWordProbabilityModel) {
+                probabilities = ((KnownWordProbabilityModel) wordProbabilityModel).getLexicalProbabilities();
+                maxSuffixLength = -1;
+            } else if (wordProbabilityModel instanceof SuffixWordProbabilityModel) {
+                SuffixWordProbabilityModel suffixModel = (SuffixWordProbabilityModel) wordProbabilityModel;
+                probabilities = suffixModel.getProbabilities();
+                maxSuffixLength = suffixModel.getMaxSuffixLength();
+            } else {
+                throw new IllegalArgumentException("Cannot write word probability model: " + wordProbabilityModel);
+            }
+
+            int entryCount = probabilities.size();
+            int tableSize = Integer.highestOneBit(Math.max(1, entryCount * 2 - 1)) << 1;
+            table = new int[tableSize];
+            entryStrings = new int[entryCount];
+            rowOffsets = new int[entryCount + 1];
+            int candidateCount = 0;
+            for (Map<PartOfSpeech, Double> row : probabilities.values()) {
+                candidateCount += row.size();
+            }
+            ordinals = new byte[candidateCount];
+            logProbabilities = new float[candidateCount];
+
+            int entry = 0;
+            int candidate = 0;
+            for (Map.Entry<String, Map<PartOfSpeech, Double>> probabilityEntry : probabilities.entrySet()) {
+                String word = probabilityEntry.getKey();
+                Integer string = strings.get(word);
+                if (string == null) {
+                    string = strings.size();
+                    strings.put(word, string);
+                }
+                entryStrings[entry] = string;
+
+                int slot = (int) hash(word, 0) & (tableSize - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                table[slot] = entry + 1;
+
+                rowOffsets[entry] = candidate;
+                for (Map.Entry<PartOfSpeech, Double> row : probabilityEntry.getValue().entrySet()) {
+                    Double logProbability = row.getValue();
+                    if (logProbability == null || logProbability == Double.NEGATIVE_INFINITY) {
+                        continue;
+                    }
+                    ordinals[candidate] = (byte) row.getKey().ordinal();
+                    logProbabilities[candidate] = logProbability.floatValue();
+                    candidate++;
+                }
+                entry++;
+            }
+            rowOffsets[entry] = candidate;
+        }
+
+        private int candidateCount() {
+            return rowOffsets[rowOffsets.length - 1];
+        }
+
+        long bytes() {
+            return (long) (MODEL_HEADER_INTS + table.length + entryStrings.length + rowOffsets.length) * Integer.BYTES
+                    + pad((long) candidateCount()) + (long) candidateCount() * Float.BYTES;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(priority);
+            out.writeInt(flags);
+            out.writeInt(maxSuffixLength);
+            out.writeInt(entryStrings.length);
+            out.writeInt(table.length);
+            for (int slot : table) {
+                out.writeInt(slot);
+            }
+            for (int entryString : entryStrings) {
+                out.writeInt(entryString);
+            }
+            for (int rowOffset : rowOffsets) {
+                out.writeInt(rowOffset);
+            }
+            int candidateCount = candidateCount();
+            out.write(ordinals, 0, candidateCount);
+            writePadding(out, candidateCount);
+            for (int i = 0; i < candidateCount; i++) {
+                out.writeFloat(logProbabilities[i]);
+            }
+        }
+    }
+}
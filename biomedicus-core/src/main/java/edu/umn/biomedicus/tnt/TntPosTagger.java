@@ -19,7 +19,6 @@ package edu.umn.biomedicus.tnt;
 import com.google.inject.Inject;
 import edu.umn.biomedicus.annotations.Setting;
 import edu.umn.biomedicus.application.DocumentProcessor;
-import edu.umn.biomedicus.common.grams.Ngram;
 import edu.umn.biomedicus.common.labels.Label;
 import edu.umn.biomedicus.common.labels.LabelIndex;
 import edu.umn.biomedicus.common.labels.Labeler;
@@ -29,8 +28,6 @@ import edu.umn.biomedicus.common.types.text.ParseToken;
 import edu.umn.biomedicus.common.types.text.Sentence;
 import edu.umn.biomedicus.common.tuples.PosCap;
 import edu.umn.biomedicus.common.tuples.WordCap;
-import edu.umn.biomedicus.common.viterbi.Viterbi;
-import edu.umn.biomedicus.common.viterbi.ViterbiProcessor;
 import edu.umn.biomedicus.exc.BiomedicusException;
 
 import java.util.List;
@@ -96,26 +93,20 @@ public class TntPosTagger implements DocumentProcessor {
 
     public void tagSentence(Label<Sentence> sentence2Label) throws BiomedicusException {
         List<Label<ParseToken>> tokens = parseTokenLabelIndex.insideSpan(sentence2Label).all();
-        ViterbiProcessor<PosCap, WordCap> viterbiProcessor = Viterbi.secondOrder(tntModel, tntModel, Ngram.create(BBS, BOS),
-                Ngram::create);
+        TntViterbi viterbi = tntModel.getViterbi();
+        viterbi.begin(BBS, BOS);
 
         for (Label<ParseToken> token : tokens) {
             CharSequence text = token.getCovered(document.getText());
             boolean isCapitalized = Character.isUpperCase(text.charAt(0));
-            viterbiProcessor.advance(new WordCap(text.toString(), isCapitalized));
-            viterbiProcessor.beamFilter(beamThreshold);
+            viterbi.advance(new WordCap(text.toString(), isCapitalized));
+            viterbi.beamFilter(beamThreshold);
         }
 
-        List<PosCap> tags = viterbiProcessor.end(SKIP, EOS);
+        viterbi.end();
 
-        if (tokens.size() + 2 != tags.size()) {
-            throw new AssertionError("Tags should be same size as number of tokens in sentence");
-        }
-
-        for (int i = 2; i < tags.size(); i++) {
-            PartOfSpeech partOfSpeech = tags.get(i).getPartOfSpeech();
-            Label<ParseToken> token = tokens.get(i - 2);
-            partOfSpeechLabeler.value(partOfSpeech).label(token);
+        for (int i = 0; i < tokens.size(); i++) {
+            partOfSpeechLabeler.value(viterbi.getPartOfSpeech(i)).label(tokens.get(i));
         }
     }
 
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.tuples.PosCap;
+import edu.umn.biomedicus.common.tuples.WordCap;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+
+import java.util.Arrays;
+
+/**
+ * A second-order Viterbi decoder specialised for the TnT model, equivalent to the general
+ * {@link edu.umn.biomedicus.common.viterbi.ViterbiProcessor} created by
+ * {@link edu.umn.biomedicus.common.viterbi.Viterbi#secondOrder} but working on pos cap ordinals.
+ * <p>
+ * The lattice for a sentence is kept in parallel primitive arrays, one entry per surviving hypothesis at each token,
+ * with a back pointer to the hypothesis it extends. The arrays grow as needed and are reused for every sentence, so
+ * once they have grown to fit the longest sentence, decoding allocates nothing per token. Like the general processor
+ * it is not thread safe, {@link TntModel#getViterbi()} provides one for each thread.
+ *
+ * @since 1.6.0
+ */
+final class TntViterbi {
+    /**
+     * Tag of a token that no hypothesis could be extended with, reported as {@link TntPosTagger#SKIP}.
+     */
+    private static final int SKIPPED = -1;
+
+    private static final PartOfSpeech[] PARTS_OF_SPEECH = PartOfSpeech.values();
+
+    private final TntModel tntModel;
+
+    private final int cardinality;
+
+    private final EmissionCache emissionCache;
+
+    /**
+     * For the current token, the hypothesis for each bigram of (most recent state, candidate), valid when the
+     * stamp for the bigram is the current stamp.
+     */
+    private final int[] hypothesisByBigram;
+
+    private final int[] bigramStamps;
+
+    private int stamp = 0;
+
+    private int[] previousStates = new int[256];
+
+    private int[] latestStates = new int[256];
+
+    private int[] tags = new int[256];
+
+    private int[] backPointers = new int[256];
+
+    private double[] logProbabilities = new double[256];
+
+    private int size = 0;
+
+    /**
+     * The index of the first hypothesis for each step, step 0 is the initial state.
+     */
+    private int[] stepStarts = new int[64];
+
+    private int steps = 0;
+
+    private int[] path = new int[64];
+
+    TntViterbi(TntModel tntModel) {
+        this.tntModel = tntModel;
+        cardinality = PosCap.cardinality();
+        emissionCache = new EmissionCache(tntModel, tntModel.getEmissionCacheSize(),
+                tntModel.getEmissionCacheCounter());
+        hypothesisByBigram = new int[cardinality * cardinality];
+        bigramStamps = new int[cardinality * cardinality];
+    }
+
+    /**
+     * Starts decoding a new sentence.
+     *
+     * @param first the state two before the first token.
+     * @param second the state before the first token.
+     */
+    void begin(PosCap first, PosCap second) {
+        size = 0;
+        steps = 0;
+        stepStarts[steps++] = 0;
+        add(first.ordinal(), second.ordinal(), SKIPPED, -1, 0.0);
+    }
+
+    /**
+     * Extends the hypotheses with the next token. If none of the token's candidates are possible after any
+     * hypothesis, the token is skipped.
+     *
+     * @param emittedValue the token.
+     */
+    void advance(WordCap emittedValue) {
+        EmissionCache.Emissions emissions = emissionCache.get(emittedValue);
+        int candidates = emissions.size;
+        int[] candidateStates = emissions.states;
+        double[] candidateEmissions = emissions.logProbabilities;
+        int previousStart = stepStarts[steps - 1];
+        int previousEnd = size;
+        if (steps == stepStarts.length) {
+            stepStarts = Arrays.copyOf(stepStarts, steps * 2);
+        }
+        stepStarts[steps++] = previousEnd;
+        if (++stamp == 0) {
+            Arrays.fill(bigramStamps, 0);
+            stamp = 1;
+        }
+
+        for (int c = 0; c < candidates; c++) {
+            int candidate = candidateStates[c];
+            double emission = candidateEmissions[c];
+            for (int h = previousStart; h < previousEnd; h++) {
+                int latest = latestStates[h];
+                double logProbability = tntModel.getTransitionLogProbability(previousStates[h], latest, candidate)
+                        + emission + logProbabilities[h];
+                if (!(logProbability > Double.NEGATIVE_INFINITY)) {
+                    continue;
+                }
+                int bigram = latest * cardinality + candidate;
+                if (bigramStamps[bigram] == stamp) {
+                    int existing = hypothesisByBigram[bigram];
+                    // on ties the later hypothesis wins, as in the general processor
+                    if (logProbability >= logProbabilities[existing]) {
+                        previousStates[existing] = latest;
+                        backPointers[existing] = h;
+                        logProbabilities[existing] = logProbability;
+                    }
+                } else {
+                    bigramStamps[bigram] = stamp;
+                    hypothesisByBigram[bigram] = size;
+                    add(latest, candidate, candidate, h, logProbability);
+                }
+            }
+        }
+
+        if (size == previousEnd) {
+            for (int h = previousStart; h < previousEnd; h++) {
+                add(previousStates[h], latestStates[h], SKIPPED, h, logProbabilities[h]);
+            }
+        }
+    }
+
+    private void add(int previousState, int latestState, int tag, int backPointer, double logProbability) {
+        if (size == latestStates.length) {
+            int capacity = size * 2;
+            previousStates = Arrays.copyOf(previousStates, capacity);
+            latestStates = Arrays.copyOf(latestStates, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            backPointers = Arrays.copyOf(backPointers, capacity);
+            logProbabilities = Arrays.copyOf(logProbabilities, capacity);
+        }
+        previousStates[size] = previousState;
+        latestStates[size] = latestState;
+        tags[size] = tag;
+        backPointers[size] = backPointer;
+        logProbabilities[size] = logProbability;
+        size++;
+    }
+
+    /**
+     * Removes the hypotheses for the current token which are less probable than the most probable by more than the
+     * threshold. Does nothing when there are fewer than 10 hypotheses.
+     *
+     * @param beamThreshold the threshold in base 10 log.
+     */
+    void beamFilter(double beamThreshold) {
+        int start = stepStarts[steps - 1];
+        if (size - start < 10) {
+            return;
+        }
+        double logGreatest = Double.NEGATIVE_INFINITY;
+        for (int h = start; h < size; h++) {
+            logGreatest = Math.max(logGreatest, logProbabilities[h]);
+        }
+        double logBoundary = logGreatest - beamThreshold;
+        int kept = start;
+        for (int h = start; h < size; h++) {
+            if (logProbabilities[h] >= logBoundary) {
+                previousStates[kept] = previousStates[h];
+                latestStates[kept] = latestStates[h];
+                tags[kept] = tags[h];
+                backPointers[kept] = backPointers[h];
+                logProbabilities[kept] = logProbabilities[h];
+                kept++;
+            }
+        }
+        if (kept == start) {
+            throw new AssertionError("Number of ancestors should never drop to zero");
+        }
+        size = kept;
+    }
+
+    /**
+     * Finishes the sentence, selecting the most probable path. Afterwards {@link #getPartOfSpeech(int)} returns the
+     * tags of the path.
+     * <p>
+     * Like the general processor, this selects the most probable hypothesis without a transition to the end of the
+     * sentence.
+     */
+    void end() {
+        int start = stepStarts[steps - 1];
+        int best = -1;
+        double maxLogProbability = Double.NEGATIVE_INFINITY;
+        for (int h = start; h < size; h++) {
+            if (logProbabilities[h] > maxLogProbability) {
+                maxLogProbability = logProbabilities[h];
+                best = h;
+            }
+        }
+        if (best == -1) {
+            throw new AssertionError("0-probability result");
+        }
+
+        int tokens = steps - 1;
+        if (path.length < tokens) {
+            path = new int[Math.max(tokens, path.length * 2)];
+        }
+        int pointer = best;
+        for (int token = tokens - 1; token >= 0; token--) {
+            path[token] = tags[pointer];
+            pointer = backPointers[pointer];
+        }
+    }
+
+    /**
+     * Returns the part of speech of a token on the path selected by {@link #end()}.
+     *
+     * @param token the index of the token in the sentence.
+     * @return the part of speech tag.
+     */
+    PartOfSpeech getPartOfSpeech(int token) {
+        if (token >= steps - 1) {
+            throw new IndexOutOfBoundsException("Token " + token + " not in sentence");
+        }
+        int tag = path[token];
+        return tag == SKIPPED ? TntPosTagger.SKIP.getPartOfSpeech() : PARTS_OF_SPEECH[tag % PARTS_OF_SPEECH.length];
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.vocabulary;
+
+import edu.umn.biomedicus.common.terms.AbstractTermIndex;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An index of String terms to and from integers which is memory-mapped from a file exported from the MapDB
+ * vocabulary.
+ * <p>
+ * Terms are found with a minimal perfect hash built by hash and displace: the hash of a term picks a bucket, and
+ * each bucket has a displacement chosen so that its terms land on distinct slots in a table with exactly one slot per
+ * term. The slot holds the term identifier, and the identifier is an index into the offsets of the UTF-8 term
+ * strings. A lookup hashes the characters of the {@link CharSequence} and compares them to the stored bytes, so it
+ * does not allocate, and getting the term for an identifier is a single offset lookup.
+ * <pre>
+ *     magic, version, term count, bucket count
+ *     displacements[bucket count]
+ *     identifiers[term count]
+ *     string offsets[term count + 1]
+ *     UTF-8 strings
+ * </pre>
+ * All numbers are big-endian ints, and string offsets are relative to the start of the strings.
+ *
+ * @since 1.6.0
+ */
+class MappedTermIndex extends AbstractTermIndex {
+    /**
+     * "BMTI", identifies a mapped term index file.
+     */
+    private static final int MAGIC = 0x424d5449;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Average number of terms in a bucket.
+     */
+    private static final int BUCKET_SIZE = 4;
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    private final int bucketCount;
+
+    private final int displacementsStart;
+
+    private final int identifiersStart;
+
+    private final int offsetsStart;
+
+    private final int stringsStart;
+
+    private MappedTermIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a mapped term index");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported mapped term index version: " + version);
+        }
+        count = buffer.getInt(8);
+        bucketCount = buffer.getInt(12);
+        displacementsStart = HEADER_BYTES;
+        identifiersStart = displacementsStart + bucketCount * Integer.BYTES;
+        offsetsStart = identifiersStart + count * Integer.BYTES;
+        stringsStart = offsetsStart + (count + 1) * Integer.BYTES;
+    }
+
+    /**
+     * Maps a term index file.
+     *
+     * @param path the file written by {@link #write(List, Path)}
+     * @return term index reading from the file
+     * @throws IOException if the file could not be mapped or is not a term index
+     */
+    static MappedTermIndex open(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new MappedTermIndex(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        }
+    }
+
+    @Override
+    public boolean contains(String string) {
+        return getIdentifier(string) != -1;
+    }
+
+    @Override
+    protected String getTerm(int termIdentifier) {
+        if (termIdentifier < 0 || termIdentifier >= count) {
+            throw new IllegalArgumentException("Term not found: " + termIdentifier);
+        }
+        int begin = stringBegin(termIdentifier);
+        byte[] bytes = new byte[stringBegin(termIdentifier + 1) - begin];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(begin + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected int getIdentifier(@Nullable CharSequence term) {
+        if (term == null || count == 0) {
+            return -1;
+        }
+        long hash = hash(term);
+        int displacement = buffer.getInt(displacementsStart + bucket(hash, bucketCount) * Integer.BYTES);
+        int identifier = buffer.getInt(identifiersStart + slot(hash, displacement, count) * Integer.BYTES);
+        return equalsStored(identifier, term) ? identifier : -1;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    private int stringBegin(int termIdentifier) {
+        return stringsStart + buffer.getInt(offsetsStart + termIdentifier * Integer.BYTES);
+    }
+
+    /**
+     * Compares the UTF-8 bytes of a stored term to the characters of a term without decoding to a String.
+     */
+    private boolean equalsStored(int termIdentifier, CharSequence term) {
+        int position = stringBegin(termIdentifier);
+        int end = stringBegin(termIdentifier + 1);
+        int length = term.length();
+        int index = 0;
+        while (position < end) {
+            int b = buffer.get(position) & 0xff;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+                position += 1;
+            } else if (b < 0xe0) {
+                codePoint = ((b & 0x1f) << 6) | (buffer.get(position + 1) & 0x3f);
+                position += 2;
+            } else if (b < 0xf0) {
+                codePoint = ((b & 0x0f) << 12) | ((buffer.get(position + 1) & 0x3f) << 6)
+                        | (buffer.get(position + 2) & 0x3f);
+                position += 3;
+            } else {
+                codePoint = ((b & 0x07) << 18) | ((buffer.get(position + 1) & 0x3f) << 12)
+                        | ((buffer.get(position + 2) & 0x3f) << 6) | (buffer.get(position + 3) & 0x3f);
+                position += 4;
+            }
+            if (Character.isBmpCodePoint(codePoint)) {
+                if (index >= length || term.charAt(index) != codePoint) {
+                    return false;
+                }
+                index++;
+            } else {
+                if (index + 1 >= length || term.charAt(index) != Character.highSurrogate(codePoint)
+                        || term.charAt(index + 1) != Character.lowSurrogate(codePoint)) {
+                    return false;
+                }
+                index += 2;
+            }
+        }
+        return index == length;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 characters, finished with the MurmurHash3 mixer.
+     */
+    private static long hash(CharSequence term) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < term.length(); i++) {
+            hash ^= term.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static int bucket(long hash, int bucketCount) {
+        return (int) ((hash >>> 1) % bucketCount);
+    }
+
+    private static int slot(long hash, int displacement, int count) {
+        return (int) ((mix(hash + (displacement + 1) * 0x9e3779b97f4a7c15L) >>> 1) % count);
+    }
+
+    /**
+     * Writes a term index file. The identifier of each term is its index in the list.
+     *
+     * @param terms the distinct terms
+     * @param path the file to write
+     * @throws IOException if the file could not be written or would be too large to map
+     */
+    static void write(List<String> terms, Path path) throws IOException {
+        int count = terms.size();
+        Set<String> distinct = new HashSet<>(terms);
+        if (distinct.size() != count) {
+            throw new IllegalArgumentException("Terms must be distinct");
+        }
+
+        int bucketCount = Math.max(1, count / BUCKET_SIZE);
+        long[] hashes = new long[count];
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            hashes[i] = hash(terms.get(i));
+            buckets.get(bucket(hashes[i], bucketCount)).add(i);
+        }
+        long[] sortedHashes = hashes.clone();
+        Arrays.sort(sortedHashes);
+        for (int i = 1; i < count; i++) {
+            // no displacement could separate these
+            if (sortedHashes[i - 1] == sortedHashes[i]) {
+                throw new IOException("Two terms have the same 64-bit hash");
+            }
+        }
+
+        // place the largest buckets first, while the table is still mostly empty
+        Integer[] bucketOrder = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            bucketOrder[i] = i;
+        }
+        Arrays.sort(bucketOrder, (first, second) -> Integer.compare(buckets.get(second).size(),
+                buckets.get(first).size()));
+
+        int[] displacements = new int[bucketCount];
+        int[] identifiers = new int[count];
+        boolean[] occupied = new boolean[count];
+        int[] slots = new int[BUCKET_SIZE];
+        for (int bucket : bucketOrder) {
+            List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            if (slots.length < members.size()) {
+                slots = new int[members.size()];
+            }
+            int displacement = 0;
+            while (!tryPlace(members, hashes, displacement, count, occupied, slots)) {
+                displacement++;
+            }
+            displacements[bucket] = displacement;
+            for (int i = 0; i < members.size(); i++) {
+                occupied[slots[i]] = true;
+                identifiers[slots[i]] = members.get(i);
+            }
+        }
+
+        List<byte[]> encoded = new ArrayList<>(count);
+        long stringBytes = 0;
+        for (String term : terms) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringBytes += bytes.length;
+        }
+        long fileBytes = HEADER_BYTES + (long) Integer.BYTES * (bucketCount + 2L * count + 1) + stringBytes;
+        if (fileBytes > Integer.MAX_VALUE) {
+            throw new IOException("Term index would be larger than can be mapped: " + fileBytes);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(bucketCount);
+            for (int displacement : displacements) {
+                out.writeInt(displacement);
+            }
+            for (int identifier : identifiers) {
+                out.writeInt(identifier);
+            }
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static boolean tryPlace(List<Integer> members,
+                                    long[] hashes,
+                                    int displacement,
+                                    int count,
+                                    boolean[] occupied,
+                                    int[] slots) {
+        for (int i = 0; i < members.size(); i++) {
+            int slot = slot(hashes[members.get(i)], displacement, count);
+            if (occupied[slot]) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[i] = slot;
+        }
+        return true;
+    }
+}
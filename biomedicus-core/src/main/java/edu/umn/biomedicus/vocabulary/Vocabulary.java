@@ -25,6 +25,7 @@ import edu.umn.biomedicus.application.LifecycleManaged;
 import edu.umn.biomedicus.application.LifecycleManager;
 import edu.umn.biomedicus.common.labels.Label;
 import edu.umn.biomedicus.common.labels.LabelsUtilities;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
 import edu.umn.biomedicus.common.terms.TermIndex;
 import edu.umn.biomedicus.common.types.text.ParseToken;
 import edu.umn.biomedicus.common.types.text.Span;
@@ -37,6 +38,8 @@ import org.mapdb.DB;
 import org.mapdb.DBMaker;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -45,19 +48,39 @@ import java.util.List;
 @Singleton
 @ProvidedBy(Vocabulary.Loader.class)
 public class Vocabulary implements LifecycleManaged {
+    private static final String WORDS_FILE = "words.bin";
+    private static final String TERMS_FILE = "terms.bin";
+    private static final String NORMS_FILE = "norms.bin";
     private final Path dbPath;
+    /**
+     * Directory containing term indexes exported by {@link VocabularyExporter}, if set they are used instead of the
+     * MapDB database.
+     */
+    @Nullable
+    private final Path mappedPath;
     private boolean isOpen = false;
     @Nullable
     private DB db;
     @Nullable
-    private MapDbTermIndex wordsIndex;
+    private MapDbTermIndex wordsDbIndex;
+    @Nullable
+    private MapDbTermIndex termsDbIndex;
+    @Nullable
+    private MapDbTermIndex normsDbIndex;
+    @Nullable
+    private TermIndex wordsIndex;
     @Nullable
-    private MapDbTermIndex termsIndex;
+    private TermIndex termsIndex;
     @Nullable
-    private MapDbTermIndex normsIndex;
+    private TermIndex normsIndex;
 
     Vocabulary(Path dbPath) {
+        this(dbPath, null);
+    }
+
+    Vocabulary(Path dbPath, @Nullable Path mappedPath) {
         this.dbPath = dbPath;
+        this.mappedPath = mappedPath;
     }
 
     public TermIndex getWordsIndex() {
@@ -87,7 +110,7 @@ public class Vocabulary implements LifecycleManaged {
             }
             if (prev != null) {
                 String term = prev.getCovered(phrase).toString();
-                wordsIndex.addTerm(term);
+                wordsDbIndex.addTerm(term);
                 boolean hasSpaceAfter = span != null && prev.getEnd() != span.getBegin();
                 ParseToken parseToken = new ParseToken(term, hasSpaceAfter);
                 Label<ParseToken> parseTokenLabel = new Label<>(prev, parseToken);
@@ -99,7 +122,7 @@ public class Vocabulary implements LifecycleManaged {
         TermTokenMerger termTokenMerger = new TermTokenMerger(parseTokens);
         while (termTokenMerger.hasNext()) {
             Label<TermToken> termToken = termTokenMerger.next();
-            termsIndex.addTerm(termToken.value().text());
+            termsDbIndex.addTerm(termToken.value().text());
         }
     }
 
@@ -109,7 +132,7 @@ public class Vocabulary implements LifecycleManaged {
         while (normsIt.hasNext()) {
             Span span = normsIt.next();
             CharSequence norm = span.getCovered(phrase);
-            normsIndex.addTerm(norm);
+            normsDbIndex.addTerm(norm);
         }
     }
 
@@ -120,9 +143,9 @@ public class Vocabulary implements LifecycleManaged {
     }
 
     private void openIndexes() {
-        wordsIndex = new MapDbTermIndex(db, "words");
-        termsIndex = new MapDbTermIndex(db, "terms");
-        normsIndex = new MapDbTermIndex(db, "norms");
+        wordsIndex = wordsDbIndex = new MapDbTermIndex(db, "words");
+        termsIndex = termsDbIndex = new MapDbTermIndex(db, "terms");
+        normsIndex = normsDbIndex = new MapDbTermIndex(db, "norms");
         isOpen = true;
     }
 
@@ -131,26 +154,63 @@ public class Vocabulary implements LifecycleManaged {
         openIndexes();
     }
 
+    /**
+     * Writes the words, terms, and norms indexes to files in a directory, to be memory-mapped instead of opening the
+     * MapDB database.
+     *
+     * @param directory the directory to write to
+     * @throws IOException if the files could not be written
+     */
+    void export(Path directory) throws IOException {
+        checkOpen();
+        Files.createDirectories(directory);
+        exportIndex(wordsIndex, directory.resolve(WORDS_FILE));
+        exportIndex(termsIndex, directory.resolve(TERMS_FILE));
+        exportIndex(normsIndex, directory.resolve(NORMS_FILE));
+    }
+
+    private static void exportIndex(TermIndex termIndex, Path path) throws IOException {
+        List<String> terms = new ArrayList<>(termIndex.size());
+        for (int i = 0; i < termIndex.size(); i++) {
+            terms.add(termIndex.getTerm(new IndexedTerm(i)));
+        }
+        MappedTermIndex.write(terms, path);
+    }
+
     @Override
     public void doStartup() throws BiomedicusException {
+        if (mappedPath != null) {
+            try {
+                wordsIndex = MappedTermIndex.open(mappedPath.resolve(WORDS_FILE));
+                termsIndex = MappedTermIndex.open(mappedPath.resolve(TERMS_FILE));
+                normsIndex = MappedTermIndex.open(mappedPath.resolve(NORMS_FILE));
+            } catch (IOException e) {
+                throw new BiomedicusException(e);
+            }
+            isOpen = true;
+            return;
+        }
         db = DBMaker.fileDB(dbPath.toFile()).fileMmapEnableIfSupported().readOnly().make();
         openIndexes();
     }
 
     @Override
     public void doShutdown() throws BiomedicusException {
-        if (wordsIndex != null) {
-            wordsIndex.close();
-            wordsIndex = null;
+        if (wordsDbIndex != null) {
+            wordsDbIndex.close();
+            wordsDbIndex = null;
         }
-        if (termsIndex != null) {
-            termsIndex.close();
-            termsIndex = null;
+        if (termsDbIndex != null) {
+            termsDbIndex.close();
+            termsDbIndex = null;
         }
-        if (normsIndex != null) {
-            normsIndex.close();
-            normsIndex = null;
+        if (normsDbIndex != null) {
+            normsDbIndex.close();
+            normsDbIndex = null;
         }
+        wordsIndex = null;
+        termsIndex = null;
+        normsIndex = null;
         if (db != null) {
             db.close();
         }
@@ -161,18 +221,24 @@ public class Vocabulary implements LifecycleManaged {
     public static class Loader extends DataLoader<Vocabulary> {
 
         private final Path dbPath;
+        private final boolean mapped;
+        private final Path mappedPath;
         private final LifecycleManager lifecycleManager;
 
         @Inject
         public Loader(@Setting("vocabulary.db.path") Path dbPath,
+                      @Setting("vocabulary.mapped.enabled") Boolean mapped,
+                      @Setting("vocabulary.mapped.path") Path mappedPath,
                       LifecycleManager lifecycleManager) {
             this.dbPath = dbPath;
+            this.mapped = mapped;
+            this.mappedPath = mappedPath;
             this.lifecycleManager = lifecycleManager;
         }
 
         @Override
         protected Vocabulary loadModel() throws BiomedicusException {
-            Vocabulary vocabulary = new Vocabulary(dbPath);
+            Vocabulary vocabulary = new Vocabulary(dbPath, mapped ? mappedPath : null);
             vocabulary.doStartup();
             lifecycleManager.register(vocabulary);
             return vocabulary;
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.application;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class BiomedicusScopesTest {
+    @Test
+    public void testProcessorContextEnteredConcurrently() throws Exception {
+        BiomedicusScopes.Context context = BiomedicusScopes.createProcessorContext(Collections.emptyMap());
+        AtomicInteger created = new AtomicInteger();
+        Provider<Object> provider = BiomedicusScopes.PROCESSOR_SCOPE.scope(Key.get(Object.class), () -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+
+        int threads = 4;
+        CountDownLatch inside = new CountDownLatch(threads);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executorService.submit(() -> context.call(() -> {
+                    inside.countDown();
+                    // every thread has to be inside of the context at the same time for this to finish
+                    assertTrue(inside.await(10, TimeUnit.SECONDS));
+                    return provider.get();
+                })));
+            }
+            Object first = futures.get(0).get();
+            for (Future<Object> future : futures) {
+                assertSame(future.get(), first);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(created.get(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testReenterSameThread() throws Exception {
+        BiomedicusScopes.Context context = BiomedicusScopes.createProcessorContext(Collections.emptyMap());
+        context.call(() -> context.call(() -> null));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.application;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+import edu.umn.biomedicus.common.standard.StandardDocument;
+import edu.umn.biomedicus.common.types.text.Document;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+public class DocumentPipelineTest {
+    private Injector injector;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        injector = Guice.createInjector(new BiomedicusModule(), new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(new TypeLiteral<Map<String, Class<?>>>() {}).annotatedWith(Names.named("settingInterfaces"))
+                        .toInstance(Collections.emptyMap());
+                bind(new TypeLiteral<Map<String, Object>>() {}).annotatedWith(Names.named("globalSettings"))
+                        .toInstance(Collections.emptyMap());
+                bind(Path.class).annotatedWith(new SettingImpl("paths.data")).toInstance(Paths.get("."));
+            }
+        });
+    }
+
+    private static List<Document> documents(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new StandardDocument("document " + i))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRunsEveryStageInOrder() throws Exception {
+        DocumentPipeline pipeline = DocumentPipeline.builder(injector)
+                .addProcessor(FirstProcessor.class)
+                .addProcessor(SecondProcessor.class)
+                .withThreads(4)
+                .withQueueSize(2)
+                .build();
+
+        Queue<Document> completed = new ConcurrentLinkedQueue<>();
+        List<DocumentPipeline.StageStatistics> statistics = pipeline.run(documents(100).iterator(), completed::add);
+
+        assertEquals(completed.size(), 100);
+        for (Document document : completed) {
+            assertEquals(document.getMetadata("stages"), "first,second");
+        }
+        assertEquals(statistics.size(), 2);
+        assertEquals(statistics.get(0).getName(), "FirstProcessor");
+        assertEquals(statistics.get(0).getDocuments(), 100);
+        assertEquals(statistics.get(1).getDocuments(), 100);
+    }
+
+    @Test(expectedExceptions = BiomedicusException.class)
+    public void testFailureStopsPipeline() throws Exception {
+        DocumentPipeline pipeline = DocumentPipeline.builder(injector)
+                .addProcessor(FailingProcessor.class)
+                .withThreads(2)
+                .withQueueSize(1)
+                .build();
+
+        pipeline.run(documents(50).iterator());
+    }
+
+    @Test(timeOut = 10000)
+    public void testErrorStopsPipeline() throws Exception {
+        DocumentPipeline pipeline = DocumentPipeline.builder(injector)
+                .addProcessor(ErrorProcessor.class)
+                .withThreads(2)
+                .withQueueSize(1)
+                .build();
+
+        try {
+            pipeline.run(documents(50).iterator());
+            fail();
+        } catch (BiomedicusException e) {
+            assertTrue(e.getCause() instanceof StackOverflowError);
+        }
+    }
+
+    public static class FirstProcessor implements DocumentProcessor {
+        private final Document document;
+
+        @Inject
+        FirstProcessor(Document document) {
+            this.document = document;
+        }
+
+        @Override
+        public void process() throws BiomedicusException {
+            document.setMetadata("stages", "first");
+        }
+    }
+
+    public static class SecondProcessor implements DocumentProcessor {
+        private final Document document;
+
+        @Inject
+        SecondProcessor(Document document) {
+            this.document = document;
+        }
+
+        @Override
+        public void process() throws BiomedicusException {
+            document.setMetadata("stages", document.getMetadata("stages") + ",second");
+        }
+    }
+
+    public static class FailingProcessor implements DocumentProcessor {
+        @Override
+        public void process() throws BiomedicusException {
+            throw new BiomedicusException("failed");
+        }
+    }
+
+    public static class ErrorProcessor implements DocumentProcessor {
+        @Override
+        public void process() throws BiomedicusException {
+            throw new StackOverflowError();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.application;
+
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class EagerLoaderTest {
+    @Test
+    public void testLoadsConcurrently() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        Map<String, DataLoader<String>> loaders = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            String name = "model" + i;
+            loaders.put(name, new DataLoader<String>() {
+                @Override
+                protected String loadModel() throws BiomedicusException {
+                    allStarted.countDown();
+                    try {
+                        if (!allStarted.await(10, TimeUnit.SECONDS)) {
+                            throw new BiomedicusException("models were not loaded concurrently");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new BiomedicusException(e);
+                    }
+                    return name;
+                }
+            });
+        }
+
+        List<EagerLoader.LoadStatistics> statistics = new EagerLoader(3).loadAll(loaders);
+
+        assertEquals(statistics.size(), 3);
+        assertEquals(statistics.get(0).getName(), "model0");
+        assertEquals(statistics.get(2).getName(), "model2");
+        assertEquals(loaders.get("model1").get(), "model1");
+    }
+
+    @Test
+    public void testDependencyLoadedOnce() throws Exception {
+        AtomicInteger dependencyLoads = new AtomicInteger();
+        DataLoader<String> dependency = new DataLoader<String>() {
+            @Override
+            protected String loadModel() throws BiomedicusException {
+                dependencyLoads.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new BiomedicusException(e);
+                }
+                return "dependency";
+            }
+        };
+        Map<String, DataLoader<String>> loaders = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            String name = "dependent" + i;
+            loaders.put(name, new DataLoader<String>() {
+                @Override
+                protected String loadModel() throws BiomedicusException {
+                    return name + " of " + dependency.get();
+                }
+            });
+        }
+        loaders.put("dependency", dependency);
+
+        new EagerLoader(0).loadAll(loaders);
+
+        assertEquals(dependencyLoads.get(), 1);
+        assertEquals(loaders.get("dependent3").get(), "dependent3 of dependency");
+    }
+
+    @Test
+    public void testFailureRethrown() throws Exception {
+        DataLoader<String> failing = new DataLoader<String>() {
+            @Override
+            protected String loadModel() throws BiomedicusException {
+                throw new BiomedicusException("failed");
+            }
+        };
+        Map<String, EagerLoadable> loaders = new LinkedHashMap<>();
+        loaders.put("failing", failing);
+        loaders.put("dependent", () -> failing.get());
+
+        try {
+            new EagerLoader(2).loadAll(loaders);
+            fail("expected the failure to be rethrown");
+        } catch (BiomedicusException e) {
+            // expected
+        }
+
+        try {
+            failing.get();
+            fail("expected later gets to fail instead of waiting");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof BiomedicusException);
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testErrorRethrownToWaitingThreads() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        DataLoader<String> failing = new DataLoader<String>() {
+            @Override
+            protected String loadModel() throws BiomedicusException {
+                started.countDown();
+                try {
+                    // give the waiting thread time to reach the latch
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new BiomedicusException(e);
+                }
+                throw new OutOfMemoryError("failed");
+            }
+        };
+        Thread loading = new Thread(() -> {
+            try {
+                failing.get();
+            } catch (OutOfMemoryError e) {
+                // expected
+            }
+        });
+        loading.start();
+        started.await();
+
+        try {
+            failing.eagerLoad();
+            fail("expected the error to be rethrown");
+        } catch (BiomedicusException e) {
+            assertTrue(e.getCause().getCause() instanceof OutOfMemoryError);
+        }
+        loading.join();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.common.collect;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+public class ImmutableSpanMapTest {
+    private OrderedSpanMap<Span> orderedSpanMap;
+
+    private ImmutableSpanMap<Span> immutableSpanMap;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        orderedSpanMap = new OrderedSpanMap<>();
+        ImmutableSpanMap.Builder<Span> builder = ImmutableSpanMap.builder();
+        for (int i = 0; i < 500; i++) {
+            int begin = random.nextInt(200);
+            Span span = Span.create(begin, begin + random.nextInt(15));
+            orderedSpanMap.put(span, span);
+            builder.put(span, span);
+        }
+        immutableSpanMap = builder.build();
+    }
+
+    private static void assertSameValues(SpansMap<Span> actual, SpansMap<Span> expected) {
+        assertEquals(actual.size(), expected.size());
+        assertEquals(actual.isEmpty(), expected.isEmpty());
+        assertEquals(actual.ascendingStartDecreasingSizeValuesStream().collect(Collectors.toList()),
+                expected.ascendingStartDecreasingSizeValuesStream().collect(Collectors.toList()));
+        assertEquals(actual.ascendingStartIncreasingSizeValueStream().collect(Collectors.toList()),
+                expected.ascendingStartIncreasingSizeValueStream().collect(Collectors.toList()));
+        assertEquals(actual.descendingStartDecreasingSizeValuesStream().collect(Collectors.toList()),
+                expected.descendingStartDecreasingSizeValuesStream().collect(Collectors.toList()));
+        assertEquals(actual.descendingStartIncreasingSizeValuesStream().collect(Collectors.toList()),
+                expected.descendingStartIncreasingSizeValuesStream().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testAll() throws Exception {
+        assertSameValues(immutableSpanMap, orderedSpanMap);
+    }
+
+    @Test
+    public void testContaining() throws Exception {
+        for (int i = 0; i < 200; i += 7) {
+            Span span = Span.create(i, i + 3);
+            assertSameValues(immutableSpanMap.containing(span), orderedSpanMap.containing(span));
+        }
+    }
+
+    @Test
+    public void testInsideSpan() throws Exception {
+        for (int i = 0; i < 200; i += 7) {
+            Span span = Span.create(i, i + 20);
+            assertSameValues(immutableSpanMap.insideSpan(span), orderedSpanMap.insideSpan(span));
+        }
+    }
+
+    @Test
+    public void testToTheLeftOf() throws Exception {
+        for (int i = 0; i < 200; i += 7) {
+            Span span = Span.create(i, i + 5);
+            assertSameValues(immutableSpanMap.toTheLeftOf(span), orderedSpanMap.toTheLeftOf(span));
+        }
+    }
+
+    @Test
+    public void testToTheRightOf() throws Exception {
+        for (int i = 0; i < 200; i += 7) {
+            Span span = Span.create(i, i + 5);
+            assertSameValues(immutableSpanMap.toTheRightOf(span), orderedSpanMap.toTheRightOf(span));
+        }
+    }
+
+    @Test
+    public void testChainedViews() throws Exception {
+        Span outer = Span.create(40, 120);
+        Span inner = Span.create(80, 82);
+        assertSameValues(immutableSpanMap.insideSpan(outer).toTheLeftOf(inner),
+                orderedSpanMap.insideSpan(outer).toTheLeftOf(inner));
+        assertSameValues(immutableSpanMap.insideSpan(outer).toTheRightOf(inner),
+                orderedSpanMap.insideSpan(outer).toTheRightOf(inner));
+        assertSameValues(immutableSpanMap.containing(inner).insideSpan(outer),
+                orderedSpanMap.containing(inner).insideSpan(outer));
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        for (int begin = 0; begin < 200; begin++) {
+            for (int end = begin; end < begin + 16; end++) {
+                Span span = Span.create(begin, end);
+                assertEquals(immutableSpanMap.get(span), orderedSpanMap.get(span));
+            }
+        }
+    }
+
+    @Test
+    public void testGetOutsideView() throws Exception {
+        Span span = immutableSpanMap.spansStream().skip(10).findFirst().map(Span::new)
+                .orElseThrow(AssertionError::new);
+        assertNotNull(immutableSpanMap.get(span));
+        assertNull(immutableSpanMap.toTheLeftOf(span).get(span));
+    }
+
+    @Test
+    public void testLastPutWins() throws Exception {
+        ImmutableSpanMap<String> map = ImmutableSpanMap.<String>builder()
+                .put(Span.create(5, 7), "a")
+                .put(Span.create(0, 3), "b")
+                .put(Span.create(5, 7), "c")
+                .build();
+        assertEquals(map.size(), 2);
+        assertEquals(map.get(Span.create(5, 7)), "c");
+        List<String> values = map.ascendingStartDecreasingSizeValuesStream().collect(Collectors.toList());
+        assertEquals(values.get(0), "b");
+        assertEquals(values.get(1), "c");
+    }
+
+    @Test
+    public void testMultiBuilderKeepsDuplicates() throws Exception {
+        ImmutableSpanMap<String> map = ImmutableSpanMap.<String>multiBuilder()
+                .put(Span.create(5, 7), "a")
+                .put(Span.create(0, 3), "b")
+                .put(Span.create(5, 7), "c")
+                .put(Span.create(4, 9), "d")
+                .build();
+        assertEquals(map.size(), 4);
+        assertEquals(map.get(Span.create(5, 7)), "a");
+        List<String> values = map.ascendingStartIncreasingSizeValueStream().collect(Collectors.toList());
+        assertEquals(values, Arrays.asList("b", "d", "a", "c"));
+        List<String> inside = map.insideSpan(Span.create(5, 7)).ascendingStartIncreasingSizeValueStream()
+                .collect(Collectors.toList());
+        assertEquals(inside, Arrays.asList("a", "c"));
+        List<String> containing = map.containing(Span.create(6, 7)).ascendingStartIncreasingSizeValueStream()
+                .collect(Collectors.toList());
+        assertEquals(containing, Arrays.asList("d", "a", "c"));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        ImmutableSpanMap<String> map = ImmutableSpanMap.<String>builder().build();
+        assertTrue(map.isEmpty());
+        assertEquals(map.size(), 0);
+        assertNull(map.get(Span.create(0, 1)));
+        assertFalse(map.containing(Span.create(0, 1)).ascendingStartDecreasingSizeValuesStream().findAny()
+                .isPresent());
+    }
+}
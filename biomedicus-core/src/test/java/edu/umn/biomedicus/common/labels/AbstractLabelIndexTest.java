@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.common.labels;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class AbstractLabelIndexTest {
+    private ListLabelIndex labelIndex;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        labelIndex = new ListLabelIndex();
+        labelIndex.add(0, 3, "The");
+        labelIndex.add(4, 9, "quick");
+        labelIndex.add(10, 15, "brown");
+        labelIndex.add(16, 19, "fox");
+    }
+
+    @Test
+    public void testRightwardsFrom() throws Exception {
+        assertEquals(labelIndex.rightwardsFrom(Span.create(4, 9)).values(), Arrays.asList("brown", "fox"));
+    }
+
+    @Test
+    public void testRightwardsFromIncludesAdjacent() throws Exception {
+        assertEquals(labelIndex.rightwardsFrom(Span.create(3, 10)).values(), Arrays.asList("brown", "fox"));
+    }
+
+    @Test
+    public void testSnapshotReused() throws Exception {
+        LabelIndex<String> snapshot = labelIndex.snapshot();
+        assertEquals(labelIndex.iterations, 1);
+
+        labelIndex.rightwardsFrom(Span.create(4, 9));
+        labelIndex.containing(Span.create(5, 6));
+        labelIndex.matching(Span.create(0, 3));
+        assertSame(labelIndex.snapshot(), snapshot);
+        assertEquals(labelIndex.iterations, 1);
+    }
+
+    @Test
+    public void testSnapshotRebuiltAfterAdd() throws Exception {
+        LabelIndex<String> snapshot = labelIndex.snapshot();
+        labelIndex.add(21, 23, "It");
+        assertNotSame(labelIndex.snapshot(), snapshot);
+        assertEquals(labelIndex.iterations, 2);
+        assertEquals(labelIndex.rightwardsFrom(Span.create(4, 9)).values(), Arrays.asList("brown", "fox", "It"));
+    }
+
+    @Test
+    public void testFilteredSnapshotRebuiltAfterAdd() throws Exception {
+        AbstractLabelIndex<String> filtered = (AbstractLabelIndex<String>) labelIndex
+                .filter(label -> label.length() > 3);
+        LabelIndex<String> snapshot = filtered.snapshot();
+        assertSame(filtered.snapshot(), snapshot);
+        assertEquals(filtered.rightwardsFrom(Span.create(0, 3)).values(), Arrays.asList("quick", "brown"));
+
+        labelIndex.add(20, 26, "jumped");
+        assertNotSame(filtered.snapshot(), snapshot);
+        assertEquals(filtered.rightwardsFrom(Span.create(0, 3)).values(),
+                Arrays.asList("quick", "brown", "jumped"));
+    }
+
+    @Test
+    public void testLimitedSnapshotRebuiltAfterAdd() throws Exception {
+        AbstractLabelIndex<String> limited = (AbstractLabelIndex<String>) labelIndex.limit(5);
+        LabelIndex<String> snapshot = limited.snapshot();
+        assertSame(limited.snapshot(), snapshot);
+        assertEquals(limited.rightwardsFrom(Span.create(9, 9)).values(), Arrays.asList("brown", "fox"));
+
+        labelIndex.add(21, 23, "It");
+        labelIndex.add(24, 30, "jumped");
+        assertNotSame(limited.snapshot(), snapshot);
+        assertEquals(limited.rightwardsFrom(Span.create(9, 9)).values(), Arrays.asList("brown", "fox", "It"));
+    }
+
+    /**
+     * A label index over a list which counts how many times it has been iterated.
+     */
+    private static final class ListLabelIndex extends AbstractLabelIndex<String> {
+        private final List<Label<String>> labels = new ArrayList<>();
+
+        private int iterations;
+
+        void add(int begin, int end, String value) {
+            labels.add(new Label<>(Span.create(begin, end), value));
+        }
+
+        @Override
+        protected int version() {
+            return labels.size();
+        }
+
+        @Override
+        public Iterator<Label<String>> iterator() {
+            iterations++;
+            return labels.iterator();
+        }
+    }
+}
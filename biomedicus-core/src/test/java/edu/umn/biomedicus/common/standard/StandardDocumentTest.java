@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.common.standard;
+
+import edu.umn.biomedicus.common.collect.ImmutableSpanMap;
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.labels.LabelIndex;
+import edu.umn.biomedicus.common.labels.Labeler;
+import edu.umn.biomedicus.common.labels.StandardLabelIndex;
+import edu.umn.biomedicus.common.types.text.Span;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+public class StandardDocumentTest {
+    private StandardDocument document;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        document = new StandardDocument("The quick brown fox. It jumped.");
+    }
+
+    @Test
+    public void testEmptyIndex() throws Exception {
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        assertNotNull(labelIndex);
+        assertTrue(labelIndex.all().isEmpty());
+        assertFalse(labelIndex.firstOptionally().isPresent());
+    }
+
+    @Test
+    public void testLabelsSortedOnRead() throws Exception {
+        Labeler<String> labeler = document.getLabeler(String.class);
+        labeler.value("fox").label(16, 19);
+        labeler.value("The").label(0, 3);
+        labeler.label(new Label<>(Span.create(10, 15), "brown"));
+        labeler.value("quick").label(Span.create(4, 9));
+
+        assertEquals(document.getLabelIndex(String.class).values(), Arrays.asList("The", "quick", "brown", "fox"));
+        assertEquals(document.getLabelIndex(String.class).descendingBegin().values(),
+                Arrays.asList("fox", "brown", "quick", "The"));
+    }
+
+    @Test
+    public void testIndexSeesLaterLabels() throws Exception {
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        Labeler<String> labeler = document.getLabeler(String.class);
+        labeler.value("It").label(21, 23);
+        assertEquals(labelIndex.values(), Arrays.asList("It"));
+
+        labeler.value("The").label(0, 3);
+        assertEquals(labelIndex.values(), Arrays.asList("The", "It"));
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        document.getLabeler(Integer.class).value(0).label(0, 20);
+        document.getLabeler(Integer.class).value(1).label(21, 31);
+        Labeler<String> labeler = document.getLabeler(String.class);
+        labeler.value("The").label(0, 3);
+        labeler.value("quick").label(4, 9);
+        labeler.value("It").label(21, 23);
+
+        Label<Integer> sentence = document.getLabelIndex(Integer.class).all().get(1);
+        List<String> inside = document.getLabelIndex(String.class).insideSpan(sentence).values();
+        assertEquals(inside, Arrays.asList("It"));
+
+        List<Integer> containing = document.getLabelIndex(Integer.class).containing(Span.create(4, 9)).values();
+        assertEquals(containing, Arrays.asList(0));
+
+        assertEquals(document.getLabelIndex(String.class).matching(Span.create(4, 9))
+                .map(Label::value).orElse(null), "quick");
+        assertEquals(document.getLabelIndex(String.class).stream().map(Label::getBegin)
+                .collect(Collectors.toList()), Arrays.asList(0, 4, 21));
+    }
+
+    @Test
+    public void testSameSpanLabelsKept() throws Exception {
+        Labeler<String> labeler = document.getLabeler(String.class);
+        labeler.value("fox").label(16, 19);
+        labeler.value("animal").label(16, 19);
+        labeler.value("The").label(0, 3);
+
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        assertEquals(labelIndex.all().size(), 3);
+        assertEquals(labelIndex.increasingSize().values(), Arrays.asList("The", "fox", "animal"));
+        assertEquals(labelIndex.insideSpan(Span.create(10, 20)).increasingSize().values(),
+                Arrays.asList("fox", "animal"));
+        assertEquals(labelIndex.containing(Span.create(17, 18)).all().size(), 2);
+        assertTrue(labelIndex.matching(Span.create(16, 19)).isPresent());
+    }
+
+    @Test
+    public void testLabelsReusedBetweenSnapshots() throws Exception {
+        Labeler<String> labeler = document.getLabeler(String.class);
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        labeler.value("quick").label(4, 9);
+        Label<String> quick = labelIndex.firstOptionally().get();
+
+        labeler.value("fox").label(16, 19);
+        assertSame(labelIndex.firstOptionally().get(), quick);
+        labeler.value("The").label(0, 3);
+        assertSame(labelIndex.all().get(1), quick);
+    }
+
+    @Test
+    public void testEarlierSnapshotsUnchanged() throws Exception {
+        Labeler<String> labeler = document.getLabeler(String.class);
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        labeler.value("quick").label(4, 9);
+        labeler.value("brown").label(10, 15);
+        LabelIndex<String> before = labelIndex.insideSpan(Span.create(0, 31));
+
+        labeler.value("fox").label(16, 19);
+        labeler.value("The").label(0, 3);
+        assertEquals(before.values(), Arrays.asList("quick", "brown"));
+        assertEquals(labelIndex.values(), Arrays.asList("The", "quick", "brown", "fox"));
+    }
+
+    @Test
+    public void testInterleavedLabelingAndReading() throws Exception {
+        Random random = new Random(7);
+        Labeler<String> labeler = document.getLabeler(String.class);
+        LabelIndex<String> labelIndex = document.getLabelIndex(String.class);
+        List<Label<String>> labeled = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            // mostly left to right, like a processor labeling a document, with some labels before the last one
+            int begin = random.nextInt(4) == 0 ? random.nextInt(100) : 50 + i / 2 + random.nextInt(5);
+            int end = begin + random.nextInt(20);
+            Label<String> label = new Label<>(Span.create(begin, end), "label" + i);
+            labeler.label(label);
+            labeled.add(label);
+
+            if (random.nextInt(3) == 0) {
+                LabelIndex<String> expected = new StandardLabelIndex<>(spanMapOf(labeled), l -> true,
+                        true, true);
+                assertEquals(labelIndex.values(), expected.values());
+                Span query = Span.create(begin, begin + 1);
+                assertEquals(labelIndex.containing(query).values(), expected.containing(query).values());
+                Span inside = Span.create(begin, end + 10);
+                assertEquals(labelIndex.insideSpan(inside).values(), expected.insideSpan(inside).values());
+            }
+        }
+    }
+
+    private static <T> ImmutableSpanMap<Label<T>> spanMapOf(List<Label<T>> labels) {
+        ImmutableSpanMap.Builder<Label<T>> builder = ImmutableSpanMap.multiBuilder();
+        labels.forEach(label -> builder.put(label, label));
+        return builder.build();
+    }
+
+    @Test
+    public void testLabelTypesSeparate() throws Exception {
+        document.getLabeler(String.class).value("The").label(0, 3);
+        assertTrue(document.getLabelIndex(Integer.class).all().isEmpty());
+        assertEquals(document.getLabelIndex(String.class).all().size(), 1);
+    }
+}
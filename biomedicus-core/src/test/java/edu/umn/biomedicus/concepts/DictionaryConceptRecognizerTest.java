@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.concepts;
+
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.standard.StandardDocument;
+import edu.umn.biomedicus.common.terms.IndexedTerm;
+import edu.umn.biomedicus.common.terms.TermsBag;
+import edu.umn.biomedicus.common.types.semantics.DictionaryConcept;
+import edu.umn.biomedicus.common.types.semantics.DictionaryTerm;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+import edu.umn.biomedicus.common.types.text.Document;
+import edu.umn.biomedicus.common.types.text.NormIndex;
+import edu.umn.biomedicus.common.types.text.Sentence;
+import edu.umn.biomedicus.common.types.text.TermToken;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.annotation.Nullable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.testng.Assert.*;
+
+public class DictionaryConceptRecognizerTest {
+    private static final String[] WORDS = {"heart", "attack", "of", "the", "acute", "renal", "failure", "chest",
+            "pain", "left", "ventricle", "and", "mild", "fever", "with", "cough"};
+
+    private static final PartOfSpeech[] PARTS_OF_SPEECH = {PartOfSpeech.NN, PartOfSpeech.NN, PartOfSpeech.IN,
+            PartOfSpeech.DT, PartOfSpeech.JJ, PartOfSpeech.JJ, PartOfSpeech.NN, PartOfSpeech.NN, PartOfSpeech.NN,
+            PartOfSpeech.JJ, PartOfSpeech.NN, PartOfSpeech.CC, PartOfSpeech.JJ, PartOfSpeech.NN, PartOfSpeech.IN,
+            PartOfSpeech.NN};
+
+    private Path path;
+
+    private MappedConceptDictionary dictionary;
+
+    private TextConceptDictionary textDictionary;
+
+    private String text;
+
+    /**
+     * The word index of each token, by sentence.
+     */
+    private List<int[]> sentences;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        Random random = new Random(11);
+        sentences = new ArrayList<>();
+        StringBuilder textBuilder = new StringBuilder();
+        for (int sentence = 0; sentence < 60; sentence++) {
+            int[] words = new int[3 + random.nextInt(12)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = random.nextInt(WORDS.length);
+                String word = WORDS[words[i]];
+                if (i == 0 || random.nextInt(8) == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                textBuilder.append(word).append(' ');
+            }
+            textBuilder.setCharAt(textBuilder.length() - 1, '\n');
+            sentences.add(words);
+        }
+        text = textBuilder.toString();
+
+        Map<String, List<SuiCuiTui>> phrases = new HashMap<>();
+        Map<String, List<SuiCuiTui>> lowercasePhrases = new HashMap<>();
+        Map<TermsBag, List<SuiCuiTui>> norms = new HashMap<>();
+        int concept = 0;
+        // phrases taken from the text so there are matches of every length up to past the window
+        for (int[] words : sentences) {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                int from = random.nextInt(words.length);
+                int length = 1 + random.nextInt(Math.min(7, words.length - from));
+                StringBuilder phrase = new StringBuilder();
+                TermsBag.Builder normBuilder = TermsBag.builder();
+                for (int i = from; i < from + length; i++) {
+                    if (i > from) {
+                        phrase.append(' ');
+                    }
+                    phrase.append(WORDS[words[i]]);
+                    // the recognizer leaves out the norms of prepositions, determiners and conjunctions
+                    PartOfSpeech partOfSpeech = PARTS_OF_SPEECH[words[i]];
+                    if (partOfSpeech != PartOfSpeech.IN && partOfSpeech != PartOfSpeech.DT
+                            && partOfSpeech != PartOfSpeech.CC) {
+                        normBuilder.addTerm(new IndexedTerm(words[i]));
+                    }
+                }
+                List<SuiCuiTui> concepts = Collections.singletonList(SuiCuiTui.fromString(
+                        String.format("S%07dC%07dT%03d", concept, concept, concept % 1000)));
+                concept++;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        String capitalized = Character.toUpperCase(phrase.charAt(0)) + phrase.substring(1);
+                        phrases.put(capitalized, concepts);
+                        break;
+                    case 1:
+                        lowercasePhrases.put(phrase.toString().toLowerCase(Locale.ENGLISH), concepts);
+                        break;
+                    default:
+                        norms.put(normBuilder.build(), concepts);
+                        break;
+                }
+            }
+        }
+
+        path = Files.createTempFile("concepts", ".bin");
+        ConceptDictionaryBuilder.write(phrases, lowercasePhrases, norms, path);
+        dictionary = new MappedConceptDictionary.Loader(path).get();
+        textDictionary = new TextConceptDictionary(norms, phrases, lowercasePhrases);
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(path);
+    }
+
+    private Document document() throws Exception {
+        Document document = new StandardDocument(text);
+        int begin = 0;
+        for (int[] words : sentences) {
+            int sentenceBegin = begin;
+            for (int i = 0; i < words.length; i++) {
+                int end = begin + WORDS[words[i]].length();
+                document.getLabeler(TermToken.class).value(new TermToken(text.substring(begin, end),
+                        i < words.length - 1)).label(begin, end);
+                document.getLabeler(PartOfSpeech.class).value(PARTS_OF_SPEECH[words[i]]).label(begin, end);
+                document.getLabeler(NormIndex.class).value(new NormIndex(new IndexedTerm(words[i])))
+                        .label(begin, end);
+                begin = end + 1;
+            }
+            document.getLabeler(Sentence.class).value(new Sentence()).label(sentenceBegin, begin - 1);
+        }
+        return document;
+    }
+
+    private static List<String> terms(Document document) {
+        List<String> terms = new ArrayList<>();
+        for (Label<DictionaryTerm> label : document.getLabelIndex(DictionaryTerm.class)) {
+            StringBuilder term = new StringBuilder().append(label.getBegin()).append('-').append(label.getEnd());
+            for (DictionaryConcept concept : label.value().getConcepts()) {
+                term.append(' ').append(concept.getIdentifier()).append('/').append(concept.getConfidence());
+            }
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    private List<String> recognize(ConceptDictionary conceptDictionary, boolean parallel) throws Exception {
+        Document document = document();
+        new DictionaryConceptRecognizer(conceptDictionary, 5, parallel, document).process();
+        return terms(document);
+    }
+
+    @Test
+    public void testPrunedSearchFindsSameConceptsAsExhaustive() throws Exception {
+        List<String> pruned = recognize(dictionary, false);
+        List<String> exhaustive = recognize(new ExhaustiveConceptDictionary(dictionary), false);
+        assertFalse(exhaustive.isEmpty());
+        assertEquals(pruned, exhaustive);
+        assertEquals(recognize(textDictionary, false), exhaustive);
+    }
+
+    @Test
+    public void testParallelFindsSameConceptsAsSerial() throws Exception {
+        List<String> serial = recognize(dictionary, false);
+        List<String> parallel = recognize(dictionary, true);
+        assertTrue(sentences.size() > 1);
+        assertFalse(serial.isEmpty());
+        assertEquals(parallel, serial);
+    }
+
+    /**
+     * Looks up every window as a whole string, with cursors that never stop and norms that always might match.
+     */
+    private static final class ExhaustiveConceptDictionary implements ConceptDictionary {
+        private final ConceptDictionary conceptDictionary;
+
+        ExhaustiveConceptDictionary(ConceptDictionary conceptDictionary) {
+            this.conceptDictionary = conceptDictionary;
+        }
+
+        @Nullable
+        @Override
+        public List<SuiCuiTui> forPhrase(String phrase) {
+            return conceptDictionary.forPhrase(phrase);
+        }
+
+        @Nullable
+        @Override
+        public List<SuiCuiTui> forLowercasePhrase(String phrase) {
+            return conceptDictionary.forLowercasePhrase(phrase);
+        }
+
+        @Override
+        public PhraseCursor phraseCursor() {
+            return new StringCursor(this::forPhrase);
+        }
+
+        @Override
+        public PhraseCursor lowercasePhraseCursor() {
+            return new StringCursor(this::forLowercasePhrase);
+        }
+
+        @Nullable
+        @Override
+        public List<SuiCuiTui> forNorms(TermsBag norms) {
+            return conceptDictionary.forNorms(norms);
+        }
+
+        @Override
+        public boolean hasNormsWith(IndexedTerm term) {
+            return true;
+        }
+    }
+
+    private static final class StringCursor implements PhraseCursor {
+        private final StringBuilder phrase = new StringBuilder();
+
+        private final Function<String, List<SuiCuiTui>> lookup;
+
+        StringCursor(Function<String, List<SuiCuiTui>> lookup) {
+            this.lookup = lookup;
+        }
+
+        @Override
+        public void reset() {
+            phrase.setLength(0);
+        }
+
+        @Override
+        public boolean advance(char c) {
+            phrase.append(c);
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public List<SuiCuiTui> concepts() {
+            return lookup.apply(phrase.toString());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.concepts;
+
+import edu.umn.biomedicus.common.terms.IndexedTerm;
+import edu.umn.biomedicus.common.terms.TermsBag;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class MappedConceptDictionaryTest {
+    private final List<SuiCuiTui> heart = Collections.singletonList(SuiCuiTui.fromString("S0000001C0018787T023"));
+
+    private final List<SuiCuiTui> attack = Arrays.asList(SuiCuiTui.fromString("S0000002C0027051T047"),
+            SuiCuiTui.fromString("S0000003C0004238T184"));
+
+    private final List<SuiCuiTui> sjogren = Collections.singletonList(SuiCuiTui.fromString("S0000004C1527336T047"));
+
+    private final List<SuiCuiTui> surrogates = Collections.singletonList(SuiCuiTui.fromString("S0000005C0018808T033"));
+
+    private final TermsBag heartAttack = TermsBag.builder().addTerm(new IndexedTerm(12)).addTerm(new IndexedTerm(4))
+            .build();
+
+    private final TermsBag heartHeart = TermsBag.builder().addTerm(new IndexedTerm(12)).addTerm(new IndexedTerm(12))
+            .build();
+
+    private Path path;
+
+    private MappedConceptDictionary dictionary;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        Map<String, List<SuiCuiTui>> phrases = new HashMap<>();
+        Map<String, List<SuiCuiTui>> lowercasePhrases = new HashMap<>();
+        phrases.put("Heart", heart);
+        lowercasePhrases.put("heart", heart);
+        phrases.put("Heart attack", attack);
+        lowercasePhrases.put("heart attack", attack);
+        phrases.put("Sjögren syndrome", sjogren);
+        lowercasePhrases.put("sjögren syndrome", sjogren);
+        phrases.put("\ud83e\udec0 murmur", surrogates);
+
+        Map<TermsBag, List<SuiCuiTui>> norms = new HashMap<>();
+        norms.put(heartAttack, attack);
+        norms.put(heartHeart, heart);
+
+        path = Files.createTempFile("concepts", ".bin");
+        ConceptDictionaryBuilder.write(phrases, lowercasePhrases, norms, path);
+        dictionary = new MappedConceptDictionary.Loader(path).get();
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testForPhrase() throws Exception {
+        assertEquals(dictionary.forPhrase("Heart"), heart);
+        assertEquals(dictionary.forPhrase("Heart attack"), attack);
+        assertEquals(dictionary.forPhrase("Sjögren syndrome"), sjogren);
+    }
+
+    @Test
+    public void testForPhraseMissing() throws Exception {
+        assertNull(dictionary.forPhrase("heart"));
+        assertNull(dictionary.forPhrase("Heart attacks"));
+        assertNull(dictionary.forPhrase("Hear"));
+        assertNull(dictionary.forPhrase(""));
+    }
+
+    @Test
+    public void testForLowercasePhrase() throws Exception {
+        assertEquals(dictionary.forLowercasePhrase("heart attack"), attack);
+        assertEquals(dictionary.forLowercasePhrase("sjögren syndrome"), sjogren);
+        assertNull(dictionary.forLowercasePhrase("Heart attack"));
+    }
+
+    private static boolean walk(PhraseCursor cursor, String text) {
+        cursor.reset();
+        boolean canExtend = true;
+        for (int i = 0; i < text.length(); i++) {
+            canExtend = cursor.advance(text.charAt(i));
+        }
+        return canExtend;
+    }
+
+    @Test
+    public void testPhraseCursor() throws Exception {
+        PhraseCursor cursor = dictionary.phraseCursor();
+        assertNull(cursor.concepts());
+        assertTrue(walk(cursor, "Heart"));
+        assertEquals(cursor.concepts(), heart);
+        assertTrue(walk(cursor, "Heart att"));
+        assertNull(cursor.concepts());
+        assertTrue(walk(cursor, "Heart attack"));
+        assertEquals(cursor.concepts(), attack);
+        assertTrue(walk(cursor, "Sjögren syndrome"));
+        assertEquals(cursor.concepts(), sjogren);
+        assertTrue(walk(cursor, "\ud83e\udec0 murmur"));
+        assertEquals(cursor.concepts(), surrogates);
+    }
+
+    @Test
+    public void testPhraseCursorStops() throws Exception {
+        PhraseCursor cursor = dictionary.phraseCursor();
+        assertFalse(walk(cursor, "Heart attacks"));
+        assertNull(cursor.concepts());
+        assertFalse(cursor.advance(' '));
+        assertFalse(walk(cursor, "heart"));
+        assertFalse(walk(cursor, "Sjo"));
+        assertFalse(walk(cursor, "\ud83e\udec1"));
+    }
+
+    @Test
+    public void testLowercasePhraseCursor() throws Exception {
+        PhraseCursor cursor = dictionary.lowercasePhraseCursor();
+        assertTrue(walk(cursor, "heart a"));
+        assertNull(cursor.concepts());
+        assertTrue(walk(cursor, "sjögren syndrome"));
+        assertEquals(cursor.concepts(), sjogren);
+        assertFalse(walk(cursor, "Heart"));
+        assertFalse(walk(cursor, "zebra"));
+    }
+
+    @Test
+    public void testHasNormsWith() throws Exception {
+        assertTrue(dictionary.hasNormsWith(new IndexedTerm(4)));
+        assertTrue(dictionary.hasNormsWith(new IndexedTerm(12)));
+        assertFalse(dictionary.hasNormsWith(new IndexedTerm(5)));
+        assertFalse(dictionary.hasNormsWith(IndexedTerm.unknown()));
+    }
+
+    @Test
+    public void testForNorms() throws Exception {
+        assertEquals(dictionary.forNorms(heartAttack), attack);
+        assertEquals(dictionary.forNorms(heartHeart), heart);
+        assertNull(dictionary.forNorms(TermsBag.builder().addTerm(new IndexedTerm(12)).build()));
+        assertNull(dictionary.forNorms(TermsBag.builder().build()));
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.syntaxnet;
+
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.types.text.DependencyParse;
+import edu.umn.biomedicus.common.types.text.ParseToken;
+import edu.umn.biomedicus.common.types.text.Span;
+import edu.umn.biomedicus.exc.BiomedicusException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+/**
+ * Uses processes that echo their input in place of the Syntaxnet tagger and parser. The fake parser makes every token
+ * its own head, with a relation named after its position.
+ */
+public class SyntaxnetWorkerPoolTest {
+    private static ProcessBuilder fakeParser() {
+        return new ProcessBuilder("sed", "-u", "-E",
+                "s/^([0-9]+)((\t[^\t]*){5})\t[^\t]*\t[^\t]*/\\1\\2\t\\1\trel\\1/");
+    }
+
+    private static List<Label<ParseToken>> sentence(String... tokens) {
+        List<Label<ParseToken>> labels = new ArrayList<>();
+        int begin = 0;
+        for (String token : tokens) {
+            labels.add(new Label<>(Span.create(begin, begin + token.length()), new ParseToken(token, true)));
+            begin += token.length() + 1;
+        }
+        return labels;
+    }
+
+    private static void assertFakeParse(DependencyParse parse, int size) {
+        assertEquals(parse.size(), size);
+        for (int i = 0; i < size; i++) {
+            assertEquals(parse.head(i), i);
+            assertEquals(parse.relation(i), "rel" + (i + 1));
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 1, new ProcessBuilder("cat"), fakeParser());
+        pool.doStartup();
+        try {
+            ConllEncoder sentences = pool.encoder();
+            sentences.addSentence(sentence("The", "patient"));
+            sentences.addSentence(sentence("was", "seen", "in", "clinic", "."));
+            List<DependencyParse> parses = pool.parse(sentences);
+            assertEquals(parses.size(), 2);
+            assertFakeParse(parses.get(0), 2);
+            assertFakeParse(parses.get(1), 5);
+
+            assertTrue(pool.parse(pool.encoder()).isEmpty());
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testPadsToBatchSize() throws Exception {
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 16, new ProcessBuilder("cat"), fakeParser());
+        pool.doStartup();
+        try {
+            for (int document = 0; document < 3; document++) {
+                ConllEncoder sentences = pool.encoder();
+                for (int i = 0; i < 5; i++) {
+                    sentences.addSentence(sentence("a", "b", "c"));
+                }
+                List<DependencyParse> parses = pool.parse(sentences);
+                assertEquals(parses.size(), 5);
+                parses.forEach(parse -> assertFakeParse(parse, 3));
+            }
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testLargeDocumentDoesNotBlock() throws Exception {
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 64, new ProcessBuilder("cat"), fakeParser());
+        pool.doStartup();
+        try {
+            ConllEncoder sentences = pool.encoder();
+            for (int i = 0; i < 5000; i++) {
+                sentences.addSentence(sentence("token" + i, "of", "a", "long", "document"));
+            }
+            List<DependencyParse> parses = pool.parse(sentences);
+            assertEquals(parses.size(), 5000);
+            parses.forEach(parse -> assertFakeParse(parse, 5));
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentDocuments() throws Exception {
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(2, 8, new ProcessBuilder("cat"), fakeParser());
+        pool.doStartup();
+        ExecutorService executorService = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 6; thread++) {
+                int threadNumber = thread;
+                futures.add(executorService.submit(() -> {
+                    for (int document = 0; document < 20; document++) {
+                        // a different sentence length for each thread and document to catch mixed up results
+                        int length = 1 + (threadNumber * 20 + document) % 7;
+                        String[] tokens = new String[length];
+                        for (int i = 0; i < length; i++) {
+                            tokens[i] = "t" + i;
+                        }
+                        ConllEncoder sentences = pool.encoder();
+                        for (int i = 0; i < 3; i++) {
+                            sentences.addSentence(sentence(tokens));
+                        }
+                        List<DependencyParse> parses = pool.parse(sentences);
+                        assertEquals(parses.size(), 3);
+                        parses.forEach(parse -> assertFakeParse(parse, length));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+            pool.doShutdown();
+        }
+    }
+
+    @Test(timeOut = 60000)
+    public void testConcurrentSmallDocuments() throws Exception {
+        // one sentence documents keep both dispatchers taking from the queue at the same time
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(2, 3, new ProcessBuilder("cat"), fakeParser());
+        pool.doStartup();
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 16; thread++) {
+                int threadNumber = thread;
+                futures.add(executorService.submit(() -> {
+                    for (int document = 0; document < 200; document++) {
+                        int length = 1 + (threadNumber + document) % 5;
+                        String[] tokens = new String[length];
+                        for (int i = 0; i < length; i++) {
+                            tokens[i] = "t" + i;
+                        }
+                        ConllEncoder sentences = pool.encoder();
+                        sentences.addSentence(sentence(tokens));
+                        if (document % 3 == 0) {
+                            sentences.addSentence(sentence(tokens));
+                        }
+                        List<DependencyParse> parses = pool.parse(sentences);
+                        assertEquals(parses.size(), document % 3 == 0 ? 2 : 1);
+                        parses.forEach(parse -> assertFakeParse(parse, length));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdownNow();
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testRestartsFailedWorker() throws Exception {
+        // the tagger exits after echoing the first sentence and its blank line
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 1, new ProcessBuilder("head", "-n", "3"),
+                fakeParser());
+        pool.doStartup();
+        try {
+            ConllEncoder sentences = pool.encoder();
+            sentences.addSentence(sentence("a", "b"));
+            sentences.addSentence(sentence("c"));
+            try {
+                pool.parse(sentences);
+                fail();
+            } catch (BiomedicusException expected) {
+            }
+
+            sentences = pool.encoder();
+            sentences.addSentence(sentence("d", "e"));
+            List<DependencyParse> parses = pool.parse(sentences);
+            assertEquals(parses.size(), 1);
+            assertFakeParse(parses.get(0), 2);
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testDispatcherSurvivesUncheckedFailure() throws Exception {
+        ProcessBuilder taggerBuilder = new ProcessBuilder("head", "-n", "3");
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 1, taggerBuilder, fakeParser());
+        pool.doStartup();
+        try {
+            ConllEncoder sentences = pool.encoder();
+            sentences.addSentence(sentence("a", "b"));
+            sentences.addSentence(sentence("c"));
+            try {
+                pool.parse(sentences);
+                fail();
+            } catch (BiomedicusException expected) {
+            }
+
+            // restarting the worker now throws a NullPointerException from ProcessBuilder.start
+            taggerBuilder.command((String) null);
+            sentences = pool.encoder();
+            sentences.addSentence(sentence("d"));
+            try {
+                pool.parse(sentences);
+                fail();
+            } catch (BiomedicusException e) {
+                assertTrue(e.getCause() instanceof NullPointerException);
+            }
+
+            taggerBuilder.command("cat");
+            sentences = pool.encoder();
+            sentences.addSentence(sentence("e", "f"));
+            List<DependencyParse> parses = pool.parse(sentences);
+            assertEquals(parses.size(), 1);
+            assertFakeParse(parses.get(0), 2);
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testDecodesTags() throws Exception {
+        // the fake tagger tags every token as a noun
+        ProcessBuilder fakeTagger = new ProcessBuilder("sed", "-u", "-E",
+                "s/^([0-9]+\t[^\t]*\t[^\t]*)\t[^\t]*\t[^\t]*/\\1\tNOUN\tNN/");
+        SyntaxnetWorkerPool pool = new SyntaxnetWorkerPool(1, 1, fakeTagger, fakeParser());
+        pool.doStartup();
+        try {
+            ConllEncoder sentences = pool.encoder();
+            sentences.addSentence(sentence("patient", "clinic"));
+            List<DependencyParse> parses = pool.parse(sentences);
+            assertEquals(parses.size(), 1);
+            assertFakeParse(parses.get(0), 2);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(parses.get(0).coarseTag(i), "NOUN");
+                assertEquals(parses.get(0).tag(i), "NN");
+            }
+        } finally {
+            pool.doShutdown();
+        }
+    }
+
+    @Test
+    public void testDecoderManyRelations() throws Exception {
+        StringBuilder conll = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            conll.append("1\tw\t_\t_\t_\t_\t0\tdecoderRelation").append(i).append("\t_\t_\n\n");
+        }
+        ConllDecoder decoder = new ConllDecoder(
+                new ByteArrayInputStream(conll.toString().getBytes(StandardCharsets.UTF_8)));
+        for (int repeat = 0; repeat < 2; repeat++) {
+            for (int i = 0; i < 50; i++) {
+                DependencyParse parse = decoder.readSentence();
+                assertEquals(parse.relation(0), "decoderRelation" + (repeat * 50 + i));
+                assertEquals(parse.tag(0), "_");
+            }
+        }
+    }
+
+    @Test
+    public void testParseTreeRoundTrip() throws Exception {
+        int noun = DependencyParse.tagId("NOUN");
+        int verb = DependencyParse.tagId("VERB");
+        DependencyParse parse = new DependencyParse(new String[]{"She", "saw", "it"},
+                new int[]{noun, verb, noun},
+                new int[]{DependencyParse.tagId("PRP"), DependencyParse.tagId("VBD"), DependencyParse.tagId("PRP")},
+                new int[]{1, -1, 1},
+                new int[]{DependencyParse.relationId("nsubj"), DependencyParse.relationId("ROOT"),
+                        DependencyParse.relationId("dobj")});
+        String parseTree = parse.parseTree();
+        assertEquals(parseTree.split("\n")[0], "1\tShe\t_\tNOUN\tPRP\t_\t2\tnsubj\t_\t_");
+        DependencyParse decoded = DependencyParse.fromConll(parseTree);
+        assertEquals(decoded.size(), 3);
+        assertEquals(decoded.form(1), "saw");
+        assertEquals(decoded.coarseTag(1), "VERB");
+        assertEquals(decoded.tag(1), "VBD");
+        assertEquals(decoded.head(0), 1);
+        assertEquals(decoded.head(1), -1);
+        assertEquals(decoded.relation(2), "dobj");
+        assertEquals(decoded.parseTree(), parseTree);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.tuples.WordCap;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+import edu.umn.biomedicus.common.utilities.Strings;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public class SuffixWordProbabilityModelTest {
+    private static final String ALPHABET = "abcé1-";
+
+    private Random random;
+
+    private Map<String, Map<PartOfSpeech, Double>> probabilities;
+
+    private SuffixWordProbabilityModel suffixWordProbabilityModel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        random = new Random(11);
+        probabilities = new HashMap<>();
+        probabilities.put("", row());
+        for (int i = 0; i < 200; i++) {
+            probabilities.put(randomWord(1 + random.nextInt(4)), row());
+        }
+        suffixWordProbabilityModel = new SuffixWordProbabilityModel();
+        suffixWordProbabilityModel.setMaxSuffixLength(3);
+        suffixWordProbabilityModel.setProbabilities(probabilities);
+    }
+
+    private Map<PartOfSpeech, Double> row() {
+        Map<PartOfSpeech, Double> row = new HashMap<>();
+        for (PartOfSpeech partOfSpeech : PartOfSpeech.values()) {
+            if (random.nextInt(3) == 0) {
+                row.put(partOfSpeech, -5 * random.nextDouble());
+            }
+        }
+        return row;
+    }
+
+    private String randomWord(int length) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+
+    /**
+     * The lookup by probing every suffix from the longest.
+     */
+    private double expected(PartOfSpeech candidate, String word) {
+        Double probability = Strings.generateSuffixes(word, 3)
+                .map(probabilities::get)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElseThrow(AssertionError::new)
+                .getOrDefault(candidate, Double.NEGATIVE_INFINITY);
+        return probability == null ? Double.NEGATIVE_INFINITY : probability;
+    }
+
+    @Test
+    public void testLongestSuffix() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            String word = randomWord(random.nextInt(7));
+            for (PartOfSpeech partOfSpeech : PartOfSpeech.values()) {
+                assertEquals(suffixWordProbabilityModel.logProbabilityOfWord(partOfSpeech, new WordCap(word, false)),
+                        expected(partOfSpeech, word), word);
+            }
+        }
+    }
+
+    @Test
+    public void testSetProbabilitiesReplacesTrie() throws Exception {
+        WordCap wordCap = new WordCap("abc", false);
+        suffixWordProbabilityModel.logProbabilityOfWord(PartOfSpeech.NN, wordCap);
+
+        Map<PartOfSpeech, Double> row = new HashMap<>();
+        row.put(PartOfSpeech.NN, -1.5);
+        Map<String, Map<PartOfSpeech, Double>> replacement = new HashMap<>();
+        replacement.put("", row);
+        suffixWordProbabilityModel.setProbabilities(replacement);
+
+        assertEquals(suffixWordProbabilityModel.logProbabilityOfWord(PartOfSpeech.NN, wordCap), -1.5);
+        assertEquals(suffixWordProbabilityModel.logProbabilityOfWord(PartOfSpeech.VB, wordCap),
+                Double.NEGATIVE_INFINITY);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.tuples.PosCap;
+import edu.umn.biomedicus.common.tuples.WordCap;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+import edu.umn.biomedicus.common.types.syntax.PartsOfSpeech;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class TntModelFormatTest {
+    private static final List<String> WORDS = Arrays.asList("the", "The", "patient", "denies", "pain", "PAIN",
+            "é", "x", "unknownword", "ache", "Bache", "");
+
+    private Path folder;
+
+    private TntModel tntModel;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        folder = Files.createTempDirectory("tnt");
+        Random random = new Random(3);
+        PartOfSpeech[] partsOfSpeech = PartsOfSpeech.getRealTags().toArray(new PartOfSpeech[0]);
+
+        int cardinality = PosCap.cardinality();
+        double[] unigrams = new double[cardinality];
+        double[][] bigrams = new double[cardinality][cardinality];
+        double[][][] trigrams = new double[cardinality][cardinality][cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            unigrams[i] = random.nextDouble();
+            for (int j = 0; j < cardinality; j++) {
+                bigrams[i][j] = random.nextInt(2) == 0 ? 0 : random.nextDouble();
+                trigrams[i][j][random.nextInt(cardinality)] = random.nextDouble();
+            }
+        }
+        PosCapTrigramModel trigramModel = new PosCapTrigramModel(unigrams, bigrams, trigrams, 0.2, 0.3, 0.5);
+
+        Map<String, Map<PartOfSpeech, Double>> lexicalProbabilities = new HashMap<>();
+        for (String word : Arrays.asList("the", "patient", "denies", "pain", "é")) {
+            Map<PartOfSpeech, Double> row = new HashMap<>();
+            for (int i = 0; i < 3; i++) {
+                row.put(partsOfSpeech[random.nextInt(partsOfSpeech.length)], -5 * random.nextDouble());
+            }
+            lexicalProbabilities.put(word, row);
+        }
+        KnownWordProbabilityModel knownWordModel = new KnownWordProbabilityModel();
+        knownWordModel.setLexicalProbabilities(lexicalProbabilities);
+
+        Map<String, Map<PartOfSpeech, Double>> suffixProbabilities = new HashMap<>();
+        for (String suffix : Arrays.asList("", "e", "he", "che", "n", "x")) {
+            Map<PartOfSpeech, Double> row = new HashMap<>();
+            for (PartOfSpeech partOfSpeech : partsOfSpeech) {
+                if (random.nextBoolean()) {
+                    row.put(partOfSpeech, -5 * random.nextDouble());
+                }
+            }
+            suffixProbabilities.put(suffix, row);
+        }
+        SuffixWordProbabilityModel suffixModel = new SuffixWordProbabilityModel();
+        suffixModel.setMaxSuffixLength(3);
+        suffixModel.setProbabilities(suffixProbabilities);
+
+        FilteredAdaptedWordProbabilityModel known = new FilteredAdaptedWordProbabilityModel();
+        known.setPriority(0);
+        known.setFilter(new WordCapFilter(false, false));
+        known.setWordCapAdapter(new WordCapAdapter(true, false));
+        known.setWordProbabilityModel(knownWordModel);
+        FilteredAdaptedWordProbabilityModel suffix = new FilteredAdaptedWordProbabilityModel();
+        suffix.setPriority(1);
+        suffix.setFilter(new WordCapFilter(false, false));
+        suffix.setWordCapAdapter(new WordCapAdapter(false, true));
+        suffix.setWordProbabilityModel(suffixModel);
+
+        tntModel = new TntModel(trigramModel, Arrays.asList(known, suffix));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        Files.walk(folder).sorted(Comparator.reverseOrder()).forEach(path -> {
+            try {
+                Files.delete(path);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static void assertSameModel(TntModel actual, TntModel expected) {
+        int cardinality = PosCap.cardinality();
+        for (int first = 0; first < cardinality; first += 7) {
+            for (int second = 0; second < cardinality; second += 3) {
+                for (int third = 0; third < cardinality; third++) {
+                    assertEquals(actual.getTransitionLogProbability(first, second, third),
+                            (double) (float) expected.getTransitionLogProbability(first, second, third));
+                }
+            }
+        }
+
+        int[] expectedStates = new int[cardinality];
+        double[] expectedEmissions = new double[cardinality];
+        int[] actualStates = new int[cardinality];
+        double[] actualEmissions = new double[cardinality];
+        for (String word : WORDS) {
+            for (boolean capitalized : new boolean[]{false, true}) {
+                WordCap wordCap = new WordCap(word, capitalized);
+                int expectedCount = expected.getCandidates(wordCap, expectedStates, expectedEmissions);
+                int actualCount = actual.getCandidates(wordCap, actualStates, actualEmissions);
+                assertEquals(actualCount, expectedCount, word);
+                Map<Integer, Double> expectedCandidates = new HashMap<>();
+                Map<Integer, Double> actualCandidates = new HashMap<>();
+                for (int i = 0; i < expectedCount; i++) {
+                    double emission = expectedEmissions[i];
+                    expectedCandidates.put(expectedStates[i], emission == Double.NEGATIVE_INFINITY ? emission
+                            : (double) (float) emission);
+                    actualCandidates.put(actualStates[i], actualEmissions[i]);
+                }
+                assertEquals(actualCandidates, expectedCandidates, word);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = folder.resolve("tntModel.bin");
+        tntModel.writeBinary(file);
+        TntModel read = TntModelFormat.read(file);
+
+        assertSameModel(read, tntModel);
+        assertEquals(read.getWordProbabilityModels().get(1).getPriority(), 1);
+    }
+
+    @Test
+    public void testConvertsYaml() throws Exception {
+        tntModel.write(folder.resolve("yaml"));
+        TntModel yamlModel = TntModel.loadYaml(folder.resolve("yaml").resolve("trigram.yml"),
+                folder.resolve("yaml").resolve("words"));
+        Path file = folder.resolve("converted.bin");
+        yamlModel.writeBinary(file);
+
+        assertSameModel(TntModelFormat.read(file), tntModel);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testRejectsOtherFiles() throws Exception {
+        Path file = folder.resolve("other.bin");
+        Files.write(file, "not a tnt model at all".getBytes());
+        TntModelFormat.read(file);
+    }
+}
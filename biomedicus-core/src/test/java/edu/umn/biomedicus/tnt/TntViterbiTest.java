@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.tnt;
+
+import edu.umn.biomedicus.common.grams.Ngram;
+import edu.umn.biomedicus.common.tuples.PosCap;
+import edu.umn.biomedicus.common.tuples.WordCap;
+import edu.umn.biomedicus.common.types.syntax.PartOfSpeech;
+import edu.umn.biomedicus.common.viterbi.Viterbi;
+import edu.umn.biomedicus.common.viterbi.ViterbiProcessor;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class TntViterbiTest {
+    private static final double BEAM_THRESHOLD = 2.0;
+
+    private Random random;
+
+    private PosCapTrigramModel trigramModel;
+
+    private TntModel tntModel;
+
+    private List<String> vocabulary;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        random = new Random(7);
+        int cardinality = PosCap.cardinality();
+        double[] unigrams = new double[cardinality];
+        double[][] bigrams = new double[cardinality][cardinality];
+        double[][][] trigrams = new double[cardinality][cardinality][cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            unigrams[i] = random.nextInt(10) == 0 ? 0 : random.nextDouble();
+            for (int j = 0; j < cardinality; j++) {
+                bigrams[i][j] = random.nextInt(3) == 0 ? 0 : random.nextDouble();
+                for (int k = 0; k < cardinality; k++) {
+                    trigrams[i][j][k] = random.nextInt(3) == 0 ? 0 : random.nextDouble();
+                }
+            }
+        }
+        trigramModel = new PosCapTrigramModel(unigrams, bigrams, trigrams, 0.2, 0.3, 0.5);
+
+        PartOfSpeech[] partsOfSpeech = PartOfSpeech.values();
+        Map<String, Map<PartOfSpeech, Double>> emissions = new HashMap<>();
+        vocabulary = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String word = "word" + i;
+            vocabulary.add(word);
+            Map<PartOfSpeech, Double> wordEmissions = new EnumMap<>(PartOfSpeech.class);
+            int candidates = 1 + random.nextInt(6);
+            for (int j = 0; j < candidates; j++) {
+                // every tenth word can not be emitted by any of its candidates, so it is skipped
+                double logProbability = i % 10 == 9 ? Double.NEGATIVE_INFINITY : -3 * random.nextDouble();
+                wordEmissions.put(partsOfSpeech[random.nextInt(partsOfSpeech.length)], logProbability);
+            }
+            emissions.put(word, wordEmissions);
+        }
+
+        FilteredAdaptedWordProbabilityModel wordModel = new FilteredAdaptedWordProbabilityModel();
+        wordModel.setFilter(new WordCapFilter());
+        wordModel.setWordCapAdapter(new WordCapAdapter(true, true));
+        wordModel.setWordProbabilityModel(new WordProbabilityModel() {
+            @Override
+            public double logProbabilityOfWord(PartOfSpeech candidate, WordCap wordCap) {
+                return emissions.get(wordCap.getWord()).get(candidate);
+            }
+
+            @Override
+            public Set<PartOfSpeech> getCandidates(WordCap wordCap) {
+                return emissions.get(wordCap.getWord()).keySet();
+            }
+
+            @Override
+            public boolean isKnown(WordCap wordCap) {
+                return true;
+            }
+
+            @Override
+            public void reduce() {
+            }
+        });
+
+        tntModel = new TntModel(trigramModel, Collections.singletonList(wordModel));
+    }
+
+    @Test
+    public void testSameTagsAsGeneralProcessor() throws Exception {
+        assertSameTagsAsGeneralProcessor();
+        assertEquals(tntModel.getEmissionCacheCounter().getHits() + tntModel.getEmissionCacheCounter().getMisses(), 0);
+    }
+
+    @Test
+    public void testSameTagsWithEmissionCache() throws Exception {
+        // smaller than the number of distinct words, so words are evicted
+        tntModel.setEmissionCacheSize(20);
+
+        assertSameTagsAsGeneralProcessor();
+
+        EmissionCacheCounter counter = tntModel.getEmissionCacheCounter();
+        assertTrue(counter.getHits() > 0);
+        assertTrue(counter.getMisses() > 20);
+    }
+
+    private void assertSameTagsAsGeneralProcessor() {
+        TntViterbi tntViterbi = tntModel.getViterbi();
+        for (int sentence = 0; sentence < 200; sentence++) {
+            int length = random.nextInt(25);
+            List<WordCap> words = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                String word = vocabulary.get(random.nextInt(vocabulary.size()));
+                words.add(new WordCap(random.nextBoolean() ? word.toUpperCase() : word, random.nextBoolean()));
+            }
+
+            ViterbiProcessor<PosCap, WordCap> viterbiProcessor = Viterbi.secondOrder(tntModel, tntModel,
+                    Ngram.create(TntPosTagger.BBS, TntPosTagger.BOS), Ngram::create);
+            tntViterbi.begin(TntPosTagger.BBS, TntPosTagger.BOS);
+            for (WordCap word : words) {
+                viterbiProcessor.advance(word);
+                viterbiProcessor.beamFilter(BEAM_THRESHOLD);
+                tntViterbi.advance(word);
+                tntViterbi.beamFilter(BEAM_THRESHOLD);
+            }
+            List<PosCap> expected = viterbiProcessor.end(TntPosTagger.SKIP, TntPosTagger.EOS);
+            tntViterbi.end();
+
+            assertEquals(expected.size(), length + 2);
+            for (int i = 0; i < length; i++) {
+                assertEquals(tntViterbi.getPartOfSpeech(i), expected.get(i + 2).getPartOfSpeech(),
+                        "sentence " + sentence + " token " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testTransitionLogProbability() throws Exception {
+        int cardinality = PosCap.cardinality();
+        for (int first = 0; first < cardinality; first++) {
+            for (int second = 0; second < cardinality; second++) {
+                for (int third = 0; third < cardinality; third++) {
+                    double expected = Math.log10(trigramModel.getTrigramProbability(PosCap.createFromOrdinal(first),
+                            PosCap.createFromOrdinal(second), PosCap.createFromOrdinal(third)));
+                    double actual = tntModel.getTransitionLogProbability(first, second, third);
+                    assertEquals(Double.compare(actual, expected), 0, first + " " + second + " " + third);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTransitionLogProbabilityCapitalized() throws Exception {
+        for (PartOfSpeech firstPartOfSpeech : PartOfSpeech.values()) {
+            PosCap first = PosCap.getCapitalized(firstPartOfSpeech);
+            PosCap second = PosCap.getNotCapitalized(PartOfSpeech.VB);
+            for (PartOfSpeech thirdPartOfSpeech : PartOfSpeech.values()) {
+                PosCap third = PosCap.getCapitalized(thirdPartOfSpeech);
+                double expected = Math.log10(trigramModel.getTrigramProbability(first, second, third));
+                double actual = tntModel.getTransitionLogProbability(Ngram.create(first, second), third);
+                assertEquals(Double.compare(actual, expected), 0, first + " " + second + " " + third);
+            }
+        }
+    }
+}
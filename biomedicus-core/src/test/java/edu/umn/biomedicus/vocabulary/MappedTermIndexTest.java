@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.vocabulary;
+
+import edu.umn.biomedicus.common.terms.IndexedTerm;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class MappedTermIndexTest {
+    private List<String> terms;
+
+    private Path path;
+
+    private MappedTermIndex termIndex;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        Random random = new Random(7);
+        Set<String> termSet = new LinkedHashSet<>();
+        termSet.add("");
+        termSet.add("naïve");
+        termSet.add("𝐀bc");
+        while (termSet.size() < 3000) {
+            StringBuilder builder = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+            termSet.add(builder.toString());
+        }
+        terms = new ArrayList<>(termSet);
+        path = Files.createTempFile("terms", ".bin");
+        MappedTermIndex.write(terms, path);
+        termIndex = MappedTermIndex.open(path);
+    }
+
+    @AfterClass
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        assertEquals(termIndex.size(), terms.size());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            assertEquals(termIndex.getIndexedTerm(term).termIdentifier(), i);
+            assertEquals(termIndex.getTerm(new IndexedTerm(i)), term);
+        }
+    }
+
+    @Test
+    public void testCharSequence() throws Exception {
+        assertEquals(termIndex.getIndexedTerm(new StringBuilder("naïve")).termIdentifier(), 1);
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        assertTrue(termIndex.getIndexedTerm("ABC").isUnknown());
+        assertTrue(termIndex.getIndexedTerm("naïv").isUnknown());
+        assertTrue(termIndex.getIndexedTerm(null).isUnknown());
+        assertFalse(termIndex.contains("naïves"));
+        assertTrue(termIndex.contains("naïve"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDuplicates() throws Exception {
+        List<String> duplicates = new ArrayList<>();
+        duplicates.add("a");
+        duplicates.add("a");
+        MappedTermIndex.write(duplicates, path.resolveSibling("duplicates.bin"));
+    }
+}
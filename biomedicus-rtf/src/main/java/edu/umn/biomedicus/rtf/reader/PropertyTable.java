@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.rtf.reader;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns every rtf state property a fixed integer id, so that the state can store its properties in a flat
+ * {@code int[]} vector. The properties of a group occupy a contiguous range of ids.
+ *
+ * @since 1.6.0
+ */
+public final class PropertyTable {
+    private final Map<String, Map<String, Integer>> ids;
+
+    private final Map<String, int[]> groupRanges;
+
+    private final int[] defaults;
+
+    /**
+     * Creates a property table from a map of property groups to the default values of their properties.
+     *
+     * @param properties map from group name to a map of property name to default value.
+     */
+    public PropertyTable(Map<String, Map<String, Integer>> properties) {
+        ids = new HashMap<>();
+        groupRanges = new HashMap<>();
+        List<Integer> defaultsList = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Integer>> group : properties.entrySet()) {
+            int groupFrom = defaultsList.size();
+            Map<String, Integer> groupIds = new HashMap<>();
+            for (Map.Entry<String, Integer> property : group.getValue().entrySet()) {
+                groupIds.put(property.getKey(), defaultsList.size());
+                defaultsList.add(property.getValue());
+            }
+            ids.put(group.getKey(), groupIds);
+            groupRanges.put(group.getKey(), new int[]{groupFrom, defaultsList.size()});
+        }
+        defaults = defaultsList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns the id of a property.
+     *
+     * @param group    the group name of the property.
+     * @param property the property name.
+     * @return the id of the property.
+     * @throws IllegalArgumentException if the group or property is not known.
+     */
+    public int getId(String group, String property) {
+        Map<String, Integer> groupIds = ids.get(group);
+        if (groupIds == null) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        Integer id = groupIds.get(property);
+        if (id == null) {
+            throw new IllegalArgumentException("Property not found");
+        }
+        return id;
+    }
+
+    /**
+     * Returns the range of ids of a property group as a two element array of the first id and one past the last id.
+     *
+     * @param group the group name.
+     * @return the range of ids.
+     * @throws IllegalArgumentException if the group is not known.
+     */
+    int[] getGroupRange(String group) {
+        int[] range = groupRanges.get(group);
+        if (range == null) {
+            throw new IllegalArgumentException("Group not found");
+        }
+        return range;
+    }
+
+    /**
+     * Returns the number of properties.
+     *
+     * @return the number of properties.
+     */
+    public int size() {
+        return defaults.length;
+    }
+
+    /**
+     * Creates a new property vector with every property set to its default value.
+     *
+     * @return newly created array indexed by property id.
+     */
+    int[] createValues() {
+        return defaults.clone();
+    }
+}
@@ -22,16 +22,48 @@ import java.io.IOException;
 import java.io.Reader;
 
 /**
- *
+ * An rtf source which reads from a {@link Reader} through its own {@code char[]} buffer. The last character read is
+ * always kept in the buffer, so a single character can be unread without needing mark and reset support from the
+ * reader.
  */
 public class ReaderRtfSource implements RtfSource {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
 
     private final Reader reader;
 
+    private final char[] buffer;
+
+    /**
+     * The position of the next character in the buffer.
+     */
+    private int position;
+
+    /**
+     * The number of valid characters in the buffer.
+     */
+    private int limit;
+
+    private boolean endOfInput;
+
+    /**
+     * The number of times the end of input has been read and not unread.
+     */
+    private int endsRead;
+
     private int index;
 
     public ReaderRtfSource(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReaderRtfSource(Reader reader, int bufferSize) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("Buffer size must be at least 2");
+        }
         this.reader = reader;
+        buffer = new char[bufferSize];
+        position = 0;
+        limit = 0;
         index = 0;
     }
 
@@ -41,36 +73,71 @@ public class ReaderRtfSource implements RtfSource {
     }
 
     /**
-     * @return
-     * @throws RtfReaderException
+     * Reads the next character from the source.
+     *
+     * @return the character or -1 if the end of the input has been reached
+     * @throws RtfReaderException if the reader fails
      */
     @Override
     public int readCharacter() throws RtfReaderException {
-        try {
-            reader.mark(1);
-        } catch (IOException e) {
-            throw new RtfReaderException(e);
+        if (position == limit && !fill()) {
+            // the end of input still counts as a character, so that it can be unread
+            endsRead++;
+            index++;
+            return -1;
+        }
+        index++;
+        return buffer[position++];
+    }
+
+    /**
+     * Refills the buffer, keeping the last character read at the start of it.
+     *
+     * @return false if there are no more characters
+     */
+    private boolean fill() throws RtfReaderException {
+        if (endOfInput) {
+            return false;
         }
-        int code;
+        int keep = 0;
+        if (position > 0) {
+            buffer[0] = buffer[position - 1];
+            keep = 1;
+        }
+        int read;
         try {
-            code = reader.read();
+            do {
+                read = reader.read(buffer, keep, buffer.length - keep);
+            } while (read == 0);
         } catch (IOException e) {
             throw new RtfReaderException(e);
         }
-        index++;
-        return code;
+        position = keep;
+        if (read == -1) {
+            endOfInput = true;
+            limit = keep;
+            return false;
+        }
+        limit = keep + read;
+        return true;
     }
 
     /**
-     * @throws RtfReaderException
+     * Moves back one character, so that the next call to {@link #readCharacter()} returns the last character again.
+     *
+     * @throws RtfReaderException if there is no character to unread
      */
     @Override
     public void unreadChar() throws RtfReaderException {
-        try {
-            reader.reset();
-        } catch (IOException e) {
-            throw new RtfReaderException(e);
+        if (endsRead > 0) {
+            endsRead--;
+            index--;
+            return;
+        }
+        if (position == 0) {
+            throw new RtfReaderException("No character to unread");
         }
+        position--;
         index--;
     }
 }
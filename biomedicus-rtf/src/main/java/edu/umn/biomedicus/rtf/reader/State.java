@@ -25,12 +25,16 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Stores the stateful properties of rtf processing.
+ * <p>
+ * Properties are stored in a flat vector indexed by the ids from a {@link PropertyTable}. A state created by
+ * {@link #copy()} shares the vector of its parent and only copies it the first time one of its properties changes, so
+ * entering a group is cheap.
  *
  * @author Ben Knoll
  * @since 1.3.0
@@ -38,6 +42,32 @@ import java.util.stream.Collectors;
 public class State {
     private static final Logger LOGGER = LoggerFactory.getLogger(State.class);
 
+    /**
+     * The charset used for hex-code input when none other is specified.
+     */
+    private static final Charset DEFAULT_CHARSET = Charset.forName("Windows-1252");
+
+    /**
+     * The decoded character for every byte in the default charset.
+     */
+    private static final char[] DEFAULT_DECODE_TABLE = createDecodeTable(DEFAULT_CHARSET);
+
+    /**
+     * The value of every ascii hex digit, or -1 for characters which are not hex digits.
+     */
+    private static final int[] HEX_DIGIT_VALUES = new int[256];
+
+    static {
+        Arrays.fill(HEX_DIGIT_VALUES, -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_DIGIT_VALUES['0' + i] = i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_DIGIT_VALUES['a' + i] = 10 + i;
+            HEX_DIGIT_VALUES['A' + i] = 10 + i;
+        }
+    }
+
     /**
      * The map of the different output destinations.
      */
@@ -49,15 +79,35 @@ public class State {
     private final OutputDestinationFactory outputDestinationFactory;
 
     /**
-     * Various properties changed by property value keywords.
+     * The ids of the properties changed by property value keywords.
      */
-    private final Map<String, Map<String, Integer>> properties;
+    private final PropertyTable propertyTable;
 
     /**
      * Listens for the indices of characters written to the output destinations.
      */
     private final IndexListener indexListener;
 
+    /**
+     * The values of the properties, indexed by property id.
+     */
+    private int[] propertyValues;
+
+    /**
+     * Whether the property values are shared with the parent state and need to be copied before being changed.
+     */
+    private boolean propertyValuesShared;
+
+    /**
+     * Counts property changes across this state and every state copied from it.
+     */
+    private final long[] propertyChangeCounter;
+
+    /**
+     * Identifies the current property values, two states with the same version have the same property values.
+     */
+    private long propertiesVersion;
+
     /**
      * The current output destination.
      */
@@ -80,9 +130,14 @@ public class State {
     private boolean skipDestinationIfUnknown;
 
     /**
-     * The string builder for hex input.
+     * The number of hex digits read of the current hex input.
+     */
+    private int hexDigitsRead;
+
+    /**
+     * The value of the hex digits read so far.
      */
-    private StringBuilder hexStringBuilder;
+    private int hexValue;
 
     /**
      * If the state is currently skipping writing to a destination.
@@ -99,6 +154,11 @@ public class State {
      */
     private Charset charset;
 
+    /**
+     * The decoded character for every byte in the current charset.
+     */
+    private char[] decodeTable;
+
     private int hexStart;
 
     /**
@@ -113,15 +173,48 @@ public class State {
                  OutputDestinationFactory outputDestinationFactory,
                  Map<String, Map<String, Integer>> properties,
                  IndexListener indexListener) {
+        this(outputDestinationMap, outputDestinationFactory, new PropertyTable(properties), indexListener);
+    }
+
+    /**
+     * Initializes a new state given the map of output destinations, a factory for new output destinations, and the
+     * table of state properties. All properties start at their default values.
+     *
+     * @param outputDestinationMap     a map from a string identifier to output destinations.
+     * @param outputDestinationFactory a factory which contains a new output destination.
+     * @param propertyTable            the ids and default values of the state properties.
+     * @param indexListener            listens for the indices of characters written to output destinations.
+     */
+    public State(Map<String, OutputDestination> outputDestinationMap,
+                 OutputDestinationFactory outputDestinationFactory,
+                 PropertyTable propertyTable,
+                 IndexListener indexListener) {
+        this(outputDestinationMap, outputDestinationFactory, propertyTable, indexListener,
+                propertyTable.createValues(), false, new long[1], 0);
+        charset = DEFAULT_CHARSET;
+        decodeTable = DEFAULT_DECODE_TABLE;
+    }
+
+    private State(Map<String, OutputDestination> outputDestinationMap,
+                  OutputDestinationFactory outputDestinationFactory,
+                  PropertyTable propertyTable,
+                  IndexListener indexListener,
+                  int[] propertyValues,
+                  boolean propertyValuesShared,
+                  long[] propertyChangeCounter,
+                  long propertiesVersion) {
         this.outputDestinationMap = outputDestinationMap;
         this.outputDestinationFactory = outputDestinationFactory;
-        this.properties = properties;
+        this.propertyTable = propertyTable;
         this.indexListener = indexListener;
+        this.propertyValues = propertyValues;
+        this.propertyValuesShared = propertyValuesShared;
+        this.propertyChangeCounter = propertyChangeCounter;
+        this.propertiesVersion = propertiesVersion;
         inputType = InputType.NORMAL;
         binaryCharactersToRead = 0;
         skipDestinationIfUnknown = false;
         skippingDestination = false;
-        charset = Charset.forName("Windows-1252");
     }
 
     /**
@@ -133,29 +226,46 @@ public class State {
     public static State createState(OutputDestinationFactory outputDestinationFactory,
                                     Map<String, Map<String, Integer>> properties,
                                     IndexListener indexListener) throws RtfReaderException {
+        return createState(outputDestinationFactory, new PropertyTable(properties), indexListener);
+    }
+
+    /**
+     * Creates a state with the default output destinations.
+     *
+     * @param outputDestinationFactory factory for new output destinations.
+     * @param propertyTable            the ids and default values of the state properties.
+     * @param indexListener            listens for the indices of characters written to output destinations.
+     * @return newly created State object.
+     */
+    public static State createState(OutputDestinationFactory outputDestinationFactory,
+                                    PropertyTable propertyTable,
+                                    IndexListener indexListener) throws RtfReaderException {
         Map<String, OutputDestination> outputDestinationMap = new HashMap<>();
         outputDestinationMap.put("Rtf", outputDestinationFactory.create("Rtf"));
-        return new State(outputDestinationMap, outputDestinationFactory, properties, indexListener);
+        return new State(outputDestinationMap, outputDestinationFactory, propertyTable, indexListener);
+    }
+
+    private static char[] createDecodeTable(Charset charset) {
+        char[] decodeTable = new char[256];
+        for (int i = 0; i < 256; i++) {
+            decodeTable[i] = charset.decode(ByteBuffer.wrap(new byte[]{(byte) i})).get(0);
+        }
+        return decodeTable;
     }
 
     /**
-     * Copies a child state object, which inherits the current values from this state object.
+     * Copies a child state object, which inherits the current values from this state object. The child shares the
+     * property values of this state until it changes one of them.
      *
      * @return new state object with the same values as this object.
      */
     public State copy() {
-        Map<String, Map<String, Integer>> propertiesCopy = properties.entrySet()
-                .stream()
-                .collect(Collectors.toMap(Map.Entry::getKey,
-                        entry -> entry.getValue()
-                                .entrySet()
-                                .stream()
-                                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))));
-
-        State stateCopy = new State(outputDestinationMap, outputDestinationFactory, propertiesCopy, indexListener);
+        State stateCopy = new State(outputDestinationMap, outputDestinationFactory, propertyTable, indexListener,
+                propertyValues, true, propertyChangeCounter, propertiesVersion);
         stateCopy.outputDestination = outputDestination;
         stateCopy.skippingDestination = skippingDestination;
         stateCopy.charset = charset;
+        stateCopy.decodeTable = decodeTable;
         return stateCopy;
     }
 
@@ -164,7 +274,8 @@ public class State {
      */
     public void setToHexInputType(int index) {
         inputType = InputType.HEX;
-        hexStringBuilder = new StringBuilder(2);
+        hexDigitsRead = 0;
+        hexValue = 0;
         this.hexStart = index;
     }
 
@@ -208,12 +319,14 @@ public class State {
                 directWriteCharacter((char) code, originalDocumentTextLocation);
                 break;
             case HEX:
-                hexStringBuilder.append((char) code);
-                if (hexStringBuilder.length() == 2) {
-                    String hexString = hexStringBuilder.toString();
-                    Byte charByte = (byte) (Integer.parseInt(hexString, 16) & 0xff);
-                    code = charset.decode(ByteBuffer.wrap(new byte[]{charByte})).get(0);
-                    directWriteCharacter((char) code, Span.create(hexStart, originalDocumentTextLocation.getEnd()));
+                int digit = code < HEX_DIGIT_VALUES.length ? HEX_DIGIT_VALUES[code] : -1;
+                if (digit == -1) {
+                    throw new RtfReaderException("Invalid hex digit: " + (char) code);
+                }
+                hexValue = (hexValue << 4) | digit;
+                if (++hexDigitsRead == 2) {
+                    directWriteCharacter(decodeTable[hexValue],
+                            Span.create(hexStart, originalDocumentTextLocation.getEnd()));
                     inputType = InputType.NORMAL;
                 }
                 break;
@@ -293,7 +406,19 @@ public class State {
      * @param value    the value to set the property to.
      */
     public void setPropertyValue(String group, String property, int value) {
-        properties.get(group).put(property, value);
+        setPropertyValue(propertyTable.getId(group, property), value);
+    }
+
+    /**
+     * Sets a property value in the state.
+     *
+     * @param propertyId the id of the property in the {@link PropertyTable}.
+     * @param value      the value to set the property to.
+     */
+    public void setPropertyValue(int propertyId, int value) {
+        if (propertyValues[propertyId] != value) {
+            ownPropertyValues()[propertyId] = value;
+        }
     }
 
     /**
@@ -302,7 +427,17 @@ public class State {
      * @param group the property group.
      */
     public void resetPropertyGroup(String group) {
-        properties.get(group).replaceAll((k, v) -> 0);
+        int[] range = propertyTable.getGroupRange(group);
+        Arrays.fill(ownPropertyValues(), range[0], range[1], 0);
+    }
+
+    private int[] ownPropertyValues() {
+        if (propertyValuesShared) {
+            propertyValues = propertyValues.clone();
+            propertyValuesShared = false;
+        }
+        propertiesVersion = ++propertyChangeCounter[0];
+        return propertyValues;
     }
 
     /**
@@ -313,15 +448,37 @@ public class State {
      * @return the value of the property.
      */
     public int getPropertyValue(String group, String property) {
-        Map<String, Integer> propertyGroup = properties.get(group);
-        if (propertyGroup == null) {
-            throw new IllegalArgumentException("Group not found");
-        }
-        Integer propertyValue = propertyGroup.get(property);
-        if (propertyValue == null) {
-            throw new IllegalArgumentException("Property not found");
-        }
-        return propertyValue;
+        return propertyValues[propertyTable.getId(group, property)];
+    }
+
+    /**
+     * Returns the value of a property.
+     *
+     * @param propertyId the id of the property in the {@link PropertyTable}.
+     * @return the value of the property.
+     */
+    public int getPropertyValue(int propertyId) {
+        return propertyValues[propertyId];
+    }
+
+    /**
+     * Returns a version number for the current property values. It changes whenever a property of this state is
+     * changed, and when two states from the same document have the same version their property values are equal.
+     * Output destinations can compare it against the version they last saw to skip checking for property changes.
+     *
+     * @return the version of the property values.
+     */
+    public long getPropertiesVersion() {
+        return propertiesVersion;
+    }
+
+    /**
+     * Returns the table of property ids used by this state.
+     *
+     * @return the property table.
+     */
+    public PropertyTable getPropertyTable() {
+        return propertyTable;
     }
 
     /**
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.rtf.reader;
+
+import org.testng.annotations.Test;
+
+import java.io.StringReader;
+
+import static org.testng.Assert.assertEquals;
+
+public class ReaderRtfSourceTest {
+    @Test
+    public void testReadsAllCharacters() throws Exception {
+        ReaderRtfSource rtfSource = new ReaderRtfSource(new StringReader("{\\rtf1 abc}"), 4);
+        StringBuilder stringBuilder = new StringBuilder();
+        int ch;
+        while ((ch = rtfSource.readCharacter()) != -1) {
+            stringBuilder.append((char) ch);
+        }
+        assertEquals(stringBuilder.toString(), "{\\rtf1 abc}");
+        assertEquals(rtfSource.getIndex(), 12);
+    }
+
+    @Test
+    public void testUnreadAcrossBufferBoundary() throws Exception {
+        ReaderRtfSource rtfSource = new ReaderRtfSource(new StringReader("abcdefg"), 3);
+        assertEquals(rtfSource.readCharacter(), 'a');
+        assertEquals(rtfSource.readCharacter(), 'b');
+        assertEquals(rtfSource.readCharacter(), 'c');
+        rtfSource.unreadChar();
+        assertEquals(rtfSource.getIndex(), 2);
+        assertEquals(rtfSource.readCharacter(), 'c');
+        assertEquals(rtfSource.readCharacter(), 'd');
+        rtfSource.unreadChar();
+        assertEquals(rtfSource.readCharacter(), 'd');
+        assertEquals(rtfSource.readCharacter(), 'e');
+        assertEquals(rtfSource.getIndex(), 5);
+    }
+
+    @Test
+    public void testUnreadEndOfInput() throws Exception {
+        ReaderRtfSource rtfSource = new ReaderRtfSource(new StringReader("a"), 2);
+        assertEquals(rtfSource.readCharacter(), 'a');
+        assertEquals(rtfSource.readCharacter(), -1);
+        rtfSource.unreadChar();
+        assertEquals(rtfSource.getIndex(), 1);
+        assertEquals(rtfSource.readCharacter(), -1);
+        rtfSource.unreadChar();
+        rtfSource.unreadChar();
+        assertEquals(rtfSource.readCharacter(), 'a');
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.rtf.reader;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class StateTest {
+    private State state;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        Map<String, Integer> characterFormatting = new HashMap<>();
+        characterFormatting.put("Bold", 0);
+        characterFormatting.put("Italic", 0);
+        Map<String, Map<String, Integer>> properties = new HashMap<>();
+        properties.put("CharacterFormatting", characterFormatting);
+        state = new State(new HashMap<>(), name -> null, properties,
+                (destinationName, destinationIndex, textLocation) -> {
+                });
+    }
+
+    @Test
+    public void testNestedGroupVersions() throws Exception {
+        // {\b x{\i y}z}w
+        long outside = state.getPropertiesVersion();
+        State bold = state.copy();
+        assertEquals(bold.getPropertiesVersion(), outside);
+        bold.setPropertyValue("CharacterFormatting", "Bold", 1);
+        long x = bold.getPropertiesVersion();
+        assertNotEquals(x, outside);
+
+        State italic = bold.copy();
+        italic.setPropertyValue("CharacterFormatting", "Italic", 1);
+        long y = italic.getPropertiesVersion();
+        assertNotEquals(y, x);
+        assertNotEquals(y, outside);
+        assertEquals(italic.getPropertyValue("CharacterFormatting", "Bold"), 1);
+
+        assertEquals(bold.getPropertiesVersion(), x);
+        assertEquals(bold.getPropertyValue("CharacterFormatting", "Italic"), 0);
+        assertEquals(state.getPropertiesVersion(), outside);
+        assertEquals(state.getPropertyValue("CharacterFormatting", "Bold"), 0);
+    }
+
+    @Test
+    public void testSameValueKeepsVersion() throws Exception {
+        // {\b x{\b y}z}
+        State bold = state.copy();
+        bold.setPropertyValue("CharacterFormatting", "Bold", 1);
+        State child = bold.copy();
+        child.setPropertyValue("CharacterFormatting", "Bold", 1);
+        assertEquals(child.getPropertiesVersion(), bold.getPropertiesVersion());
+    }
+
+    @Test
+    public void testSiblingGroupsGetDistinctVersions() throws Exception {
+        // {\b x}{\i y}
+        State bold = state.copy();
+        bold.setPropertyValue("CharacterFormatting", "Bold", 1);
+        State italic = state.copy();
+        italic.setPropertyValue("CharacterFormatting", "Italic", 1);
+        assertNotEquals(italic.getPropertiesVersion(), bold.getPropertiesVersion());
+    }
+
+    @Test
+    public void testChildDoesNotChangeParentValues() throws Exception {
+        State child = state.copy();
+        child.resetPropertyGroup("CharacterFormatting");
+        child.setPropertyValue("CharacterFormatting", "Italic", 1);
+        assertEquals(state.getPropertyValue("CharacterFormatting", "Italic"), 0);
+        assertEquals(child.getPropertyValue("CharacterFormatting", "Italic"), 1);
+    }
+}
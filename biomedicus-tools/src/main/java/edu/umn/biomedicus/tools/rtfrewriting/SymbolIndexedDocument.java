@@ -16,13 +16,12 @@
 
 package edu.umn.biomedicus.tools.rtfrewriting;
 
-import edu.umn.biomedicus.rtfuima.type.ViewIndex;
-import org.apache.uima.cas.text.AnnotationIndex;
+import edu.umn.biomedicus.uima.rtf.OriginalDocumentOffsetMap;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,7 +72,13 @@ public class SymbolIndexedDocument {
      * @return The newly created symbol indexed document.
      */
     public static SymbolIndexedDocument fromView(JCas originalDocumentView) {
-        AnnotationIndex<Annotation> viewIndexAI = originalDocumentView.getAnnotationIndex(ViewIndex.type);
+        List<WrittenCharacter> writtenCharacters = new ArrayList<>();
+        for (OriginalDocumentOffsetMap offsetMap : OriginalDocumentOffsetMap.allFromView(originalDocumentView)) {
+            offsetMap.forEachCharacter((destinationName, destinationIndex, originalDocumentTextLocation) ->
+                    writtenCharacters.add(new WrittenCharacter(destinationName, destinationIndex,
+                            originalDocumentTextLocation.getBegin(), originalDocumentTextLocation.getEnd())));
+        }
+        writtenCharacters.sort(Comparator.comparingInt(writtenCharacter -> writtenCharacter.begin));
 
         List<SymbolLocation> symbolLocations = new ArrayList<>();
 
@@ -81,19 +86,16 @@ public class SymbolIndexedDocument {
 
         int index = 0;
         int lastEnd = 0;
-        for (Annotation annotation : viewIndexAI) {
-            @SuppressWarnings("unchecked")
-            ViewIndex viewIndex = (ViewIndex) annotation;
-
-            int begin = viewIndex.getBegin();
-            int end = viewIndex.getEnd();
-            String destinationName = viewIndex.getDestinationName();
+        for (WrittenCharacter writtenCharacter : writtenCharacters) {
+            int begin = writtenCharacter.begin;
+            int end = writtenCharacter.end;
+            String destinationName = writtenCharacter.destinationName;
             SymbolLocation symbolLocation = new SymbolLocation(destinationName,
                     begin - lastEnd, end - begin, index++);
 
             symbolLocations.add(symbolLocation);
 
-            int destinationIndex = viewIndex.getDestinationIndex();
+            int destinationIndex = writtenCharacter.destinationIndex;
             destinationMap.compute(destinationName, (String key, @Nullable Map<Integer, Integer> value) -> {
                 if (value == null) {
                     value = new HashMap<>();
@@ -213,4 +215,24 @@ public class SymbolIndexedDocument {
 
         return document.substring(insertionIndex - 20, insertionIndex + 20);
     }
+
+    /**
+     * A character written to a destination and the location in the original document it was read from.
+     */
+    private static final class WrittenCharacter {
+        private final String destinationName;
+
+        private final int destinationIndex;
+
+        private final int begin;
+
+        private final int end;
+
+        WrittenCharacter(String destinationName, int destinationIndex, int begin, int end) {
+            this.destinationName = destinationName;
+            this.destinationIndex = destinationIndex;
+            this.begin = begin;
+            this.end = end;
+        }
+    }
 }
@@ -31,6 +31,8 @@ import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -48,6 +50,8 @@ final class CASDocument implements Document {
     private final Feature keyFeature;
     private final Feature valueFeature;
     private final LabelAdapters labelAdapters;
+    private final Map<Class<?>, LabelAdapter<?>> labelAdapterMap = new HashMap<>();
+    private final Map<Class<?>, LabelIndex<?>> labelIndexMap = new HashMap<>();
 
     /**
      * Default constructor. Instantiates a Document class backed up by a system view {@link CAS}, and the
@@ -158,15 +162,21 @@ final class CASDocument implements Document {
         return new CASDocument(targetView, labelAdapters);
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> LabelAdapter<T> getLabelAdapter(Class<T> labelClass) {
+        return (LabelAdapter<T>) labelAdapterMap.computeIfAbsent(labelClass,
+                key -> labelAdapters.createLabelAdapter(labelClass, view));
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
     public <T> LabelIndex<T> getLabelIndex(Class<T> labelClass) {
-        LabelAdapter<T> labelAdapter = labelAdapters.getLabelAdapterFactory(labelClass).create(view);
-        return new UimaLabelIndex<>(view, labelAdapter);
+        return (LabelIndex<T>) labelIndexMap.computeIfAbsent(labelClass,
+                key -> new UimaLabelIndex<>(view, getLabelAdapter(labelClass)));
     }
 
     @Override
     public <T> Labeler<T> getLabeler(Class<T> labelClass) {
-        LabelAdapter<T> labelAdapter = labelAdapters.getLabelAdapterFactory(labelClass).create(view);
-        return new UimaLabeler<>(labelAdapter);
+        return new UimaLabeler<>(getLabelAdapter(labelClass));
     }
 }
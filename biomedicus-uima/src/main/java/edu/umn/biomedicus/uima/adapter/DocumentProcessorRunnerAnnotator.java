@@ -86,12 +86,10 @@ public final class DocumentProcessorRunnerAnnotator extends CasAnnotator_ImplBas
 
         String[] eagerLoad = (String[]) aContext.getConfigParameterValue("eagerLoad");
         if (eagerLoad != null) {
-            for (String className : eagerLoad) {
-                try {
-                    documentProcessorRunner.require(className);
-                } catch (BiomedicusException e) {
-                    throw new ResourceInitializationException(e);
-                }
+            try {
+                documentProcessorRunner.requireAll(Arrays.asList(eagerLoad), 0);
+            } catch (BiomedicusException e) {
+                throw new ResourceInitializationException(e);
             }
         }
 
@@ -119,6 +117,7 @@ public final class DocumentProcessorRunnerAnnotator extends CasAnnotator_ImplBas
             HashMap<Key<?>, Object> additionalSeeded = new HashMap<>();
             additionalSeeded.put(Key.get(CAS.class), view);
 
+            labelAdapters.resetLabelCache(view);
             CASDocument casDocument = new CASDocument(view, labelAdapters);
             documentProcessorRunner.processDocument(casDocument, additionalSeeded);
         } catch (BiomedicusException e) {
@@ -133,6 +132,9 @@ public final class DocumentProcessorRunnerAnnotator extends CasAnnotator_ImplBas
             throw new IllegalStateException("Document processor runner is null.");
         }
 
+        labelAdapters.getCacheCounters().forEach((labelClass, counter) ->
+                LOGGER.info("Label cache for {}: {}", labelClass.getSimpleName(), counter));
+
         try {
             documentProcessorRunner.processingFinished();
         } catch (BiomedicusException e) {
@@ -36,10 +36,12 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.NoSuchElementException;
 
 /**
  * A collection reader which executes a sql statement against a Database and then creates CAS documents based on the
- * ResultSet.
+ * ResultSet. Pages of results are fetched on a background thread, see {@link JdbcRowPrefetcher} for the parameters of
+ * the statement under each pagination mode.
  */
 public class JdbcCollectionReader extends CollectionReader_ImplBase {
     /**
@@ -73,7 +75,7 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
     public static final String PARAM_QUERY_FILE = "queryFile";
 
     /**
-     * The total number of results this should fetch
+     * The total number of results this should fetch, optional for keyset pagination.
      */
     public static final String PARAM_TOTAL_RESULTS = "totalResults";
 
@@ -82,6 +84,31 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
      */
     public static final String PARAM_PAGE_SIZE = "pageSize";
 
+    /**
+     * How pages are selected, either "offset" (the default) or "keyset".
+     */
+    public static final String PARAM_PAGINATION = "pagination";
+
+    /**
+     * The unique column the query is ordered by for keyset pagination.
+     */
+    public static final String PARAM_KEY_COLUMN = "keyColumn";
+
+    /**
+     * A value less than every key, the key parameter for the first page of keyset pagination.
+     */
+    public static final String PARAM_KEY_START = "keyStart";
+
+    /**
+     * The JDBC fetch size, defaults to the page size.
+     */
+    public static final String PARAM_FETCH_SIZE = "fetchSize";
+
+    /**
+     * The number of rows to fetch ahead of processing, defaults to the page size.
+     */
+    public static final String PARAM_PREFETCH_SIZE = "prefetchSize";
+
     /**
      * The current row in the results.
      */
@@ -106,16 +133,16 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
     private PreparedStatement statement;
 
     /**
-     * The result set iterator.
+     * Fetches the rows on a background thread.
      */
     @Nullable
-    private JdbcResultSetIterator jdbcResultSetIterator;
+    private JdbcRowPrefetcher jdbcRowPrefetcher;
 
     /**
-     * Iterator over pages of results.
+     * The next row, if it has been taken from the prefetcher by {@link #hasNext()}.
      */
     @Nullable
-    private JdbcPagesIterator jdbcPagesIterator;
+    private JdbcRow nextRow;
 
     /**
      * Initializes the sql parameters and performs the initial query.
@@ -133,8 +160,6 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
             throw new ResourceInitializationException(e);
         }
 
-        String analyzerVersion = getMetaData().getVersion();
-
         String databaseURL = (String) getConfigParameterValue(PARAM_JDBC_URL);
         String databaseUser = (String) getConfigParameterValue(PARAM_JDBC_USER);
         String databasePassword = (String) getConfigParameterValue(PARAM_JDBC_PASSWORD);
@@ -142,6 +167,19 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
 
         totalResults = (Integer) getConfigParameterValue(PARAM_TOTAL_RESULTS);
         Integer pageSize = (Integer) getConfigParameterValue(PARAM_PAGE_SIZE);
+        String paginationName = (String) getConfigParameterValue(PARAM_PAGINATION);
+        String keyColumn = (String) getConfigParameterValue(PARAM_KEY_COLUMN);
+        String keyStart = (String) getConfigParameterValue(PARAM_KEY_START);
+        Integer fetchSize = (Integer) getConfigParameterValue(PARAM_FETCH_SIZE);
+        Integer prefetchSize = (Integer) getConfigParameterValue(PARAM_PREFETCH_SIZE);
+
+        JdbcRowPrefetcher.Pagination pagination;
+        try {
+            pagination = paginationName == null ? JdbcRowPrefetcher.Pagination.OFFSET
+                    : JdbcRowPrefetcher.Pagination.valueOf(paginationName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResourceInitializationException(e);
+        }
 
         String databaseQuery;
         try {
@@ -157,11 +195,18 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
         try {
             conn = DriverManager.getConnection(databaseURL, databaseUser, databasePassword);
             statement = conn.prepareStatement(databaseQuery);
+            statement.setFetchSize(fetchSize == null ? pageSize : fetchSize);
         } catch (SQLException e) {
             throw new ResourceInitializationException(e);
         }
 
-        jdbcPagesIterator = new JdbcPagesIterator(pageSize, totalResults, statement, analyzerVersion);
+        try {
+            jdbcRowPrefetcher = new JdbcRowPrefetcher(statement, pagination, pageSize, totalResults, keyColumn,
+                    keyStart, prefetchSize == null ? pageSize : prefetchSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceInitializationException(e);
+        }
+        jdbcRowPrefetcher.start();
     }
 
     /**
@@ -181,11 +226,13 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
             throw new CollectionException(e);
         }
 
-        try {
-            jdbcResultSetIterator.populateNextSystemView(systemView);
-        } catch (SQLException e) {
-            throw new CollectionException(e);
+        if (!hasNext()) {
+            throw new CollectionException(new NoSuchElementException());
         }
+        assert nextRow != null;
+        nextRow.populate(systemView);
+        nextRow = null;
+        currentRow++;
     }
 
     /**
@@ -196,10 +243,10 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
     @Override
     public void close() throws IOException {
         LOGGER.info("Finished reading, closing");
+        if (jdbcRowPrefetcher != null) {
+            jdbcRowPrefetcher.close();
+        }
         try {
-            if (jdbcResultSetIterator != null) {
-                jdbcResultSetIterator.close();
-            }
             statement.close();
             conn.close();
         } catch (SQLException e) {
@@ -215,40 +262,30 @@ public class JdbcCollectionReader extends CollectionReader_ImplBase {
     @Override
     public Progress[] getProgress() {
         LOGGER.trace("Progress: {}", currentRow);
-        return new Progress[]{new ProgressImpl(currentRow, totalResults, Progress.ENTITIES, true)};
+        return new Progress[]{new ProgressImpl(currentRow, totalResults == null ? -1 : totalResults,
+                Progress.ENTITIES, true)};
     }
 
     /**
-     * Returns if there is a next element in the result set, or if it can advance to the next result set, it will return
-     * true if that has
+     * Returns if there is another row, waiting for the background thread to fetch it if necessary.
      *
      * @return true if there are more elements, false otherwise
-     * @throws CollectionException if the result set fails
+     * @throws CollectionException if the query fails
      */
     @Override
     public boolean hasNext() throws CollectionException {
-        assert jdbcPagesIterator != null;
+        assert jdbcRowPrefetcher != null;
         LOGGER.trace("getting next result");
-        while (true) {
+        if (nextRow == null) {
             try {
-                boolean hasMore = false;
-                if (jdbcResultSetIterator != null && jdbcResultSetIterator.hasNext()) {
-                    hasMore = true;
-                } else if (jdbcPagesIterator.hasNext()) {
-                    if (jdbcResultSetIterator != null) {
-                        try {
-                            jdbcResultSetIterator.close();
-                        } catch (IOException e) {
-                            throw new CollectionException(e);
-                        }
-                    }
-                    jdbcResultSetIterator = jdbcPagesIterator.next();
-                    continue;
-                }
-                return hasMore;
-            } catch (SQLException e) {
+                nextRow = jdbcRowPrefetcher.next();
+            } catch (SQLException | IllegalStateException e) {
+                throw new CollectionException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new CollectionException(e);
             }
         }
+        return nextRow != null;
     }
 }
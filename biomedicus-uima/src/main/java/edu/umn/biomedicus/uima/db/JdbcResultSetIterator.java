@@ -16,10 +16,6 @@
 
 package edu.umn.biomedicus.uima.db;
 
-import edu.umn.biomedicus.uima.type1_5.DocumentId;
-import edu.umn.biomedicus.uima.type1_5.DocumentMetadata;
-import org.apache.uima.cas.Feature;
-import org.apache.uima.cas.Type;
 import org.apache.uima.jcas.JCas;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,13 +24,10 @@ import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.text.DateFormat;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * File for iterating over the document results returned from a sql query.
@@ -100,36 +93,10 @@ public class JdbcResultSetIterator implements Closeable {
     public void populateNextSystemView(JCas systemView) throws SQLException {
         LOGGER.trace("populating a system view with cas");
         if (metaDataFeatureShortNames == null) {
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            metaDataFeatureShortNames = new HashSet<>();
-            for (int column = 1; column <= columnCount; column++) {
-                String columnName = metaData.getColumnName(column);
-                if (!"note_text".equals(columnName) && !"documentId".equals(columnName)) {
-                    metaDataFeatureShortNames.add(columnName);
-                }
-            }
-        }
-
-        String documentText = resultSet.getString("note_text");
-        if (documentText == null) {
-            documentText = "";
-        } else {
-            documentText = documentText.trim();
+            metaDataFeatureShortNames = new HashSet<>(JdbcRow.metadataColumns(resultSet.getMetaData()));
         }
-        systemView.setDocumentText(documentText);
 
-        DocumentId documentId = new DocumentId(systemView);
-        documentId.setDocumentId(resultSet.getString("documentId"));
-        documentId.addToIndexes();
-
-        for (String featureShortName : metaDataFeatureShortNames) {
-            DocumentMetadata documentMetadata = new DocumentMetadata(systemView);
-            documentMetadata.setKey(featureShortName);
-            documentMetadata.setValue(resultSet.getString(featureShortName));
-            documentMetadata.addToIndexes();
-        }
+        JdbcRow.read(resultSet, metaDataFeatureShortNames).populate(systemView);
     }
 
     /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.db;
+
+import edu.umn.biomedicus.uima.type1_5.DocumentId;
+import edu.umn.biomedicus.uima.type1_5.DocumentMetadata;
+import org.apache.uima.jcas.JCas;
+
+import javax.annotation.Nullable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A document row copied out of a sql result set, so that it can be handed to another thread after the result set has
+ * moved on.
+ *
+ * @since 1.6.0
+ */
+final class JdbcRow {
+    @Nullable
+    private final String documentId;
+
+    private final String documentText;
+
+    private final Map<String, String> metadata;
+
+    private JdbcRow(@Nullable String documentId, String documentText, Map<String, String> metadata) {
+        this.documentId = documentId;
+        this.documentText = documentText;
+        this.metadata = metadata;
+    }
+
+    /**
+     * Returns the names of the columns which are stored as document metadata, every column except for the note text
+     * and document id.
+     *
+     * @param metaData the result set metadata.
+     * @return list of column names.
+     * @throws SQLException rethrown
+     */
+    static List<String> metadataColumns(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        List<String> metadataColumns = new ArrayList<>(columnCount);
+        for (int column = 1; column <= columnCount; column++) {
+            String columnName = metaData.getColumnName(column);
+            if (!"note_text".equals(columnName) && !"documentId".equals(columnName)) {
+                metadataColumns.add(columnName);
+            }
+        }
+        return metadataColumns;
+    }
+
+    /**
+     * Copies the current row of the result set.
+     *
+     * @param resultSet the result set positioned at a row.
+     * @param metadataColumns the columns to store as document metadata.
+     * @return newly created row.
+     * @throws SQLException rethrown
+     */
+    static JdbcRow read(ResultSet resultSet, Collection<String> metadataColumns) throws SQLException {
+        String documentText = resultSet.getString("note_text");
+        if (documentText == null) {
+            documentText = "";
+        } else {
+            documentText = documentText.trim();
+        }
+
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (String metadataColumn : metadataColumns) {
+            metadata.put(metadataColumn, resultSet.getString(metadataColumn));
+        }
+        return new JdbcRow(resultSet.getString("documentId"), documentText, metadata);
+    }
+
+    /**
+     * Sets the document text of the system view and adds the document id and metadata annotations.
+     *
+     * @param systemView the system view to populate.
+     */
+    void populate(JCas systemView) {
+        systemView.setDocumentText(documentText);
+
+        DocumentId documentIdAnnotation = new DocumentId(systemView);
+        documentIdAnnotation.setDocumentId(documentId);
+        documentIdAnnotation.addToIndexes();
+
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            DocumentMetadata documentMetadata = new DocumentMetadata(systemView);
+            documentMetadata.setKey(entry.getKey());
+            documentMetadata.setValue(entry.getValue());
+            documentMetadata.addToIndexes();
+        }
+    }
+
+    @Nullable
+    String getDocumentId() {
+        return documentId;
+    }
+
+    String getDocumentText() {
+        return documentText;
+    }
+
+    Map<String, String> getMetadata() {
+        return metadata;
+    }
+}
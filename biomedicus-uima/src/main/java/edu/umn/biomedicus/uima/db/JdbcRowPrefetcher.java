@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the pages of a document query on a background thread and copies the rows into a bounded queue, so the next
+ * page is being fetched while the current one is processed.
+ * <p>
+ * With {@link Pagination#OFFSET} the statement takes the end and start row numbers of the page as its two
+ * parameters. With {@link Pagination#KEYSET} it takes a single parameter, the key of the last row read, and should
+ * select the rows with a greater key ordered by the key column, so every page is an index seek instead of a rescan.
+ *
+ * @since 1.6.0
+ */
+final class JdbcRowPrefetcher implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRowPrefetcher.class);
+
+    /**
+     * Marks the end of the rows in the queue.
+     */
+    private static final Object END = new Object();
+
+    /**
+     * How pages of results are selected.
+     */
+    enum Pagination {
+        OFFSET,
+        KEYSET
+    }
+
+    private final PreparedStatement statement;
+
+    private final Pagination pagination;
+
+    private final int pageSize;
+
+    @Nullable
+    private final Integer totalResults;
+
+    @Nullable
+    private final String keyColumn;
+
+    @Nullable
+    private final String keyStart;
+
+    private final BlockingQueue<Object> queue;
+
+    private final Thread thread;
+
+    @Nullable
+    private volatile Throwable failure;
+
+    private volatile boolean closed;
+
+    private boolean finished;
+
+    /**
+     * Creates a prefetcher, {@link #start()} must be called to begin fetching.
+     *
+     * @param statement the statement for the document query.
+     * @param pagination how pages are selected.
+     * @param pageSize the number of rows per page.
+     * @param totalResults the total number of rows to read, or null to read until a page comes back short.
+     * @param keyColumn the unique column the query is ordered by, required for keyset pagination.
+     * @param keyStart a value less than every key, required for keyset pagination.
+     * @param queueSize the maximum number of rows to hold ahead of the reader.
+     */
+    JdbcRowPrefetcher(PreparedStatement statement,
+                      Pagination pagination,
+                      int pageSize,
+                      @Nullable Integer totalResults,
+                      @Nullable String keyColumn,
+                      @Nullable String keyStart,
+                      int queueSize) {
+        if (pagination == Pagination.OFFSET && totalResults == null) {
+            throw new IllegalArgumentException("Offset pagination requires the total number of results");
+        }
+        if (pagination == Pagination.KEYSET && (keyColumn == null || keyStart == null)) {
+            throw new IllegalArgumentException("Keyset pagination requires a key column and start value");
+        }
+        this.statement = statement;
+        this.pagination = pagination;
+        this.pageSize = pageSize;
+        this.totalResults = totalResults;
+        this.keyColumn = keyColumn;
+        this.keyStart = keyStart;
+        queue = new ArrayBlockingQueue<>(queueSize);
+        thread = new Thread(this::fetchAll, "jdbc-prefetch");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts fetching rows on the background thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Waits for and returns the next row.
+     *
+     * @return the next row, or null if there are no more rows.
+     * @throws SQLException if the background thread failed to fetch the rows.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException if the background thread failed with an unchecked exception or error.
+     */
+    @Nullable
+    JdbcRow next() throws SQLException, InterruptedException {
+        if (finished) {
+            return null;
+        }
+        Object next = queue.take();
+        if (next == END) {
+            finished = true;
+            Throwable exception = failure;
+            if (exception instanceof SQLException) {
+                throw (SQLException) exception;
+            } else if (exception != null) {
+                throw new IllegalStateException("Failed to fetch rows", exception);
+            }
+            return null;
+        }
+        return (JdbcRow) next;
+    }
+
+    private void fetchAll() {
+        try {
+            int fetched = 0;
+            int page = 0;
+            Object lastKey = null;
+            List<String> metadataColumns = null;
+            while (totalResults == null || fetched < totalResults) {
+                int limit = totalResults == null ? pageSize : Math.min(pageSize, totalResults - fetched);
+                statement.clearParameters();
+                if (pagination == Pagination.OFFSET) {
+                    int start = page * pageSize;
+                    statement.setInt(1, start + limit);
+                    statement.setInt(2, start + 1);
+                } else {
+                    bindKey(lastKey);
+                    statement.setMaxRows(limit);
+                }
+                LOGGER.debug("Fetching page {} of results", page);
+
+                int rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (metadataColumns == null) {
+                        metadataColumns = JdbcRow.metadataColumns(resultSet.getMetaData());
+                    }
+                    while (rows < limit && resultSet.next()) {
+                        JdbcRow row = JdbcRow.read(resultSet, metadataColumns);
+                        if (pagination == Pagination.KEYSET) {
+                            lastKey = resultSet.getObject(keyColumn);
+                        }
+                        if (!put(row)) {
+                            return;
+                        }
+                        rows++;
+                    }
+                }
+                fetched += rows;
+                page++;
+                if (rows < limit) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed, the reader is no longer waiting
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            // always end the queue, otherwise the reader would wait forever for rows that will not come
+            try {
+                put(END);
+            } catch (InterruptedException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Binds the key parameter, the first page uses the start value, as a number if it is one.
+     */
+    private void bindKey(@Nullable Object lastKey) throws SQLException {
+        if (lastKey != null) {
+            statement.setObject(1, lastKey);
+            return;
+        }
+        assert keyStart != null;
+        long numericStart;
+        try {
+            numericStart = Long.parseLong(keyStart);
+        } catch (NumberFormatException e) {
+            statement.setString(1, keyStart);
+            return;
+        }
+        statement.setLong(1, numericStart);
+    }
+
+    /**
+     * Adds to the queue, waiting while it is full.
+     *
+     * @return false if the prefetcher was closed while waiting.
+     */
+    private boolean put(Object row) throws InterruptedException {
+        while (!closed) {
+            if (queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the background thread and waits for it to release the statement.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
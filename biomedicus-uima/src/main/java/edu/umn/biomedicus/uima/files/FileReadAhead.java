@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.files;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the contents of files ahead of when they are needed on a small pool of I/O threads. At most a fixed number of
+ * files are held in memory or being read, and files are returned in the order of the paths.
+ *
+ * @since 1.6.0
+ */
+final class FileReadAhead implements Closeable {
+    private final Iterator<Path> paths;
+
+    private final ExecutorService executorService;
+
+    private final int readAheadFiles;
+
+    private final Deque<PendingFile> pending;
+
+    /**
+     * Creates a read ahead over the paths.
+     *
+     * @param paths the paths of the files to read, iterated lazily.
+     * @param threads the number of threads to read files with.
+     * @param readAheadFiles the maximum number of files to read ahead.
+     */
+    FileReadAhead(Iterator<Path> paths, int threads, int readAheadFiles) {
+        if (threads < 1 || readAheadFiles < 1) {
+            throw new IllegalArgumentException("Threads and read ahead files must be positive");
+        }
+        this.paths = paths;
+        this.readAheadFiles = readAheadFiles;
+        AtomicInteger threadNumber = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "file-read-ahead-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pending = new ArrayDeque<>(readAheadFiles);
+    }
+
+    private void fill() {
+        while (pending.size() < readAheadFiles && paths.hasNext()) {
+            Path path = paths.next();
+            pending.addLast(new PendingFile(path, executorService.submit(() -> Files.readAllBytes(path))));
+        }
+    }
+
+    /**
+     * Returns whether there is another file.
+     *
+     * @return true if there is another file.
+     * @throws UncheckedIOException if walking the paths fails.
+     */
+    boolean hasNext() {
+        fill();
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Returns the path of the next file, without waiting for its contents.
+     *
+     * @return the path of the next file.
+     */
+    Path peekPath() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.getFirst().path;
+    }
+
+    /**
+     * Returns the contents of the next file, waiting for it to be read if it has not been yet.
+     *
+     * @return the bytes of the file.
+     * @throws IOException if reading the file failed.
+     */
+    byte[] next() throws IOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PendingFile next = pending.removeFirst();
+        fill();
+        try {
+            return next.contents.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading: " + next.path);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to read: " + next.path, cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        pending.clear();
+    }
+
+    private static final class PendingFile {
+        private final Path path;
+
+        private final Future<byte[]> contents;
+
+        PendingFile(Path path, Future<byte[]> contents) {
+            this.path = path;
+            this.contents = contents;
+        }
+    }
+}
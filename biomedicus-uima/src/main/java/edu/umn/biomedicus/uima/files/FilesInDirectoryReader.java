@@ -78,6 +78,23 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
      */
     public static final String PARAM_INPUT_FILE_ADAPTER_CLASS = "inputFileAdapterClass";
 
+    /**
+     * Name of configuration parameter for whether to count the files before reading, defaults to true. When false
+     * the files are streamed as the directory is walked, and the total in the progress is unknown.
+     */
+    public static final String PARAM_COUNT_FILES = "countFiles";
+
+    /**
+     * Name of configuration parameter for the number of threads to read files ahead with, defaults to 0 which reads
+     * every file when it is adapted.
+     */
+    public static final String PARAM_READ_AHEAD_THREADS = "readAheadThreads";
+
+    /**
+     * Name of configuration parameter for the maximum number of files to read ahead, defaults to 16.
+     */
+    public static final String PARAM_READ_AHEAD_FILES = "readAheadFiles";
+
     /**
      * Number of completed files.
      */
@@ -96,7 +113,13 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
     private Stream<Path> matchingFiles;
 
     /**
-     * The number of total files.
+     * Reads the files ahead on a thread pool, if enabled.
+     */
+    @Nullable
+    private FileReadAhead fileReadAhead;
+
+    /**
+     * The number of total files, or -1 if the files were not counted.
      */
     private int totalFiles;
 
@@ -128,13 +151,19 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
 
         String extensionGlob = (String) getConfigParameterValue(PARAM_EXTENSION_GLOB);
 
-        BiPredicate<Path, BasicFileAttributes> filePredicate = (p, bfa) -> {
-            PathMatcher matcher = inputDir.getFileSystem().getPathMatcher("glob:" + extensionGlob);
-            return matcher.matches(p);
-        };
+        PathMatcher matcher = inputDir.getFileSystem().getPathMatcher("glob:" + extensionGlob);
+        BiPredicate<Path, BasicFileAttributes> filePredicate = (p, bfa) -> matcher.matches(p);
+
+        Boolean countFiles = (Boolean) getConfigParameterValue(PARAM_COUNT_FILES);
 
         try {
-            totalFiles = (int) Files.find(inputDir, recurseDepth, filePredicate).count();
+            if (countFiles == null || countFiles) {
+                try (Stream<Path> counting = Files.find(inputDir, recurseDepth, filePredicate)) {
+                    totalFiles = (int) counting.count();
+                }
+            } else {
+                totalFiles = -1;
+            }
             matchingFiles = Files.find(inputDir, recurseDepth, filePredicate);
         } catch (IOException e) {
             throw new ResourceInitializationException(e);
@@ -142,6 +171,13 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
 
         filesIterator = matchingFiles.iterator();
 
+        Integer readAheadThreads = (Integer) getConfigParameterValue(PARAM_READ_AHEAD_THREADS);
+        if (readAheadThreads != null && readAheadThreads > 0) {
+            Integer readAheadFiles = (Integer) getConfigParameterValue(PARAM_READ_AHEAD_FILES);
+            fileReadAhead = new FileReadAhead(filesIterator, readAheadThreads,
+                    readAheadFiles == null ? 16 : readAheadFiles);
+        }
+
         completed = 0;
 
         String inputFileAdapterClassName = (String) getConfigParameterValue(PARAM_INPUT_FILE_ADAPTER_CLASS);
@@ -176,10 +212,15 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
         Objects.requireNonNull(inputFileAdapter);
         LOGGER.debug("Getting a file from the directory");
 
-        Path next = filesIterator.next();
-
-        LOGGER.info("Reading file: {}", next.getFileName());
-        inputFileAdapter.adaptFile(aCAS, next);
+        if (fileReadAhead != null) {
+            Path next = fileReadAhead.peekPath();
+            LOGGER.info("Reading file: {}", next.getFileName());
+            inputFileAdapter.adaptFile(aCAS, next, fileReadAhead.next());
+        } else {
+            Path next = filesIterator.next();
+            LOGGER.info("Reading file: {}", next.getFileName());
+            inputFileAdapter.adaptFile(aCAS, next);
+        }
         completed++;
         LOGGER.debug("Completed reading {} files", completed);
     }
@@ -204,13 +245,16 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
         Objects.requireNonNull(filesIterator);
         LOGGER.debug("Checking if there are any files remaining");
 
+        if (fileReadAhead != null) {
+            return fileReadAhead.hasNext();
+        }
         return filesIterator.hasNext();
     }
 
     /**
      * {@inheritDoc}
      *
-     * Returns an approximate progress in number of entities
+     * Returns an approximate progress in number of entities, the total is -1 if the files were not counted
      *
      * @return approximate progress
      */
@@ -228,6 +272,9 @@ public class FilesInDirectoryReader extends CollectionReader_ImplBase {
     @Override
     public void close() throws IOException {
         Objects.requireNonNull(matchingFiles);
+        if (fileReadAhead != null) {
+            fileReadAhead.close();
+        }
         matchingFiles.close();
     }
 }
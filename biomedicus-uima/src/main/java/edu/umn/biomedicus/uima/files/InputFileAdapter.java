@@ -49,6 +49,18 @@ public interface InputFileAdapter {
      */
     void adaptFile(CAS cas, Path path) throws CollectionException, IOException;
 
+    /**
+     * Adapts a file whose contents have already been read to a cas document. Adapters which can work from the bytes
+     * should override this, by default the file is read again from the path.
+     *
+     * @param cas      cas for file
+     * @param path     the path to the file
+     * @param contents the contents of the file
+     */
+    default void adaptFile(CAS cas, Path path, byte[] contents) throws CollectionException, IOException {
+        adaptFile(cas, path);
+    }
+
     /**
      * Called when a new type system is passed to the collection reader.
      *
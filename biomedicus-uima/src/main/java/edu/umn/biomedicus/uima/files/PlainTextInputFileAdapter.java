@@ -70,6 +70,11 @@ public class PlainTextInputFileAdapter implements InputFileAdapter {
 
     @Override
     public void adaptFile(CAS cas, Path path) throws CollectionException, IOException {
+        adaptFile(cas, path, Files.readAllBytes(path));
+    }
+
+    @Override
+    public void adaptFile(CAS cas, Path path, byte[] bytes) throws CollectionException, IOException {
         LOGGER.info("Reading text into a CAS view.");
         JCas defaultView;
         try {
@@ -85,7 +90,6 @@ public class PlainTextInputFileAdapter implements InputFileAdapter {
             throw new CollectionException(e);
         }
 
-        byte[] bytes = Files.readAllBytes(path);
         String documentText = new String(bytes, Objects.requireNonNull(encoding, "Encoding must not be null"));
         targetView.setDocumentText(documentText);
 
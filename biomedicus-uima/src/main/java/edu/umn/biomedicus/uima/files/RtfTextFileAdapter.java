@@ -29,7 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -68,6 +69,11 @@ public class RtfTextFileAdapter implements InputFileAdapter {
 
     @Override
     public void adaptFile(CAS cas, Path path) throws CollectionException, IOException {
+        adaptFile(cas, path, Files.readAllBytes(path));
+    }
+
+    @Override
+    public void adaptFile(CAS cas, Path path, byte[] contents) throws CollectionException, IOException {
         if (cas == null) {
             LOGGER.error("Null CAS");
             throw new IllegalArgumentException("CAS was null");
@@ -88,19 +94,19 @@ public class RtfTextFileAdapter implements InputFileAdapter {
             throw new CollectionException(e);
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        try (Reader stringReader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
-            int ch;
-            while ((ch = stringReader.read()) != -1) {
-                if (isValid(ch)) {
-                    stringBuilder.append((char) ch);
-                } else {
-                    int len = stringBuilder.length();
-                    LOGGER.warn("Illegal rtf character with code point: {} at {} in {}", ch, len, path.toString());
-                    IllegalXmlCharacter illegalXmlCharacter = new IllegalXmlCharacter(targetView, len, len);
-                    illegalXmlCharacter.setValue(ch);
-                    illegalXmlCharacter.addToIndexes();
-                }
+        // the decoder reports malformed input the same as a reader from Files.newBufferedReader would
+        CharBuffer chars = StandardCharsets.US_ASCII.newDecoder().decode(ByteBuffer.wrap(contents));
+        StringBuilder stringBuilder = new StringBuilder(chars.remaining());
+        while (chars.hasRemaining()) {
+            char ch = chars.get();
+            if (isValid(ch)) {
+                stringBuilder.append(ch);
+            } else {
+                int len = stringBuilder.length();
+                LOGGER.warn("Illegal rtf character with code point: {} at {} in {}", (int) ch, len, path.toString());
+                IllegalXmlCharacter illegalXmlCharacter = new IllegalXmlCharacter(targetView, len, len);
+                illegalXmlCharacter.setValue(ch);
+                illegalXmlCharacter.addToIndexes();
             }
         }
 
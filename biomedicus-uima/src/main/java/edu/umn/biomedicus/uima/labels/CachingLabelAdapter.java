@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.labels;
+
+import edu.umn.biomedicus.common.labels.Label;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.impl.LowLevelCAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.cas.text.AnnotationIndex;
+
+import java.util.Map;
+
+/**
+ * A label adapter which remembers the labels it has decoded from annotations by their feature structure address, so
+ * that iterating an index of the same type more than once in a document only decodes each annotation once. The labels
+ * are kept in a {@link CasLabelCache}, so they are shared with the other adapters of the type on the same view. They
+ * are cleared whenever a label of the type is added, and whenever the annotation index of the type changes size.
+ *
+ * @param <T> the type of label
+ * @since 1.6.0
+ */
+final class CachingLabelAdapter<T> implements LabelAdapter<T> {
+    private final LabelAdapter<T> labelAdapter;
+    private final LowLevelCAS lowLevelCAS;
+    private final LabelCacheCounter counter;
+    private final CasLabelCache.ClassLabels<T> labels;
+    private final AnnotationIndex<AnnotationFS> annotationIndex;
+
+    CachingLabelAdapter(LabelAdapter<T> labelAdapter, CAS cas, CasLabelCache.ClassLabels<T> labels,
+                        LabelCacheCounter counter) {
+        this.labelAdapter = labelAdapter;
+        this.lowLevelCAS = cas.getLowLevelCAS();
+        this.annotationIndex = cas.getAnnotationIndex(labelAdapter.getType());
+        this.labels = labels;
+        this.counter = counter;
+    }
+
+    @Override
+    public Type getType() {
+        return labelAdapter.getType();
+    }
+
+    @Override
+    public AnnotationFS labelToAnnotation(Label<T> label) {
+        labels.clear();
+        return labelAdapter.labelToAnnotation(label);
+    }
+
+    @Override
+    public Label<T> annotationToLabel(AnnotationFS annotationFS) {
+        Map<Integer, Label<T>> labels = this.labels.validFor(annotationIndex.size());
+        int address = lowLevelCAS.ll_getFSRef(annotationFS);
+        Label<T> label = labels.get(address);
+        if (label == null) {
+            counter.miss();
+            label = labelAdapter.annotationToLabel(annotationFS);
+            labels.put(address, label);
+        } else {
+            counter.hit();
+        }
+        return label;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.labels;
+
+import edu.umn.biomedicus.common.labels.Label;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The labels decoded from the annotations of one CAS view, by label class and then by feature structure address. It
+ * is shared by every label adapter created on the view until it is {@link #clear() cleared}, so the processors run on
+ * a document reuse the labels decoded by each other.
+ * <p>
+ * The labels of a class are only valid while the annotation index of its type keeps the size it had when they were
+ * decoded, so annotations added to or removed from the CAS directly are noticed. Feature structure addresses are
+ * reused once the CAS is reset, so the cache has to be cleared at every document boundary.
+ *
+ * @since 1.6.0
+ */
+final class CasLabelCache {
+    private final Map<Class<?>, ClassLabels<?>> labels = new HashMap<>();
+
+    /**
+     * Returns the decoded labels of a class on the view.
+     *
+     * @param tClass the label class
+     * @param <T>    the type of label
+     * @return the labels of the class
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> ClassLabels<T> labels(Class<T> tClass) {
+        return (ClassLabels<T>) labels.computeIfAbsent(tClass, key -> new ClassLabels<>());
+    }
+
+    /**
+     * Forgets every decoded label, for when the view gets a new document.
+     */
+    synchronized void clear() {
+        labels.values().forEach(ClassLabels::clear);
+    }
+
+    /**
+     * The decoded labels of one class, along with the size of the annotation index they were decoded from.
+     *
+     * @param <T> the type of label
+     */
+    static final class ClassLabels<T> {
+        private final Map<Integer, Label<T>> labels = new HashMap<>();
+
+        private int indexSize = -1;
+
+        /**
+         * Returns the labels if the annotation index still has the size they were decoded at, otherwise clears them
+         * first.
+         *
+         * @param indexSize the current size of the annotation index of the label type
+         * @return mutable map from feature structure address to label
+         */
+        synchronized Map<Integer, Label<T>> validFor(int indexSize) {
+            if (indexSize != this.indexSize) {
+                labels.clear();
+                this.indexSize = indexSize;
+            }
+            return labels;
+        }
+
+        synchronized void clear() {
+            labels.clear();
+            indexSize = -1;
+        }
+    }
+}
@@ -16,14 +16,33 @@
 
 package edu.umn.biomedicus.uima.labels;
 
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import edu.umn.biomedicus.annotations.Setting;
+import org.apache.uima.cas.CAS;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public class LabelAdapters {
     private final Map<Class<?>, LabelAdapterFactory<?>> factoryMap = new HashMap<>();
+    private final Map<Class<?>, LabelCacheCounter> cacheCounters = new ConcurrentHashMap<>();
+    private final Map<CAS, CasLabelCache> casLabelCaches = new WeakHashMap<>();
+    private boolean cacheLabels = false;
+
+    /**
+     * Enables or disables caching decoded labels. Caching is disabled if the setting is not configured.
+     *
+     * @param cacheLabels whether to cache labels
+     */
+    @Inject(optional = true)
+    void setCacheLabels(@Setting("uima.labelCache.enabled") Boolean cacheLabels) {
+        this.cacheLabels = cacheLabels;
+    }
 
     public void addLabelAdapter(Class tClass, LabelAdapterFactory labelAdapterFactory) {
         factoryMap.put(tClass, labelAdapterFactory);
@@ -38,4 +57,52 @@ public class LabelAdapters {
 
         return labelAdapterFactory;
     }
+
+    /**
+     * Creates a label adapter for the class on a CAS. If label caching is enabled the adapter shares the labels it
+     * decodes with every other adapter of the class on the same view, until the view's cache is
+     * {@link #resetLabelCache(CAS) reset}.
+     *
+     * @param tClass the label class
+     * @param cas    the CAS view to adapt
+     * @param <T>    the type of label
+     * @return a new label adapter
+     */
+    public <T> LabelAdapter<T> createLabelAdapter(Class<T> tClass, CAS cas) {
+        LabelAdapter<T> labelAdapter = getLabelAdapterFactory(tClass).create(cas);
+        if (cacheLabels) {
+            LabelCacheCounter counter = cacheCounters.computeIfAbsent(tClass, key -> new LabelCacheCounter());
+            CasLabelCache casLabelCache;
+            synchronized (casLabelCaches) {
+                casLabelCache = casLabelCaches.computeIfAbsent(cas, key -> new CasLabelCache());
+            }
+            return new CachingLabelAdapter<>(labelAdapter, cas, casLabelCache.labels(tClass), counter);
+        }
+        return labelAdapter;
+    }
+
+    /**
+     * Forgets the labels cached for a CAS view. Has to be called whenever the view may hold a new document, since
+     * feature structure addresses are reused after a CAS is reset.
+     *
+     * @param cas the CAS view
+     */
+    public void resetLabelCache(CAS cas) {
+        CasLabelCache casLabelCache;
+        synchronized (casLabelCaches) {
+            casLabelCache = casLabelCaches.get(cas);
+        }
+        if (casLabelCache != null) {
+            casLabelCache.clear();
+        }
+    }
+
+    /**
+     * Returns the hit and miss counters of the label caches by label class. Empty if label caching is not enabled.
+     *
+     * @return unmodifiable map from label class to counter
+     */
+    public Map<Class<?>, LabelCacheCounter> getCacheCounters() {
+        return Collections.unmodifiableMap(cacheCounters);
+    }
 }
@@ -17,50 +17,98 @@
 package edu.umn.biomedicus.uima.labels;
 
 import com.google.inject.Inject;
+import edu.umn.biomedicus.common.collect.ImmutableSpanMap;
 import edu.umn.biomedicus.common.labels.AbstractLabelIndex;
 import edu.umn.biomedicus.common.labels.Label;
 import edu.umn.biomedicus.common.labels.LabelIndex;
 import edu.umn.biomedicus.common.types.text.TextLocation;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.cas.text.AnnotationIndex;
 
+import javax.annotation.Nullable;
 import java.util.Iterator;
+import java.util.Optional;
 
+/**
+ * A label index over the annotations of one type in a CAS view. Alongside the UIMA annotation index it keeps a span
+ * index from the begin and end of every annotation to the annotation, built the first time a span query is made, so
+ * that {@link #insideSpan(TextLocation)}, {@link #containing(TextLocation)} and {@link #matching(TextLocation)} only
+ * read from the CAS and never create bounding annotations in it.
+ *
+ * @param <T> the type of label
+ */
 public final class UimaLabelIndex<T> extends AbstractLabelIndex<T> {
     private final CAS cas;
     private final LabelAdapter<T> labelAdapter;
     private final Iterable<Label<T>> iterable;
-    private Type annotationType;
-    private Type type;
+    private final Type type;
+    private final boolean isView;
+    @Nullable private ImmutableSpanMap<AnnotationFS> spanIndex;
+    private int spanIndexVersion;
 
-    private UimaLabelIndex(CAS cas, LabelAdapter<T> labelAdapter, Iterable<Label<T>> iterable) {
+    private UimaLabelIndex(CAS cas, LabelAdapter<T> labelAdapter, ImmutableSpanMap<AnnotationFS> spanIndex) {
         this.cas = cas;
         this.labelAdapter = labelAdapter;
-        this.iterable = iterable;
+        this.spanIndex = spanIndex;
         type = labelAdapter.getType();
-        annotationType = cas.getTypeSystem().getType("uima.tcas.Annotation");
+        isView = true;
+        iterable = () -> spanIndex.ascendingStartDecreasingSizeValuesStream()
+                .map(labelAdapter::annotationToLabel)
+                .iterator();
     }
 
     @Inject
     public UimaLabelIndex(CAS cas, LabelAdapter<T> labelAdapter) {
         this.cas = cas;
         this.labelAdapter = labelAdapter;
-        annotationType = cas.getTypeSystem().getType("uima.tcas.Annotation");
         type = labelAdapter.getType();
+        isView = false;
         AnnotationIndex<AnnotationFS> annotationIndex = cas.getAnnotationIndex(type);
         iterable = () -> new FSIteratorAdapter<>(annotationIndex, labelAdapter::annotationToLabel);
     }
 
+    private ImmutableSpanMap<AnnotationFS> spanIndex() {
+        ImmutableSpanMap<AnnotationFS> spanIndex = this.spanIndex;
+        if (isView && spanIndex != null) {
+            return spanIndex;
+        }
+        int version = version();
+        if (spanIndex == null || spanIndexVersion != version) {
+            // annotations can share a span, every one of them is kept
+            ImmutableSpanMap.Builder<AnnotationFS> builder = ImmutableSpanMap.multiBuilder();
+            FSIterator<AnnotationFS> iterator = cas.getAnnotationIndex(type).iterator();
+            while (iterator.hasNext()) {
+                AnnotationFS annotationFS = iterator.next();
+                builder.put(annotationFS.getBegin(), annotationFS.getEnd(), annotationFS);
+            }
+            spanIndex = builder.build();
+            this.spanIndex = spanIndex;
+            spanIndexVersion = version;
+        }
+        return spanIndex;
+    }
+
     @Override
     public LabelIndex<T> insideSpan(TextLocation textLocation) {
-        AnnotationIndex<AnnotationFS> annotationIndex = cas.getAnnotationIndex(type);
-        AnnotationFS bound = cas.createAnnotation(annotationType, textLocation.getBegin() - 1,
-                textLocation.getEnd() + 1);
-        Iterable<Label<T>> iterable = () -> FSIteratorAdapter.coveredIteratorAdapter(annotationIndex, bound,
-                labelAdapter::annotationToLabel);
-        return new UimaLabelIndex<>(cas, labelAdapter, iterable).filter(textLocation::contains);
+        return new UimaLabelIndex<>(cas, labelAdapter, spanIndex().insideSpan(textLocation));
+    }
+
+    @Override
+    public LabelIndex<T> containing(TextLocation textLocation) {
+        return new UimaLabelIndex<>(cas, labelAdapter, spanIndex().containing(textLocation));
+    }
+
+    @Override
+    public Optional<Label<T>> matching(TextLocation textLocation) {
+        return Optional.ofNullable(spanIndex().get(textLocation)).map(labelAdapter::annotationToLabel);
+    }
+
+    @Override
+    protected int version() {
+        return cas.getAnnotationIndex(type).size();
     }
 
     @Override
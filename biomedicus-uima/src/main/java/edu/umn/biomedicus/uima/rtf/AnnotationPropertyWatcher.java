@@ -16,9 +16,10 @@
 
 package edu.umn.biomedicus.uima.rtf;
 
-import edu.umn.biomedicus.rtf.reader.State;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.apache.uima.jcas.JCas;
 
 import javax.annotation.Nullable;
 
@@ -37,54 +38,64 @@ class AnnotationPropertyWatcher {
     private final PropertyCasMapping propertyCasMapping;
 
     /**
-     * The begin of the currently active annotation.
+     * The type of annotation to create.
+     */
+    private final Type type;
+
+    /**
+     * The feature to store the property value in, or null if it is not stored.
      */
     @Nullable
-    private Integer begin = null;
+    private final Feature valueFeature;
+
+    /**
+     * The begin of the currently active annotation, or -1 if there is no active annotation.
+     */
+    private int begin = -1;
 
     /**
      * The value of the currently active annotation.
      */
-    @Nullable
-    private Integer value = null;
+    private int value;
 
     /**
      * Creates an annotation property watcher from the cas mapping.
      *
      * @param propertyCasMapping property cas mapping.
+     * @param type the resolved annotation type of the mapping.
+     * @param valueFeature the resolved value feature of the mapping.
      */
-    AnnotationPropertyWatcher(PropertyCasMapping propertyCasMapping) {
+    AnnotationPropertyWatcher(PropertyCasMapping propertyCasMapping, Type type, @Nullable Feature valueFeature) {
         this.propertyCasMapping = propertyCasMapping;
+        this.type = type;
+        this.valueFeature = valueFeature;
     }
 
     /**
-     * Handles changes to the properties in the state.
+     * Handles a change to the watched property. The destination only calls this when the value differs from the one
+     * previously passed, since nothing can start or finish otherwise.
      *
      * @param index the current index of the character output in the destination view.
-     * @param state the current state of the rtf document.
-     * @param jCas the destination view.
+     * @param propertyValue the new value of the watched property.
+     * @param cas the destination view.
+     * @return the finished annotation or null if no annotation was finished.
      */
     @Nullable
-    AnnotationFS handleChanges(int index, State state, JCas jCas) {
+    AnnotationFS handleChange(int index, int propertyValue, CAS cas) {
         if (index < 0) {
             throw new IllegalArgumentException("Index less than 0");
         }
 
-        if (begin != null && index < begin) {
+        if (begin != -1 && index < begin) {
             throw new IllegalStateException("Index before the beginning of the currently tracked annotation.");
         }
 
-        int propertyValue = propertyCasMapping.getPropertyValue(state);
-
         AnnotationFS finished = null;
-        if (begin != null) {
-            if (value != null && value != propertyValue) {
-                finished = propertyCasMapping.getAnnotation(jCas, begin, index, value);
-                begin = null;
-                value = null;
-            }
+        if (begin != -1 && value != propertyValue) {
+            finished = propertyCasMapping.getAnnotation(cas, type, valueFeature, begin, index, value);
+            begin = -1;
         }
-        if (begin == null && propertyCasMapping.test(propertyValue)) {
+        if (begin == -1 && propertyCasMapping.test(propertyValue)) {
             begin = index;
             value = propertyValue;
         }
@@ -20,6 +20,7 @@ import edu.umn.biomedicus.rtf.reader.KeywordAction;
 import edu.umn.biomedicus.rtf.reader.OutputDestination;
 import edu.umn.biomedicus.rtf.reader.State;
 import edu.umn.biomedicus.type.IllegalXmlCharacter;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -27,12 +28,14 @@ import org.apache.uima.jcas.JCas;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Responsible for writing rtf data to a CAS view.
+ * <p>
+ * Property watchers only run when the properties version of the state differs from the last character written, and
+ * then only the watchers of properties whose values differ, so writing a character costs the same regardless of the
+ * number of property cas mappings.
  *
  * @author Ben Knoll
  * @since 1.3.0
@@ -43,6 +46,11 @@ class CasOutputDestination implements OutputDestination {
      */
     private final JCas destinationView;
 
+    /**
+     * The CAS of the view to write to.
+     */
+    private final CAS destinationCas;
+
     /**
      * The builder for the document.
      */
@@ -54,51 +62,79 @@ class CasOutputDestination implements OutputDestination {
     private final Collection<AnnotationFS> completedAnnotations;
 
     /**
-     * The annotation property watchers, which are responsible for watching property changes and creating annotations.
+     * The id of the property which hides characters.
+     */
+    private final int hiddenPropertyId;
+
+    /**
+     * The ids of the properties watched by the annotation property watchers.
+     */
+    private final int[] watchedPropertyIds;
+
+    /**
+     * The values of the watched properties when they were last checked.
+     */
+    private final int[] watchedPropertyValues;
+
+    /**
+     * The annotation property watchers for each watched property, which are responsible for watching property changes
+     * and creating annotations.
      */
-    private final Collection<AnnotationPropertyWatcher> annotationPropertyWatchers;
+    private final AnnotationPropertyWatcher[][] annotationPropertyWatchers;
 
     /**
      * The annotation type to create for control words.
      */
-    private final Map<String, Type> annotationTypeForControlWord;
+    private final Map<String, ControlWordType> annotationTypeForControlWord;
 
     /**
      * The name of the output destination.
      */
     private final String name;
 
+    /**
+     * Whether the watchers have seen the properties yet.
+     */
+    private boolean watching;
+
+    /**
+     * The version of the properties when they were last checked.
+     */
+    private long propertiesVersion;
+
     /**
      * Default constructor, initializes all fields.
      *
      * @param destinationView              The view to write to.
-     * @param casMappings                  The property cas mappings
+     * @param propertyMappings             The property cas mappings, resolved against the property table.
      * @param annotationTypeForControlWord The annotation type to create for control words.
      */
     CasOutputDestination(JCas destinationView,
-                         List<PropertyCasMapping> casMappings,
-                         Map<String, Type> annotationTypeForControlWord,
+                         CompiledPropertyMappings propertyMappings,
+                         Map<String, ControlWordType> annotationTypeForControlWord,
                          String name) {
         this.destinationView = destinationView;
+        destinationCas = destinationView.getCas();
         this.sofaBuilder = new StringBuilder();
         this.completedAnnotations = new ArrayList<>();
-        this.annotationPropertyWatchers = casMappings.stream()
-                .map(AnnotationPropertyWatcher::new)
-                .collect(Collectors.toList());
+        hiddenPropertyId = propertyMappings.getHiddenPropertyId();
+        watchedPropertyIds = propertyMappings.getWatchedPropertyIds();
+        watchedPropertyValues = new int[watchedPropertyIds.length];
+        annotationPropertyWatchers = propertyMappings.createWatchers();
         this.annotationTypeForControlWord = annotationTypeForControlWord;
         this.name = name;
     }
 
     @Override
     public int writeChar(char ch, State state) {
-        for (AnnotationPropertyWatcher propertyWatcher : annotationPropertyWatchers) {
-            AnnotationFS newAnnotation = propertyWatcher.handleChanges(sofaBuilder.length(), state, destinationView);
-            if (newAnnotation != null) {
-                completedAnnotations.add(newAnnotation);
-            }
+        long version = state.getPropertiesVersion();
+        if (!watching || version != propertiesVersion) {
+            checkWatchedProperties(state);
+            propertiesVersion = version;
+            watching = true;
         }
 
-        if (state.getPropertyValue("CharacterFormatting", "Hidden") == 0) {
+        if (state.getPropertyValue(hiddenPropertyId) == 0) {
             if (!isValidXml(ch)) {
                 // add zero-width space and annotate it as an illegal xml character.
                 sofaBuilder.append((char) 0x200B);
@@ -115,6 +151,28 @@ class CasOutputDestination implements OutputDestination {
         }
     }
 
+    /**
+     * Notifies the watchers of every watched property whose value differs from when it was last checked.
+     *
+     * @param state the current state.
+     */
+    private void checkWatchedProperties(State state) {
+        int index = sofaBuilder.length();
+        for (int i = 0; i < watchedPropertyIds.length; i++) {
+            int value = state.getPropertyValue(watchedPropertyIds[i]);
+            if (watching && value == watchedPropertyValues[i]) {
+                continue;
+            }
+            watchedPropertyValues[i] = value;
+            for (AnnotationPropertyWatcher propertyWatcher : annotationPropertyWatchers[i]) {
+                AnnotationFS newAnnotation = propertyWatcher.handleChange(index, value, destinationCas);
+                if (newAnnotation != null) {
+                    completedAnnotations.add(newAnnotation);
+                }
+            }
+        }
+    }
+
     private boolean isValidXml(char ch) {
         return (ch >= 0x0020 && ch <= 0xd7ff) || ch == 0x0009 || ch == 0x000a || ch == 0x000d || (ch >= 0xe000 && ch <= 0xfffd);
     }
@@ -127,25 +185,18 @@ class CasOutputDestination implements OutputDestination {
 
     @Override
     public void controlWordEncountered(KeywordAction keywordAction) {
-        AnnotationFS annotation;
-        int currentTextIndex = sofaBuilder.length();
-        String controlWord = keywordAction.getControlWord();
-
-        Type type;
-        if (annotationTypeForControlWord.containsKey(controlWord)) {
-            type = annotationTypeForControlWord.get(controlWord);
-        } else {
+        ControlWordType controlWordType = annotationTypeForControlWord.get(keywordAction.getControlWord());
+        if (controlWordType == null) {
             return;
         }
-        annotation = destinationView.getCas().createAnnotation(type, currentTextIndex, currentTextIndex);
-        Feature paramFeature = type.getFeatureByBaseName("param");
+        int currentTextIndex = sofaBuilder.length();
+        AnnotationFS annotation = destinationCas.createAnnotation(controlWordType.type, currentTextIndex,
+                currentTextIndex);
         if (keywordAction.hasParameter()) {
-            annotation.setIntValue(paramFeature, keywordAction.getParameter());
+            annotation.setIntValue(controlWordType.paramFeature, keywordAction.getParameter());
         }
-        Feature indexFeature = type.getFeatureByBaseName("index");
-        annotation.setIntValue(indexFeature, keywordAction.getBegin());
-        Feature knownFeature = type.getFeatureByBaseName("known");
-        annotation.setBooleanValue(knownFeature, true);
+        annotation.setIntValue(controlWordType.indexFeature, keywordAction.getBegin());
+        annotation.setBooleanValue(controlWordType.knownFeature, true);
 
         destinationView.addFsToIndexes(annotation);
     }
@@ -154,4 +205,24 @@ class CasOutputDestination implements OutputDestination {
     public String getName() {
         return name;
     }
+
+    /**
+     * An annotation type for control words with its features resolved.
+     */
+    static final class ControlWordType {
+        private final Type type;
+
+        private final Feature paramFeature;
+
+        private final Feature indexFeature;
+
+        private final Feature knownFeature;
+
+        ControlWordType(Type type) {
+            this.type = type;
+            paramFeature = type.getFeatureByBaseName("param");
+            indexFeature = type.getFeatureByBaseName("index");
+            knownFeature = type.getFeatureByBaseName("known");
+        }
+    }
 }
@@ -19,10 +19,12 @@ package edu.umn.biomedicus.uima.rtf;
 import edu.umn.biomedicus.rtf.exc.RtfReaderException;
 import edu.umn.biomedicus.rtf.reader.OutputDestination;
 import edu.umn.biomedicus.rtf.reader.OutputDestinationFactory;
+import edu.umn.biomedicus.rtf.reader.PropertyTable;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.Type;
 import org.apache.uima.jcas.JCas;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,14 +41,14 @@ class CasOutputDestinationFactory implements OutputDestinationFactory {
     private final List<DestinationCasMapping> destinationCasMappings;
 
     /**
-     * List of annotation type for control word symbols.
+     * Annotation type for control word symbols.
      */
-    private final Map<String, Type> annotationTypeForSymbolName;
+    private final Map<String, CasOutputDestination.ControlWordType> annotationTypeForSymbolName;
 
     /**
-     * The list of annotation property watchers.
+     * The property cas mappings, resolved against the property table and type system.
      */
-    private final List<PropertyCasMapping> propertyCasMappings;
+    private final CompiledPropertyMappings propertyMappings;
 
     /**
      * The parent view to create new views in.
@@ -59,15 +61,19 @@ class CasOutputDestinationFactory implements OutputDestinationFactory {
      * @param destinationCasMappings      the cas mappings to find the destination in.
      * @param annotationTypeForSymbolName the annotation type for control word symbols.
      * @param propertyCasMappings         the property watchers which create annotations for those properties.
+     * @param propertyTable               the ids of the rtf state properties.
      * @param jCas                        the parent view to create new views in.
      */
     CasOutputDestinationFactory(List<DestinationCasMapping> destinationCasMappings,
                                 Map<String, Type> annotationTypeForSymbolName,
                                 List<PropertyCasMapping> propertyCasMappings,
+                                PropertyTable propertyTable,
                                 JCas jCas) {
         this.destinationCasMappings = destinationCasMappings;
-        this.annotationTypeForSymbolName = annotationTypeForSymbolName;
-        this.propertyCasMappings = propertyCasMappings;
+        this.annotationTypeForSymbolName = new HashMap<>();
+        annotationTypeForSymbolName.forEach((symbol, type) ->
+                this.annotationTypeForSymbolName.put(symbol, new CasOutputDestination.ControlWordType(type)));
+        propertyMappings = new CompiledPropertyMappings(propertyCasMappings, propertyTable, jCas.getTypeSystem());
         this.jCas = jCas;
     }
 
@@ -89,7 +95,7 @@ class CasOutputDestinationFactory implements OutputDestinationFactory {
         } catch (CASException e) {
             throw new RtfReaderException(e);
         }
-        return new CasOutputDestination(newView, propertyCasMappings, annotationTypeForSymbolName,
+        return new CasOutputDestination(newView, propertyMappings, annotationTypeForSymbolName,
                 destinationName);
     }
 }
@@ -38,9 +38,9 @@ import java.util.stream.Collectors;
  */
 class CasRtfParser {
     /**
-     * The initial properties to set a state to.
+     * The ids and initial values of the properties to set a state to.
      */
-    private final Map<String, Map<String, Integer>> initialProperties;
+    private final PropertyTable propertyTable;
 
     /**
      * The keyword actions for specific keywords.
@@ -52,18 +52,27 @@ class CasRtfParser {
      */
     private final CasMappings casMappings;
 
+    /**
+     * Whether to create a {@link edu.umn.biomedicus.rtfuima.type.ViewIndex} annotation for every character instead of
+     * run length encoded {@link edu.umn.biomedicus.rtfuima.type.OriginalDocumentOffsets}.
+     */
+    private final boolean perCharacterViewIndexes;
+
     /**
      * Creates a CAS rtf parser with the given properties.
      *  @param initialProperties The initial properties to set a state to.
      * @param rtfKeywordParser The keyword actions for specific keywords.
      * @param casMappings The mappings from destination name to output destinations.
+     * @param perCharacterViewIndexes Whether to create an annotation for the original location of every character.
      */
     CasRtfParser(Map<String, Map<String, Integer>> initialProperties,
                  RtfKeywordParser rtfKeywordParser,
-                 CasMappings casMappings) {
-        this.initialProperties = initialProperties;
+                 CasMappings casMappings,
+                 boolean perCharacterViewIndexes) {
+        propertyTable = new PropertyTable(initialProperties);
         this.rtfKeywordParser = rtfKeywordParser;
         this.casMappings = casMappings;
+        this.perCharacterViewIndexes = perCharacterViewIndexes;
     }
 
     /**
@@ -72,11 +81,13 @@ class CasRtfParser {
      * @param propertiesDescriptionClasspathRef The classpath reference to the properties descriptor file.
      * @param controlKeywordsDescriptionClasspathRef The classpath reference to the control keywords descriptor file.
      * @param casMappingsDescriptionClassPathRef the classpath reference to the cas mappings descriptor file.
+     * @param perCharacterViewIndexes whether to create an annotation for the original location of every character.
      * @return newly created rtf parser.
      */
     static CasRtfParser createByLoading(String propertiesDescriptionClasspathRef,
                                         String controlKeywordsDescriptionClasspathRef,
-                                        String casMappingsDescriptionClassPathRef) {
+                                        String casMappingsDescriptionClassPathRef,
+                                        boolean perCharacterViewIndexes) {
         PropertiesDescription propertiesDescription
                 = PropertiesDescription.loadFromFile(propertiesDescriptionClasspathRef);
 
@@ -91,7 +102,7 @@ class CasRtfParser {
 
         RtfKeywordParser rtfKeywordParser = new RtfKeywordParser(keywordActionMap);
 
-        return new CasRtfParser(properties, rtfKeywordParser, casMappings);
+        return new CasRtfParser(properties, rtfKeywordParser, casMappings, perCharacterViewIndexes);
     }
 
     /**
@@ -111,7 +122,7 @@ class CasRtfParser {
                         p -> jCas.getTypeSystem().getType(p.getAnnotationName())));
 
         OutputDestinationFactory outputDestinationFactory = new CasOutputDestinationFactory(destinationCasMappings,
-                annotationTypeForSymbolName, casMappings.getPropertyCasMappings(), jCas);
+                annotationTypeForSymbolName, casMappings.getPropertyCasMappings(), propertyTable, jCas);
 
         JCas originalDocumentView;
         try {
@@ -119,10 +130,21 @@ class CasRtfParser {
         } catch (CASException e) {
             throw new RtfReaderException(e);
         }
-        IndexListener indexListener = new CasIndexListener(originalDocumentView);
+        RunLengthIndexListener runLengthIndexListener = null;
+        IndexListener indexListener;
+        if (perCharacterViewIndexes) {
+            indexListener = new CasIndexListener(originalDocumentView);
+        } else {
+            runLengthIndexListener = new RunLengthIndexListener(originalDocumentView);
+            indexListener = runLengthIndexListener;
+        }
 
-        State initialState = State.createState(outputDestinationFactory, initialProperties, indexListener);
+        State initialState = State.createState(outputDestinationFactory, propertyTable, indexListener);
         RtfReader rtfReader = new RtfReader(rtfKeywordParser, rtfSource, initialState);
         rtfReader.parseFile();
+
+        if (runLengthIndexListener != null) {
+            runLengthIndexListener.finish();
+        }
     }
 }
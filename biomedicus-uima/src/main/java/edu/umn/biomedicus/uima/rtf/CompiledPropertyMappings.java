@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.rtf;
+
+import edu.umn.biomedicus.rtf.reader.PropertyTable;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The property cas mappings resolved against a property table and a type system, so that output destinations can
+ * look up properties by id and create annotations without any name lookups.
+ *
+ * @since 1.6.0
+ */
+final class CompiledPropertyMappings {
+    /**
+     * The property which hides characters from the output.
+     */
+    private final int hiddenPropertyId;
+
+    /**
+     * The distinct ids of the properties that are watched by at least one mapping.
+     */
+    private final int[] watchedPropertyIds;
+
+    /**
+     * For every watched property, the indices of the mappings which watch it.
+     */
+    private final int[][] mappingsForWatchedProperty;
+
+    private final PropertyCasMapping[] mappings;
+
+    private final Type[] types;
+
+    private final Feature[] valueFeatures;
+
+    /**
+     * Resolves the property cas mappings.
+     *
+     * @param propertyCasMappings the mappings to resolve.
+     * @param propertyTable the table of property ids.
+     * @param typeSystem the type system to resolve annotation types in.
+     */
+    CompiledPropertyMappings(List<PropertyCasMapping> propertyCasMappings,
+                             PropertyTable propertyTable,
+                             TypeSystem typeSystem) {
+        hiddenPropertyId = propertyTable.getId("CharacterFormatting", "Hidden");
+
+        int size = propertyCasMappings.size();
+        mappings = propertyCasMappings.toArray(new PropertyCasMapping[size]);
+        types = new Type[size];
+        valueFeatures = new Feature[size];
+
+        List<Integer> watchedIds = new ArrayList<>();
+        List<List<Integer>> watchers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            PropertyCasMapping mapping = mappings[i];
+            types[i] = typeSystem.getType(mapping.getAnnotationClassName());
+            valueFeatures[i] = mapping.getValueFeature(types[i]);
+
+            int propertyId = propertyTable.getId(mapping.getPropertyGroup(), mapping.getPropertyName());
+            int watchedIndex = watchedIds.indexOf(propertyId);
+            if (watchedIndex == -1) {
+                watchedIndex = watchedIds.size();
+                watchedIds.add(propertyId);
+                watchers.add(new ArrayList<>());
+            }
+            watchers.get(watchedIndex).add(i);
+        }
+
+        watchedPropertyIds = watchedIds.stream().mapToInt(Integer::intValue).toArray();
+        mappingsForWatchedProperty = watchers.stream()
+                .map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    int getHiddenPropertyId() {
+        return hiddenPropertyId;
+    }
+
+    int[] getWatchedPropertyIds() {
+        return watchedPropertyIds;
+    }
+
+    /**
+     * Creates a new set of watchers, with no active annotations, grouped by the watched property.
+     *
+     * @return array of the watchers for each index in {@link #getWatchedPropertyIds()}.
+     */
+    AnnotationPropertyWatcher[][] createWatchers() {
+        AnnotationPropertyWatcher[][] watchers = new AnnotationPropertyWatcher[watchedPropertyIds.length][];
+        for (int i = 0; i < watchedPropertyIds.length; i++) {
+            int[] mappingIndices = mappingsForWatchedProperty[i];
+            watchers[i] = new AnnotationPropertyWatcher[mappingIndices.length];
+            for (int j = 0; j < mappingIndices.length; j++) {
+                int mapping = mappingIndices[j];
+                watchers[i][j] = new AnnotationPropertyWatcher(mappings[mapping], types[mapping],
+                        valueFeatures[mapping]);
+            }
+        }
+        return watchers;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.rtf;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import edu.umn.biomedicus.common.types.text.TextLocation;
+import edu.umn.biomedicus.rtf.reader.IndexListener;
+import edu.umn.biomedicus.rtfuima.type.OriginalDocumentOffsets;
+import edu.umn.biomedicus.rtfuima.type.ViewIndex;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.IntegerArray;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the indexes of characters in an rtf destination back to their locations in the original rtf document.
+ * <p>
+ * Characters are stored as runs, where each run is a sequence of characters at consecutive destination indexes whose
+ * locations in the original document are adjacent and of the same width. Plain text in an rtf document is one run
+ * per stretch between control words. Maps are read from the {@link OriginalDocumentOffsets} written by the rtf
+ * parser, or built from the {@link ViewIndex} annotations when the parser was run in per-character mode.
+ *
+ * @since 1.6.0
+ */
+public final class OriginalDocumentOffsetMap {
+    private static final int RUN_INTS = 4;
+
+    private final String destinationName;
+
+    /**
+     * Groups of destination begin, original begin, width, and count.
+     */
+    private final int[] runs;
+
+    private final int runCount;
+
+    private OriginalDocumentOffsetMap(String destinationName, int[] runs, int runCount) {
+        this.destinationName = destinationName;
+        this.runs = runs;
+        this.runCount = runCount;
+    }
+
+    /**
+     * Returns the offset maps for every destination written to the original document view.
+     *
+     * @param originalDocumentView the view containing the original rtf document
+     * @return list of the offset maps
+     */
+    public static List<OriginalDocumentOffsetMap> allFromView(JCas originalDocumentView) {
+        List<OriginalDocumentOffsetMap> maps = new ArrayList<>();
+        FSIterator<OriginalDocumentOffsets> iterator = originalDocumentView.getJFSIndexRepository()
+                .getAllIndexedFS(OriginalDocumentOffsets.type);
+        while (iterator.hasNext()) {
+            OriginalDocumentOffsets offsets = iterator.next();
+            int[] runs = offsets.getOffsets().toArray();
+            maps.add(new OriginalDocumentOffsetMap(offsets.getDestinationName(), runs, runs.length / RUN_INTS));
+        }
+        if (!maps.isEmpty()) {
+            return maps;
+        }
+
+        Map<String, Builder> builders = new LinkedHashMap<>();
+        for (Annotation annotation : originalDocumentView.getAnnotationIndex(ViewIndex.type)) {
+            ViewIndex viewIndex = (ViewIndex) annotation;
+            builders.computeIfAbsent(viewIndex.getDestinationName(), Builder::new)
+                    .add(viewIndex.getDestinationIndex(), viewIndex.getBegin(), viewIndex.getEnd());
+        }
+        for (Builder builder : builders.values()) {
+            maps.add(builder.build());
+        }
+        return maps;
+    }
+
+    /**
+     * Returns the offset map for a single destination.
+     *
+     * @param originalDocumentView the view containing the original rtf document
+     * @param destinationName the name of the destination, for example "Rtf"
+     * @return the offset map or null if nothing was written to the destination
+     */
+    @Nullable
+    public static OriginalDocumentOffsetMap fromView(JCas originalDocumentView, String destinationName) {
+        for (OriginalDocumentOffsetMap map : allFromView(originalDocumentView)) {
+            if (map.destinationName.equals(destinationName)) {
+                return map;
+            }
+        }
+        return null;
+    }
+
+    public String getDestinationName() {
+        return destinationName;
+    }
+
+    /**
+     * Returns the location in the original document of the character at an index in the destination.
+     *
+     * @param destinationIndex the index of the character in the destination
+     * @return the span of the rtf which produced the character, or null if no character was written at that index
+     */
+    @Nullable
+    public Span originalLocation(int destinationIndex) {
+        int low = 0;
+        int high = runCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int run = mid * RUN_INTS;
+            int destinationBegin = runs[run];
+            if (destinationIndex < destinationBegin) {
+                high = mid - 1;
+            } else if (destinationIndex >= destinationBegin + runs[run + 3]) {
+                low = mid + 1;
+            } else {
+                int width = runs[run + 2];
+                int begin = runs[run + 1] + (destinationIndex - destinationBegin) * width;
+                return new Span(begin, begin + width);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the location in the original document of the rtf which produced a span of destination characters.
+     *
+     * @param destinationLocation the span of characters in the destination
+     * @return the span of the rtf, or null if the first or last character was not written to the destination
+     */
+    @Nullable
+    public Span originalLocation(TextLocation destinationLocation) {
+        if (destinationLocation.length() == 0) {
+            Span location = originalLocation(destinationLocation.getBegin());
+            return location == null ? null : new Span(location.getBegin(), location.getBegin());
+        }
+        Span first = originalLocation(destinationLocation.getBegin());
+        Span last = originalLocation(destinationLocation.getEnd() - 1);
+        if (first == null || last == null) {
+            return null;
+        }
+        return new Span(first.getBegin(), last.getEnd());
+    }
+
+    /**
+     * Replays every character in the map to an index listener, in destination order.
+     *
+     * @param indexListener the listener to alert
+     */
+    public void forEachCharacter(IndexListener indexListener) {
+        for (int i = 0; i < runCount; i++) {
+            int run = i * RUN_INTS;
+            int width = runs[run + 2];
+            for (int j = 0; j < runs[run + 3]; j++) {
+                int begin = runs[run + 1] + j * width;
+                indexListener.wroteToDestination(destinationName, runs[run] + j, new Span(begin, begin + width));
+            }
+        }
+    }
+
+    /**
+     * Builds an offset map one character at a time in destination order.
+     */
+    static final class Builder {
+        private final String destinationName;
+
+        private int[] runs = new int[RUN_INTS * 16];
+
+        private int runCount = 0;
+
+        Builder(String destinationName) {
+            this.destinationName = destinationName;
+        }
+
+        void add(int destinationIndex, int originalBegin, int originalEnd) {
+            if (destinationIndex < 0) {
+                // hidden characters are not written to the destination
+                return;
+            }
+            int width = originalEnd - originalBegin;
+            if (runCount > 0) {
+                int run = (runCount - 1) * RUN_INTS;
+                int count = runs[run + 3];
+                if (runs[run + 2] == width && runs[run] + count == destinationIndex
+                        && runs[run + 1] + count * width == originalBegin) {
+                    runs[run + 3] = count + 1;
+                    return;
+                }
+            }
+            int run = runCount * RUN_INTS;
+            if (run == runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            runs[run] = destinationIndex;
+            runs[run + 1] = originalBegin;
+            runs[run + 2] = width;
+            runs[run + 3] = 1;
+            runCount++;
+        }
+
+        OriginalDocumentOffsetMap build() {
+            return new OriginalDocumentOffsetMap(destinationName, Arrays.copyOf(runs, runCount * RUN_INTS), runCount);
+        }
+
+        /**
+         * Stores the runs as an {@link OriginalDocumentOffsets} in a view.
+         *
+         * @param originalDocumentView the view containing the original rtf document
+         */
+        void addToIndexes(JCas originalDocumentView) {
+            int length = runCount * RUN_INTS;
+            IntegerArray offsets = new IntegerArray(originalDocumentView, length);
+            offsets.copyFromArray(runs, 0, 0, length);
+            OriginalDocumentOffsets originalDocumentOffsets = new OriginalDocumentOffsets(originalDocumentView);
+            originalDocumentOffsets.setDestinationName(destinationName);
+            originalDocumentOffsets.setOffsets(offsets);
+            originalDocumentOffsets.addToIndexes();
+        }
+    }
+}
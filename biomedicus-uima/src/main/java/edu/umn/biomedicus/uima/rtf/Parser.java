@@ -74,6 +74,12 @@ public class Parser extends JCasAnnotator_ImplBase {
      */
     public static final String PARAM_RTF_CAS_MAPPINGS_DESC = "rtfCasMappingsDesc";
 
+    /**
+     * UIMA parameter for whether to create a ViewIndex annotation for every character written instead of run length
+     * encoded offsets, defaults to false.
+     */
+    public static final String PARAM_PER_CHARACTER_VIEW_INDEXES = "perCharacterViewIndexes";
+
     /**
      * The Rtf parser.
      */
@@ -104,7 +110,10 @@ public class Parser extends JCasAnnotator_ImplBase {
 
         String rtfCasMappingsDesc = (String) aContext.getConfigParameterValue(PARAM_RTF_CAS_MAPPINGS_DESC);
 
-        casRtfParser = CasRtfParser.createByLoading(rtfPropertiesDesc, rtfControlKeywordsDesc, rtfCasMappingsDesc);
+        Boolean perCharacterViewIndexes = (Boolean) aContext.getConfigParameterValue(PARAM_PER_CHARACTER_VIEW_INDEXES);
+
+        casRtfParser = CasRtfParser.createByLoading(rtfPropertiesDesc, rtfControlKeywordsDesc, rtfCasMappingsDesc,
+                perCharacterViewIndexes != null && perCharacterViewIndexes);
 
         originalDocumentViewName = (String) aContext.getConfigParameterValue(PARAM_ORIGINAL_DOCUMENT_VIEW_NAME);
 
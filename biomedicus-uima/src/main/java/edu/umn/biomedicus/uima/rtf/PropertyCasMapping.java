@@ -17,6 +17,7 @@
 package edu.umn.biomedicus.uima.rtf;
 
 import edu.umn.biomedicus.rtf.reader.State;
+import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
@@ -67,6 +68,24 @@ public class PropertyCasMapping {
 
     @Nullable
     AnnotationFS getAnnotation(JCas cas, int begin, int end, int value) {
+        TypeSystem typeSystem = cas.getTypeSystem();
+        Type type = typeSystem.getType(annotationClassName);
+        return getAnnotation(cas.getCas(), type, getValueFeature(type), begin, end, value);
+    }
+
+    /**
+     * Creates the annotation using an already resolved type and value feature.
+     *
+     * @param cas the destination view.
+     * @param type the annotation type, from {@link #getAnnotationClassName()}.
+     * @param valueFeature the value feature, from {@link #getValueFeature(Type)}.
+     * @param begin the begin of the annotation.
+     * @param end the end of the annotation.
+     * @param value the value of the property.
+     * @return the annotation or null if zero length annotations are not emitted and begin equals end.
+     */
+    @Nullable
+    AnnotationFS getAnnotation(CAS cas, Type type, @Nullable Feature valueFeature, int begin, int end, int value) {
         if (begin < 0) {
             throw new IllegalArgumentException("Begin: " + begin + "before 0.");
         }
@@ -80,16 +99,24 @@ public class PropertyCasMapping {
             return null;
         }
 
-        TypeSystem typeSystem = cas.getTypeSystem();
-        Type type = typeSystem.getType(annotationClassName);
-        AnnotationFS annotation = cas.getCas().createAnnotation(type, begin, end);
-        if (valueIncluded) {
-            Feature valueFeature = type.getFeatureByBaseName("value");
+        AnnotationFS annotation = cas.createAnnotation(type, begin, end);
+        if (valueFeature != null) {
             annotation.setIntValue(valueFeature, value);
         }
         return annotation;
     }
 
+    /**
+     * Returns the feature to store the property value in, or null if the value is not included.
+     *
+     * @param type the annotation type.
+     * @return the value feature or null.
+     */
+    @Nullable
+    Feature getValueFeature(Type type) {
+        return valueIncluded ? type.getFeatureByBaseName("value") : null;
+    }
+
     boolean test(int value) {
         return (value >= minimumValue && (maximumValue == null || value <= maximumValue));
     }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.rtf;
+
+import edu.umn.biomedicus.common.types.text.TextLocation;
+import edu.umn.biomedicus.rtf.reader.IndexListener;
+import edu.umn.biomedicus.rtfuima.type.OriginalDocumentOffsets;
+import org.apache.uima.jcas.JCas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Listens for indices of characters that are written to, collecting them into one run length encoded
+ * {@link OriginalDocumentOffsets} per destination instead of an annotation per character.
+ *
+ * @since 1.6.0
+ */
+class RunLengthIndexListener implements IndexListener {
+    /**
+     * The view storing the Rtf document.
+     */
+    private final JCas originalDocumentView;
+
+    private final Map<String, OriginalDocumentOffsetMap.Builder> builders = new LinkedHashMap<>();
+
+    /**
+     * Creates an index listener which creates {@link OriginalDocumentOffsets}.
+     *
+     * @param originalDocumentView the view that the original rtf document is stored in.
+     */
+    RunLengthIndexListener(JCas originalDocumentView) {
+        this.originalDocumentView = originalDocumentView;
+    }
+
+    @Override
+    public void wroteToDestination(String destinationName, int destinationIndex, TextLocation originalDocumentTextLocation) {
+        OriginalDocumentOffsetMap.Builder builder = builders.get(destinationName);
+        if (builder == null) {
+            builder = new OriginalDocumentOffsetMap.Builder(destinationName);
+            builders.put(destinationName, builder);
+        }
+        builder.add(destinationIndex, originalDocumentTextLocation.getBegin(), originalDocumentTextLocation.getEnd());
+    }
+
+    /**
+     * Adds the collected offsets to the original document view, called once the document has been read.
+     */
+    void finish() {
+        builders.values().forEach(builder -> builder.addToIndexes(originalDocumentView));
+    }
+}
@@ -129,7 +129,7 @@ public final class BiomedicusTsLabelsPlugin implements UimaPlugin {
 
         @Override
         protected DependencyParse createLabelValue(FeatureStructure featureStructure) {
-            return new DependencyParse(featureStructure.getStringValue(parseTreeFeature));
+            return DependencyParse.fromConll(featureStructure.getStringValue(parseTreeFeature));
         }
     }
 
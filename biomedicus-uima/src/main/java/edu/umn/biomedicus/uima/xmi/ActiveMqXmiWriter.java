@@ -20,28 +20,39 @@ import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xml.sax.SAXException;
 
 import javax.jms.*;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
- *
+ * Sends CASes to an ActiveMQ queue. Uncompressed XMI is sent as a text message, any other {@link CasSerialization}
+ * is sent as a bytes message with the format and compression in the {@link #PROPERTY_SERIALIZATION_FORMAT} and
+ * {@link #PROPERTY_COMPRESSION} string properties.
+ * <p>
+ * CASes are serialized on the pipeline thread and sent on a background thread, in batches of up to
+ * {@link #PARAM_BATCH_SIZE} messages committed in one transaction. Send failures are reported from a later call to
+ * {@code process} or from {@code collectionProcessComplete}, which waits for every message to be sent.
  */
 public class ActiveMqXmiWriter extends JCasAnnotator_ImplBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(ActiveMqXmiWriter.class);
 
     public static final String PARAM_ACTIVE_MQ_URL = "activeMqUrl";
     public static final String PARAM_ACTIVE_MQ_QUEUE_NAME = "queueName";
+    public static final String PARAM_QUEUE_SIZE = "sendQueueSize";
+    public static final String PARAM_BATCH_SIZE = "batchSize";
+    public static final String PROPERTY_SERIALIZATION_FORMAT = "serializationFormat";
+    public static final String PROPERTY_COMPRESSION = "compression";
     private Connection connection;
     private Session session;
     private MessageProducer messageProducer;
+    private CasSerialization casSerialization;
+    private AsyncBatchSender<byte[]> sender;
 
     @Override
     public void initialize(UimaContext aContext) throws ResourceInitializationException {
@@ -51,33 +62,78 @@ public class ActiveMqXmiWriter extends JCasAnnotator_ImplBase {
         String activeMqUrl = (String) aContext.getConfigParameterValue(PARAM_ACTIVE_MQ_URL);
         LOGGER.info("Starting connection to ActiveMQ server: {}", activeMqUrl);
         String queueName = (String) aContext.getConfigParameterValue(PARAM_ACTIVE_MQ_QUEUE_NAME);
+        casSerialization = CasSerialization.fromContext(aContext, CasSerialization.Format.XMI);
+
+        Integer queueSize = (Integer) aContext.getConfigParameterValue(PARAM_QUEUE_SIZE);
+        Integer batchSize = (Integer) aContext.getConfigParameterValue(PARAM_BATCH_SIZE);
 
         ActiveMQConnectionFactory activeMQConnectionFactory = new ActiveMQConnectionFactory(activeMqUrl);
         try {
             connection = activeMQConnectionFactory.createConnection();
-            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
 
             Queue queue = session.createQueue(queueName);
             messageProducer = session.createProducer(queue);
         } catch (JMSException e) {
             throw new ResourceInitializationException(e);
         }
+
+        // from here on the session is only used by the sender thread
+        sender = new AsyncBatchSender<>("activemq-sender", this::sendBatch, queueSize == null ? 64 : queueSize,
+                batchSize == null ? 32 : batchSize);
     }
 
     @Override
     public void process(JCas aJCas) throws AnalysisEngineProcessException {
-        String message;
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
-            XmiCasSerializer.serialize(aJCas.getCas(), byteArrayOutputStream);
-            message = byteArrayOutputStream.toString();
-        } catch (IOException | SAXException e) {
+        try {
+            sender.submit(casSerialization.toBytes(aJCas.getCas()));
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new AnalysisEngineProcessException(e);
         }
+    }
 
+    private void sendBatch(List<byte[]> batch) throws JMSException {
         try {
-            TextMessage textMessage = session.createTextMessage(message);
-            messageProducer.send(textMessage);
+            for (byte[] bytes : batch) {
+                messageProducer.send(createMessage(bytes));
+            }
+            session.commit();
         } catch (JMSException e) {
+            // report the send failure, not a failure to roll it back
+            try {
+                session.rollback();
+            } catch (JMSException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        }
+    }
+
+    private Message createMessage(byte[] bytes) throws JMSException {
+        if (casSerialization.isText()) {
+            return session.createTextMessage(new String(bytes, StandardCharsets.UTF_8));
+        }
+        BytesMessage bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(bytes);
+        bytesMessage.setStringProperty(PROPERTY_SERIALIZATION_FORMAT, casSerialization.getFormat().name());
+        bytesMessage.setStringProperty(PROPERTY_COMPRESSION, casSerialization.getCompression().name());
+        return bytesMessage;
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        super.collectionProcessComplete();
+
+        try {
+            sender.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to send CASes to ActiveMQ", e);
+            throw new AnalysisEngineProcessException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new AnalysisEngineProcessException(e);
         }
     }
@@ -86,6 +142,7 @@ public class ActiveMqXmiWriter extends JCasAnnotator_ImplBase {
     public void destroy() {
         super.destroy();
 
+        sender.close();
         try {
             connection.close();
         } catch (JMSException e) {
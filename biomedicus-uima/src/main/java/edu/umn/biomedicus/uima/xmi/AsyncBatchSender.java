@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.xmi;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands items off from the pipeline thread to a background thread which sends them to a sink in batches. The queue is
+ * bounded, so a slow sink applies back pressure to the pipeline instead of buffering without limit.
+ * <p>
+ * The first failure of the sink, including errors, is kept and thrown from the next call to {@link #submit(Object)}
+ * or {@link #flush()}. Once the sink has failed, the items still queued are discarded. If the background thread stops
+ * some other way while items are still waiting, {@link #flush()} fails instead of reporting them as sent.
+ *
+ * @param <T> the type of the items sent
+ * @since 1.6.0
+ */
+final class AsyncBatchSender<T> implements Closeable {
+    private static final Object END = new Object();
+
+    private final BatchSink<T> sink;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Object> queue;
+
+    private final Thread thread;
+
+    private final Object lock = new Object();
+
+    private long submitted;
+
+    private long completed;
+
+    private boolean stopped;
+
+    @Nullable
+    private volatile Throwable failure;
+
+    /**
+     * Creates and starts a sender.
+     *
+     * @param name the name of the background thread.
+     * @param sink the sink to send batches to, only called from the background thread.
+     * @param queueSize the maximum number of items waiting to be sent.
+     * @param batchSize the maximum number of items sent in one batch.
+     */
+    AsyncBatchSender(String name, BatchSink<T> sink, int queueSize, int batchSize) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Queue size must be positive: " + queueSize);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.sink = sink;
+        this.batchSize = batchSize;
+        queue = new ArrayBlockingQueue<>(queueSize);
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues an item to be sent, blocking while the queue is full.
+     *
+     * @param item the item to send.
+     * @throws IOException if the sink has failed on an earlier batch.
+     * @throws InterruptedException if interrupted while waiting for room in the queue.
+     */
+    void submit(T item) throws IOException, InterruptedException {
+        checkFailure();
+        if (!thread.isAlive()) {
+            throw new IllegalStateException("Sender has been closed");
+        }
+        synchronized (lock) {
+            submitted++;
+        }
+        queue.put(item);
+    }
+
+    /**
+     * Waits until every item submitted so far has been sent.
+     *
+     * @throws IOException if the sink failed, or the background thread stopped before sending every item.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void flush() throws IOException, InterruptedException {
+        long unsent;
+        synchronized (lock) {
+            while (completed < submitted && failure == null && !stopped) {
+                lock.wait();
+            }
+            unsent = submitted - completed;
+        }
+        checkFailure();
+        if (unsent > 0) {
+            throw new IOException("Sender thread stopped with " + unsent + " items unsent");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable throwable = failure;
+        if (throwable != null) {
+            throw new IOException("Failed to send", throwable);
+        }
+    }
+
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        boolean end = false;
+        try {
+            while (!end) {
+                end = take(queue.take(), batch);
+                while (!end && batch.size() < batchSize) {
+                    Object next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    end = take(next, batch);
+                }
+                if (!batch.isEmpty()) {
+                    if (failure == null) {
+                        try {
+                            sink.send(batch);
+                        } catch (Throwable t) {
+                            failure = t;
+                        }
+                    }
+                    synchronized (lock) {
+                        completed += batch.size();
+                        lock.notifyAll();
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                stopped = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean take(Object item, List<T> batch) {
+        if (item == END) {
+            return true;
+        }
+        batch.add((T) item);
+        return false;
+    }
+
+    /**
+     * Sends any remaining items and stops the background thread.
+     */
+    @Override
+    public void close() {
+        if (!thread.isAlive()) {
+            return;
+        }
+        try {
+            queue.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Receives batches of items from the sender's background thread.
+     *
+     * @param <T> the type of the items
+     */
+    interface BatchSink<T> {
+        /**
+         * Sends a batch of items.
+         *
+         * @param batch the items, which are only valid for the duration of the call.
+         * @throws Exception if sending fails.
+         */
+        void send(List<T> batch) throws Exception;
+    }
+}
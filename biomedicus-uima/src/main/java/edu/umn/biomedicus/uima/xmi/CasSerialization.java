@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.xmi;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.uima.UimaContext;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.cas.impl.XmiCasSerializer;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.xml.sax.SAXException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A CAS serialization format and compression, shared by the CAS writers and {@link SerializedCasInputFileAdapter}.
+ * <p>
+ * The binary format is UIMA's compressed form 6 serialized against the CAS's own type system. It does not include
+ * the type system, which the file writer stores once as TypeSystem.xml, so reading it back requires a CAS with the
+ * same type system.
+ *
+ * @since 1.6.0
+ */
+public final class CasSerialization {
+    /**
+     * Name of the configuration parameter for the serialization format, "xmi" (the default) or "binary".
+     */
+    public static final String PARAM_SERIALIZATION_FORMAT = "serializationFormat";
+
+    /**
+     * Name of the configuration parameter for the compression, "none" (the default), "deflate" or "lz4".
+     */
+    public static final String PARAM_COMPRESSION = "compression";
+
+    /**
+     * Serialization formats.
+     */
+    public enum Format {
+        XMI(".xmi"),
+        BINARY(".bcas");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * Compressions applied to the serialized bytes.
+     */
+    public enum Compression {
+        NONE(""),
+        DEFLATE(".deflate"),
+        LZ4(".lz4");
+
+        private final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final Format format;
+
+    private final Compression compression;
+
+    public CasSerialization(Format format, Compression compression) {
+        this.format = format;
+        this.compression = compression;
+    }
+
+    /**
+     * Creates the serialization from the configuration parameters of a component, using the defaults for missing
+     * parameters.
+     *
+     * @param context the uima context.
+     * @param defaultFormat the format when the parameter is not set.
+     * @return newly created serialization.
+     * @throws ResourceInitializationException if a parameter has an unknown value.
+     */
+    public static CasSerialization fromContext(UimaContext context, Format defaultFormat)
+            throws ResourceInitializationException {
+        try {
+            Format format = parse(Format.class, (String) context.getConfigParameterValue(PARAM_SERIALIZATION_FORMAT),
+                    defaultFormat);
+            Compression compression = parse(Compression.class,
+                    (String) context.getConfigParameterValue(PARAM_COMPRESSION), Compression.NONE);
+            return new CasSerialization(format, compression);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    private static <T extends Enum<T>> T parse(Class<T> enumClass, @Nullable String value, T defaultValue) {
+        return value == null ? defaultValue : Enum.valueOf(enumClass, value.toUpperCase(Locale.ROOT));
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns whether this is uncompressed XMI, which is plain xml text.
+     *
+     * @return true if uncompressed XMI.
+     */
+    public boolean isText() {
+        return format == Format.XMI && compression == Compression.NONE;
+    }
+
+    /**
+     * Returns the file extension for this serialization, for example ".bcas.lz4".
+     *
+     * @return the file extension.
+     */
+    public String getExtension() {
+        return format.extension + compression.extension;
+    }
+
+    /**
+     * Serializes the CAS to the output stream. Does not close the output stream.
+     *
+     * @param cas the CAS to serialize.
+     * @param outputStream the output stream.
+     * @throws IOException if writing fails.
+     */
+    public void serialize(CAS cas, OutputStream outputStream) throws IOException {
+        switch (compression) {
+            case NONE:
+                serializeFormat(cas, outputStream);
+                break;
+            case DEFLATE:
+                Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+                try {
+                    DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream, deflater);
+                    serializeFormat(cas, deflaterOutputStream);
+                    deflaterOutputStream.finish();
+                } finally {
+                    deflater.end();
+                }
+                break;
+            case LZ4:
+                LZ4BlockOutputStream lz4BlockOutputStream = new LZ4BlockOutputStream(outputStream);
+                serializeFormat(cas, lz4BlockOutputStream);
+                lz4BlockOutputStream.finish();
+                break;
+            default:
+                throw new IllegalStateException("Unknown compression: " + compression);
+        }
+    }
+
+    /**
+     * Serializes the CAS to a byte array.
+     *
+     * @param cas the CAS to serialize.
+     * @return the serialized bytes.
+     * @throws IOException if serialization fails.
+     */
+    public byte[] toBytes(CAS cas) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        serialize(cas, byteArrayOutputStream);
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private void serializeFormat(CAS cas, OutputStream outputStream) throws IOException {
+        try {
+            if (format == Format.XMI) {
+                XmiCasSerializer.serialize(cas, outputStream);
+            } else {
+                Serialization.serializeWithCompression(cas, outputStream, cas.getTypeSystem());
+            }
+        } catch (SAXException | ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Deserializes the contents of the input stream into the CAS, replacing its contents.
+     *
+     * @param cas the CAS to deserialize into.
+     * @param inputStream the serialized CAS.
+     * @param lenient for XMI, whether to ignore types which are not in the type system.
+     * @throws IOException if reading or deserializing fails.
+     */
+    public void deserialize(CAS cas, InputStream inputStream, boolean lenient) throws IOException {
+        InputStream decompressed;
+        switch (compression) {
+            case NONE:
+                decompressed = inputStream;
+                break;
+            case DEFLATE:
+                decompressed = new InflaterInputStream(inputStream);
+                break;
+            case LZ4:
+                decompressed = new LZ4BlockInputStream(inputStream);
+                break;
+            default:
+                throw new IllegalStateException("Unknown compression: " + compression);
+        }
+        try {
+            if (format == Format.XMI) {
+                XmiCasDeserializer.deserialize(decompressed, cas, lenient);
+            } else {
+                Serialization.deserializeCAS(cas, decompressed, null, null);
+            }
+        } catch (SAXException | ResourceInitializationException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.gridfs.GridFS;
 import com.mongodb.gridfs.GridFSInputFile;
+import edu.umn.biomedicus.common.tuples.Pair;
 import edu.umn.biomedicus.uima.common.Views;
 import edu.umn.biomedicus.uima.type1_5.DocumentId;
 import org.apache.uima.UimaContext;
@@ -27,21 +28,27 @@ import org.apache.uima.analysis_component.JCasAnnotator_ImplBase;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.FSIterator;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.JFSIndexRepository;
 import org.apache.uima.resource.ResourceInitializationException;
-import org.xml.sax.SAXException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.UnknownHostException;
+import java.util.List;
 import java.util.UUID;
 
 /**
- *
+ * Writes CASes to MongoDB GridFS, in the format and compression set using the {@link CasSerialization} parameters.
+ * <p>
+ * CASes are serialized on the pipeline thread and written to GridFS on a background thread, so the pipeline does not
+ * wait on the database. Write failures are reported from a later call to {@code process} or from
+ * {@code collectionProcessComplete}, which waits for every file to be written.
  */
 public class MongoDbXmiWriter extends JCasAnnotator_ImplBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoDbXmiWriter.class);
 
     /**
      * The mongo server to connect to.
@@ -58,8 +65,15 @@ public class MongoDbXmiWriter extends JCasAnnotator_ImplBase {
      */
     public static final String PARAM_MONGO_DB_NAME = "mongoDbName";
 
+    /**
+     * The maximum number of serialized CASes waiting to be written.
+     */
+    public static final String PARAM_QUEUE_SIZE = "writeQueueSize";
+
     private MongoClient mongoClient;
     private GridFS gridFS;
+    private CasSerialization casSerialization;
+    private AsyncBatchSender<Pair<String, byte[]>> sender;
 
     @Override
     public void initialize(UimaContext aContext) throws ResourceInitializationException {
@@ -68,6 +82,7 @@ public class MongoDbXmiWriter extends JCasAnnotator_ImplBase {
         String mongoServer = (String) aContext.getConfigParameterValue(PARAM_MONGO_SERVER);
         int mongoPort = (Integer) aContext.getConfigParameterValue(PARAM_MONGO_PORT);
         String mongoDbName = (String) aContext.getConfigParameterValue(PARAM_MONGO_DB_NAME);
+        Integer queueSize = (Integer) aContext.getConfigParameterValue(PARAM_QUEUE_SIZE);
 
         try {
             mongoClient = new MongoClient(mongoServer, mongoPort);
@@ -78,6 +93,10 @@ public class MongoDbXmiWriter extends JCasAnnotator_ImplBase {
         DB db = mongoClient.getDB(mongoDbName);
 
         gridFS = new GridFS(db);
+
+        casSerialization = CasSerialization.fromContext(aContext, CasSerialization.Format.XMI);
+
+        sender = new AsyncBatchSender<>("gridfs-writer", this::writeFiles, queueSize == null ? 64 : queueSize, 16);
     }
 
     @Override
@@ -103,20 +122,46 @@ public class MongoDbXmiWriter extends JCasAnnotator_ImplBase {
             documentId = UUID.randomUUID().toString();
         }
 
-        GridFSInputFile file = gridFS.createFile(documentId + ".xmi");
-
-        try (OutputStream outputStream = file.getOutputStream()) {
-            XmiCasSerializer.serialize(jCas.getCas(), outputStream);
-        } catch (IOException | SAXException e) {
+        try {
+            byte[] bytes = casSerialization.toBytes(jCas.getCas());
+            sender.submit(new Pair<>(documentId + casSerialization.getExtension(), bytes));
+        } catch (IOException e) {
             throw new AnalysisEngineProcessException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    private void writeFiles(List<Pair<String, byte[]>> files) throws IOException {
+        for (Pair<String, byte[]> file : files) {
+            GridFSInputFile gridFSInputFile = gridFS.createFile(file.first());
+            try (OutputStream outputStream = gridFSInputFile.getOutputStream()) {
+                outputStream.write(file.second());
+            }
         }
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        super.collectionProcessComplete();
 
+        try {
+            sender.flush();
+        } catch (IOException e) {
+            LOGGER.error("Failed to write CASes to GridFS", e);
+            throw new AnalysisEngineProcessException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AnalysisEngineProcessException(e);
+        }
     }
 
     @Override
     public void destroy() {
         super.destroy();
 
+        sender.close();
         mongoClient.close();
     }
 }
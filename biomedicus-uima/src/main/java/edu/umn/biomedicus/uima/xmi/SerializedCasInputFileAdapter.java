@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.xmi;
+
+import edu.umn.biomedicus.uima.files.InputFileAdapter;
+import org.apache.uima.UimaContext;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An {@link InputFileAdapter} that reads CASes written by {@link XmiWriter} in any {@link CasSerialization}, by
+ * default the binary format. The format and compression are set using the {@link CasSerialization} parameters.
+ *
+ * @since 1.6.0
+ */
+public class SerializedCasInputFileAdapter implements InputFileAdapter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerializedCasInputFileAdapter.class);
+
+    /**
+     * Name of the configuration parameter that must be set to indicate if the execution fails if an encountered type is
+     * unknown, only applies to XMI.
+     */
+    public static final String PARAM_FAIL_UNKNOWN = "failOnUnknownType";
+
+    @Nullable
+    private CasSerialization casSerialization;
+
+    private boolean lenient;
+
+    @Override
+    public void initialize(UimaContext uimaContext, ProcessingResourceMetaData processingResourceMetaData) {
+        LOGGER.info("Initializing the serialized cas reader parameters");
+        try {
+            casSerialization = CasSerialization.fromContext(uimaContext, CasSerialization.Format.BINARY);
+        } catch (ResourceInitializationException e) {
+            throw new IllegalArgumentException(e);
+        }
+        Boolean failOnUnknownType = (Boolean) uimaContext.getConfigParameterValue(PARAM_FAIL_UNKNOWN);
+        lenient = !(failOnUnknownType == null || failOnUnknownType);
+    }
+
+    @Override
+    public void adaptFile(CAS cas, Path path) throws CollectionException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            deserialize(cas, path, inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Failed on document: {}", path);
+            throw new CollectionException(e);
+        }
+    }
+
+    @Override
+    public void adaptFile(CAS cas, Path path, byte[] contents) throws CollectionException {
+        deserialize(cas, path, new ByteArrayInputStream(contents));
+    }
+
+    private void deserialize(CAS cas, Path path, InputStream inputStream) throws CollectionException {
+        if (casSerialization == null) {
+            throw new IllegalStateException("Adapter has not been initialized");
+        }
+        LOGGER.debug("Deserializing {} into a cas", path);
+        try {
+            casSerialization.deserialize(cas, inputStream, lenient);
+        } catch (IOException e) {
+            LOGGER.error("Failed on document: {}", path);
+            throw new CollectionException(e);
+        }
+    }
+
+    @Override
+    public void setTargetView(String viewName) {
+        // the whole CAS is deserialized, including every view.
+        throw new UnsupportedOperationException();
+    }
+}
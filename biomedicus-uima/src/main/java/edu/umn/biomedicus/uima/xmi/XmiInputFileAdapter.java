@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -79,6 +80,21 @@ public class XmiInputFileAdapter implements InputFileAdapter {
     public void adaptFile(CAS cas, Path path) throws CollectionException {
         LOGGER.info("Deserializing an input stream into a cas");
         try (InputStream inputStream = Files.newInputStream(path)) {
+            deserialize(cas, path, inputStream);
+        } catch (IOException e) {
+            LOGGER.error("Failed on document: {}", path);
+            throw new CollectionException(e);
+        }
+    }
+
+    @Override
+    public void adaptFile(CAS cas, Path path, byte[] contents) throws CollectionException {
+        LOGGER.info("Deserializing file contents into a cas");
+        deserialize(cas, path, new ByteArrayInputStream(contents));
+    }
+
+    private void deserialize(CAS cas, Path path, InputStream inputStream) throws CollectionException {
+        try {
             XmiCasDeserializer.deserialize(inputStream, cas, !(failOnUnknownType == null || failOnUnknownType));
         } catch (SAXException | IOException e) {
             LOGGER.error("Failed on document: {}", path);
@@ -24,7 +24,6 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
-import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.slf4j.Logger;
@@ -32,7 +31,7 @@ import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
 import javax.annotation.Nullable;
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
@@ -40,7 +39,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 /**
- * A UIMA analysis engine that writes the contents of CASes to a files in a folder.
+ * A UIMA analysis engine that writes the contents of CASes to a files in a folder. The format and compression of the
+ * files are set using the {@link CasSerialization} parameters, by default uncompressed XMI.
  */
 public class XmiWriter extends CasAnnotator_ImplBase {
     private static final Logger LOGGER = LoggerFactory.getLogger(XmiWriter.class);
@@ -49,6 +49,8 @@ public class XmiWriter extends CasAnnotator_ImplBase {
 
     @Nullable private Path outputDir;
 
+    @Nullable private CasSerialization casSerialization;
+
     /**
      * Initializes the outputDirectory.
      *
@@ -67,6 +69,8 @@ public class XmiWriter extends CasAnnotator_ImplBase {
             throw new ResourceInitializationException(e);
         }
 
+        casSerialization = CasSerialization.fromContext(context, CasSerialization.Format.XMI);
+
         try {
             typeSystemWriter = (TypeSystemWriterResource) context.getResourceObject("typeSystemWriterResource");
         } catch (ResourceAccessException e) {
@@ -88,16 +92,16 @@ public class XmiWriter extends CasAnnotator_ImplBase {
                 .getIndexRepository()
                 .getAllIndexedFS(type)
                 .next()
-                .getStringValue(documentId) + ".xmi";
+                .getStringValue(documentId) + casSerialization.getExtension();
         Path path = outputDir.resolve(fileName);
 
         if (LOGGER.isInfoEnabled()) {
-            LOGGER.info("Writing XMI CAS to location: {}", path.toString());
+            LOGGER.info("Writing CAS to location: {}", path.toString());
         }
 
-        try (OutputStream out = new FileOutputStream(path.toFile())) {
-            XmiCasSerializer.serialize(cas, out);
-        } catch (IOException | SAXException e) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            casSerialization.serialize(cas, out);
+        } catch (IOException e) {
             throw new AnalysisEngineProcessException(e);
         }
     }
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.db;
+
+import mockit.Expectations;
+import mockit.Injectable;
+import mockit.Verifications;
+import org.testng.annotations.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class JdbcRowPrefetcherTest {
+    @Injectable
+    private PreparedStatement statement;
+
+    @Injectable
+    private ResultSet resultSet;
+
+    @Injectable
+    private ResultSetMetaData metaData;
+
+    /**
+     * Records a table of documents ordered by note_id, returned a page at a time.
+     *
+     * @param pages the number of rows in each page.
+     * @param lastPageShort whether the final page comes back short, so the prefetcher asks for one more row.
+     */
+    private void recordRows(int[] pages, boolean lastPageShort) throws SQLException {
+        int rowCount = 0;
+        for (int page : pages) {
+            rowCount += page;
+        }
+        boolean[] next = new boolean[rowCount + (lastPageShort ? 1 : 0)];
+        for (int i = 0; i < rowCount; i++) {
+            next[i] = true;
+        }
+        String[] documentIds = new String[rowCount];
+        String[] documentTexts = new String[rowCount];
+        String[] noteIds = new String[rowCount];
+        // getObject returns an Object, so an array result would be returned whole instead of an element per call
+        Object[] keys = new Object[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            documentIds[i] = "doc" + (i + 1);
+            documentTexts[i] = " text " + (i + 1) + " ";
+            noteIds[i] = Long.toString((i + 1) * 10);
+            keys[i] = (i + 1) * 10L;
+        }
+        new Expectations() {{
+            statement.executeQuery(); result = resultSet;
+            resultSet.getMetaData(); result = metaData;
+            metaData.getColumnCount(); result = 3;
+            metaData.getColumnName(1); result = "documentId";
+            metaData.getColumnName(2); result = "note_text";
+            metaData.getColumnName(3); result = "note_id";
+            resultSet.next(); result = next;
+            resultSet.getString("documentId"); result = documentIds;
+            resultSet.getString("note_text"); result = documentTexts;
+            resultSet.getString("note_id"); result = noteIds;
+            resultSet.getObject("note_id"); minTimes = 0;
+            returns(keys[0], Arrays.copyOfRange(keys, 1, keys.length));
+        }};
+    }
+
+    private static List<JdbcRow> readAll(JdbcRowPrefetcher prefetcher) throws Exception {
+        List<JdbcRow> rows = new ArrayList<>();
+        prefetcher.start();
+        JdbcRow row;
+        while ((row = prefetcher.next()) != null) {
+            rows.add(row);
+        }
+        assertNull(prefetcher.next());
+        prefetcher.close();
+        return rows;
+    }
+
+    @Test
+    public void testKeysetReadsAllRows() throws Exception {
+        recordRows(new int[]{10, 10, 5}, true);
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10,
+                null, "note_id", "0", 4);
+        List<JdbcRow> rows = readAll(prefetcher);
+        assertEquals(rows.size(), 25);
+        for (int i = 0; i < 25; i++) {
+            assertEquals(rows.get(i).getDocumentId(), "doc" + (i + 1));
+            assertEquals(rows.get(i).getDocumentText(), "text " + (i + 1));
+            assertEquals(rows.get(i).getMetadata().get("note_id"), Long.toString((i + 1) * 10));
+        }
+
+        new Verifications() {{
+            statement.setLong(1, 0L); times = 1;
+            statement.setObject(1, 100L); times = 1;
+            statement.setObject(1, 200L); times = 1;
+            statement.setMaxRows(10); times = 3;
+            statement.executeQuery(); times = 3;
+        }};
+    }
+
+    @Test
+    public void testKeysetStopsAtTotalResults() throws Exception {
+        recordRows(new int[]{10, 5}, false);
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10, 15,
+                "note_id", "0", 4);
+        List<JdbcRow> rows = readAll(prefetcher);
+        assertEquals(rows.size(), 15);
+        assertEquals(rows.get(14).getDocumentId(), "doc15");
+
+        new Verifications() {{
+            statement.setMaxRows(10); times = 1;
+            statement.setMaxRows(5); times = 1;
+            statement.executeQuery(); times = 2;
+        }};
+    }
+
+    @Test
+    public void testOffsetReadsTotalResults() throws Exception {
+        recordRows(new int[]{10, 10, 2}, false);
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.OFFSET, 10, 22,
+                null, null, 4);
+        List<JdbcRow> rows = readAll(prefetcher);
+        assertEquals(rows.size(), 22);
+        assertEquals(rows.get(21).getDocumentId(), "doc22");
+
+        new Verifications() {{
+            statement.setInt(1, 10); statement.setInt(2, 1);
+            statement.setInt(1, 20); statement.setInt(2, 11);
+            statement.setInt(1, 22); statement.setInt(2, 21);
+            statement.executeQuery(); times = 3;
+        }};
+    }
+
+    @Test
+    public void testFailureIsRethrown() throws Exception {
+        new Expectations() {{
+            statement.executeQuery(); result = new SQLException("failed");
+        }};
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10,
+                null, "note_id", "0", 4);
+        prefetcher.start();
+        try {
+            prefetcher.next();
+            fail();
+        } catch (SQLException e) {
+            assertEquals(e.getMessage(), "failed");
+        }
+        prefetcher.close();
+    }
+
+    @Test(timeOut = 10000)
+    public void testUncheckedFailureEndsRows() throws Exception {
+        new Expectations() {{
+            statement.executeQuery(); result = new IllegalStateException("driver failed");
+        }};
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10,
+                null, "note_id", "0", 4);
+        prefetcher.start();
+        try {
+            prefetcher.next();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getCause().getMessage(), "driver failed");
+        }
+        assertNull(prefetcher.next());
+        prefetcher.close();
+    }
+
+    @Test(timeOut = 10000)
+    public void testCloseWhileQueueIsFull() throws Exception {
+        new Expectations() {{
+            statement.executeQuery(); result = resultSet;
+            resultSet.next(); result = true;
+        }};
+
+        JdbcRowPrefetcher prefetcher = new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10,
+                null, "note_id", "0", 2);
+        prefetcher.start();
+        assertNotNull(prefetcher.next());
+        prefetcher.close();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKeysetRequiresKeyColumn() throws Exception {
+        new JdbcRowPrefetcher(statement, JdbcRowPrefetcher.Pagination.KEYSET, 10, null, null, "0", 2);
+    }
+}
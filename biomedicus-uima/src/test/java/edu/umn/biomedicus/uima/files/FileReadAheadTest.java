@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.files;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class FileReadAheadTest {
+    private Path directory;
+
+    private List<Path> paths;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("readahead");
+        paths = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path path = directory.resolve("file" + i + ".txt");
+            Files.write(path, ("contents " + i).getBytes(StandardCharsets.UTF_8));
+            paths.add(path);
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testReadsInOrder() throws Exception {
+        try (FileReadAhead fileReadAhead = new FileReadAhead(paths.iterator(), 3, 4)) {
+            for (int i = 0; i < 20; i++) {
+                assertTrue(fileReadAhead.hasNext());
+                assertEquals(fileReadAhead.peekPath(), paths.get(i));
+                assertEquals(new String(fileReadAhead.next(), StandardCharsets.UTF_8), "contents " + i);
+            }
+            assertFalse(fileReadAhead.hasNext());
+        }
+    }
+
+    @Test
+    public void testMissingFileThrowsInOrder() throws Exception {
+        paths.add(2, directory.resolve("missing.txt"));
+        try (FileReadAhead fileReadAhead = new FileReadAhead(paths.iterator(), 2, 8)) {
+            fileReadAhead.next();
+            fileReadAhead.next();
+            try {
+                fileReadAhead.next();
+                fail();
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("missing.txt"));
+            }
+            assertEquals(new String(fileReadAhead.next(), StandardCharsets.UTF_8), "contents 2");
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.labels;
+
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.types.text.Span;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLInputSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class LabelAdaptersTest {
+    private CAS cas;
+
+    private Type sentenceType;
+
+    private LabelAdapters labelAdapters;
+
+    private int decodes;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        XMLInputSource inputSource = new XMLInputSource(
+                getClass().getResource("/edu/umn/biomedicus/types/TypeSystem.xml"));
+        TypeSystemDescription typeSystemDescription = UIMAFramework.getXMLParser()
+                .parseTypeSystemDescription(inputSource);
+        typeSystemDescription.resolveImports();
+        cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+        cas.setDocumentText("The patient was seen today.");
+        sentenceType = cas.getTypeSystem().getType("edu.umn.biomedicus.uima.type1_6.Sentence");
+
+        decodes = 0;
+        labelAdapters = new LabelAdapters();
+        labelAdapters.setCacheLabels(true);
+        labelAdapters.addLabelAdapter(String.class, (LabelAdapterFactory<String>) view -> new LabelAdapter<String>() {
+            @Override
+            public Type getType() {
+                return sentenceType;
+            }
+
+            @Override
+            public AnnotationFS labelToAnnotation(Label<String> label) {
+                AnnotationFS annotation = view.createAnnotation(sentenceType, label.getBegin(), label.getEnd());
+                view.addFsToIndexes(annotation);
+                return annotation;
+            }
+
+            @Override
+            public Label<String> annotationToLabel(AnnotationFS annotationFS) {
+                decodes++;
+                return new Label<>(Span.create(annotationFS.getBegin(), annotationFS.getEnd()),
+                        annotationFS.getCoveredText());
+            }
+        });
+    }
+
+    private AnnotationFS addSentence(int begin, int end) {
+        AnnotationFS annotation = cas.createAnnotation(sentenceType, begin, end);
+        cas.addFsToIndexes(annotation);
+        return annotation;
+    }
+
+    private AnnotationFS firstSentence() {
+        return cas.getAnnotationIndex(sentenceType).iterator().next();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        LabelAdapters uncached = new LabelAdapters();
+        uncached.addLabelAdapter(String.class, labelAdapters.getLabelAdapterFactory(String.class));
+        LabelAdapter<String> labelAdapter = uncached.createLabelAdapter(String.class, cas);
+        assertFalse(labelAdapter instanceof CachingLabelAdapter);
+        assertTrue(uncached.getCacheCounters().isEmpty());
+    }
+
+    @Test
+    public void testHitKeyedByAddress() throws Exception {
+        addSentence(0, 27);
+        LabelAdapter<String> labelAdapter = labelAdapters.createLabelAdapter(String.class, cas);
+        Label<String> first = labelAdapter.annotationToLabel(firstSentence());
+        // a second feature structure object for the same annotation
+        Label<String> second = labelAdapter.annotationToLabel(firstSentence());
+        assertSame(second, first);
+        assertEquals(decodes, 1);
+
+        LabelCacheCounter counter = labelAdapters.getCacheCounters().get(String.class);
+        assertEquals(counter.getHits(), 1);
+        assertEquals(counter.getMisses(), 1);
+    }
+
+    @Test
+    public void testSharedBetweenAdaptersOnTheSameDocument() throws Exception {
+        addSentence(0, 27);
+        Label<String> first = labelAdapters.createLabelAdapter(String.class, cas).annotationToLabel(firstSentence());
+        // a later processor in the pipeline creates its own adapter
+        Label<String> second = labelAdapters.createLabelAdapter(String.class, cas).annotationToLabel(firstSentence());
+        assertSame(second, first);
+        assertEquals(decodes, 1);
+    }
+
+    @Test
+    public void testInvalidatedByLabeling() throws Exception {
+        addSentence(0, 27);
+        LabelAdapter<String> labelAdapter = labelAdapters.createLabelAdapter(String.class, cas);
+        labelAdapter.annotationToLabel(firstSentence());
+        labelAdapter.labelToAnnotation(new Label<>(Span.create(4, 11), "patient"));
+        labelAdapter.annotationToLabel(firstSentence());
+        assertEquals(decodes, 2);
+    }
+
+    @Test
+    public void testInvalidatedByAddingToTheCas() throws Exception {
+        addSentence(0, 27);
+        LabelAdapter<String> labelAdapter = labelAdapters.createLabelAdapter(String.class, cas);
+        labelAdapter.annotationToLabel(firstSentence());
+        addSentence(4, 11);
+        labelAdapter.annotationToLabel(firstSentence());
+        assertEquals(decodes, 2);
+        labelAdapter.annotationToLabel(firstSentence());
+        assertEquals(decodes, 2);
+    }
+
+    @Test
+    public void testInvalidatedByRemovingFromTheCas() throws Exception {
+        addSentence(0, 27);
+        AnnotationFS patient = addSentence(4, 11);
+        LabelAdapter<String> labelAdapter = labelAdapters.createLabelAdapter(String.class, cas);
+        labelAdapter.annotationToLabel(firstSentence());
+        cas.removeFsFromIndexes(patient);
+        labelAdapter.annotationToLabel(firstSentence());
+        assertEquals(decodes, 2);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        addSentence(0, 27);
+        LabelAdapter<String> labelAdapter = labelAdapters.createLabelAdapter(String.class, cas);
+        labelAdapter.annotationToLabel(firstSentence());
+        labelAdapters.resetLabelCache(cas);
+        labelAdapter.annotationToLabel(firstSentence());
+        assertEquals(decodes, 2);
+    }
+
+    @Test
+    public void testResetWithoutCache() throws Exception {
+        labelAdapters.resetLabelCache(cas);
+        addSentence(0, 27);
+        labelAdapters.createLabelAdapter(String.class, cas).annotationToLabel(firstSentence());
+        assertEquals(decodes, 1);
+    }
+
+    @Test
+    public void testNewDocumentWithTheSameText() throws Exception {
+        addSentence(0, 27);
+        labelAdapters.createLabelAdapter(String.class, cas).annotationToLabel(firstSentence());
+
+        // same text, same number of annotations and the same addresses, but different labels
+        cas.reset();
+        cas.setDocumentText("The patient was seen today.");
+        addSentence(0, 4);
+        labelAdapters.resetLabelCache(cas);
+        Label<String> label = labelAdapters.createLabelAdapter(String.class, cas).annotationToLabel(firstSentence());
+        assertEquals(label.value(), "The ");
+        assertEquals(decodes, 2);
+    }
+}
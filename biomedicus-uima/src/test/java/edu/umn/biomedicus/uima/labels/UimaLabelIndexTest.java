@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.labels;
+
+import edu.umn.biomedicus.common.labels.Label;
+import edu.umn.biomedicus.common.types.text.Span;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLInputSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+public class UimaLabelIndexTest {
+    private CAS cas;
+
+    private UimaLabelIndex<Integer> labelIndex;
+
+    private int first;
+
+    private int second;
+
+    private int other;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        XMLInputSource inputSource = new XMLInputSource(
+                getClass().getResource("/edu/umn/biomedicus/types/TypeSystem.xml"));
+        TypeSystemDescription typeSystemDescription = UIMAFramework.getXMLParser()
+                .parseTypeSystemDescription(inputSource);
+        typeSystemDescription.resolveImports();
+        cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+        cas.setDocumentText("The patient was seen today.");
+        Type sentenceType = cas.getTypeSystem().getType("edu.umn.biomedicus.uima.type1_6.Sentence");
+
+        first = addSentence(sentenceType, 4, 11);
+        second = addSentence(sentenceType, 4, 11);
+        other = addSentence(sentenceType, 0, 27);
+
+        labelIndex = new UimaLabelIndex<>(cas, new LabelAdapter<Integer>() {
+            @Override
+            public Type getType() {
+                return sentenceType;
+            }
+
+            @Override
+            public AnnotationFS labelToAnnotation(Label<Integer> label) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Label<Integer> annotationToLabel(AnnotationFS annotationFS) {
+                return new Label<>(Span.create(annotationFS.getBegin(), annotationFS.getEnd()),
+                        cas.getLowLevelCAS().ll_getFSRef(annotationFS));
+            }
+        });
+    }
+
+    private int addSentence(Type sentenceType, int begin, int end) {
+        AnnotationFS annotation = cas.createAnnotation(sentenceType, begin, end);
+        cas.addFsToIndexes(annotation);
+        return cas.getLowLevelCAS().ll_getFSRef(annotation);
+    }
+
+    private static Set<Integer> values(Iterable<Label<Integer>> labels) {
+        Set<Integer> values = new HashSet<>();
+        labels.forEach(label -> values.add(label.value()));
+        return values;
+    }
+
+    @Test
+    public void testInsideSpanKeepsSameSpanAnnotations() throws Exception {
+        assertEquals(values(labelIndex.insideSpan(Span.create(4, 11))), new HashSet<>(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void testContainingKeepsSameSpanAnnotations() throws Exception {
+        assertEquals(values(labelIndex.containing(Span.create(5, 10))),
+                new HashSet<>(Arrays.asList(first, second, other)));
+    }
+
+    @Test
+    public void testInsideSpanIteratesEveryAnnotation() throws Exception {
+        assertEquals(labelIndex.insideSpan(Span.create(0, 27)).stream().map(Label::value)
+                .collect(Collectors.toList()).size(), 3);
+    }
+
+    @Test
+    public void testMatchingFindsSameSpanAnnotation() throws Exception {
+        Integer matched = labelIndex.matching(Span.create(4, 11)).map(Label::value).orElseThrow(AssertionError::new);
+        assertTrue(matched == first || matched == second);
+    }
+}
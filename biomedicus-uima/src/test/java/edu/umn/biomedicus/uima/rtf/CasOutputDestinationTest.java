@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.rtf;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import edu.umn.biomedicus.rtf.reader.IndexListener;
+import edu.umn.biomedicus.rtf.reader.KeywordAction;
+import edu.umn.biomedicus.rtf.reader.OutputDestination;
+import edu.umn.biomedicus.rtf.reader.PropertyTable;
+import edu.umn.biomedicus.rtf.reader.State;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLInputSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for {@link CasOutputDestination}.
+ */
+public class CasOutputDestinationTest {
+    private static final String BOLD = "edu.umn.biomedicus.rtfuima.type.Bold";
+
+    private static final String ITALIC = "edu.umn.biomedicus.rtfuima.type.Italic";
+
+    private static final IndexListener NO_LISTENER = (destinationName, destinationIndex, textLocation) -> {
+    };
+
+    private CAS cas;
+
+    private PropertyTable propertyTable;
+
+    private CompiledPropertyMappings propertyMappings;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        XMLInputSource inputSource = new XMLInputSource(
+                getClass().getResource("/edu/umn/biomedicus/types/TypeSystem.xml"));
+        TypeSystemDescription typeSystemDescription = UIMAFramework.getXMLParser()
+                .parseTypeSystemDescription(inputSource);
+        typeSystemDescription.resolveImports();
+        cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+
+        Map<String, Integer> characterFormatting = new HashMap<>();
+        characterFormatting.put("Bold", 0);
+        characterFormatting.put("Italic", 0);
+        characterFormatting.put("Hidden", 0);
+        Map<String, Map<String, Integer>> properties = new HashMap<>();
+        properties.put("CharacterFormatting", characterFormatting);
+        propertyTable = new PropertyTable(properties);
+
+        List<PropertyCasMapping> mappings = Arrays.asList(
+                new PropertyCasMapping("CharacterFormatting", "Bold", BOLD, 1, null, false, false),
+                new PropertyCasMapping("CharacterFormatting", "Italic", ITALIC, 1, null, false, false));
+        propertyMappings = new CompiledPropertyMappings(mappings, propertyTable, cas.getTypeSystem());
+    }
+
+    @Test
+    public void testNestedGroups() throws Exception {
+        List<String> annotations = write("{\\b x{\\i y}z}w");
+        assertEquals(annotations, Arrays.asList(BOLD + "[0, 3)", ITALIC + "[1, 2)"));
+        assertEquals(annotations, writeCheckingEveryCharacter("{\\b x{\\i y}z}w"));
+    }
+
+    @Test
+    public void testChildGroupSetsSameValue() throws Exception {
+        List<String> annotations = write("{\\b x{\\b y}z}w");
+        assertEquals(annotations, Arrays.asList(BOLD + "[0, 3)"));
+        assertEquals(annotations, writeCheckingEveryCharacter("{\\b x{\\b y}z}w"));
+    }
+
+    @Test
+    public void testChildGroupChangesValueBack() throws Exception {
+        List<String> annotations = write("{\\b x{\\i\\i0 y}z}w");
+        assertEquals(annotations, Arrays.asList(BOLD + "[0, 3)"));
+        assertEquals(annotations, writeCheckingEveryCharacter("{\\b x{\\i\\i0 y}z}w"));
+    }
+
+    @Test
+    public void testChildGroupTurnsOffParentValue() throws Exception {
+        List<String> annotations = write("{\\b x{\\b0 y}z}w");
+        assertEquals(annotations, Arrays.asList(BOLD + "[0, 1)", BOLD + "[2, 3)"));
+        assertEquals(annotations, writeCheckingEveryCharacter("{\\b x{\\b0 y}z}w"));
+    }
+
+    @Test
+    public void testSiblingGroups() throws Exception {
+        String rtf = "a{\\b b{\\i c}{\\i d}e}{\\b f}{\\i\\b g{\\b0 h}}i";
+        assertEquals(write(rtf), writeCheckingEveryCharacter(rtf));
+    }
+
+    @Test
+    public void testHiddenCharacters() throws Exception {
+        String rtf = "{\\b x{\\v\\i y}z}w";
+        List<String> annotations = write(rtf);
+        assertEquals(annotations, Arrays.asList(BOLD + "[0, 2)"));
+        assertEquals(annotations, writeCheckingEveryCharacter(rtf));
+    }
+
+    /**
+     * Writes the characters of a minimal rtf fragment to a cas output destination, entering and leaving groups and
+     * setting the bold, italic and hidden properties.
+     */
+    private List<String> write(String rtf) throws Exception {
+        CasOutputDestination destination = new CasOutputDestination(cas.getJCas(), propertyMappings,
+                new HashMap<>(), "Rtf");
+        run(rtf, destination);
+        destination.finishDestination();
+        List<String> annotations = describe(cas);
+        cas.reset();
+        return annotations;
+    }
+
+    /**
+     * Writes the same fragment while running a fresh set of watchers on the values of every character, which is how
+     * properties were watched before the destination compared property versions.
+     */
+    private List<String> writeCheckingEveryCharacter(String rtf) throws Exception {
+        int hiddenId = propertyMappings.getHiddenPropertyId();
+        int[] watchedIds = propertyMappings.getWatchedPropertyIds();
+        AnnotationPropertyWatcher[][] watchers = propertyMappings.createWatchers();
+        StringBuilder text = new StringBuilder();
+        List<AnnotationFS> completed = new ArrayList<>();
+        run(rtf, new OutputDestination() {
+            @Override
+            public int writeChar(char ch, State state) {
+                for (int i = 0; i < watchedIds.length; i++) {
+                    for (AnnotationPropertyWatcher watcher : watchers[i]) {
+                        AnnotationFS annotation = watcher.handleChange(text.length(),
+                                state.getPropertyValue(watchedIds[i]), cas);
+                        if (annotation != null) {
+                            completed.add(annotation);
+                        }
+                    }
+                }
+                if (state.getPropertyValue(hiddenId) != 0) {
+                    return -1;
+                }
+                text.append(ch);
+                return text.length() - 1;
+            }
+
+            @Override
+            public void finishDestination() {
+            }
+
+            @Override
+            public void controlWordEncountered(KeywordAction keywordAction) {
+            }
+
+            @Override
+            public String getName() {
+                return "Rtf";
+            }
+        });
+        cas.setDocumentText(text.toString());
+        completed.forEach(cas::addFsToIndexes);
+        List<String> annotations = describe(cas);
+        cas.reset();
+        return annotations;
+    }
+
+    private void run(String rtf, OutputDestination destination) throws Exception {
+        Map<String, OutputDestination> destinations = new HashMap<>();
+        destinations.put("Rtf", destination);
+        Deque<State> states = new ArrayDeque<>();
+        State state = new State(destinations, name -> null, propertyTable, NO_LISTENER);
+        state.changeDestination("Rtf");
+        int i = 0;
+        while (i < rtf.length()) {
+            char ch = rtf.charAt(i++);
+            if (ch == '{') {
+                states.push(state);
+                state = state.copy();
+            } else if (ch == '}') {
+                state = states.pop();
+            } else if (ch == '\\') {
+                int wordEnd = i;
+                while (wordEnd < rtf.length() && Character.isLetter(rtf.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                String word = rtf.substring(i, wordEnd);
+                int value = 1;
+                if (wordEnd < rtf.length() && rtf.charAt(wordEnd) == '0') {
+                    value = 0;
+                    wordEnd++;
+                }
+                if (wordEnd < rtf.length() && rtf.charAt(wordEnd) == ' ') {
+                    wordEnd++;
+                }
+                i = wordEnd;
+                state.setPropertyValue("CharacterFormatting", propertyName(word), value);
+            } else {
+                state.directWriteCharacter(ch, Span.create(i - 1, i));
+            }
+        }
+    }
+
+    private static String propertyName(String controlWord) {
+        switch (controlWord) {
+            case "b":
+                return "Bold";
+            case "i":
+                return "Italic";
+            case "v":
+                return "Hidden";
+            default:
+                throw new IllegalArgumentException("Unknown control word: " + controlWord);
+        }
+    }
+
+    private static List<String> describe(CAS cas) {
+        List<String> annotations = new ArrayList<>();
+        for (String typeName : Arrays.asList(BOLD, ITALIC)) {
+            Type type = cas.getTypeSystem().getType(typeName);
+            for (AnnotationFS annotation : cas.getAnnotationIndex(type)) {
+                annotations.add(typeName + "[" + annotation.getBegin() + ", " + annotation.getEnd() + ")");
+            }
+        }
+        return annotations;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.rtf;
+
+import edu.umn.biomedicus.common.types.text.Span;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for {@link OriginalDocumentOffsetMap}.
+ */
+public class OriginalDocumentOffsetMapTest {
+    private static OriginalDocumentOffsetMap map() {
+        OriginalDocumentOffsetMap.Builder builder = new OriginalDocumentOffsetMap.Builder("Rtf");
+        // "abc" at 10, an escaped character at 20, a hidden character, then "de" at 30
+        builder.add(0, 10, 11);
+        builder.add(1, 11, 12);
+        builder.add(2, 12, 13);
+        builder.add(3, 20, 24);
+        builder.add(-1, 24, 25);
+        builder.add(4, 30, 31);
+        builder.add(5, 31, 32);
+        return builder.build();
+    }
+
+    @Test
+    public void testOriginalLocation() throws Exception {
+        OriginalDocumentOffsetMap map = map();
+        assertEquals(map.originalLocation(0), Span.create(10, 11));
+        assertEquals(map.originalLocation(2), Span.create(12, 13));
+        assertEquals(map.originalLocation(3), Span.create(20, 24));
+        assertEquals(map.originalLocation(5), Span.create(31, 32));
+        assertNull(map.originalLocation(6));
+        assertNull(map.originalLocation(-1));
+    }
+
+    @Test
+    public void testOriginalLocationOfSpan() throws Exception {
+        OriginalDocumentOffsetMap map = map();
+        assertEquals(map.originalLocation(Span.create(1, 5)), Span.create(11, 31));
+        assertEquals(map.originalLocation(Span.create(3, 3)), Span.create(20, 20));
+        assertNull(map.originalLocation(Span.create(4, 7)));
+    }
+
+    @Test
+    public void testForEachCharacter() throws Exception {
+        List<String> characters = new ArrayList<>();
+        map().forEachCharacter((destinationName, destinationIndex, originalDocumentTextLocation) ->
+                characters.add(destinationName + destinationIndex + originalDocumentTextLocation.toSpan()));
+        assertEquals(characters.size(), 6);
+        assertEquals(characters.get(3), "Rtf3" + Span.create(20, 24));
+    }
+}
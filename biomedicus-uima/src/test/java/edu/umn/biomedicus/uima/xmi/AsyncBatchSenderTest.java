@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.xmi;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.testng.Assert.*;
+
+public class AsyncBatchSenderTest {
+    @Test
+    public void testFlushSendsEverythingInBatches() throws Exception {
+        List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        try (AsyncBatchSender<Integer> sender = new AsyncBatchSender<>("test-sender", batch -> {
+            started.await();
+            batchSizes.add(batch.size());
+            sent.addAll(batch);
+        }, 10, 4)) {
+            for (int i = 0; i < 10; i++) {
+                sender.submit(i);
+            }
+            started.countDown();
+            sender.flush();
+            for (int i = 10; i < 20; i++) {
+                sender.submit(i);
+            }
+            sender.flush();
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(i);
+        }
+        assertEquals(sent, expected);
+        for (int batchSize : batchSizes) {
+            assertTrue(batchSize <= 4);
+        }
+        assertTrue(batchSizes.size() < 20);
+    }
+
+    @Test
+    public void testFailureReportedOnFlush() throws Exception {
+        try (AsyncBatchSender<Integer> sender = new AsyncBatchSender<>("test-sender", batch -> {
+            throw new IllegalStateException("down");
+        }, 4, 2)) {
+            sender.submit(1);
+            try {
+                sender.flush();
+                fail();
+            } catch (IOException e) {
+                assertEquals(e.getCause().getMessage(), "down");
+            }
+            try {
+                sender.submit(2);
+                fail();
+            } catch (IOException e) {
+                assertEquals(e.getCause().getMessage(), "down");
+            }
+        }
+    }
+
+    @Test
+    public void testErrorReportedOnFlush() throws Exception {
+        try (AsyncBatchSender<Integer> sender = new AsyncBatchSender<>("test-sender", batch -> {
+            throw new AssertionError("down");
+        }, 4, 2)) {
+            sender.submit(1);
+            try {
+                sender.flush();
+                fail();
+            } catch (IOException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        }
+    }
+
+    @Test(timeOut = 10000)
+    public void testFlushFailsWhenThreadStopsWithItemsUnsent() throws Exception {
+        CountDownLatch queued = new CountDownLatch(1);
+        try (AsyncBatchSender<Integer> sender = new AsyncBatchSender<>("test-sender", batch -> {
+            queued.await();
+            // the next take from the queue is interrupted, which stops the thread
+            Thread.currentThread().interrupt();
+        }, 8, 1)) {
+            for (int i = 0; i < 4; i++) {
+                sender.submit(i);
+            }
+            queued.countDown();
+            try {
+                sender.flush();
+                fail();
+            } catch (IOException e) {
+                assertEquals(e.getMessage(), "Sender thread stopped with 3 items unsent");
+            }
+        }
+    }
+
+    @Test
+    public void testCloseSendsRemaining() throws Exception {
+        List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+        AsyncBatchSender<Integer> sender = new AsyncBatchSender<>("test-sender", sent::addAll, 8, 3);
+        for (int i = 0; i < 7; i++) {
+            sender.submit(i);
+        }
+        sender.close();
+        assertEquals(sent.size(), 7);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Regents of the University of Minnesota.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.umn.biomedicus.uima.xmi;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.XMLInputSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class CasSerializationTest {
+    private TypeSystemDescription typeSystemDescription;
+
+    private CAS cas;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        XMLInputSource inputSource = new XMLInputSource(
+                getClass().getResource("/edu/umn/biomedicus/types/TypeSystem.xml"));
+        typeSystemDescription = UIMAFramework.getXMLParser().parseTypeSystemDescription(inputSource);
+        typeSystemDescription.resolveImports();
+        cas = CasCreationUtils.createCas(typeSystemDescription, null, null);
+        CAS systemView = cas.createView("SystemView");
+        systemView.setDocumentText("The patient was seen today.");
+        Type sentenceType = cas.getTypeSystem().getType("edu.umn.biomedicus.uima.type1_6.Sentence");
+        systemView.addFsToIndexes(systemView.createAnnotation(sentenceType, 0, 27));
+    }
+
+    @DataProvider(name = "serializations")
+    public Object[][] serializations() {
+        List<Object[]> serializations = new ArrayList<>();
+        for (CasSerialization.Format format : CasSerialization.Format.values()) {
+            for (CasSerialization.Compression compression : CasSerialization.Compression.values()) {
+                serializations.add(new Object[]{new CasSerialization(format, compression)});
+            }
+        }
+        return serializations.toArray(new Object[serializations.size()][]);
+    }
+
+    @Test(dataProvider = "serializations")
+    public void testRoundTrip(CasSerialization casSerialization) throws Exception {
+        byte[] bytes = casSerialization.toBytes(cas);
+
+        CAS deserialized = CasCreationUtils.createCas(typeSystemDescription, null, null);
+        casSerialization.deserialize(deserialized, new ByteArrayInputStream(bytes), false);
+
+        CAS systemView = deserialized.getView("SystemView");
+        assertEquals(systemView.getDocumentText(), "The patient was seen today.");
+        Type sentenceType = deserialized.getTypeSystem().getType("edu.umn.biomedicus.uima.type1_6.Sentence");
+        List<AnnotationFS> sentences = new ArrayList<>();
+        systemView.getAnnotationIndex(sentenceType).forEach(sentences::add);
+        assertEquals(sentences.size(), 1);
+        assertEquals(sentences.get(0).getBegin(), 0);
+        assertEquals(sentences.get(0).getEnd(), 27);
+    }
+
+    @Test
+    public void testExtension() throws Exception {
+        assertEquals(new CasSerialization(CasSerialization.Format.BINARY, CasSerialization.Compression.LZ4)
+                .getExtension(), ".bcas.lz4");
+        assertEquals(new CasSerialization(CasSerialization.Format.XMI, CasSerialization.Compression.NONE)
+                .getExtension(), ".xmi");
+    }
+}